@@ -0,0 +1,146 @@
+/**
+ * Move generation for the standard 8x8 board using bitboards. Each player's discs are
+ * stored in a single long where the bit at index row*8+column is set if the player has
+ * a disc on that square, so finding legal moves and captures is done with shifts and
+ * masks over all 64 squares at once instead of walking the board square by square
+ *
+ * All methods are static and work on plain longs so nothing is allocated while
+ * generating moves
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class BitBoard
+{
+    // Squares not in the leftmost/rightmost column, used to stop shifts wrapping rows
+    public static final long NOTLEFTEDGE = 0xfefefefefefefefeL;
+    public static final long NOTRIGHTEDGE = 0x7f7f7f7f7f7f7f7fL;
+    
+    // Columns 1 to 6, opponent discs are masked with this for any direction that moves
+    // horizontally so a run of captured discs can never wrap onto the next row
+    private static final long INNERCOLUMNS = 0x7e7e7e7e7e7e7e7eL;
+    
+    /**
+     * Finds every square the player could place a disc on. For each of the eight
+     * directions the player's discs are shifted over runs of adjacent opponent discs
+     * (at most 6 in a row on an 8x8 board) and any empty square found right after such
+     * a run is a legal move
+     * 
+     * @param player        the discs of the player whose turn it is
+     * @param opponent      the discs of the other player
+     * 
+     * @return a mask with a bit set on each legal move
+     */
+    public static long legalMoves(long player, long opponent) {
+        long empty = ~(player | opponent);
+        long inner = opponent & INNERCOLUMNS;
+        long moves = 0;
+        long t;
+        
+        // Horizontal going right and left
+        t = inner & (player << 1);
+        t |= inner & (t << 1); t |= inner & (t << 1); t |= inner & (t << 1);
+        t |= inner & (t << 1); t |= inner & (t << 1);
+        moves |= t << 1;
+        t = inner & (player >>> 1);
+        t |= inner & (t >>> 1); t |= inner & (t >>> 1); t |= inner & (t >>> 1);
+        t |= inner & (t >>> 1); t |= inner & (t >>> 1);
+        moves |= t >>> 1;
+        
+        // Vertical going down and up
+        t = opponent & (player << 8);
+        t |= opponent & (t << 8); t |= opponent & (t << 8); t |= opponent & (t << 8);
+        t |= opponent & (t << 8); t |= opponent & (t << 8);
+        moves |= t << 8;
+        t = opponent & (player >>> 8);
+        t |= opponent & (t >>> 8); t |= opponent & (t >>> 8); t |= opponent & (t >>> 8);
+        t |= opponent & (t >>> 8); t |= opponent & (t >>> 8);
+        moves |= t >>> 8;
+        
+        // Diagonal going to bottom right and top left
+        t = inner & (player << 9);
+        t |= inner & (t << 9); t |= inner & (t << 9); t |= inner & (t << 9);
+        t |= inner & (t << 9); t |= inner & (t << 9);
+        moves |= t << 9;
+        t = inner & (player >>> 9);
+        t |= inner & (t >>> 9); t |= inner & (t >>> 9); t |= inner & (t >>> 9);
+        t |= inner & (t >>> 9); t |= inner & (t >>> 9);
+        moves |= t >>> 9;
+        
+        // Diagonal going to bottom left and top right
+        t = inner & (player << 7);
+        t |= inner & (t << 7); t |= inner & (t << 7); t |= inner & (t << 7);
+        t |= inner & (t << 7); t |= inner & (t << 7);
+        moves |= t << 7;
+        t = inner & (player >>> 7);
+        t |= inner & (t >>> 7); t |= inner & (t >>> 7); t |= inner & (t >>> 7);
+        t |= inner & (t >>> 7); t |= inner & (t >>> 7);
+        moves |= t >>> 7;
+        
+        return moves & empty;
+    }
+    
+    /**
+     * Finds the discs captured by placing a disc on the given square. Starting from the
+     * placed disc, a run of opponent discs is grown in each direction and it's only kept
+     * if the square right after the run belongs to the player (so the run is flanked)
+     * 
+     * @param player        the discs of the player whose turn it is
+     * @param opponent      the discs of the other player
+     * @param square        the square the disc is placed on (row*8+column), which has to
+     * be empty since it isn't checked here
+     * 
+     * @return a mask of the discs to be captured, 0 if the move captures nothing
+     */
+    public static long flips(long player, long opponent, int square) {
+        long move = 1L << square;
+        long inner = opponent & INNERCOLUMNS;
+        long flipped = 0;
+        long t;
+        
+        t = inner & (move << 1);
+        t |= inner & (t << 1); t |= inner & (t << 1); t |= inner & (t << 1);
+        t |= inner & (t << 1); t |= inner & (t << 1);
+        if (((t << 1) & player) != 0) flipped |= t;
+        t = inner & (move >>> 1);
+        t |= inner & (t >>> 1); t |= inner & (t >>> 1); t |= inner & (t >>> 1);
+        t |= inner & (t >>> 1); t |= inner & (t >>> 1);
+        if (((t >>> 1) & player) != 0) flipped |= t;
+        
+        t = opponent & (move << 8);
+        t |= opponent & (t << 8); t |= opponent & (t << 8); t |= opponent & (t << 8);
+        t |= opponent & (t << 8); t |= opponent & (t << 8);
+        if (((t << 8) & player) != 0) flipped |= t;
+        t = opponent & (move >>> 8);
+        t |= opponent & (t >>> 8); t |= opponent & (t >>> 8); t |= opponent & (t >>> 8);
+        t |= opponent & (t >>> 8); t |= opponent & (t >>> 8);
+        if (((t >>> 8) & player) != 0) flipped |= t;
+        
+        t = inner & (move << 9);
+        t |= inner & (t << 9); t |= inner & (t << 9); t |= inner & (t << 9);
+        t |= inner & (t << 9); t |= inner & (t << 9);
+        if (((t << 9) & player) != 0) flipped |= t;
+        t = inner & (move >>> 9);
+        t |= inner & (t >>> 9); t |= inner & (t >>> 9); t |= inner & (t >>> 9);
+        t |= inner & (t >>> 9); t |= inner & (t >>> 9);
+        if (((t >>> 9) & player) != 0) flipped |= t;
+        
+        t = inner & (move << 7);
+        t |= inner & (t << 7); t |= inner & (t << 7); t |= inner & (t << 7);
+        t |= inner & (t << 7); t |= inner & (t << 7);
+        if (((t << 7) & player) != 0) flipped |= t;
+        t = inner & (move >>> 7);
+        t |= inner & (t >>> 7); t |= inner & (t >>> 7); t |= inner & (t >>> 7);
+        t |= inner & (t >>> 7); t |= inner & (t >>> 7);
+        if (((t >>> 7) & player) != 0) flipped |= t;
+        
+        return flipped;
+    }
+    
+    /**
+     * @return the number of discs (set bits) in the mask
+     */
+    public static int count(long discs) {
+        return Long.bitCount(discs);
+    }
+}
@@ -1,37 +1,114 @@
 // Swing Imports
 import javax.swing.JPanel;
-import javax.swing.border.EmptyBorder;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 
 // AWT Imports
-import java.awt.GridLayout;
 import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
 
 // Other Imports
-import java.util.ArrayList;
-
+import java.util.Arrays;
 
 /**
- * The game board. This stores and keep track of NxN number of disc objects and is responsible
- * for calculating legal moves and captures and also communicates with the main Reversi
- * object changes in board state
+ * The game board. This paints the squares of a GameState itself as one component, rather
+ * than having a component per square, and works out which square was clicked from where
+ * the mouse was. The game state is responsible for calculating legal moves and captures
+ * and the board communicates with the main Reversi object changes in board state
+ *
+ * When squares change only those squares are repainted, and painting only draws the
+ * squares inside the area being repainted, so playing a move takes the same time however
+ * big the board is. Every square draws its disc with the same two shared DiscIcons
+ *
+ * The board sits in a scroll pane and can be zoomed in and out (holding control while
+ * turning the mouse wheel zooms around the mouse). By default it fits itself to the
+ * window. Only the squares in view are ever painted, and when the squares get small they
+ * are drawn with less detail: plain ovals instead of the icons and then just a colored
+ * square each. Nothing is kept per square besides the game state, so a huge board costs
+ * no more memory than its bitboards
  *
  * @author Milovan Gveric
  * @version 26/03/2021
  */
-public class Board extends JPanel
+public class Board extends JPanel implements Scrollable
 {
     private Reversi controller;
     
     private int boardSize = 8;
-    private Disc[][] boardDiscs;
-    private GridLayout layout;
     
-    private String currentDiscColor;
+    private GameState gameState;
+    
+    // The moves played this game so they can be undone and redone, and whether they go
+    // back to the start of the game (they don't for a save without its moves)
+    private MoveHistory history;
+    private boolean historyFromStart = false;
+    
+    // The legal moves currently marked on the board, so they can be unmarked without
+    // going through the whole board
+    private long[] shownMoves;
+    
+    // Indicates whether legal moves should be shown to the players
+    private boolean showLegalMoves = true;
+    
+    // The preferred size of each square in pixels, the gap between squares and around
+    // the board. Squares shrink to fit the space the board is given, like a grid layout
+    private final int CELLSIZE = 64;
+    private final int GAP = 5;
+    private final int MARGIN = 10;
+    
+    // The size of each square and gap at the board's current size, worked out by fitSquares
+    private int cellSize = CELLSIZE;
+    private int gap = GAP;
+    
+    // The distance from one square to the next at each zoom level, and the zoomed distance
+    // (0 while the board fits itself to the window)
+    private final int[] ZOOMSTEPS = {1, 2, 3, 4, 6, 8, 12, 16, 24, 32, 48, CELLSIZE+GAP};
+    private int zoomStep = 0;
+    
+    // Squares smaller than this are drawn as just a colored square
+    private final int FLATSIZE = 4;
+    
+    // The minimap showing the whole board, told whenever discs change
+    private Minimap minimap;
+    
+    public static final Color CELLCOLOR = new Color(237, 196, 208);
+    public static final Color LEGALCOLOR = Color.BLUE;
+    public static final Color BESTCOLOR = new Color(0, 128, 0);
+    
+    // The analysis mode, which scores the legal moves while it's a person's turn and shows
+    // each score on its square as it comes in. The scores and depths are kept for the
+    // analysed moves only, in the order of analysedMoves
+    private MoveAnalysis analysis;
+    private boolean showAnalysis = false;
+    private int[] analysedMoves = new int[0];
+    private int[] analysisScores = new int[0];
+    private int[] analysisDepths = new int[0];
+    private boolean[] analysisExact = new boolean[0];
+    private int bestAnalysedMove = -1;
+    
+    // Squares smaller than this don't have room for a move's score
+    private final int ANALYSISSIZE = 28;
+    
+    // Boards bigger than this keep their legal moves up to date after each move rather
+    // than finding them from scratch, setting the reversi.verifyMoves system property checks
+    // each update against a full rescan
+    private final int INCREMENTALSIZE = 8;
+    private final boolean VERIFYMOVES = Boolean.getBoolean("reversi.verifyMoves");
     
     // Board Related Methods
     
     /**
-     * the boardDiscs array stores all the disc objects and utilises a grid layout
+     * The board starts at 8x8 and listens for clicks on its squares
      * 
      * @param controller        The controller is the Reversi object which the board communicates
      * changes to so the game progresses
@@ -39,56 +116,45 @@ public class Board extends JPanel
     public Board(Reversi controller) {
         this.controller = controller;
         
-        layout = new GridLayout(8,8,5,5);
-        boardDiscs =  new Disc[8][8];
+        gameState = new GameState(8);
+        history = new MoveHistory(8);
+        shownMoves = new long[Rules.words(8)];
         
-        this.setBorder(new EmptyBorder(10,10,10,10));
-        this.setLayout(layout);
-    }
-    
-    /**
-     * Creates blank discs, used when initialising the board and whenever its size is set
-     * by the user
-     */
-    private void populateBoard() {
-        for (int r=0; r<boardSize; r++) {
-            for (int c=0; c<boardSize; c++) {
-                Disc newDisc = new Disc(this);
-                addDisc(newDisc, r, c);
+        this.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                clickSquare(squareAt(e.getX(), e.getY()));
             }
-        }
+        });
+        this.addMouseWheelListener(e -> wheelMoved(e));
     }
     
     /**
-     * Used to add the disc object to both the boardDiscs array and to the gridlayout so
-     * its visible to players
-     * 
-     * @param newDisc       the disc object to be added
-     * @param row           its row position
-     * @param column        its column position
+     * @param minimap       the minimap to tell when discs change
      */
-    private void addDisc(Disc newDisc, int row, int column) {
-        boardDiscs[row][column] = newDisc;
-        this.add(newDisc);
-    }    
+    public void setMinimap(Minimap minimap) {
+        this.minimap = minimap;
+    }
     
     /**
-     * sets the board size, uses the gridlayouts setRows and setColumns methods and then
-     * repopulates the board (because the boardDiscs array has to be resized, so the discs
-     * lose reference and are garbage collected). After doing this to make sure its visible
-     * to the user the board (JPanel) is repainted and revalidated
+     * sets the board size and creates a new game state of that size, the board goes back
+     * to fitting the window. After doing this to make sure its visible to the user the
+     * board (JPanel) is revalidated (its preferred size has changed) and repainted
      * 
      * @param size      the new board size
      */
     public void setBoardSize(int size) {
+        stopAnalysis();
         boardSize = size;
-        boardDiscs = new Disc[size][size];
-        this.removeAll();
-        layout.setRows(size);
-        layout.setColumns(size);
-        populateBoard();
-        this.repaint();
+        gameState = new GameState(size);
+        history = new MoveHistory(size);
+        shownMoves = new long[Rules.words(size)];
+        if (size > INCREMENTALSIZE) {
+            gameState.enableIncrementalMoves(VERIFYMOVES);
+        }
+        zoomStep = 0;
         this.revalidate();
+        updateAllDiscs();
     }    
     
     /**
@@ -96,13 +162,10 @@ public class Board extends JPanel
      * the middle of the board
      */
     public void startGame() {
-        int pos = boardSize/2-1;
-        
-        boardDiscs[pos][pos].makeWhite();
-        boardDiscs[pos][pos+1].makeBlack();
-        boardDiscs[pos+1][pos].makeBlack();
-        boardDiscs[pos+1][pos+1].makeWhite();
-        
+        gameState.startGame();
+        history.clear();
+        historyFromStart = true;
+        updateAllDiscs();
     }
     
     /**
@@ -115,183 +178,84 @@ public class Board extends JPanel
         resetBoard();
     }
     
-    /**
-     * Used by the controller to initially populate the board 
-     * (since the size is by default 8x8).
-     */
-    public void setBoardSize() {
-        populateBoard();
-    }    
-    
     // Move Related Methods
     
     /**
      * At the start of each turn this method is run to check if there are any moves a player
-     * can make. If the noLegalMoves flag remains true by the end then no legal moves were
-     * found and so the player has to pass the turn.
-     * 
-     * Using getTurn, then the method checks for the player each disc in the 
-     * boardDiscs array and sees if its empty (because you can't make a move on colored discs)
-     * and if you can capture any discs from that position. If its a legal move then the
-     * disc at that position is made legal
+     * can make. The game state works out every legal move for the side to move at once and
+     * those squares are marked as legal. If there are none then the player has to
+     * pass the turn, otherwise the controller is told a move is awaited (so the computer
+     * player can play if it's its turn).
      */
     public void checkAllLegalMoves() {
+        gameState.legalMoves(shownMoves);
         boolean noLegalMoves = true;
-        boolean turn = controller.getTurn();
-        currentDiscColor = (turn) ? "black" : "white";
-        
-        // Go through each disc on the board to find the legal positions
-        Disc currentDisc;
-        for (int r=0; r<boardSize; r++) {
-            for (int c=0; c<boardSize; c++) {
-                currentDisc = boardDiscs[r][c];
-                if (currentDisc.isEmpty()) {
-                    if (getLegalMoves(r, c) != null) {
-                        noLegalMoves = false;
-                        currentDisc.makeLegal();
-                    }
-                }
+        
+        for (int i=0; i<shownMoves.length; i++) {
+            long word = shownMoves[i];
+            while (word != 0) {
+                repaintSquare(i*64+Long.numberOfTrailingZeros(word));
+                noLegalMoves = false;
+                word &= word-1;
             }
         }
         
         if (noLegalMoves) {
             controller.passTurn();
+        } else {
+            controller.awaitMove();
+            startAnalysis();
         }
     }    
     
     /**
-     * Checks each direction clockwise around a disc to see if there are any possible 
-     * directions of capture, if not then the arraylist will have a size of 0, so the method
-     * returns null (as there are no legal moves to capture)
-     * 
-     * This method is also used to check for legal moves because if the returned arraylist
-     * is null then it knows there are no legal moves
-     * 
-     * @param r     the row of the current disc
-     * @param c     the column of the current disc
-     * 
-     * @return An arraylist of discs to be captured / indicate legal moves or null to show
-     * that there are no legal moves
-     */
-    private ArrayList<Disc> getLegalMoves(int r, int c) {
-        ArrayList<Disc> capturedDiscs = new ArrayList<>();
-        ArrayList<Disc> tempList;
-        
-        // Check vertical going up
-        tempList = checkDirection(r-1, c, -1, 0);
-        if ( tempList != null ) capturedDiscs.addAll(tempList);
-        //Check vertical going down
-        tempList = checkDirection(r+1, c, 1, 0);
-        if ( tempList != null ) capturedDiscs.addAll(tempList);
-        
-        // Check horizontal going left
-        tempList = checkDirection(r, c-1, 0, -1);
-        if ( tempList != null ) capturedDiscs.addAll(tempList);
-        // Check horizontal going right
-        tempList = checkDirection(r, c+1, 0, 1);
-        if ( tempList != null ) capturedDiscs.addAll(tempList);
-        
-        // Check diagonal going to top left
-        tempList = checkDirection(r-1, c-1, -1, -1);
-        if ( tempList != null ) capturedDiscs.addAll(tempList);
-        // Check diagonal going to bottom right
-        tempList = checkDirection(r+1, c+1, 1, 1);
-        if ( tempList != null ) capturedDiscs.addAll(tempList);
-        
-        // Check diagonal going to top right
-        tempList = checkDirection(r-1, c+1, -1, 1);
-        if ( tempList != null ) capturedDiscs.addAll(tempList);
-        // Check diagonal going to bottom left
-        tempList = checkDirection(r+1, c-1, 1, -1);
-        if ( tempList != null ) capturedDiscs.addAll(tempList);
-        
-        // If no legal directions of capture have been found, then return null
-        if (capturedDiscs.size() == 0)
-            return null;
-
-        return capturedDiscs;
+     * @return whether players can click on squares to play moves, which they can't while
+     * it's the computer player's turn
+     */
+    public boolean acceptsClicks() {
+        return !controller.isComputerTurn();
     }
     
     /**
-     * Given a position (row and column), along with increments (-1, 0 or +1) this
-     * method will go through all the discs at that position to see which discs of the
-     * opposite color to the current player can be captured. If the increments to the row
-     * or column goes outside of the board's boundary or it comes across an empty disc 
-     * (which means the discs up to that point aren't being flanked) then null is
-     * returned
+     * Called when a player clicks on a square, will only allow actually valid moves
+     * otherwise an error message is shown in the status bar. Clicks are ignored while it's
+     * the computer player's turn
      * 
-     * @param r     starting row position
-     * @param c     starting column position
-     * @param rInc  how much to increment/decrement the row at every iteration
-     * @param cInc  how much to increment/decrement the column at every iteration
-     * 
-     * @return An arraylist with all the discs that can be captured in a direction
-     * or null if no discs can be captured in that direction
+     * @param square        the square clicked, or -1 if the click missed every square
      */
-    private ArrayList<Disc> checkDirection(int r, int c, int rInc, int cInc) {
-        ArrayList<Disc> legalDiscs = new ArrayList<>();
+    private void clickSquare(int square) {
+        if (square < 0) return;
         
-        while ( (r>=0 && r<boardSize) && (c>=0 && c<boardSize) ) {
-            Disc tempDisc = boardDiscs[r][c];
-            
-            if (tempDisc.isEmpty()) {
-                return null;
-            }
-            
-            if (tempDisc.getType().equals(currentDiscColor)) {
-                if (legalDiscs.size() == 0) {
-                    return null;
-                } else {
-                    return legalDiscs;
-                }
-            }
-            
-            legalDiscs.add(tempDisc);
-            
-            r += rInc;
-            c += cInc;
+        if (!acceptsClicks()) {
+            setStatusBar("Wait for the computer to move", Color.RED);
+        } else if (Rules.has(shownMoves, square)) {
+            playSquare(square);
+        } else {
+            setStatusBar("Illegal Move", Color.RED);
         }
-        
-        return null;
-    }      
+    }
     
     /**
-     * Any time a legal move disc is clicked it communicates it to this method and the board
-     * finds the selected disc to know what the starting row and column positions are to
-     * get the discs to be captured from that position. It then switches to the next players
-     * turn by calling nextTurn in the Reversi object
+     * Any time a legal square is clicked (or the computer player picks a move) the move is
+     * played on the game state and only the placed and captured discs are repainted. It
+     * then switches to the next players turn by calling nextTurn in the Reversi object
      * 
-     * @param selectedDisc      the disc that was clicked during one player's turn
+     * @param square        the square (row*boardSize+column) to play on
      */
-    public void playMove(Disc selectedDisc) {
+    public void playSquare(int square) {
         boolean turn = controller.getTurn();
         
-        selectedDisc.makeIllegal();
         setStatusBar("It's "+((turn) ? "White" : "Black")+"'s Turn", Color.BLACK);
         
-        ArrayList<Disc> capturedDiscs;
-        int r = 0;
-        int c = 0;
+        history.play(gameState, square);
+        updateDisc(square);
         
-        for (int i=0; i<boardSize; i++) {
-            for (int j=0; j<boardSize; j++) {
-                if (selectedDisc.equals(boardDiscs[i][j])) {
-                    r = i;
-                    c = j;
-                }
-            }
-        }
-        
-        // find all discs to be captured
-
-        capturedDiscs = getLegalMoves(r, c);
-        capturedDiscs.add(selectedDisc);
-        
-        for (Disc disc: capturedDiscs) {
-            if (turn) {
-                disc.makeBlack();
-            } else {
-                disc.makeWhite();
+        long[] capturedDiscs = gameState.getLastFlips();
+        for (int i=0; i<capturedDiscs.length; i++) {
+            long word = capturedDiscs[i];
+            while (word != 0) {
+                updateDisc(i*64+Long.numberOfTrailingZeros(word));
+                word &= word-1;
             }
         }
         
@@ -299,148 +263,682 @@ public class Board extends JPanel
         controller.nextTurn();
     }    
     
+    /**
+     * Passes the turn of the player who has no legal moves, recording the pass so it can
+     * be undone
+     */
+    public void passTurn() {
+        history.pass(gameState);
+    }
+    
+    /**
+     * Takes back the last move (or pass) and updates only the discs it changed, the legal
+     * moves are marked again by checkAllLegalMoves
+     * 
+     * @return false if there was no move to undo
+     */
+    public boolean undoMove() {
+        if (!history.canUndo()) return false;
+        
+        resetLegalMoves();
+        history.undo(gameState);
+        updatePly(history.getPlies());
+        return true;
+    }
+    
+    /**
+     * Plays the last move taken back by undoMove again
+     * 
+     * @return false if there was no move to redo
+     */
+    public boolean redoMove() {
+        if (!history.canRedo()) return false;
+        
+        resetLegalMoves();
+        history.redo(gameState);
+        updatePly(history.getPlies()-1);
+        return true;
+    }
+    
+    /**
+     * Updates the discs a ply of the history placed and captured
+     */
+    private void updatePly(int ply) {
+        int square = history.getMove(ply);
+        if (square == Search.PASS) return;
+        
+        updateDisc(square);
+        for (int i=0; i<history.getFlipCount(ply); i++) {
+            updateDisc(history.getFlip(ply, i));
+        }
+    }
+    
     // "Utility" Methods
     
     /**
-     * Goes through all the discs on the board and changes their showLegalMoves field to
-     * indicate whether they should show their colored borders when/if they are a legal move
-     * that can be played on by a player
+     * Sets whether legal moves are shown with colored borders around their squares, only
+     * the squares currently marked as legal are repainted
      * 
      * @param flag      true or false to show or hide legal moves where players can place discs
      */
     public void setShowLegalMoves(boolean flag) {
-        for (int r=0; r<boardSize; r++) {
-            for (int c=0; c<boardSize; c++) {
-                boardDiscs[r][c].setShowLegalMoves(flag);
+        showLegalMoves = flag;
+        repaintSquares(shownMoves);
+    }
+    
+    /**
+     * Switches the analysis mode on or off. When it is on the legal moves of each person's
+     * turn are scored in the background and the scores are shown on their squares,
+     * getting deeper while the person thinks, with the best move's score in green
+     * 
+     * @param flag      true to show the analysis, false to stop it
+     */
+    public void setShowAnalysis(boolean flag) {
+        showAnalysis = flag;
+        if (flag) {
+            startAnalysis();
+        } else {
+            stopAnalysis();
+        }
+    }
+    
+    public boolean isShowingAnalysis() {
+        return showAnalysis;
+    }
+    
+    /**
+     * Starts analysing the marked legal moves if the analysis mode is on and it's a
+     * person's turn, the analysis is stopped again by the next move
+     */
+    private void startAnalysis() {
+        stopAnalysis();
+        if (!showAnalysis || !acceptsClicks()) return;
+        
+        int count = 0;
+        for (long word: shownMoves) {
+            count += Long.bitCount(word);
+        }
+        if (count == 0) return;
+        
+        analysedMoves = new int[count];
+        int next = 0;
+        for (int i=0; i<shownMoves.length; i++) {
+            long word = shownMoves[i];
+            while (word != 0) {
+                analysedMoves[next++] = i*64+Long.numberOfTrailingZeros(word);
+                word &= word-1;
             }
         }
+        analysisScores = new int[count];
+        analysisDepths = new int[count];
+        analysisExact = new boolean[count];
+        
+        if (analysis == null) {
+            analysis = new MoveAnalysis(Runtime.getRuntime().availableProcessors(),
+                MoveAnalysis.DEFAULTTABLEMB);
+        }
+        analysis.analyse(gameState, (move, depth, score, exact) ->
+            moveScored(move, depth, score, exact));
     }
     
     /**
-     * Goes through all discs on the board and makes them empty (neither black or white)
-     * used when starting new games or new sessions
+     * Stops the running analysis and takes its scores off the board
      */
-    private void resetBoard() {
-        for (int r=0; r<boardSize; r++) {
-            for (int c=0; c<boardSize; c++) {
-                boardDiscs[r][c].makeEmpty();
+    private void stopAnalysis() {
+        if (analysis != null) analysis.cancel();
+        for (int move: analysedMoves) {
+            repaintSquare(move);
+        }
+        
+        analysedMoves = new int[0];
+        bestAnalysedMove = -1;
+    }
+    
+    /**
+     * Shows a score found by the analysis, unless the move already has a deeper one
+     */
+    private void moveScored(int move, int depth, int score, boolean exact) {
+        int index = Arrays.binarySearch(analysedMoves, move);
+        if (index < 0 || depth <= analysisDepths[index]) return;
+        
+        analysisScores[index] = score;
+        analysisDepths[index] = depth;
+        analysisExact[index] = exact;
+        repaintSquare(move);
+        
+        int previousBest = bestAnalysedMove;
+        int bestScore = Integer.MIN_VALUE;
+        for (int i=0; i<analysedMoves.length; i++) {
+            if (analysisDepths[i] > 0 && analysisScores[i] > bestScore) {
+                bestScore = analysisScores[i];
+                bestAnalysedMove = analysedMoves[i];
             }
         }
+        if (previousBest >= 0 && previousBest != bestAnalysedMove) repaintSquare(previousBest);
+        repaintSquare(bestAnalysedMove);
     }
     
     /**
-     * Goes through all the discs on the board and marks them as illegal moves, used when
-     * starting new games and new sessions, because by default at the start of the game
-     * the user can't make a move anywhere. This resets the legality from any discs made
-     * legal in the previous game
+     * Empties the game state and then all the discs on the board (neither black or white)
+     * used when starting new games or new sessions
+     */
+    private void resetBoard() {
+        gameState.clear();
+        history.clear();
+        historyFromStart = false;
+        updateAllDiscs();
+    }
+    
+    /**
+     * Unmarks the squares that were marked as legal moves, used after each move and when
+     * starting new games and new sessions, because by default at the start of the game the
+     * user can't make a move anywhere. This resets the legality from any squares made legal
+     * in the previous turn or game
      */
     private void resetLegalMoves() {
-        for (int r=0; r<boardSize; r++) {
-            for (int c=0; c<boardSize; c++) {
-                Disc currentDisc = boardDiscs[r][c];
-                if (currentDisc.getLegalMove()) {
-                    boardDiscs[r][c].makeIllegal();
-                }
-                
-            }
+        stopAnalysis();
+        repaintSquares(shownMoves);
+        for (int i=0; i<shownMoves.length; i++) {
+            shownMoves[i] = 0;
         }
     }
     
     /**
-     * When loading a game the board state needs to be set to how it was, so it goes through
-     * all the disc states from the loaded game and reflects onto the current board. uses
-     * split because each row of discs is comma-delimited and disc properties are separate
-     * with spaces
+     * Repaints the disc at a square after the game state has changed there
      * 
-     * @param discs     the arraylist containing the states of discs from the loaded game
-     */
-    public void setData(ArrayList<String> discs) {
-        for (int r=0; r<boardSize; r++) {
-            String[] discPropRow = discs.get(r).split(",");
-            for (int c=0; c<boardSize; c++) {
-                Disc currentDisc = boardDiscs[r][c];
-                String[] discProps = discPropRow[c].split(" ");
-                
-                boolean discLegalMove = Boolean.parseBoolean(discProps[1]);
-                
-                switch (discProps[0]){
-                    case "black":
-                        currentDisc.makeBlack();
-                        break;
-                    case "white":
-                        currentDisc.makeWhite();
-                        break;
-                    case "empty":
-                        currentDisc.makeEmpty();
-                        break;
-                }
-                
-                if (discLegalMove) {
-                    currentDisc.makeLegal();
-                } else {
-                    currentDisc.makeIllegal();
+     * @param square        the square (row*boardSize+column) to update
+     */
+    private void updateDisc(int square) {
+        repaintSquare(square);
+        if (minimap != null) minimap.boardChanged();
+    }
+    
+    /**
+     * Repaints every square on the board, used when the whole board changes such as new
+     * games and loading games
+     */
+    private void updateAllDiscs() {
+        this.repaint();
+        if (minimap != null) minimap.boardChanged();
+    }
+    
+    // Painting Methods
+    
+    /**
+     * Paints the squares inside the area being repainted, each with its disc from the
+     * game state and a border if it is a legal move that is being shown. Small squares
+     * are painted flat, with one rectangle for all their backgrounds
+     * 
+     * @param g     the graphics object to be painted
+     */
+    @Override
+    public void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+        
+        fitSquares();
+        int step = cellSize+gap;
+        int firstRow = Math.max(0, (clip.y-MARGIN)/step);
+        int lastRow = Math.min(boardSize-1, (clip.y+clip.height-MARGIN)/step);
+        int firstColumn = Math.max(0, (clip.x-MARGIN)/step);
+        int lastColumn = Math.min(boardSize-1, (clip.x+clip.width-MARGIN)/step);
+        if (firstRow > lastRow || firstColumn > lastColumn) return;
+        
+        if (cellSize < FLATSIZE) {
+            g.setColor(CELLCOLOR);
+            g.fillRect(MARGIN+firstColumn*step, MARGIN+firstRow*step,
+                (lastColumn-firstColumn+1)*step, (lastRow-firstRow+1)*step);
+            for (int r=firstRow; r<=lastRow; r++) {
+                for (int c=firstColumn; c<=lastColumn; c++) {
+                    paintFlatSquare(g, r*boardSize+c, MARGIN+c*step, MARGIN+r*step);
                 }
             }
+            return;
         }
-    }    
+        
+        for (int r=firstRow; r<=lastRow; r++) {
+            for (int c=firstColumn; c<=lastColumn; c++) {
+                paintSquare(g, r*boardSize+c, MARGIN+c*step, MARGIN+r*step);
+            }
+        }
+    }
     
     /**
-     * To save the board state when saving a game, the boardDiscs array is iterated through
-     * and each discs type and whether its legal move is retrieved and systematically
-     * organised and a large string is returned containing all this data
-     * 
-     * @return the board state data to be saved
+     * Paints one square with its top left corner at x and y
      */
-    public String getData() {
-        String data = boardSize+"\n";
-        for (int r=0; r<boardSize; r++) {
-            for (int c=0; c<boardSize; c++) {
-                Disc currentDisc = boardDiscs[r][c];
-                data += currentDisc.getType()+" "+
-                    currentDisc.getLegalMove()+",";
+    private void paintSquare(Graphics g, int square, int x, int y) {
+        g.setColor(CELLCOLOR);
+        g.fillRect(x, y, cellSize, cellSize);
+        
+        DiscIcon icon = DiscIcon.forColor(gameState.get(square));
+        boolean detailed = cellSize >= DiscIcon.BLACKICON.getIconWidth();
+        
+        if (showLegalMoves && Rules.has(shownMoves, square)) {
+            g.setColor(LEGALCOLOR);
+            g.drawRect(x, y, cellSize-1, cellSize-1);
+            if (detailed) g.drawRect(x+1, y+1, cellSize-3, cellSize-3);
+        }
+        
+        if (icon == null) {
+            paintScore(g, square, x, y);
+            return;
+        }
+        
+        if (detailed) {
+            icon.paintIcon(this, g, x+(cellSize-icon.getIconWidth())/2,
+                y+(cellSize-icon.getIconHeight())/2);
+        } else {
+            g.setColor(icon.getColor());
+            g.fillOval(x, y, cellSize, cellSize);
+        }
+    }
+    
+    /**
+     * Paints the analysis score of a move on its square, with the depth it was searched
+     * to underneath, if the square has been analysed and is big enough
+     */
+    private void paintScore(Graphics g, int square, int x, int y) {
+        if (analysedMoves.length == 0 || cellSize < ANALYSISSIZE) return;
+        int index = Arrays.binarySearch(analysedMoves, square);
+        if (index < 0 || analysisDepths[index] == 0) return;
+        
+        String score = MoveAnalysis.scoreLabel(analysisScores[index], analysisExact[index]);
+        String depth = (analysisExact[index]) ? "exact" : "d"+analysisDepths[index];
+        
+        g.setColor((square == bestAnalysedMove) ? BESTCOLOR : LEGALCOLOR);
+        g.setFont(getFont().deriveFont(Font.BOLD, cellSize/4f));
+        FontMetrics metrics = g.getFontMetrics();
+        g.drawString(score, x+(cellSize-metrics.stringWidth(score))/2, y+cellSize/2);
+        
+        g.setFont(getFont().deriveFont(Font.PLAIN, cellSize/6f));
+        metrics = g.getFontMetrics();
+        g.drawString(depth, x+(cellSize-metrics.stringWidth(depth))/2,
+            y+cellSize/2+metrics.getHeight());
+    }
+    
+    /**
+     * Paints a square too small for a disc as a square of the disc's color, or of the
+     * legal move color, on top of the background that was already painted
+     */
+    private void paintFlatSquare(Graphics g, int square, int x, int y) {
+        DiscIcon icon = DiscIcon.forColor(gameState.get(square));
+        if (icon != null) {
+            g.setColor(icon.getColor());
+        } else if (showLegalMoves && Rules.has(shownMoves, square)) {
+            g.setColor(LEGALCOLOR);
+        } else {
+            return;
+        }
+        g.fillRect(x, y, cellSize, cellSize);
+    }
+    
+    /**
+     * Asks for one square to be repainted
+     */
+    private void repaintSquare(int square) {
+        fitSquares();
+        int step = cellSize+gap;
+        this.repaint(MARGIN+(square%boardSize)*step, MARGIN+(square/boardSize)*step,
+            cellSize, cellSize);
+    }
+    
+    /**
+     * Asks for every square in a bitboard to be repainted
+     */
+    private void repaintSquares(long[] squares) {
+        for (int i=0; i<squares.length; i++) {
+            long word = squares[i];
+            while (word != 0) {
+                repaintSquare(i*64+Long.numberOfTrailingZeros(word));
+                word &= word-1;
             }
-            data += "\n";
         }
+    }
+    
+    /**
+     * Works out which square a point on the board is in
+     * 
+     * @return the square, or -1 if the point is in the margin or a gap between squares
+     */
+    public int squareAt(int x, int y) {
+        fitSquares();
+        int step = cellSize+gap;
+        x -= MARGIN;
+        y -= MARGIN;
+        if (x < 0 || y < 0 || x%step >= cellSize || y%step >= cellSize) return -1;
+        
+        int row = y/step;
+        int column = x/step;
+        if (row >= boardSize || column >= boardSize) return -1;
+        return row*boardSize+column;
+    }
+    
+    /**
+     * Works out the size of the squares and gaps. When zoomed they come from the zoom
+     * level, otherwise every square fits in the board's current width and height, no
+     * bigger than CELLSIZE. The gaps shrink with the squares so that small squares aren't
+     * lost between them
+     */
+    private void fitSquares() {
+        if (zoomStep > 0) {
+            setStep(zoomStep);
+            return;
+        }
+        
+        int length = Math.min(getWidth(), getHeight())-2*MARGIN;
+        if (length <= 0) {
+            setStep(CELLSIZE+GAP);
+            return;
+        }
+        
+        setStep(Math.max(1, Math.min(CELLSIZE+GAP, (length+GAP)/boardSize)));
+    }
+    
+    /**
+     * Splits the distance from one square to the next into the square and the gap
+     */
+    private void setStep(int step) {
+        gap = Math.min(GAP, step/8);
+        cellSize = Math.max(1, step-gap);
+    }
+    
+    /**
+     * @return the length of the board's sides when squares are step pixels apart
+     */
+    private int boardLength(int step) {
+        return 2*MARGIN+boardSize*step-Math.min(GAP, step/8);
+    }
+    
+    /**
+     * @return the distance between squares when fitting the board to a window that
+     * hasn't been sized yet, the same as an 8x8 board takes up at full size
+     */
+    private int fittedStep() {
+        return Math.max(1, Math.min(CELLSIZE+GAP, 8*(CELLSIZE+GAP)/boardSize));
+    }
+    
+    /**
+     * @return the size that fits every square at the current zoom level, or when fitting
+     * the window the size an 8x8 board takes up (or more if the squares would be smaller
+     * than a pixel)
+     */
+    @Override
+    public Dimension getPreferredSize() {
+        int length = boardLength((zoomStep > 0) ? zoomStep : fittedStep());
+        return new Dimension(length, length);
+    }
+    
+    // Zoom Related Methods
+    
+    /**
+     * Zooms in or out a level, keeping the point under the anchor in the same place in
+     * the window
+     * 
+     * @param levels        how many levels to zoom in, negative to zoom out
+     * @param anchor        the point on the board to zoom around, or null for the middle of
+     * the part in view
+     */
+    public void zoom(int levels, Point anchor) {
+        Rectangle view = getVisibleRect();
+        if (anchor == null) anchor = new Point(view.x+view.width/2, view.y+view.height/2);
+        
+        fitSquares();
+        int oldStep = cellSize+gap;
+        int level = 0;
+        while (level < ZOOMSTEPS.length-1 && ZOOMSTEPS[level] < oldStep) level++;
+        
+        // A fitted board can be between two levels, then the level above is one level in
+        if (ZOOMSTEPS[level] > oldStep && levels > 0) level--;
+        level = Math.max(0, Math.min(ZOOMSTEPS.length-1, level+levels));
+        if (ZOOMSTEPS[level] == oldStep && zoomStep > 0) return;
+        
+        double anchorColumn = (anchor.x-MARGIN)/(double) oldStep;
+        double anchorRow = (anchor.y-MARGIN)/(double) oldStep;
+        zoomStep = ZOOMSTEPS[level];
+        
+        layoutViewport();
+        scrollTo(MARGIN+(int) (anchorColumn*zoomStep)-(anchor.x-view.x),
+            MARGIN+(int) (anchorRow*zoomStep)-(anchor.y-view.y));
+        this.repaint();
+    }
+    
+    /**
+     * Goes back to fitting the whole board in the window
+     */
+    public void fitBoard() {
+        zoomStep = 0;
+        layoutViewport();
+        this.repaint();
+    }
+    
+    /**
+     * Scrolls so a square is in the middle of the window, used by the minimap
+     */
+    public void centerOn(int row, int column) {
+        fitSquares();
+        int step = cellSize+gap;
+        Rectangle view = getVisibleRect();
+        scrollTo(MARGIN+column*step+cellSize/2-view.width/2,
+            MARGIN+row*step+cellSize/2-view.height/2);
+    }
+    
+    /**
+     * @return the squares in view as columns and rows (x and width are columns, y and height
+     * are rows), which the minimap outlines
+     */
+    public Rectangle getVisibleSquares() {
+        fitSquares();
+        int step = cellSize+gap;
+        Rectangle view = getVisibleRect();
+        int firstColumn = Math.max(0, (view.x-MARGIN)/step);
+        int firstRow = Math.max(0, (view.y-MARGIN)/step);
+        int lastColumn = Math.min(boardSize, (view.x+view.width-MARGIN+step-1)/step);
+        int lastRow = Math.min(boardSize, (view.y+view.height-MARGIN+step-1)/step);
+        return new Rectangle(firstColumn, firstRow, Math.max(0, lastColumn-firstColumn),
+            Math.max(0, lastRow-firstRow));
+    }
+    
+    /**
+     * @return whether every square is in view, so there is nothing to scroll to
+     */
+    public boolean isWholeBoardVisible() {
+        Rectangle view = getVisibleRect();
+        return view.width >= getWidth() && view.height >= getHeight();
+    }
+    
+    /**
+     * Control and the mouse wheel zooms around the mouse, otherwise the wheel is passed on
+     * so the scroll pane scrolls the board
+     */
+    private void wheelMoved(MouseWheelEvent e) {
+        if (e.isControlDown()) {
+            zoom(-e.getWheelRotation(), e.getPoint());
+        } else if (getParent() != null) {
+            getParent().dispatchEvent(SwingUtilities.convertMouseEvent(this, e, getParent()));
+        }
+    }
+    
+    /**
+     * Lays out the scroll pane straight away after the board's size changes, so it can be
+     * scrolled to its new position. The viewport is laid out either side of the scroll
+     * pane since the board's new size decides the scroll bars, and the scroll bars decide
+     * how much room the viewport has
+     */
+    private void layoutViewport() {
+        this.revalidate();
+        JViewport viewport = getViewport();
+        if (viewport != null && viewport.getParent() != null) {
+            viewport.doLayout();
+            viewport.getParent().doLayout();
+            viewport.doLayout();
+        }
+    }
+    
+    /**
+     * Scrolls the board so the point x, y is at the top left of the window, as far as it
+     * can go
+     */
+    private void scrollTo(int x, int y) {
+        JViewport viewport = getViewport();
+        if (viewport == null) return;
         
-        return data;
+        Dimension extent = viewport.getExtentSize();
+        x = Math.max(0, Math.min(x, getWidth()-extent.width));
+        y = Math.max(0, Math.min(y, getHeight()-extent.height));
+        viewport.setViewPosition(new Point(x, y));
+    }
+    
+    /**
+     * @return the scroll pane's viewport the board is in, or null if it isn't in one
+     */
+    private JViewport getViewport() {
+        return (getParent() instanceof JViewport) ? (JViewport) getParent() : null;
+    }
+    
+    // Scrollable Methods
+    
+    /**
+     * @return the size the window is packed to, the size the board fits itself to
+     */
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        int length = boardLength(fittedStep());
+        return new Dimension(length, length);
+    }
+    
+    /**
+     * When fitting the window the board is the window's size, unless the squares would
+     * be smaller than a pixel, then it scrolls
+     */
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        JViewport viewport = getViewport();
+        if (viewport == null) return false;
+        int length = (zoomStep > 0) ? getPreferredSize().width : boardLength(1);
+        return viewport.getWidth() >= length;
+    }
+    
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        JViewport viewport = getViewport();
+        if (viewport == null) return false;
+        int length = (zoomStep > 0) ? getPreferredSize().height : boardLength(1);
+        return viewport.getHeight() >= length;
     }
     
     /**
-     * Gets the total number of discs that have been captured by the player whose color
-     * equals the currentDiscColor. Used to get both white and black captures via other
-     * methods
+     * @return one square, so the arrows scroll a square at a time
+     */
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visible, int orientation, int direction) {
+        fitSquares();
+        return cellSize+gap;
+    }
+    
+    /**
+     * @return all but one square of the part in view
+     */
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visible, int orientation, int direction) {
+        fitSquares();
+        int length = (orientation == SwingConstants.HORIZONTAL) ? visible.width : visible.height;
+        return Math.max(cellSize+gap, length-(cellSize+gap));
+    }
+    
+    /**
+     * When loading a game the board state needs to be set to how it was. If the save has
+     * the moves of the game they are played again from the start so they can be undone,
+     * otherwise (or if they don't lead to the saved position) the position from the loaded
+     * game is copied onto the game state. Either way it is then reflected onto the current
+     * board
      * 
-     * @return the count of captured discs for a player
+     * @param position      the position read from the save file, of the same size
+     * @param moves         the moves played from the start of the game, empty if unknown
      */
-    private int getTotalDiscs() {
-        int total = 0;
+    public void setData(GameState position, int[] moves) {
+        resetLegalMoves();
+        history.clear();
+        historyFromStart = false;
         
-        for (int r=0; r<boardSize; r++) {
-            for (int c=0; c<boardSize; c++) {
-                if (boardDiscs[r][c].getType().equals(currentDiscColor))
-                    total++;
+        if (moves.length > 0) {
+            gameState.startGame();
+            try {
+                for (int move: moves) {
+                    if (move == Search.PASS) {
+                        history.pass(gameState);
+                    } else {
+                        history.play(gameState, move);
+                    }
+                }
+                historyFromStart = gameState.getHashKey() == position.getHashKey();
+            } catch (IllegalArgumentException e) {
+                historyFromStart = false;
             }
         }
         
-        return total;
+        if (!historyFromStart) {
+            history.clear();
+            gameState.copyFrom(position);
+        }
+        gameState.setPassedTurns(position.getPassedTurns());
+        updateAllDiscs();
     }    
     
+    /**
+     * @return the moves played from the start of the game to save with it, or an empty
+     * array if the game was loaded from a save without them
+     */
+    public int[] getMoves() {
+        return (historyFromStart) ? history.getMoves() : new int[0];
+    }
+    
+    /**
+     * @return whether there is a move to undo
+     */
+    public boolean canUndo() {
+        return history.canUndo();
+    }
+    
+    /**
+     * @return whether there is a move that was undone to play again
+     */
+    public boolean canRedo() {
+        return history.canRedo();
+    }
+    
+    /**
+     * To save the board state when saving a game, the game state writes each disc's type
+     * and whether its a legal move into a large string containing all this data
+     * 
+     * @return the board state data to be saved
+     */
+    public String getData() {
+        return gameState.toText();
+    }
+    
     /**
      * @return the count of captured discs for the black player
      */
     public int getBlackTotal() {
-        currentDiscColor = "black";
-        return getTotalDiscs();
+        return gameState.count(GameState.BLACK);
     }
     
     /**
      * @return the count of captured discs for the white player
      */
     public int getWhiteTotal() {
-        currentDiscColor = "white";
-        return getTotalDiscs();
+        return gameState.count(GameState.WHITE);
     }    
     
+    /**
+     * @return the game state this board renders
+     */
+    public GameState getGameState() {
+        return gameState;
+    }
+    
     /**
      * Used to communicate useful messages to the Reversi object's status bar
      */
@@ -0,0 +1,393 @@
+// Swing Imports
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+// Other Imports
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Runs the computer player's Engine on a thread of its own and hands the moves back to
+ * the event thread, so the window never waits for the computer. Boards at least
+ * monteCarloSize wide are searched with Monte Carlo tree search, smaller ones with a
+ * ParallelSearch. Each move's MoveTimer starts when the move is asked for, so the move
+ * comes back within the move time however long it waited for the worker thread
+ *
+ * While a person is thinking about their move it ponders: it guesses their reply (the
+ * second move of its last principal variation) and searches the position after it. If the
+ * person plays the guessed move the ponder search carries on as the computer's search,
+ * with the time already spent taken off its time, so the computer often answers straight
+ * away. If they play something else the ponder search is stopped, although the positions
+ * it put in the transposition table still help the new search
+ *
+ * The time from being asked for a move until the move is handed back, how far past the
+ * move time that was and how often the guessed reply was played are kept for the status
+ * bar
+ *
+ * Apart from the search itself everything here happens on the event thread
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class ComputerPlayer
+{
+    private final long moveTimeMillis;
+    private final int hashMegabytes;
+    private final int monteCarloSize;
+    private volatile int threads;
+    
+    // The thread the searches run on, one at a time
+    private final ExecutorService worker;
+    
+    // The engine, only used on the worker thread and recreated when the board size or
+    // number of threads changes
+    private Engine engine;
+    
+    // The search for a move that has been asked for, and the ponder search
+    private Job moveJob;
+    private Job ponderJob;
+    
+    private long lastResponseNanos = 0;
+    private long lastOvershootNanos = 0;
+    private long maxOvershootNanos = 0;
+    private long totalResponseNanos = 0;
+    private int responses = 0;
+    private int ponders = 0;
+    private int ponderHits = 0;
+    private boolean lastPonderHit = false;
+    
+    /**
+     * @param moveTimeMillis    how long to search for each move
+     * @param hashMegabytes     the memory of the transposition table (or Monte Carlo tree)
+     * @param monteCarloSize    the smallest board searched with Monte Carlo search
+     * @param threads           the number of threads each search uses
+     */
+    public ComputerPlayer(long moveTimeMillis, int hashMegabytes, int monteCarloSize,
+        int threads) {
+        this.moveTimeMillis = moveTimeMillis;
+        this.hashMegabytes = hashMegabytes;
+        this.monteCarloSize = monteCarloSize;
+        this.threads = Math.max(1, threads);
+        
+        worker = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "computer player");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Starts searching for a move, or takes over the ponder search if it was pondering
+     * this position. The move is given to onMove on the event thread unless cancel is
+     * called first. If the search fails the exception is given to onError on the event
+     * thread instead, and the computer player can be asked for a move again
+     * 
+     * @param position      the position to move in, it is copied
+     * @param onMove        given the search's result once it finishes
+     * @param onError       given the exception if the search fails
+     */
+    public void requestMove(GameState position, Consumer<SearchResult> onMove,
+        Consumer<Throwable> onError) {
+        long now = System.nanoTime();
+        Job pondered = ponderJob;
+        ponderJob = null;
+        
+        if (pondered != null) {
+            ponders++;
+            if (samePosition(pondered.position, position) && pondered.failure == null) {
+                ponderHits++;
+                lastPonderHit = true;
+                pondered.onMove = onMove;
+                pondered.onError = onError;
+                pondered.requestNanos = now;
+                moveJob = pondered;
+                
+                if (pondered.result != null) {
+                    SwingUtilities.invokeLater(() -> deliver(pondered));
+                } else {
+                    stopAfter(pondered, moveTimeMillis-pondered.elapsedMillis());
+                }
+                return;
+            }
+            
+            pondered.discard();
+        }
+        
+        lastPonderHit = false;
+        Job job = new Job(new GameState(position), MoveTimer.forBudget(moveTimeMillis));
+        job.onMove = onMove;
+        job.onError = onError;
+        job.requestNanos = now;
+        moveJob = job;
+        submit(job);
+    }
+    
+    /**
+     * Starts pondering on the person's time, after the computer has played its move
+     * 
+     * @param position      the position the person is to move in, it is copied
+     * @param lastResult    the computer's search result for the move it just played,
+     * whose principal variation gives the guessed reply
+     */
+    public void ponder(GameState position, SearchResult lastResult) {
+        if (ponderJob != null) ponderJob.discard();
+        ponderJob = null;
+        
+        int[] pv = lastResult.getPrincipalVariation();
+        if (pv == null || pv.length < 2 || pv[1] == Search.PASS) return;
+        if (!position.isLegal(pv[1])) return;
+        
+        GameState guessed = new GameState(position);
+        guessed.play(pv[1]);
+        if (!guessed.hasLegalMove()) return;
+        
+        ponderJob = new Job(guessed, null);
+        submit(ponderJob);
+    }
+    
+    /**
+     * Stops the move search and the ponder search, the move asked for is never handed
+     * back. Used when the game is replaced or a move is taken back
+     */
+    public void cancel() {
+        if (moveJob != null) moveJob.discard();
+        if (ponderJob != null) ponderJob.discard();
+        moveJob = null;
+        ponderJob = null;
+    }
+    
+    /**
+     * Stops the worker thread and the searches' threads, the computer player can't be
+     * used afterwards
+     */
+    public void shutdown() {
+        cancel();
+        worker.execute(() -> {
+            if (engine != null) engine.shutdown();
+        });
+        worker.shutdown();
+    }
+    
+    /**
+     * @param threads       the number of threads the next search uses
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+    
+    /**
+     * @return whether a move has been asked for that hasn't been handed back yet
+     */
+    public boolean isThinking() {
+        return moveJob != null;
+    }
+    
+    /**
+     * @return how long the last move took from being asked for until it was handed back,
+     * in milliseconds
+     */
+    public long getLastResponseMillis() {
+        return lastResponseNanos/1000000;
+    }
+    
+    /**
+     * @return the average time the moves took from being asked for until they were handed
+     * back, in milliseconds
+     */
+    public long getAverageResponseMillis() {
+        return (responses == 0) ? 0 : totalResponseNanos/responses/1000000;
+    }
+    
+    /**
+     * @return how far past the move time the last move was handed back in milliseconds,
+     * 0 if it was in time
+     */
+    public long getLastOvershootMillis() {
+        return lastOvershootNanos/1000000;
+    }
+    
+    public long getMaxOvershootMillis() {
+        return maxOvershootNanos/1000000;
+    }
+    
+    /**
+     * @return whether the last move was found by a ponder search
+     */
+    public boolean wasLastPonderHit() {
+        return lastPonderHit;
+    }
+    
+    /**
+     * @return the number of ponder searches the person's move was compared with
+     */
+    public int getPonders() {
+        return ponders;
+    }
+    
+    public int getPonderHits() {
+        return ponderHits;
+    }
+    
+    /**
+     * @return the fraction of ponder searches whose guessed reply was played
+     */
+    public double getPonderHitRate() {
+        return (ponders == 0) ? 0 : (double) ponderHits/ponders;
+    }
+    
+    /**
+     * Runs a job's search on the worker thread, handing its result (or the exception it
+     * failed with) back to the event thread. Jobs discarded before they start are skipped
+     */
+    private void submit(Job job) {
+        worker.execute(() -> {
+            if (job.discarded) return;
+            
+            job.startNanos = System.nanoTime();
+            SearchResult result;
+            try {
+                result = search(job);
+            } catch (RuntimeException | OutOfMemoryError e) {
+                // Such as a search thread failing or no memory for the engine's table
+                discardEngine();
+                SwingUtilities.invokeLater(() -> failed(job, e));
+                return;
+            }
+            SwingUtilities.invokeLater(() -> finished(job, result));
+        });
+    }
+    
+    /**
+     * Drops the engine after a failed search so the next search starts with a new one,
+     * on the worker thread
+     */
+    private void discardEngine() {
+        if (engine == null) return;
+        try {
+            engine.shutdown();
+        } catch (RuntimeException e) {
+            // It is being dropped either way
+        }
+        engine = null;
+    }
+    
+    /**
+     * Called on the event thread when a job's search fails. A failed ponder search is
+     * kept so a request for its position starts a new search instead
+     */
+    private void failed(Job job, Throwable failure) {
+        job.failure = failure;
+        if (job.discarded || moveJob != job) return;
+        
+        moveJob = null;
+        job.onError.accept(failure);
+    }
+    
+    /**
+     * Searches a job's position with the engine for its board size, ponder searches have
+     * no timer and only finish once they're stopped (or the game is solved)
+     */
+    private SearchResult search(Job job) {
+        int size = job.position.getSize();
+        if (engine == null || engine.getSize() != size || engine.getThreads() != threads) {
+            if (engine != null) engine.shutdown();
+            engine = new Engine(size, threads, hashMegabytes, size >= monteCarloSize);
+            engine.setOpeningBook(OpeningBook.forSize(size));
+        }
+        return engine.search(job.position, 0, job.timer, job.signal);
+    }
+    
+    /**
+     * Called on the event thread when a job's search finishes. A ponder search that
+     * finished before the person moved keeps its result for if they play the guessed move
+     */
+    private void finished(Job job, SearchResult result) {
+        job.result = result;
+        if (job.onMove != null && !job.discarded) deliver(job);
+    }
+    
+    /**
+     * Hands a finished job's move to the event thread's callback
+     */
+    private void deliver(Job job) {
+        if (job.discarded || moveJob != job) return;
+        
+        moveJob = null;
+        lastResponseNanos = System.nanoTime()-job.requestNanos;
+        lastOvershootNanos = Math.max(0, lastResponseNanos-moveTimeMillis*1000000);
+        maxOvershootNanos = Math.max(maxOvershootNanos, lastOvershootNanos);
+        totalResponseNanos += lastResponseNanos;
+        responses++;
+        job.onMove.accept(job.result);
+    }
+    
+    /**
+     * Stops a job's search after the given time, straight away if it has run out
+     */
+    private void stopAfter(Job job, long millis) {
+        if (millis <= 0) {
+            job.signal.set(true);
+            return;
+        }
+        
+        Timer timer = new Timer((int) Math.min(Integer.MAX_VALUE, millis),
+            e -> job.signal.set(true));
+        timer.setRepeats(false);
+        timer.start();
+    }
+    
+    /**
+     * @return whether two game states have the same discs and side to move
+     */
+    private static boolean samePosition(GameState first, GameState second) {
+        return first.getSize() == second.getSize()
+            && first.getSideToMove() == second.getSideToMove()
+            && Arrays.equals(first.getDiscs(GameState.BLACK), second.getDiscs(GameState.BLACK))
+            && Arrays.equals(first.getDiscs(GameState.WHITE), second.getDiscs(GameState.WHITE));
+    }
+    
+    /**
+     * A search the worker thread has been given. The position, signal and start time are
+     * shared with the worker thread, the rest is only used on the event thread
+     */
+    private static class Job
+    {
+        private final GameState position;
+        private final MoveTimer timer;
+        private final AtomicBoolean signal = new AtomicBoolean();
+        private volatile long startNanos = 0;
+        
+        private Consumer<SearchResult> onMove;
+        private Consumer<Throwable> onError;
+        private long requestNanos;
+        private SearchResult result;
+        private Throwable failure;
+        private volatile boolean discarded = false;
+        
+        /**
+         * @param timer     the move's timer, null for ponder searches
+         */
+        private Job(GameState position, MoveTimer timer) {
+            this.position = position;
+            this.timer = timer;
+        }
+        
+        /**
+         * Stops the search and makes sure its result is never handed back
+         */
+        private void discard() {
+            discarded = true;
+            signal.set(true);
+        }
+        
+        /**
+         * @return how long the search has been running, 0 if it hasn't started
+         */
+        private long elapsedMillis() {
+            return (startNanos == 0) ? 0 : (System.nanoTime()-startNanos)/1000000;
+        }
+    }
+}
@@ -7,23 +7,38 @@ import java.awt.Graphics;
 import java.awt.Color;
 
 /**
- * The oval graphic that can be displayed when a player place a 'disc' on the board
+ * The oval graphic that can be displayed when a player place a 'disc' on the board. There
+ * is one shared icon for each color, which every square of the board paints with
  *
  * @author Milovan Gveric
  * @version 26/03/2021
  */
 public class DiscIcon implements Icon
 {
+    public static final DiscIcon BLACKICON = new DiscIcon(Color.BLACK);
+    public static final DiscIcon WHITEICON = new DiscIcon(Color.WHITE);
+    
     private final int SIZE = 24;
-    private Color ovalColor;
+    private final Color ovalColor;
     
     /**
      * @param c     The color to set this icon as
      */
-    public DiscIcon(Color c) {
+    private DiscIcon(Color c) {
         ovalColor = c;
     }
     
+    /**
+     * @param color     GameState.BLACK, GameState.WHITE or GameState.EMPTY
+     * 
+     * @return the shared icon for the color, or null for an empty square
+     */
+    public static DiscIcon forColor(int color) {
+        if (color == GameState.BLACK) return BLACKICON;
+        if (color == GameState.WHITE) return WHITEICON;
+        return null;
+    }
+    
     /**
      * Used in painting the icon onscreen
      * 
@@ -50,4 +65,11 @@ public class DiscIcon implements Icon
     public int getIconHeight() {
         return SIZE;
     }
+    
+    /**
+     * @return the color of the disc, used to draw discs smaller than the icon
+     */
+    public Color getColor() {
+        return ovalColor;
+    }
 }
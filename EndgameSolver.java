@@ -0,0 +1,656 @@
+// Other Imports
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Solves 8x8 endgames exactly, finding the final disc difference with perfect play by both
+ * sides instead of a heuristic score. A finished game's score is the side to move's discs
+ * minus the opponent's, with any empty squares going to the winner
+ *
+ * The solver is a negamax alpha-beta search over single long bitboards (see BitBoard) that
+ * searches every move after the first with a null window. The moves are ordered by:
+ * - fastest-first, trying the moves that leave the opponent the fewest replies first
+ * - parity, trying moves in the quadrants with an odd number of empty squares first since
+ * the player who fills a region last tends to come out ahead there
+ * - the best move stored in the transposition table, when there is one
+ *
+ * The last 1, 2 and 3 empty squares are solved by their own methods that pass the squares
+ * as ints and allocate nothing. Before searching a position the discs of the opponent that
+ * can never be flipped (stable discs) are counted, which limits how well the side to move
+ * can do, and when that limit is no better than alpha the position is cut off
+ *
+ * Usage: java EndgameSolver [save file]
+ * Solves the position in a save file, or without one reports how long random positions
+ * with more and more empty squares take to solve
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class EndgameSolver
+{
+    // Moves are ordered by fastest-first from this many empty squares, parity below it
+    private final int FASTESTFIRSTEMPTIES = 6;
+    
+    // Positions with at least this many empty squares are stored in the table
+    private final int TABLEEMPTIES = 7;
+    
+    // Stable discs are only counted with at least this many empty squares
+    private final int STABILITYEMPTIES = 5;
+    
+    // The clock is checked when the node count is a multiple of this (minus 1)
+    private final int TIMECHECKMASK = 4095;
+    
+    private static final int DEFAULTTABLEMB = 16;
+    
+    private static final long CORNERS = 0x8100000000000081L;
+    private static final long BORDER = 0xff818181818181ffL;
+    private static final long LEFTCOLUMN = 0x0101010101010101L;
+    private static final long RIGHTCOLUMN = 0x8080808080808080L;
+    private static final long TOPBOTTOMROWS = 0xff000000000000ffL;
+    
+    // The quadrant (0 to 3) of each square and, for each set of odd quadrants, the squares
+    // in them
+    private static final int[] QUADRANT = new int[64];
+    private static final long[] PARITYSQUARES = new long[16];
+    
+    // Every row, column and diagonal on the board, used to find lines that are full
+    private static final long[] ROWS = new long[8];
+    private static final long[] COLUMNS = new long[8];
+    private static final long[] DIAGONALS = new long[15];
+    private static final long[] ANTIDIAGONALS = new long[15];
+    
+    static {
+        for (int square=0; square<64; square++) {
+            int row = square/8;
+            int column = square%8;
+            QUADRANT[square] = ((row >= 4) ? 2 : 0)+((column >= 4) ? 1 : 0);
+            
+            ROWS[row] |= 1L << square;
+            COLUMNS[column] |= 1L << square;
+            DIAGONALS[row-column+7] |= 1L << square;
+            ANTIDIAGONALS[row+column] |= 1L << square;
+        }
+        
+        for (int parity=0; parity<16; parity++) {
+            for (int square=0; square<64; square++) {
+                if ((parity & (1 << QUADRANT[square])) != 0) PARITYSQUARES[parity] |= 1L << square;
+            }
+        }
+    }
+    
+    private final TranspositionTable table;
+    
+    // The moves, their flips and their ordering keys for each number of empty squares
+    private final int[][] moveLists = new int[65][34];
+    private final long[][] flipLists = new long[65][34];
+    private final int[][] moveKeys = new int[65][34];
+    
+    private long nodes;
+    private long deadline;
+    private boolean aborted;
+    private AtomicBoolean stopSignal = new AtomicBoolean();
+    
+    /**
+     * Creates a solver with its own transposition table of the default size
+     */
+    public EndgameSolver() {
+        this(DEFAULTTABLEMB);
+    }
+    
+    /**
+     * @param tableMegabytes    the memory the solver's transposition table may use
+     */
+    public EndgameSolver(int tableMegabytes) {
+        table = new TranspositionTable(tableMegabytes);
+    }
+    
+    /**
+     * Solves a position with no time limit
+     * 
+     * @param root      an 8x8 position, it isn't changed
+     * 
+     * @return the best move with its exact score, the depth is the number of empty squares
+     */
+    public SearchResult solve(GameState root) {
+        return solve(root, 0, new AtomicBoolean());
+    }
+    
+    /**
+     * Solves a position, giving up if the time runs out or the stop signal is set
+     * 
+     * @param root              an 8x8 position, it isn't changed
+     * @param timeLimitMillis   the time allowed, 0 or less for no limit
+     * @param stopSignal        the solver gives up once this is set to true
+     * 
+     * @return the best move with its exact score, or null if the solver gave up
+     */
+    public SearchResult solve(GameState root, long timeLimitMillis, AtomicBoolean stopSignal) {
+        if (root.getSize() != 8)
+            throw new IllegalArgumentException("The endgame solver only solves 8x8 boards");
+        
+        long start = System.nanoTime();
+        deadline = (timeLimitMillis > 0) ? start+timeLimitMillis*1000000 : Long.MAX_VALUE;
+        nodes = 0;
+        aborted = false;
+        this.stopSignal = stopSignal;
+        table.newSearch();
+        
+        long player = root.getPlayerDiscs()[0];
+        long opponent = root.getOpponentDiscs()[0];
+        long empty = ~(player | opponent);
+        int empties = BitBoard.count(empty);
+        int parity = parity(empty);
+        
+        int bestMove = Search.PASS;
+        int bestScore;
+        long moves = BitBoard.legalMoves(player, opponent);
+        
+        if (moves == 0) {
+            // A pass or the end of the game, the score is the same as for solve
+            bestScore = solve(player, opponent, -64, 64, empties, parity);
+        } else {
+            int count = orderMoves(player, opponent, moves, empties, parity, Search.PASS);
+            int[] rootMoves = moveLists[empties];
+            long[] rootFlips = flipLists[empties];
+            bestScore = -65;
+            int alpha = -64;
+            
+            for (int i=0; i<count; i++) {
+                int square = rootMoves[i];
+                long flips = rootFlips[i];
+                long placed = 1L << square;
+                long nextPlayer = opponent ^ flips;
+                long nextOpponent = player | flips | placed;
+                int nextParity = parity ^ (1 << QUADRANT[square]);
+                
+                int score;
+                if (i == 0) {
+                    score = -solve(nextPlayer, nextOpponent, -64, -alpha, empties-1, nextParity);
+                } else {
+                    score = -solve(nextPlayer, nextOpponent, -alpha-1, -alpha, empties-1,
+                        nextParity);
+                    if (score > alpha && !aborted) {
+                        score = -solve(nextPlayer, nextOpponent, -64, -alpha, empties-1,
+                            nextParity);
+                    }
+                }
+                if (aborted) return null;
+                
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = square;
+                    if (score > alpha) alpha = score;
+                }
+            }
+        }
+        if (aborted) return null;
+        
+        return new SearchResult(bestMove, bestScore, empties, nodes, System.nanoTime()-start,
+            new int[] {bestMove}, true);
+    }
+    
+    /**
+     * Asks a running solve to give up, it returns null. This is safe to call from another
+     * thread
+     */
+    public void stop() {
+        stopSignal.set(true);
+    }
+    
+    /**
+     * Empties the transposition table
+     */
+    public void clearTable() {
+        table.clear();
+    }
+    
+    public long getNodes() {
+        return nodes;
+    }
+    
+    /**
+     * Solves a position with 4 or more empty squares
+     * 
+     * @param player        the discs of the side to move
+     * @param opponent      the discs of the other side
+     * @param alpha         the score the side to move is already sure of
+     * @param beta          the score the opponent is already sure of
+     * @param empties       the number of empty squares
+     * @param parity        a bit set for each quadrant with an odd number of empty squares
+     * 
+     * @return the exact score if it is between alpha and beta, otherwise a bound on it
+     */
+    private int solve(long player, long opponent, int alpha, int beta, int empties, int parity) {
+        if (empties <= 3) return solveFew(player, opponent, alpha, beta, empties, parity);
+        
+        nodes++;
+        if ((nodes & TIMECHECKMASK) == 0 && (stopSignal.get() || System.nanoTime() > deadline)) {
+            aborted = true;
+        }
+        if (aborted) return 0;
+        
+        if (empties >= STABILITYEMPTIES && alpha >= 64-2*BitBoard.count(opponent)) {
+            int upperBound = 64-2*BitBoard.count(stableDiscs(opponent, player));
+            if (upperBound <= alpha) return upperBound;
+            if (upperBound < beta) beta = upperBound;
+        }
+        
+        long moves = BitBoard.legalMoves(player, opponent);
+        if (moves == 0) {
+            if (BitBoard.legalMoves(opponent, player) == 0) return finalScore(player, opponent);
+            return -solve(opponent, player, -beta, -alpha, empties, parity);
+        }
+        
+        long key = 0;
+        int tableMove = Search.PASS;
+        if (empties >= TABLEEMPTIES) {
+            key = hashKey(player, opponent);
+            long entry = table.probe(key);
+            if (entry != 0) {
+                tableMove = TranspositionTable.move(entry);
+                int stored = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                
+                if (bound == TranspositionTable.EXACT) return stored;
+                if (bound == TranspositionTable.LOWER && stored >= beta) return stored;
+                if (bound == TranspositionTable.UPPER && stored <= alpha) return stored;
+            }
+        }
+        
+        int originalAlpha = alpha;
+        int bestScore = -65;
+        int bestMove = Search.PASS;
+        
+        if (empties >= FASTESTFIRSTEMPTIES) {
+            int count = orderMoves(player, opponent, moves, empties, parity, tableMove);
+            int[] moveList = moveLists[empties];
+            long[] flipList = flipLists[empties];
+            
+            for (int i=0; i<count && alpha < beta; i++) {
+                int square = moveList[i];
+                long flips = flipList[i];
+                long nextPlayer = opponent ^ flips;
+                long nextOpponent = player | flips | (1L << square);
+                int nextParity = parity ^ (1 << QUADRANT[square]);
+                
+                int score;
+                if (i == 0) {
+                    score = -solve(nextPlayer, nextOpponent, -beta, -alpha, empties-1, nextParity);
+                } else {
+                    score = -solve(nextPlayer, nextOpponent, -alpha-1, -alpha, empties-1,
+                        nextParity);
+                    if (score > alpha && score < beta) {
+                        score = -solve(nextPlayer, nextOpponent, -beta, -alpha, empties-1,
+                            nextParity);
+                    }
+                }
+                if (aborted) return 0;
+                
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = square;
+                    if (score > alpha) alpha = score;
+                }
+            }
+        } else {
+            // Moves in odd quadrants first, then the rest
+            long oddMoves = moves & PARITYSQUARES[parity];
+            
+            for (int p=0; p<2 && alpha < beta; p++) {
+                long remaining = (p == 0) ? oddMoves : moves & ~oddMoves;
+                
+                while (remaining != 0 && alpha < beta) {
+                    int square = Long.numberOfTrailingZeros(remaining);
+                    remaining &= remaining-1;
+                    long flips = BitBoard.flips(player, opponent, square);
+                    
+                    int score = -solve(opponent ^ flips, player | flips | (1L << square),
+                        -beta, -alpha, empties-1, parity ^ (1 << QUADRANT[square]));
+                    if (aborted) return 0;
+                    
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestMove = square;
+                        if (score > alpha) alpha = score;
+                    }
+                }
+            }
+        }
+        
+        if (empties >= TABLEEMPTIES) {
+            int bound = TranspositionTable.EXACT;
+            if (bestScore <= originalAlpha) bound = TranspositionTable.UPPER;
+            if (bestScore >= beta) bound = TranspositionTable.LOWER;
+            table.store(key, empties, bestScore, bound, bestMove);
+        }
+        
+        return bestScore;
+    }
+    
+    /**
+     * Finds the legal moves and their flips and sorts them with the table move first and
+     * then fastest-first, the opponent's mobility after the move (counting corners twice)
+     * with moves into odd quadrants breaking ties
+     * 
+     * @return the number of moves, which are stored in moveLists[empties]
+     */
+    private int orderMoves(long player, long opponent, long moves, int empties, int parity,
+        int tableMove) {
+        int[] moveList = moveLists[empties];
+        long[] flipList = flipLists[empties];
+        int[] keys = moveKeys[empties];
+        int count = 0;
+        
+        while (moves != 0) {
+            int square = Long.numberOfTrailingZeros(moves);
+            moves &= moves-1;
+            
+            long flips = BitBoard.flips(player, opponent, square);
+            long replies = BitBoard.legalMoves(opponent ^ flips, player | flips | (1L << square));
+            int key = -4*(BitBoard.count(replies)+BitBoard.count(replies & CORNERS));
+            if ((parity & (1 << QUADRANT[square])) != 0) key += 1;
+            if (square == tableMove) key = Integer.MAX_VALUE;
+            
+            int i = count++;
+            while (i > 0 && keys[i-1] < key) {
+                moveList[i] = moveList[i-1];
+                flipList[i] = flipList[i-1];
+                keys[i] = keys[i-1];
+                i--;
+            }
+            moveList[i] = square;
+            flipList[i] = flips;
+            keys[i] = key;
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Solves a position with 3 or fewer empty squares, taking the squares out of the
+     * bitboards with squares in odd quadrants first
+     */
+    private int solveFew(long player, long opponent, int alpha, int beta, int empties,
+        int parity) {
+        if (empties == 0) return finalScore(player, opponent);
+        
+        long empty = ~(player | opponent);
+        long odd = empty & PARITYSQUARES[parity];
+        long even = empty & ~odd;
+        
+        int square1 = (odd != 0) ? Long.numberOfTrailingZeros(odd) : Long.numberOfTrailingZeros(even);
+        if (odd != 0) odd &= odd-1; else even &= even-1;
+        
+        if (empties == 1) return solve1(player, opponent, square1);
+        
+        int square2 = (odd != 0) ? Long.numberOfTrailingZeros(odd) : Long.numberOfTrailingZeros(even);
+        if (odd != 0) odd &= odd-1; else even &= even-1;
+        
+        if (empties == 2) return solve2(player, opponent, alpha, beta, square1, square2, false);
+        
+        int square3 = (odd != 0) ? Long.numberOfTrailingZeros(odd) : Long.numberOfTrailingZeros(even);
+        
+        return solve3(player, opponent, alpha, beta, square1, square2, square3, false);
+    }
+    
+    /**
+     * Solves a position with 3 empty squares
+     * 
+     * @param passed        whether the opponent has just passed
+     */
+    private int solve3(long player, long opponent, int alpha, int beta, int square1,
+        int square2, int square3, boolean passed) {
+        nodes++;
+        int bestScore = -65;
+        long flips;
+        
+        flips = BitBoard.flips(player, opponent, square1);
+        if (flips != 0) {
+            bestScore = -solve2(opponent ^ flips, player | flips | (1L << square1), -beta, -alpha,
+                square2, square3, false);
+            if (bestScore >= beta) return bestScore;
+            if (bestScore > alpha) alpha = bestScore;
+        }
+        
+        flips = BitBoard.flips(player, opponent, square2);
+        if (flips != 0) {
+            int score = -solve2(opponent ^ flips, player | flips | (1L << square2), -beta,
+                -alpha, square1, square3, false);
+            if (score >= beta) return score;
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) alpha = score;
+            }
+        }
+        
+        flips = BitBoard.flips(player, opponent, square3);
+        if (flips != 0) {
+            int score = -solve2(opponent ^ flips, player | flips | (1L << square3), -beta,
+                -alpha, square1, square2, false);
+            if (score > bestScore) bestScore = score;
+        }
+        
+        if (bestScore == -65) {
+            if (passed) return -finalScore(opponent, player);
+            return -solve3(opponent, player, -beta, -alpha, square1, square2, square3, true);
+        }
+        
+        return bestScore;
+    }
+    
+    /**
+     * Solves a position with 2 empty squares
+     * 
+     * @param passed        whether the opponent has just passed
+     */
+    private int solve2(long player, long opponent, int alpha, int beta, int square1,
+        int square2, boolean passed) {
+        nodes++;
+        int bestScore = -65;
+        long flips;
+        
+        flips = BitBoard.flips(player, opponent, square1);
+        if (flips != 0) {
+            bestScore = -solve1(opponent ^ flips, player | flips | (1L << square1), square2);
+            if (bestScore >= beta) return bestScore;
+        }
+        
+        flips = BitBoard.flips(player, opponent, square2);
+        if (flips != 0) {
+            int score = -solve1(opponent ^ flips, player | flips | (1L << square2), square1);
+            if (score > bestScore) bestScore = score;
+        }
+        
+        if (bestScore == -65) {
+            if (passed) return -finalScore(opponent, player);
+            return -solve2(opponent, player, -beta, -alpha, square1, square2, true);
+        }
+        
+        return bestScore;
+    }
+    
+    /**
+     * Solves a position with 1 empty square. With 63 discs on the board the score is
+     * worked out from the number of flips alone
+     */
+    private int solve1(long player, long opponent, int square) {
+        nodes++;
+        int discs = BitBoard.count(player);
+        
+        long flips = BitBoard.flips(player, opponent, square);
+        if (flips != 0) return 2*(discs+BitBoard.count(flips))-62;
+        
+        // The opponent plays the last square instead
+        flips = BitBoard.flips(opponent, player, square);
+        if (flips != 0) return 62-2*(63-discs+BitBoard.count(flips));
+        
+        // Nobody can play it so it goes to the winner
+        return (2*discs > 63) ? 2*discs-62 : 2*discs-64;
+    }
+    
+    /**
+     * @return the score of a finished game for the player, the difference in discs with
+     * the empty squares going to the winner
+     */
+    private static int finalScore(long player, long opponent) {
+        int playerDiscs = BitBoard.count(player);
+        int opponentDiscs = BitBoard.count(opponent);
+        int difference = playerDiscs-opponentDiscs;
+        int empties = 64-playerDiscs-opponentDiscs;
+        
+        if (difference > 0) return difference+empties;
+        if (difference < 0) return difference-empties;
+        return 0;
+    }
+    
+    /**
+     * Finds discs that can never be flipped. A disc is stable if along each of the four
+     * lines through it (horizontal, vertical and both diagonals) the line is full, or one
+     * of its neighbours on the line is the edge of the board or another stable disc of the
+     * same color. Starting from none, discs are added until no more are found, so this
+     * finds some of the stable discs (always the corners) but never one that isn't
+     * 
+     * @param discs         the discs to check
+     * @param other         the other player's discs
+     * 
+     * @return the stable discs
+     */
+    private static long stableDiscs(long discs, long other) {
+        long filled = discs | other;
+        long fullRows = 0, fullColumns = 0, fullDiagonals = 0, fullAntiDiagonals = 0;
+        
+        for (long line: ROWS) {
+            if ((filled & line) == line) fullRows |= line;
+        }
+        for (long line: COLUMNS) {
+            if ((filled & line) == line) fullColumns |= line;
+        }
+        for (long line: DIAGONALS) {
+            if ((filled & line) == line) fullDiagonals |= line;
+        }
+        for (long line: ANTIDIAGONALS) {
+            if ((filled & line) == line) fullAntiDiagonals |= line;
+        }
+        
+        long horizontal = fullRows | LEFTCOLUMN | RIGHTCOLUMN;
+        long vertical = fullColumns | TOPBOTTOMROWS;
+        long diagonal = fullDiagonals | BORDER;
+        long antiDiagonal = fullAntiDiagonals | BORDER;
+        
+        long stable = 0;
+        long previous;
+        do {
+            previous = stable;
+            stable = discs
+                & (horizontal | ((stable << 1) & BitBoard.NOTLEFTEDGE)
+                    | ((stable >>> 1) & BitBoard.NOTRIGHTEDGE))
+                & (vertical | (stable << 8) | (stable >>> 8))
+                & (diagonal | ((stable << 9) & BitBoard.NOTLEFTEDGE)
+                    | ((stable >>> 9) & BitBoard.NOTRIGHTEDGE))
+                & (antiDiagonal | ((stable << 7) & BitBoard.NOTRIGHTEDGE)
+                    | ((stable >>> 7) & BitBoard.NOTLEFTEDGE));
+        } while (stable != previous);
+        
+        return stable;
+    }
+    
+    /**
+     * @return a bit set for each quadrant with an odd number of empty squares
+     */
+    private static int parity(long empty) {
+        int parity = 0;
+        while (empty != 0) {
+            parity ^= 1 << QUADRANT[Long.numberOfTrailingZeros(empty)];
+            empty &= empty-1;
+        }
+        return parity;
+    }
+    
+    /**
+     * @return a hash key for the position from the side to move's point of view
+     */
+    private static long hashKey(long player, long opponent) {
+        return mix(player ^ mix(opponent+0x9e3779b97f4a7c15L));
+    }
+    
+    /**
+     * The finishing step of the SplitMix64 generator, which spreads every input bit
+     * over the whole output
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+    
+    /**
+     * Solves the position in a save file, or without one solves random positions with 10
+     * empty squares, then 11 and so on, until the average solve takes more than a second
+     * 
+     * @param args      the save file to solve, optional
+     */
+    public static void main(String[] args) throws IOException {
+        EndgameSolver solver = new EndgameSolver();
+        
+        if (args.length > 0) {
+            SaveFile save;
+            try {
+                save = SaveFile.read(new File(args[0]));
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                return;
+            }
+            
+            GameState state = save.getGameState();
+            SearchResult result = solver.solve(state);
+            System.out.println(GameState.colorName(state.getSideToMove())+" plays "+
+                state.squareName(result.getMove())+", "+result);
+            return;
+        }
+        
+        // The same positions every time, 5 for each number of empty squares
+        Random random = new Random(20210326L);
+        int solvedInBudget = 0;
+        
+        for (int empties=10; empties<=30; empties++) {
+            long totalNodes = 0;
+            long totalNanos = 0;
+            
+            for (int i=0; i<5; i++) {
+                GameState state = randomPosition(random, empties);
+                solver.clearTable();
+                SearchResult result = solver.solve(state);
+                totalNodes += result.getNodes();
+                totalNanos += result.getElapsedNanos();
+            }
+            
+            long averageMillis = totalNanos/5/1000000;
+            System.out.println(empties+" empties: "+averageMillis+" ms, "+(totalNodes/5)+
+                " nodes, "+(long) (totalNodes*1e9/Math.max(1, totalNanos))+" nps");
+            
+            if (averageMillis > 1000) break;
+            solvedInBudget = empties;
+        }
+        
+        System.out.println("solved within one second: "+solvedInBudget+" empties");
+    }
+    
+    /**
+     * Plays random moves from the start of the game until the number of empty squares is
+     * reached, starting again if the game ends first
+     */
+    private static GameState randomPosition(Random random, int empties) {
+        while (true) {
+            GameState state = new GameState(8);
+            state.startGame();
+            
+            while (!state.isTerminal() && 64-state.count(GameState.BLACK)
+                -state.count(GameState.WHITE) > empties) {
+                state.playRandomMove(random);
+            }
+            if (!state.isTerminal()) return state;
+        }
+    }
+}
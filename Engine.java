@@ -0,0 +1,176 @@
+// Other Imports
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * The computer player's search as a single anytime engine: given a position and a
+ * MoveTimer it always hands back the best move found so far by the timer's budget, using
+ * a ParallelSearch or (on large boards) a MonteCarloSearch. The search can also be
+ * stopped early from another thread, it then returns its best move straight away
+ *
+ * How far past its budget each timed move was handed back (its overshoot) is recorded,
+ * so the time management can be checked against the budgets, for example that 99% of
+ * the moves given 50 ms come back within 50 ms
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class Engine
+{
+    private final int size;
+    private final int threads;
+    private final ParallelSearch search;
+    private final MonteCarloSearch monteCarlo;
+    
+    private volatile AtomicBoolean stopSignal = new AtomicBoolean();
+    
+    // The overshoot of every timed move in nanoseconds, grown as needed
+    private long[] overshoots = new long[64];
+    private int timedMoves = 0;
+    
+    /**
+     * @param size              the width (and height) of the boards this engine will be given
+     * @param threads           the number of threads to search with, at least 1
+     * @param megabytes         the memory of the transposition table or Monte Carlo tree
+     * @param useMonteCarlo     whether to search with Monte Carlo tree search
+     */
+    public Engine(int size, int threads, int megabytes, boolean useMonteCarlo) {
+        this.size = size;
+        this.threads = Math.max(1, threads);
+        this.search = (useMonteCarlo) ? null : new ParallelSearch(size, threads, megabytes);
+        this.monteCarlo = (useMonteCarlo) ? new MonteCarloSearch(size, threads, megabytes) : null;
+    }
+    
+    /**
+     * Searches a position until the timer's deadline (see MoveTimer)
+     * 
+     * @param position      the position to search, it isn't changed
+     * @param timer         the timer for this move, already started
+     * 
+     * @return the best move found, Search.PASS if there are no legal moves
+     */
+    public SearchResult search(GameState position, MoveTimer timer) {
+        return search(position, 0, timer, new AtomicBoolean());
+    }
+    
+    /**
+     * Searches a position until the timer's deadline, the depth is reached (Monte Carlo
+     * search has no depth) or the stop signal is set
+     * 
+     * @param position      the position to search, it isn't changed
+     * @param maxDepth      the deepest iteration to search, 0 or less for no limit
+     * @param timer         the timer for this move, or null for no time limit
+     * @param signal        the search finishes once this is set to true
+     * 
+     * @return the best move found, Search.PASS if there are no legal moves
+     */
+    public SearchResult search(GameState position, int maxDepth, MoveTimer timer,
+        AtomicBoolean signal) {
+        stopSignal = signal;
+        SearchResult result;
+        if (monteCarlo != null) {
+            result = (timer != null) ? monteCarlo.search(position, 0, timer, signal)
+                : monteCarlo.search(position, 0, 0, signal);
+        } else {
+            result = (timer != null) ? search.search(position, maxDepth, timer, signal)
+                : search.search(position, maxDepth, 0, signal);
+        }
+        
+        if (timer != null) recordOvershoot(timer.getOvershootNanos());
+        return result;
+    }
+    
+    /**
+     * Asks a running search to hand back its best move now. This is safe to call from
+     * another thread
+     */
+    public void stop() {
+        stopSignal.set(true);
+    }
+    
+    private synchronized void recordOvershoot(long nanos) {
+        if (timedMoves == overshoots.length) {
+            overshoots = Arrays.copyOf(overshoots, overshoots.length*2);
+        }
+        overshoots[timedMoves++] = nanos;
+    }
+    
+    /**
+     * @return the overshoot of every timed move so far in nanoseconds, 0 for the moves
+     * that were in time
+     */
+    public synchronized long[] getOvershoots() {
+        return Arrays.copyOf(overshoots, timedMoves);
+    }
+    
+    public synchronized int getTimedMoves() {
+        return timedMoves;
+    }
+    
+    /**
+     * @return the overshoot of the last timed move in nanoseconds
+     */
+    public synchronized long getLastOvershootNanos() {
+        return (timedMoves == 0) ? 0 : overshoots[timedMoves-1];
+    }
+    
+    /**
+     * @param overshoots    overshoots in nanoseconds, such as from several engines
+     * @param fraction      the fraction of the moves, such as 0.99
+     * 
+     * @return the overshoot that fraction of the moves were within, in nanoseconds
+     */
+    public static long percentile(long[] overshoots, double fraction) {
+        if (overshoots.length == 0) return 0;
+        long[] sorted = overshoots.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(fraction*sorted.length)-1;
+        return sorted[Math.max(0, Math.min(sorted.length-1, index))];
+    }
+    
+    /**
+     * @param listener      given the result so far after each iteration of the search,
+     * on the searching thread, or null for none. Monte Carlo search only has its final
+     * result
+     */
+    public void setProgressListener(Consumer<SearchResult> listener) {
+        if (search != null) search.setProgressListener(listener);
+    }
+    
+    /**
+     * @param book      the opening book to play from, or null for none. Monte Carlo
+     * search doesn't use one
+     */
+    public void setOpeningBook(OpeningBook book) {
+        if (search != null) search.setOpeningBook(book);
+    }
+    
+    /**
+     * Empties the transposition table, used when timing searches so earlier searches don't
+     * help later ones
+     */
+    public void clearTable() {
+        if (search != null) search.clearTable();
+    }
+    
+    /**
+     * Stops the search's helper threads, the engine can't be used afterwards
+     */
+    public void shutdown() {
+        if (search != null) search.shutdown();
+        if (monteCarlo != null) monteCarlo.shutdown();
+    }
+    
+    public boolean isMonteCarlo() {
+        return monteCarlo != null;
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    public int getThreads() {
+        return threads;
+    }
+}
@@ -0,0 +1,391 @@
+// Other Imports
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drives the engine with text commands on standard input, one per line, and writes its
+ * answers to standard output, so other programs and batch scripts can use it without the
+ * game's window. Commands are run one after another in the order they were sent, so a
+ * script can send a whole batch at once (or pipe in a file) without waiting for the
+ * answers, and the engine stays loaded between them. The commands are:
+ * - position start [size], a new game on a board of that size (default 8)
+ * - position text <black|white>, followed by the board the way save files hold it (see
+ *   GameState.toText): the size on one line and then a line for each row. Black or white
+ *   is the side to move
+ * - position file <save file>, the position in a saved game
+ * - play <square> [square...], plays moves (or pass) in the position
+ * - go [depth <n>] [movetime <ms>] [clock <ms> [increment <ms>]], searches the position
+ *   to that depth, for that long, or with that much time left on a clock (see MoveTimer).
+ *   With none of them it searches until stop. After each iteration an info line is
+ *   written: info depth <d> score <s> nodes <n> nps <n> time <ms> pv <moves...>, and
+ *   at the end: bestmove <square>. The move isn't played
+ * - hint [n] [depth <d>], scores every legal move by searching it to the depth (default
+ *   HINTDEPTH) and writes the best n (default all): hint <square> <score>, then hint end
+ * - stop, ends the last go or hint sent before it straight away, it isn't queued behind
+ *   the other commands. When that command hasn't started yet it ends as soon as it does
+ * - show, writes the side to move and the board in the format position text reads
+ * - isready, answered with readyok once every command before it has finished
+ * - quit, stops once every command before it has finished, as does the end of the input.
+ *   A go with no limit is ended as stop ends it, since it would never finish otherwise
+ * Anything wrong with a command is answered with: error <reason>
+ *
+ * Usage: java EngineProtocol [threads] [hash MB]
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class EngineProtocol
+{
+    // How deep each move is searched for a hint when no depth is given
+    private static final int HINTDEPTH = 6;
+    
+    private final int threads;
+    private final int hashMegabytes;
+    private final PrintWriter out;
+    
+    // Set once quit is read, with the stop signal of the last search that has no limit
+    private volatile boolean quitting = false;
+    private volatile AtomicBoolean unlimitedSignal;
+    
+    // The commands are run on this thread one at a time, so everything below belongs to it
+    private final ExecutorService worker;
+    private Engine engine;
+    private Search hintSearch;
+    private GameState position;
+    
+    /**
+     * @param threads           the number of threads each search uses
+     * @param hashMegabytes     the memory of the transposition table
+     * @param out               where the answers are written
+     */
+    public EngineProtocol(int threads, int hashMegabytes, PrintWriter out) {
+        this.threads = Math.max(1, threads);
+        this.hashMegabytes = hashMegabytes;
+        this.out = out;
+        
+        worker = Executors.newSingleThreadExecutor(r -> new Thread(r, "engine protocol"));
+        position = new GameState(8);
+        position.startGame();
+    }
+    
+    /**
+     * Reads commands until quit or the end of the input, then waits for them all to run,
+     * stopping a search that has no limit
+     */
+    public void run(BufferedReader in) throws IOException {
+        // The stop signal of the last go or hint command, only used on the reading thread
+        AtomicBoolean lastSignal = new AtomicBoolean();
+        
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts[0].equals("quit")) break;
+            
+            if (parts[0].equals("stop")) {
+                lastSignal.set(true);
+                continue;
+            }
+            
+            // The board of a text position follows it, so it is read here with it
+            List<String> rows = new ArrayList<>();
+            if (parts.length > 1 && parts[0].equals("position") && parts[1].equals("text")) {
+                String sizeLine = in.readLine();
+                rows.add(sizeLine);
+                try {
+                    int size = Integer.parseInt(sizeLine.trim());
+                    for (int r=0; r<size; r++) {
+                        rows.add(in.readLine());
+                    }
+                } catch (NumberFormatException | NullPointerException e) {
+                    // Reported when the command runs
+                }
+            }
+            
+            AtomicBoolean signal = new AtomicBoolean();
+            if (parts[0].equals("go") || parts[0].equals("hint")) lastSignal = signal;
+            worker.execute(() -> runCommand(parts, rows, signal));
+        }
+        
+        // The search reads quitting after setting unlimitedSignal, so one of them is seen
+        quitting = true;
+        AtomicBoolean unlimited = unlimitedSignal;
+        if (unlimited != null) unlimited.set(true);
+        worker.shutdown();
+        try {
+            worker.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (engine != null) engine.shutdown();
+    }
+    
+    /**
+     * Runs one command on the worker thread
+     * 
+     * @param rows      the board after a position text command
+     * @param signal    stops a go or hint command
+     */
+    private void runCommand(String[] parts, List<String> rows, AtomicBoolean signal) {
+        try {
+            switch (parts[0]) {
+                case "position":
+                    setPosition(parts, rows);
+                    break;
+                case "play":
+                    for (int i=1; i<parts.length; i++) {
+                        play(parts[i]);
+                    }
+                    break;
+                case "go":
+                    go(parts, signal);
+                    break;
+                case "hint":
+                    hint(parts, signal);
+                    break;
+                case "show":
+                    write("side "+GameState.colorName(position.getSideToMove()));
+                    write(position.toText().trim());
+                    break;
+                case "isready":
+                    write("readyok");
+                    break;
+                case "":
+                    break;
+                default:
+                    write("error unknown command "+parts[0]);
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            write("error "+e.getMessage());
+        } catch (IOException e) {
+            write("error can't read "+e.getMessage());
+        }
+    }
+    
+    private void setPosition(String[] parts, List<String> rows) throws IOException {
+        if (parts.length < 2)
+            throw new IllegalArgumentException("position needs start, text or file");
+        
+        switch (parts[1]) {
+            case "start":
+                int size = (parts.length > 2) ? Integer.parseInt(parts[2]) : 8;
+                GameState start = new GameState(size);
+                start.startGame();
+                position = start;
+                break;
+            case "text":
+                if (parts.length < 3)
+                    throw new IllegalArgumentException("position text needs the side to move");
+                int side = colorArgument(parts[2]);
+                int boardSize;
+                try {
+                    boardSize = Integer.parseInt(rows.get(0).trim());
+                } catch (NumberFormatException | NullPointerException e) {
+                    throw new IllegalArgumentException("position text needs the board size");
+                }
+                if (rows.size() < boardSize+1 || rows.contains(null))
+                    throw new IllegalArgumentException("position text needs "+boardSize+" rows");
+                
+                GameState text = new GameState(boardSize);
+                text.setText(rows.subList(1, boardSize+1));
+                text.setSideToMove(side);
+                position = text;
+                break;
+            case "file":
+                if (parts.length < 3)
+                    throw new IllegalArgumentException("position file needs a file");
+                position = SaveFile.read(new File(parts[2])).getGameState();
+                break;
+            default:
+                throw new IllegalArgumentException("unknown position "+parts[1]);
+        }
+    }
+    
+    private static int colorArgument(String color) {
+        if (color.equals("black")) return GameState.BLACK;
+        if (color.equals("white")) return GameState.WHITE;
+        throw new IllegalArgumentException("unknown color "+color);
+    }
+    
+    private void play(String name) {
+        int square = position.parseSquare(name);
+        if (square == Search.PASS) {
+            if (position.hasLegalMove())
+                throw new IllegalArgumentException("can't pass with a legal move");
+            position.pass();
+            return;
+        }
+        if (!position.isLegal(square))
+            throw new IllegalArgumentException(name+" isn't a legal move");
+        position.play(square);
+    }
+    
+    private void go(String[] parts, AtomicBoolean signal) {
+        int depth = 0;
+        long moveTime = 0;
+        long clock = -1;
+        long increment = 0;
+        for (int i=1; i+1<parts.length; i+=2) {
+            switch (parts[i]) {
+                case "depth":
+                    depth = Integer.parseInt(parts[i+1]);
+                    break;
+                case "movetime":
+                    moveTime = Long.parseLong(parts[i+1]);
+                    break;
+                case "clock":
+                    clock = Long.parseLong(parts[i+1]);
+                    break;
+                case "increment":
+                    increment = Long.parseLong(parts[i+1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown limit "+parts[i]);
+            }
+        }
+        
+        MoveTimer timer = null;
+        if (clock >= 0) {
+            timer = MoveTimer.forClock(position, clock, increment);
+        } else if (moveTime > 0) {
+            timer = MoveTimer.fixed(moveTime);
+        }
+        if (depth == 0 && timer == null) {
+            unlimitedSignal = signal;
+            if (quitting) signal.set(true);
+        }
+        
+        Engine searcher = engineFor(position.getSize());
+        searcher.setProgressListener(this::writeInfo);
+        SearchResult result = searcher.search(position, depth, timer, signal);
+        
+        // Book moves, solved positions and Monte Carlo results only have the final result
+        if (result.isBookMove() || result.isExact() || result.isFromPlayouts()) {
+            writeInfo(result);
+        }
+        write("bestmove "+position.squareName(result.getMove()));
+    }
+    
+    /**
+     * @return the engine for the board size, created the first time it is needed
+     */
+    private Engine engineFor(int size) {
+        if (engine == null || engine.getSize() != size) {
+            if (engine != null) engine.shutdown();
+            engine = new Engine(size, threads, hashMegabytes, false);
+            engine.setOpeningBook(OpeningBook.forSize(size));
+        }
+        return engine;
+    }
+    
+    /**
+     * Writes a search result as an info line
+     */
+    private void writeInfo(SearchResult result) {
+        StringBuilder line = new StringBuilder("info");
+        if (result.isBookMove()) {
+            line.append(" book ").append(result.getBookGames());
+        } else if (result.isExact()) {
+            line.append(" solved ").append(result.getDepth());
+        } else {
+            line.append(" depth ").append(result.getDepth());
+        }
+        line.append(" score ").append(result.getScore())
+            .append(" nodes ").append(result.getNodes())
+            .append(" nps ").append(result.getNodesPerSecond())
+            .append(" time ").append(result.getElapsedNanos()/1000000)
+            .append(" pv");
+        
+        int[] pv = result.getPrincipalVariation();
+        if (pv != null) {
+            for (int move: pv) {
+                line.append(' ').append(position.squareName(move));
+            }
+        }
+        write(line.toString());
+    }
+    
+    /**
+     * Searches each legal move to the depth and writes them best first
+     */
+    private void hint(String[] parts, AtomicBoolean signal) {
+        int count = Integer.MAX_VALUE;
+        int depth = HINTDEPTH;
+        for (int i=1; i<parts.length; i++) {
+            if (parts[i].equals("depth") && i+1 < parts.length) {
+                depth = Integer.parseInt(parts[++i]);
+            } else {
+                count = Integer.parseInt(parts[i]);
+            }
+        }
+        
+        int size = position.getSize();
+        if (hintSearch == null || hintSearch.getSize() != size) hintSearch = new Search(size);
+        int empties = size*size-position.count(GameState.BLACK)-position.count(GameState.WHITE);
+        
+        long[] legal = position.legalMoves();
+        List<int[]> scored = new ArrayList<>();
+        GameState child = new GameState(size);
+        for (int square=0; square<size*size && !signal.get(); square++) {
+            if (!Rules.has(legal, square)) continue;
+            
+            child.copyFrom(position);
+            child.play(square);
+            
+            // The score is for the player making the move, who moves again if the
+            // opponent has to pass
+            int score;
+            if (child.isTerminal()) {
+                score = -new Evaluator(size).finalScore(child);
+            } else {
+                int sign = -1;
+                if (!child.hasLegalMove()) {
+                    child.pass();
+                    sign = 1;
+                }
+                int childDepth = Math.max(1, Math.min(depth-1, empties-1));
+                score = sign*hintSearch.search(child, childDepth, 0, signal).getScore();
+            }
+            if (!signal.get()) scored.add(new int[] {square, score});
+        }
+        
+        scored.sort((a, b) -> Integer.compare(b[1], a[1]));
+        for (int i=0; i<Math.min(count, scored.size()); i++) {
+            int[] move = scored.get(i);
+            write("hint "+position.squareName(move[0])+" "+move[1]);
+        }
+        write("hint end");
+    }
+    
+    private void write(String line) {
+        synchronized (out) {
+            out.println(line);
+            out.flush();
+        }
+    }
+    
+    /**
+     * @param args      the number of threads each search uses (default one per
+     * processor) and the size of the transposition table in megabytes (default
+     * ParallelSearch.DEFAULTTABLEMB)
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = (args.length > 0) ? Integer.parseInt(args[0])
+            : Runtime.getRuntime().availableProcessors();
+        int hash = (args.length > 1) ? Integer.parseInt(args[1]) : ParallelSearch.DEFAULTTABLEMB;
+        
+        PrintWriter out = new PrintWriter(System.out, false, StandardCharsets.UTF_8);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in,
+            StandardCharsets.UTF_8));
+        new EngineProtocol(threads, hash, out).run(in);
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * The static evaluation used by the computer player to judge positions it doesn't search
+ * any deeper. Scores are from the point of view of the side to move and are made up of
+ * where each player's discs are (corners are worth a lot, the squares next to an empty
+ * corner give it away) and how many legal moves each player has (mobility)
+ *
+ * Finished games (including positions where neither player can move) are scored as a win
+ * or loss plus the final disc difference so any win is better than any position that
+ * hasn't been decided yet
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class Evaluator
+{
+    // Bigger than any score evaluate can give so decided games always sort first
+    public static final int WINSCORE = 100000;
+    
+    private final int CORNERWEIGHT = 30;
+    private final int XSQUAREWEIGHT = -12;
+    private final int CSQUAREWEIGHT = -5;
+    private final int EDGEWEIGHT = 2;
+    public static final int MOBILITYWEIGHT = 6;
+    
+    private final int size;
+    private final Rules rules;
+    
+    // Masks of the corners, the squares diagonally next to corners (X squares), the squares
+    // on the edge next to corners (C squares) and the remaining edge squares
+    private final long[] corners;
+    private final long[] xSquares;
+    private final long[] cSquares;
+    private final long[] edges;
+    
+    private final long[] moves;
+    private final int[] squareWeights;
+    
+    /**
+     * @param size      the width (and height) of the board
+     */
+    public Evaluator(int size) {
+        this.size = size;
+        this.rules = new Rules(size);
+        
+        int words = Rules.words(size);
+        corners = new long[words];
+        xSquares = new long[words];
+        cSquares = new long[words];
+        edges = new long[words];
+        moves = new long[words];
+        squareWeights = new int[size*size];
+        
+        int last = size-1;
+        for (int r=0; r<size; r++) {
+            for (int c=0; c<size; c++) {
+                int square = r*size+c;
+                boolean rowEdge = (r == 0 || r == last);
+                boolean columnEdge = (c == 0 || c == last);
+                boolean rowNextToEdge = (r == 1 || r == last-1);
+                boolean columnNextToEdge = (c == 1 || c == last-1);
+                
+                if (rowEdge && columnEdge) {
+                    addSquare(corners, square, CORNERWEIGHT);
+                } else if (rowNextToEdge && columnNextToEdge) {
+                    addSquare(xSquares, square, XSQUAREWEIGHT);
+                } else if ((rowEdge && columnNextToEdge) || (columnEdge && rowNextToEdge)) {
+                    addSquare(cSquares, square, CSQUAREWEIGHT);
+                } else if (rowEdge || columnEdge) {
+                    addSquare(edges, square, EDGEWEIGHT);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Adds a square to one of the masks and records its weight for move ordering
+     */
+    private void addSquare(long[] mask, int square, int weight) {
+        mask[square >>> 6] |= 1L << square;
+        squareWeights[square] = weight;
+    }
+    
+    /**
+     * @param state     the position to evaluate
+     * 
+     * @return the score of the position for the side to move
+     */
+    public int evaluate(GameState state) {
+        long[] player = state.getPlayerDiscs();
+        long[] opponent = state.getOpponentDiscs();
+        
+        int score = positional(player) - positional(opponent);
+        
+        rules.legalMoves(player, opponent, moves);
+        int playerMobility = count(moves);
+        rules.legalMoves(opponent, player, moves);
+        int opponentMobility = count(moves);
+        
+        // Neither player can move so the game is over
+        if (playerMobility == 0 && opponentMobility == 0) return finalScore(state);
+        
+        return score + MOBILITYWEIGHT*(playerMobility-opponentMobility);
+    }
+    
+    /**
+     * The score of a finished game for the side to move
+     * 
+     * @param state     a position where neither player can move
+     * 
+     * @return WINSCORE plus the disc difference for a win, minus WINSCORE plus the disc
+     * difference for a loss, 0 for a tie
+     */
+    public int finalScore(GameState state) {
+        int difference = count(state.getPlayerDiscs())-count(state.getOpponentDiscs());
+        
+        if (difference > 0) return WINSCORE+difference;
+        if (difference < 0) return -WINSCORE+difference;
+        return 0;
+    }
+    
+    /**
+     * @return the weight of a square, used to try good squares (corners) first in a search
+     */
+    public int getSquareWeight(int square) {
+        return squareWeights[square];
+    }
+    
+    /**
+     * @return the positional score of one player's discs
+     */
+    private int positional(long[] discs) {
+        int score = 0;
+        
+        for (int i=0; i<discs.length; i++) {
+            long d = discs[i];
+            score += CORNERWEIGHT*Long.bitCount(d & corners[i]);
+            score += XSQUAREWEIGHT*Long.bitCount(d & xSquares[i]);
+            score += CSQUAREWEIGHT*Long.bitCount(d & cSquares[i]);
+            score += EDGEWEIGHT*Long.bitCount(d & edges[i]);
+        }
+        
+        return score;
+    }
+    
+    /**
+     * @return the number of set bits in a bitboard
+     */
+    private static int count(long[] bits) {
+        int total = 0;
+        for (long word: bits) {
+            total += Long.bitCount(word);
+        }
+        return total;
+    }
+    
+    public int getSize() {
+        return size;
+    }
+}
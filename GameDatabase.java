@@ -0,0 +1,834 @@
+// Other Imports
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * An archive of recorded games which can be asked which games reached a position and how
+ * each reply from it did. The archive is a directory holding two files that are
+ * memory-mapped rather than read, so opening it parses almost nothing and lookups only
+ * touch the parts of the files they need
+ *
+ * games.dat holds the games one after another after a 16 byte header (the magic number and
+ * the format version), and each game's id is where it starts in the file. A game is a 12
+ * byte header (the board size, flags for whether it is finished and whether its moves take
+ * 2 bytes, the final number of black and white discs and the number of moves) followed by
+ * its moves from the starting position, one byte each on boards of up to 15x15 and two
+ * bytes on bigger ones, with passes stored as all ones
+ *
+ * index.dat maps the Zobrist key of every position reached in every game to the game and
+ * the ply it was reached on. It is made of segments, each a 24 byte header (the magic
+ * number, the number of entries, and the end of games.dat and the number of games in it
+ * when the segment was written) followed by 16 byte entries sorted by key: the key, then
+ * the game id and ply packed into one long.
+ * Adding games appends them to games.dat and writes a new segment for them, so nothing
+ * already written is ever rewritten, and compact merges the segments back into one
+ *
+ * If games were written without their index segment (the program stopped half way) they
+ * are indexed again when the archive is next opened
+ *
+ * Usage:
+ * java GameDatabase <directory> import <save files or directories...>
+ * java GameDatabase <directory> query <save file>
+ * java GameDatabase <directory> compact|stats
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class GameDatabase implements Closeable
+{
+    public static final int GAMESMAGIC = 0x52564744;
+    public static final int INDEXMAGIC = 0x52564958;
+    public static final int VERSION = 1;
+    public static final int HEADERBYTES = 16;
+    public static final int SEGMENTHEADERBYTES = 24;
+    public static final int GAMEHEADERBYTES = 12;
+    public static final int ENTRYBYTES = 16;
+    
+    // Boards up to this wide can be stored, so every square fits in 2 bytes
+    public static final int MAXSIZE = 254;
+    
+    // games.dat is mapped in chunks this big, each overlapping the next by the longest
+    // possible game so every game can be read from the chunk it starts in
+    private static final long CHUNKBYTES = 1L << 30;
+    private static final int MAXGAMEBYTES = GAMEHEADERBYTES+2*(2*MAXSIZE*MAXSIZE+2);
+    
+    // No segment is bigger than this so each can be mapped in one buffer
+    private static final int MAXSEGMENTENTRIES = 1 << 26;
+    
+    // The ply is packed into the low bits of an index entry's value
+    private static final int PLYBITS = 24;
+    
+    private static final int FINISHED = 1;
+    private static final int WIDEMOVES = 2;
+    private static final int PASSBYTE = 0xff;
+    private static final int PASSSHORT = 0xffff;
+    
+    private final Path gamesFile;
+    private final Path indexFile;
+    private FileChannel games;
+    
+    private MappedByteBuffer[] gameChunks = new MappedByteBuffer[0];
+    private long mappedEnd = 0;
+    private long gamesEnd;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private long gameCount;
+    
+    // Entries of games added since the last flush, keys and values side by side
+    private long[] pendingKeys = new long[1024];
+    private long[] pendingValues = new long[1024];
+    private int pendingCount = 0;
+    
+    private GameDatabase(Path directory) {
+        gamesFile = directory.resolve("games.dat");
+        indexFile = directory.resolve("index.dat");
+    }
+    
+    /**
+     * Opens an archive, creating it if the directory has none
+     * 
+     * @param directory     the directory the archive's files are in
+     * 
+     * @return the opened archive
+     * 
+     * @throws IOException if the files can't be read or aren't an archive
+     */
+    public static GameDatabase open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        GameDatabase database = new GameDatabase(directory);
+        database.load();
+        return database;
+    }
+    
+    /**
+     * Maps the files, writing their headers if they are new, and indexes any games that
+     * were written without their index segment
+     */
+    private void load() throws IOException {
+        games = FileChannel.open(gamesFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        if (games.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADERBYTES);
+            header.putInt(GAMESMAGIC).putInt(VERSION).flip();
+            write(games, header, 0);
+        }
+        
+        ByteBuffer header = ByteBuffer.allocate(8);
+        games.read(header, 0);
+        if (header.getInt(0) != GAMESMAGIC) throw new IOException("Not a game archive");
+        if (header.getInt(4) != VERSION)
+            throw new IOException("Unsupported game archive version "+header.getInt(4));
+        
+        remapGames(games.size());
+        long end = HEADERBYTES;
+        if (Files.exists(indexFile)) {
+            try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+                end = Math.max(end, mapSegments(index));
+            }
+        }
+        
+        // Games after the last segment are indexed again, and one cut short is dropped
+        while (true) {
+            long gameBytes = readGameBytes(end);
+            if (gameBytes < 0 || end+gameBytes > games.size()) break;
+            
+            indexGame(end);
+            end += gameBytes;
+            gameCount++;
+        }
+        if (games.size() > end) games.truncate(end);
+        gamesEnd = end;
+        
+        if (pendingCount > 0) flush();
+        remapGames(gamesEnd);
+    }
+    
+    /**
+     * Maps every segment of the index file, a segment that was only partly written is
+     * cut off so its games are indexed again
+     * 
+     * @return the end of games.dat the segments cover
+     */
+    private long mapSegments(FileChannel index) throws IOException {
+        segments.clear();
+        long indexedEnd = HEADERBYTES;
+        gameCount = 0;
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(SEGMENTHEADERBYTES);
+        
+        while (position+SEGMENTHEADERBYTES <= index.size()) {
+            header.clear();
+            index.read(header, position);
+            int count = header.getInt(4);
+            long bytes = SEGMENTHEADERBYTES+(long) count*ENTRYBYTES;
+            if (header.getInt(0) != INDEXMAGIC || count < 0 || position+bytes > index.size())
+                break;
+            
+            segments.add(index.map(FileChannel.MapMode.READ_ONLY, position+SEGMENTHEADERBYTES,
+                (long) count*ENTRYBYTES));
+            if (header.getLong(8) > indexedEnd) {
+                indexedEnd = header.getLong(8);
+                gameCount = header.getLong(16);
+            }
+            position += bytes;
+        }
+        
+        if (position < index.size()) {
+            try (FileChannel writable = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+                writable.truncate(position);
+            }
+        }
+        
+        return indexedEnd;
+    }
+    
+    /**
+     * Maps games.dat up to the given end in overlapping chunks
+     */
+    private void remapGames(long end) throws IOException {
+        mappedEnd = end;
+        int chunks = (int) ((end+CHUNKBYTES-1)/CHUNKBYTES);
+        gameChunks = new MappedByteBuffer[chunks];
+        for (int i=0; i<chunks; i++) {
+            long start = i*CHUNKBYTES;
+            long length = Math.min(end-start, CHUNKBYTES+MAXGAMEBYTES);
+            gameChunks[i] = games.map(FileChannel.MapMode.READ_ONLY, start, length);
+        }
+    }
+    
+    // Adding Games
+    
+    /**
+     * Adds a game played from the starting position. It is written to games.dat straight
+     * away but can only be found once flush has written its index segment
+     * 
+     * @param size      the width (and height) of the board
+     * @param moves     the squares played in order, with passes as Search.PASS
+     * 
+     * @return the game's id
+     * 
+     * @throws IllegalArgumentException if a move is illegal or the board is too big
+     */
+    public long addGame(int size, int[] moves) throws IOException {
+        if (size > MAXSIZE) throw new IllegalArgumentException("Boards wider than "+MAXSIZE+
+            " can't be stored");
+        
+        // Played through first so an illegal game isn't written
+        GameState state = new GameState(size);
+        state.startGame();
+        for (int move: moves) {
+            if (move == Search.PASS) {
+                if (state.hasLegalMove())
+                    throw new IllegalArgumentException("Passed with a legal move");
+                state.pass();
+            } else {
+                if (move < 0 || move >= size*size || !state.isLegal(move))
+                    throw new IllegalArgumentException("Illegal move "+state.squareName(move));
+                state.play(move);
+            }
+        }
+        
+        boolean wide = size*size >= PASSBYTE;
+        ByteBuffer record = ByteBuffer.allocate(GAMEHEADERBYTES+moves.length*((wide) ? 2 : 1));
+        record.putShort((short) size);
+        record.put((byte) (((state.isTerminal()) ? FINISHED : 0) | ((wide) ? WIDEMOVES : 0)));
+        record.put((byte) 0);
+        record.putShort((short) state.count(GameState.BLACK));
+        record.putShort((short) state.count(GameState.WHITE));
+        record.putInt(moves.length);
+        for (int move: moves) {
+            if (wide) {
+                record.putShort((short) ((move == Search.PASS) ? PASSSHORT : move));
+            } else {
+                record.put((byte) ((move == Search.PASS) ? PASSBYTE : move));
+            }
+        }
+        record.flip();
+        
+        long id = gamesEnd;
+        write(games, record, id);
+        gamesEnd += record.limit();
+        gameCount++;
+        
+        indexMoves(id, size, moves);
+        return id;
+    }
+    
+    /**
+     * Adds the game in a save file written by Reversi.saveGame, which can be finished or
+     * still in progress
+     * 
+     * @return the game's id, or -1 if the save doesn't have the moves of the game (saves
+     * written before moves were saved)
+     * 
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if it isn't a save file or its moves don't lead to
+     * the saved position
+     */
+    public long importSave(File file) throws IOException {
+        SaveFile save = SaveFile.read(file);
+        int[] moves = save.getMoves();
+        if (moves.length == 0) return -1;
+        
+        GameState position = save.getGameState();
+        GameState state = new GameState(position.getSize());
+        state.startGame();
+        for (int move: moves) {
+            if (move == Search.PASS) {
+                state.pass();
+            } else {
+                state.play(move);
+            }
+        }
+        if (state.getHashKey() != position.getHashKey())
+            throw new IllegalArgumentException("The moves don't lead to the saved position");
+        
+        return addGame(position.getSize(), moves);
+    }
+    
+    /**
+     * Replays a game already in games.dat and adds its positions to the pending entries
+     */
+    private void indexGame(long id) {
+        indexMoves(id, getSize(id), getMoves(id));
+    }
+    
+    /**
+     * Adds the key of every position of a game, from the start to after its last move,
+     * to the pending entries
+     */
+    private void indexMoves(long id, int size, int[] moves) {
+        GameState state = new GameState(size);
+        state.startGame();
+        
+        for (int ply=0; ply<=moves.length; ply++) {
+            addPending(state.getHashKey(), (id << PLYBITS) | ply);
+            if (ply == moves.length) break;
+            
+            if (moves[ply] == Search.PASS) {
+                state.pass();
+            } else {
+                state.play(moves[ply]);
+            }
+        }
+    }
+    
+    private void addPending(long key, long value) {
+        if (pendingCount == pendingKeys.length) {
+            pendingKeys = Arrays.copyOf(pendingKeys, 2*pendingCount);
+            pendingValues = Arrays.copyOf(pendingValues, 2*pendingCount);
+        }
+        pendingKeys[pendingCount] = key;
+        pendingValues[pendingCount] = value;
+        pendingCount++;
+    }
+    
+    /**
+     * Writes the positions of the games added since the last flush as new index segments,
+     * after which they can be found. Nothing already in the index file is changed
+     */
+    public void flush() throws IOException {
+        games.force(false);
+        remapGames(gamesEnd);
+        if (pendingCount == 0) return;
+        
+        sortPending();
+        try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = index.size();
+            
+            for (int start=0; start<pendingCount; start+=MAXSEGMENTENTRIES) {
+                int count = Math.min(MAXSEGMENTENTRIES, pendingCount-start);
+                ByteBuffer buffer = ByteBuffer.allocate(SEGMENTHEADERBYTES+count*ENTRYBYTES);
+                buffer.putInt(INDEXMAGIC).putInt(count).putLong(gamesEnd).putLong(gameCount);
+                for (int i=start; i<start+count; i++) {
+                    buffer.putLong(pendingKeys[i]).putLong(pendingValues[i]);
+                }
+                buffer.flip();
+                write(index, buffer, position);
+                
+                segments.add(index.map(FileChannel.MapMode.READ_ONLY,
+                    position+SEGMENTHEADERBYTES, (long) count*ENTRYBYTES));
+                position += SEGMENTHEADERBYTES+(long) count*ENTRYBYTES;
+            }
+            index.force(false);
+        }
+        
+        pendingCount = 0;
+    }
+    
+    /**
+     * Merges every index segment into as few as possible, which makes lookups faster after
+     * many small additions. The merged index is written to a temporary file first and then
+     * moved over the old one
+     */
+    public void compact() throws IOException {
+        flush();
+        if (segments.size() <= 1) return;
+        
+        long total = 0;
+        for (MappedByteBuffer segment: segments) {
+            total += segment.capacity()/ENTRYBYTES;
+        }
+        
+        int[] next = new int[segments.size()];
+        Path temporary = indexFile.resolveSibling(indexFile.getFileName()+".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(ENTRYBYTES*4096);
+            long position = 0;
+            
+            while (total > 0) {
+                int count = (int) Math.min(MAXSEGMENTENTRIES, total);
+                buffer.putInt(INDEXMAGIC).putInt(count).putLong(gamesEnd).putLong(gameCount);
+                
+                for (int written=0; written<count; written++) {
+                    // The smallest entry at the front of any segment
+                    int best = -1;
+                    for (int s=0; s<segments.size(); s++) {
+                        if (next[s]*ENTRYBYTES >= segments.get(s).capacity()) continue;
+                        if (best < 0 || compareEntries(segments.get(s), next[s],
+                            segments.get(best), next[best]) < 0) best = s;
+                    }
+                    
+                    MappedByteBuffer segment = segments.get(best);
+                    if (buffer.remaining() < ENTRYBYTES) position = drain(channel, buffer, position);
+                    buffer.putLong(segment.getLong(next[best]*ENTRYBYTES));
+                    buffer.putLong(segment.getLong(next[best]*ENTRYBYTES+8));
+                    next[best]++;
+                }
+                position = drain(channel, buffer, position);
+                total -= count;
+            }
+        }
+        
+        segments.clear();
+        Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            mapSegments(index);
+        }
+    }
+    
+    private static int compareEntries(ByteBuffer a, int i, ByteBuffer b, int j) {
+        int byKey = Long.compare(a.getLong(i*ENTRYBYTES), b.getLong(j*ENTRYBYTES));
+        if (byKey != 0) return byKey;
+        return Long.compare(a.getLong(i*ENTRYBYTES+8), b.getLong(j*ENTRYBYTES+8));
+    }
+    
+    // Queries
+    
+    /**
+     * Finds the games that reached a position
+     * 
+     * @param position      the position, with the side to move set
+     * @param limit         the most games to return
+     * 
+     * @return the games in the order they were added, each the game id and the ply the
+     * position was reached on packed together (see gameId and ply)
+     */
+    public long[] findGames(GameState position, int limit) {
+        long key = position.getHashKey();
+        long[] found = new long[16];
+        int count = 0;
+        
+        // Segments are written in the order games are added and each is sorted by game
+        // after key, so the games come out in the order they were added
+        for (MappedByteBuffer segment: segments) {
+            int entries = segment.capacity()/ENTRYBYTES;
+            for (int i=findFirst(segment, entries, key); i<entries && count<limit; i++) {
+                if (segment.getLong(i*ENTRYBYTES) != key) break;
+                
+                long value = segment.getLong(i*ENTRYBYTES+8);
+                if (getSize(gameId(value)) != position.getSize()) continue;
+                
+                if (count == found.length) found = Arrays.copyOf(found, 2*count);
+                found[count++] = value;
+            }
+        }
+        
+        return Arrays.copyOf(found, count);
+    }
+    
+    /**
+     * @return the game id of a game found by findGames
+     */
+    public static long gameId(long found) {
+        return found >>> PLYBITS;
+    }
+    
+    /**
+     * @return the ply the position was reached on in a game found by findGames
+     */
+    public static int ply(long found) {
+        return (int) (found & ((1 << PLYBITS)-1));
+    }
+    
+    /**
+     * Works out how each move played from a position did in the finished games that
+     * reached it, from the point of view of the side to move
+     * 
+     * @return the replies, most played first
+     */
+    public List<Reply> replies(GameState position) {
+        int side = position.getSideToMove();
+        List<Reply> replies = new ArrayList<>();
+        
+        for (long found: findGames(position, Integer.MAX_VALUE)) {
+            long id = gameId(found);
+            int ply = ply(found);
+            if (!isFinished(id) || ply >= getMoveCount(id)) continue;
+            
+            int move = getMove(id, ply);
+            Reply reply = null;
+            for (Reply r: replies) {
+                if (r.move == move) reply = r;
+            }
+            if (reply == null) {
+                reply = new Reply(move);
+                replies.add(reply);
+            }
+            
+            int difference = getDiscs(id, side)-getDiscs(id, (side == GameState.BLACK)
+                ? GameState.WHITE : GameState.BLACK);
+            reply.games++;
+            if (difference > 0) reply.wins++;
+            if (difference == 0) reply.draws++;
+            reply.discDifference += difference;
+        }
+        
+        replies.sort((a, b) -> Integer.compare(b.games, a.games));
+        return replies;
+    }
+    
+    /**
+     * @return the index of the first entry with the key in a segment, or where it would be
+     */
+    private static int findFirst(ByteBuffer segment, int entries, long key) {
+        int low = 0;
+        int high = entries;
+        while (low < high) {
+            int middle = (low+high) >>> 1;
+            if (segment.getLong(middle*ENTRYBYTES) < key) {
+                low = middle+1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    // Reading Games
+    
+    /**
+     * @return the mapped chunk of games.dat a game starts in
+     */
+    private ByteBuffer chunkAt(long id) {
+        return gameChunks[(int) (id/CHUNKBYTES)];
+    }
+    
+    /**
+     * @return where a game starts in its chunk
+     */
+    private int offsetIn(long id) {
+        return (int) (id%CHUNKBYTES);
+    }
+    
+    public int getSize(long id) {
+        return chunkAt(id).getShort(offsetIn(id)) & 0xffff;
+    }
+    
+    /**
+     * @return whether the game was played until neither player could move
+     */
+    public boolean isFinished(long id) {
+        return (chunkAt(id).get(offsetIn(id)+2) & FINISHED) != 0;
+    }
+    
+    /**
+     * @return the number of discs of a color at the end of the game
+     */
+    public int getDiscs(long id, int color) {
+        int offset = offsetIn(id)+((color == GameState.BLACK) ? 4 : 6);
+        return chunkAt(id).getShort(offset) & 0xffff;
+    }
+    
+    public int getMoveCount(long id) {
+        return chunkAt(id).getInt(offsetIn(id)+8);
+    }
+    
+    /**
+     * @return the move played on a ply of a game, or Search.PASS
+     */
+    public int getMove(long id, int ply) {
+        ByteBuffer chunk = chunkAt(id);
+        int offset = offsetIn(id);
+        
+        if ((chunk.get(offset+2) & WIDEMOVES) != 0) {
+            int move = chunk.getShort(offset+GAMEHEADERBYTES+2*ply) & 0xffff;
+            return (move == PASSSHORT) ? Search.PASS : move;
+        }
+        int move = chunk.get(offset+GAMEHEADERBYTES+ply) & 0xff;
+        return (move == PASSBYTE) ? Search.PASS : move;
+    }
+    
+    /**
+     * @return every move of a game, passes as Search.PASS
+     */
+    public int[] getMoves(long id) {
+        int[] moves = new int[getMoveCount(id)];
+        for (int ply=0; ply<moves.length; ply++) {
+            moves[ply] = getMove(id, ply);
+        }
+        return moves;
+    }
+    
+    /**
+     * @return how many bytes the game at the offset takes, or -1 if its header isn't valid
+     */
+    private long readGameBytes(long offset) {
+        if (offset+GAMEHEADERBYTES > mappedEnd) return -1;
+        
+        ByteBuffer chunk = chunkAt(offset);
+        int at = offsetIn(offset);
+        
+        int size = chunk.getShort(at) & 0xffff;
+        int moveCount = chunk.getInt(at+8);
+        if (size == 0 || size > MAXSIZE || moveCount < 0 || moveCount > 2*size*size+2) return -1;
+        
+        int moveBytes = ((chunk.get(at+2) & WIDEMOVES) != 0) ? 2 : 1;
+        return GAMEHEADERBYTES+(long) moveCount*moveBytes;
+    }
+    
+    /**
+     * @return the id of the first game, or -1 if there are no games, used with nextGame to
+     * go through every game in the order they were added
+     */
+    public long firstGame() {
+        return (mappedEnd > HEADERBYTES) ? HEADERBYTES : -1;
+    }
+    
+    /**
+     * @return the id of the game after the given one, or -1 if it is the last
+     */
+    public long nextGame(long id) {
+        long next = id+readGameBytes(id);
+        return (next < mappedEnd) ? next : -1;
+    }
+    
+    /**
+     * @return the number of games in the archive, including any not flushed yet
+     */
+    public long getGameCount() {
+        return gameCount;
+    }
+    
+    /**
+     * @return the number of index segments, compact merges them into one
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+    
+    /**
+     * @return the number of positions in the index
+     */
+    public long getIndexedPositions() {
+        long total = 0;
+        for (MappedByteBuffer segment: segments) {
+            total += segment.capacity()/ENTRYBYTES;
+        }
+        return total;
+    }
+    
+    /**
+     * Flushes any games not indexed yet and closes the archive
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        games.close();
+    }
+    
+    // Utility Methods
+    
+    /**
+     * Sorts the pending entries by key and then value, with a heapsort on the two arrays
+     * so nothing is allocated however many entries there are
+     */
+    private void sortPending() {
+        for (int i=pendingCount/2-1; i>=0; i--) {
+            siftDown(i, pendingCount);
+        }
+        for (int end=pendingCount-1; end>0; end--) {
+            swapPending(0, end);
+            siftDown(0, end);
+        }
+    }
+    
+    private void siftDown(int root, int end) {
+        while (2*root+1 < end) {
+            int child = 2*root+1;
+            if (child+1 < end && comparePending(child, child+1) < 0) child++;
+            if (comparePending(root, child) >= 0) return;
+            
+            swapPending(root, child);
+            root = child;
+        }
+    }
+    
+    private int comparePending(int i, int j) {
+        int byKey = Long.compare(pendingKeys[i], pendingKeys[j]);
+        return (byKey != 0) ? byKey : Long.compare(pendingValues[i], pendingValues[j]);
+    }
+    
+    private void swapPending(int i, int j) {
+        long key = pendingKeys[i];
+        long value = pendingValues[i];
+        pendingKeys[i] = pendingKeys[j];
+        pendingValues[i] = pendingValues[j];
+        pendingKeys[j] = key;
+        pendingValues[j] = value;
+    }
+    
+    /**
+     * Writes all of a buffer at a position of a file
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer, long position)
+        throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+    
+    /**
+     * Writes out everything in the buffer at the position and empties it
+     * 
+     * @return the position after what was written
+     */
+    private static long drain(FileChannel channel, ByteBuffer buffer, long position)
+        throws IOException {
+        buffer.flip();
+        long end = position+buffer.remaining();
+        write(channel, buffer, position);
+        buffer.clear();
+        return end;
+    }
+    
+    /**
+     * A move played from a position and how it did for the side that played it
+     */
+    public static class Reply
+    {
+        private final int move;
+        private int games;
+        private int wins;
+        private int draws;
+        private long discDifference;
+        
+        Reply(int move) {
+            this.move = move;
+        }
+        
+        public int getMove() {
+            return move;
+        }
+        
+        public int getGames() {
+            return games;
+        }
+        
+        public int getWins() {
+            return wins;
+        }
+        
+        public int getDraws() {
+            return draws;
+        }
+        
+        /**
+         * @return the share of games won, counting draws as half a win
+         */
+        public double getWinRate() {
+            return (wins+draws/2.0)/Math.max(1, games);
+        }
+        
+        public double getAverageDifference() {
+            return (double) discDifference/Math.max(1, games);
+        }
+    }
+    
+    /**
+     * @param args      the archive directory and a command, see above
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java GameDatabase <directory> import|query|compact|stats ...");
+            return;
+        }
+        
+        long start = System.nanoTime();
+        try (GameDatabase database = open(Path.of(args[0]))) {
+            switch (args[1]) {
+                case "import":
+                    int imported = 0;
+                    int skipped = 0;
+                    for (int i=2; i<args.length; i++) {
+                        List<Path> files = new ArrayList<>();
+                        try (Stream<Path> walk = Files.walk(Path.of(args[i]))) {
+                            walk.filter(Files::isRegularFile).forEach(files::add);
+                        }
+                        
+                        for (Path file: files) {
+                            try {
+                                if (database.importSave(file.toFile()) < 0) {
+                                    skipped++;
+                                } else {
+                                    imported++;
+                                }
+                            } catch (IllegalArgumentException e) {
+                                System.out.println(file+": "+e.getMessage());
+                                skipped++;
+                            }
+                        }
+                    }
+                    database.flush();
+                    System.out.printf("imported %d games, skipped %d, %.1f games/s%n", imported,
+                        skipped, imported*1e9/(System.nanoTime()-start));
+                    break;
+                case "query":
+                    GameState position = SaveFile.read(new File(args[2])).getGameState();
+                    long[] found = database.findGames(position, Integer.MAX_VALUE);
+                    System.out.println(found.length+" games reached the position");
+                    for (Reply reply: database.replies(position)) {
+                        System.out.printf("%-6s %6d games, win rate %5.1f%%, average disc "+
+                            "difference %+.2f%n", position.squareName(reply.getMove()),
+                            reply.getGames(), 100*reply.getWinRate(), reply.getAverageDifference());
+                    }
+                    System.out.printf("%.2f ms%n", (System.nanoTime()-start)/1e6);
+                    break;
+                case "compact":
+                    database.compact();
+                    System.out.println("compacted the index into "+database.getSegmentCount()+
+                        " segments");
+                    break;
+                default:
+                    break;
+            }
+            
+            System.out.println(database.getGameCount()+" games, "+database.getIndexedPositions()+
+                " positions in "+database.getSegmentCount()+" index segments");
+        }
+    }
+}
@@ -0,0 +1,804 @@
+// Other Imports
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hosts many games of Reversi at once over TCP, without the game's window. The games are
+ * played on GameStates and every connection is handled by one of a few event loops, each
+ * a thread with its own Selector, so tens of thousands of players only need a thread per
+ * processor. The server socket is accepted on the first loop and each new connection is
+ * handed to the loops in turn
+ *
+ * The protocol is one command per line, sent by the player:
+ * - create [size], starts a game on a board of that size (default 8) and waits for an
+ *   opponent, the creator plays black. Answered with: created <game>
+ * - join <game>, joins a waiting game as white. Both players are sent:
+ *   started <game> <size> <their color>
+ * - move <square>, plays a move such as d3 in the player's game. Both players are sent:
+ *   moved <game> <color> <square> <side to move> <black discs> <white discs>
+ *   A player with no legal move passes straight away, so the side to move is the one
+ *   who just moved when their opponent has had to pass. Once neither player can move
+ *   both are sent:
+ *   over <game> <black discs> <white discs> <moves> <average latency us> <max latency us>
+ * - state [game], the player's game or any other game:
+ *   state <game> <size> <side to move> <board>, the board one row after another with
+ *   . for empty, x for black and o for white
+ * - stats [game], the move latency of one game (stats <game> <moves> <average us> <max us>)
+ *   or the whole server (stats <connections> <games> <moves> <average us> <p99 us> <max us>)
+ * - quit
+ * A player whose opponent leaves is sent: left <game> <color of the player who left>,
+ * and a bad command is answered with: error <reason>
+ *
+ * Nothing is written to a connection straight away. Its lines are added to its outgoing
+ * buffer and the connection is queued on its loop, which writes everything queued after
+ * it has handled the commands it read, so several updates (for example the end of one
+ * game and the start of the next) go out in one write. A move's latency is the time from its line being
+ * read until the update is written to the opponent, which includes the hop between loops
+ * when the two players are on different ones. It is kept for each game and for the
+ * whole server
+ *
+ * Usage: java GameServer [port] [threads]
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class GameServer
+{
+    public static final int DEFAULTPORT = 7878;
+    
+    // The largest board a game can be created on, and the longest line a player may send
+    private static final int MAXSIZE = 32;
+    private static final int MAXLINE = 256;
+    
+    // A connection whose unsent output grows past this is too slow to keep and is closed
+    private static final int MAXPENDINGBYTES = 1 << 20;
+    
+    // How many connections can wait to be accepted
+    private static final int BACKLOG = 4096;
+    
+    // When accepting fails (such as when the process is out of file descriptors) accepting
+    // stops for this long rather than failing again on every pass of the loop
+    private static final long ACCEPTPAUSEMILLIS = 100;
+    
+    // The move latencies, bucket b counting the latencies from 2^(b-1) to 2^b microseconds
+    private static final int LATENCYBUCKETS = 40;
+    
+    private final ServerSocketChannel serverChannel;
+    private final Loop[] loops;
+    private int nextLoop = 0;
+    
+    // The server socket's key on the first loop, and when accepting carries on after it
+    // failed (0 while it hasn't), only used on that loop
+    private final SelectionKey acceptKey;
+    private long acceptResumeNanos = 0;
+    
+    private final Map<Integer, Game> games = new ConcurrentHashMap<>();
+    private final AtomicInteger nextGameId = new AtomicInteger(1);
+    private final AtomicInteger connections = new AtomicInteger();
+    
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAdder[] latencyBuckets = new LongAdder[LATENCYBUCKETS];
+    private final AtomicInteger maxLatencyMicros = new AtomicInteger();
+    
+    /**
+     * Opens the server socket, start runs the loops
+     * 
+     * @param port          the port to listen on, 0 for any free port
+     * @param threads       the number of event loops
+     */
+    public GameServer(int port, int threads) throws IOException {
+        for (int b=0; b<LATENCYBUCKETS; b++) {
+            latencyBuckets[b] = new LongAdder();
+        }
+        
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), BACKLOG);
+        serverChannel.configureBlocking(false);
+        
+        loops = new Loop[Math.max(1, threads)];
+        for (int i=0; i<loops.length; i++) {
+            loops[i] = new Loop(i);
+        }
+        acceptKey = serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+    }
+    
+    /**
+     * Starts the event loops, which carry on until close is called
+     */
+    public void start() {
+        for (Loop loop: loops) {
+            Thread thread = new Thread(loop, "game server "+loop.index);
+            loop.thread = thread;
+            thread.start();
+        }
+    }
+    
+    /**
+     * Stops the loops and closes every connection
+     */
+    public void close() {
+        for (Loop loop: loops) {
+            loop.running = false;
+            loop.selector.wakeup();
+        }
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+    
+    /**
+     * @return the port the server is listening on
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+    
+    public int getConnections() {
+        return connections.get();
+    }
+    
+    /**
+     * @return the number of games being played or waiting for an opponent
+     */
+    public int getGames() {
+        return games.size();
+    }
+    
+    public long getMoves() {
+        return moves.sum();
+    }
+    
+    /**
+     * @return the server's move latencies as: moves, average, 99th percentile and worst
+     * in microseconds
+     */
+    public String latencySummary() {
+        long count = 0;
+        for (LongAdder bucket: latencyBuckets) {
+            count += bucket.sum();
+        }
+        
+        // The 99th percentile is the top of the bucket it falls in, but never more than
+        // the worst latency, which can be lower than the top of its bucket
+        long p99 = 0;
+        long seen = 0;
+        for (int b=0; b<LATENCYBUCKETS && count > 0; b++) {
+            seen += latencyBuckets[b].sum();
+            if (seen >= Math.ceil(count*0.99)) {
+                p99 = Math.min(1L << b, maxLatencyMicros.get());
+                break;
+            }
+        }
+        
+        return moves.sum()+" "+latencyNanos.sum()/Math.max(1, count)/1000+" "+p99+" "
+            +maxLatencyMicros.get();
+    }
+    
+    private void recordLatency(long nanos) {
+        long micros = nanos/1000;
+        latencyNanos.add(nanos);
+        latencyBuckets[Math.min(LATENCYBUCKETS-1, 64-Long.numberOfLeadingZeros(micros))]
+            .increment();
+        maxLatencyMicros.accumulateAndGet((int) Math.min(Integer.MAX_VALUE, micros), Math::max);
+    }
+    
+    /**
+     * Handles one command from a player, on the player's loop
+     */
+    private void handle(Connection connection, String line, long readNanos) {
+        String[] parts = line.trim().split("\\s+");
+        try {
+            switch (parts[0]) {
+                case "create":
+                    create(connection, (parts.length > 1) ? Integer.parseInt(parts[1]) : 8);
+                    break;
+                case "join":
+                    join(connection, gameArgument(parts, null));
+                    break;
+                case "move":
+                    if (parts.length < 2) throw new IllegalArgumentException("move needs a square");
+                    move(connection, parts[1], readNanos);
+                    break;
+                case "state":
+                    Game game = gameArgument(parts, connection.game);
+                    synchronized (game) {
+                        connection.send(game.stateLine());
+                    }
+                    break;
+                case "stats":
+                    if (parts.length > 1) {
+                        Game statsGame = gameArgument(parts, null);
+                        synchronized (statsGame) {
+                            connection.send("stats "+statsGame.id+" "+statsGame.latencySummary());
+                        }
+                    } else {
+                        connection.send("stats "+connections.get()+" "+games.size()+" "
+                            +latencySummary());
+                    }
+                    break;
+                case "quit":
+                    connection.loop.close(connection);
+                    break;
+                case "":
+                    break;
+                default:
+                    connection.send("error unknown command "+parts[0]);
+            }
+        } catch (IllegalArgumentException e) {
+            connection.send("error "+e.getMessage());
+        } catch (RuntimeException e) {
+            // Only this command fails, the loop carries on serving its other connections
+            System.err.println("Command "+line+" failed: "+e);
+            connection.send("error the command failed");
+        }
+    }
+    
+    /**
+     * @return the game named by the command's argument, or the default if it has none
+     * 
+     * @throws IllegalArgumentException if there is no such game
+     */
+    private Game gameArgument(String[] parts, Game defaultGame) {
+        if (parts.length < 2) {
+            if (defaultGame == null) throw new IllegalArgumentException("no game given");
+            return defaultGame;
+        }
+        
+        Game game = games.get(Integer.parseInt(parts[1]));
+        if (game == null) throw new IllegalArgumentException("no game "+parts[1]);
+        return game;
+    }
+    
+    private void create(Connection connection, int size) {
+        if (connection.game != null) throw new IllegalArgumentException("already in a game");
+        if (size < 4 || size > MAXSIZE || size % 2 != 0)
+            throw new IllegalArgumentException("the size has to be even, from 4 to "+MAXSIZE);
+        
+        Game game = new Game(nextGameId.getAndIncrement(), size, connection);
+        connection.game = game;
+        connection.color = GameState.BLACK;
+        games.put(game.id, game);
+        connection.send("created "+game.id);
+    }
+    
+    private void join(Connection connection, Game game) {
+        if (connection.game != null) throw new IllegalArgumentException("already in a game");
+        
+        synchronized (game) {
+            if (game.white != null || game.over)
+                throw new IllegalArgumentException("game "+game.id+" has started");
+            
+            game.white = connection;
+            connection.game = game;
+            connection.color = GameState.WHITE;
+            game.state.startGame();
+            
+            int size = game.state.getSize();
+            game.black.send("started "+game.id+" "+size+" black");
+            game.white.send("started "+game.id+" "+size+" white");
+        }
+    }
+    
+    private void move(Connection connection, String squareName, long readNanos) {
+        Game game = connection.game;
+        if (game == null) throw new IllegalArgumentException("not in a game");
+        
+        synchronized (game) {
+            GameState state = game.state;
+            if (game.white == null || game.over)
+                throw new IllegalArgumentException("game "+game.id+" isn't being played");
+            if (state.getSideToMove() != connection.color)
+                throw new IllegalArgumentException("not your turn");
+            
+            int square = state.parseSquare(squareName);
+            if (square == Search.PASS || !state.isLegal(square))
+                throw new IllegalArgumentException(squareName+" isn't a legal move");
+            
+            state.play(square);
+            game.moves++;
+            
+            // A player with no move passes straight away, until the game is over
+            while (!state.isTerminal() && !state.hasLegalMove()) {
+                state.pass();
+            }
+            game.broadcast(moveLine(game, connection.color, squareName), connection, readNanos);
+            
+            if (state.isTerminal()) {
+                game.broadcast("over "+game.id+" "+state.count(GameState.BLACK)+" "
+                    +state.count(GameState.WHITE)+" "+game.latencySummary(), connection, 0);
+                end(game);
+            }
+        }
+        moves.increment();
+    }
+    
+    private static String moveLine(Game game, int color, String square) {
+        GameState state = game.state;
+        String next = (state.isTerminal()) ? "none" : GameState.colorName(state.getSideToMove());
+        return "moved "+game.id+" "+GameState.colorName(color)+" "+square+" "+next+" "
+            +state.count(GameState.BLACK)+" "+state.count(GameState.WHITE);
+    }
+    
+    /**
+     * Finishes a game, its players can create or join another. Called holding the game
+     */
+    private void end(Game game) {
+        game.over = true;
+        games.remove(game.id);
+        if (game.black != null && game.black.game == game) game.black.game = null;
+        if (game.white != null && game.white.game == game) game.white.game = null;
+    }
+    
+    /**
+     * Called on a connection's loop when it closes, its game ends and the opponent is told
+     */
+    private void disconnected(Connection connection) {
+        connections.decrementAndGet();
+        Game game = connection.game;
+        if (game == null) return;
+        
+        synchronized (game) {
+            if (game.over) return;
+            Connection opponent = (game.black == connection) ? game.white : game.black;
+            if (opponent != null) {
+                opponent.send("left "+game.id+" "+GameState.colorName(connection.color));
+            }
+            end(game);
+        }
+    }
+    
+    /**
+     * @param args      the port (default DEFAULTPORT) and the number of event loops
+     * (default one per processor)
+     */
+    public static void main(String[] args) throws IOException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULTPORT;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1])
+            : Runtime.getRuntime().availableProcessors();
+        
+        GameServer server = new GameServer(port, threads);
+        server.start();
+        System.out.println("Listening on port "+server.getPort()+" with "+threads+" threads");
+        
+        // A line every ten seconds while there is something going on
+        long lastMoves = -1;
+        while (true) {
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException e) {
+                break;
+            }
+            
+            long played = server.getMoves();
+            if (played == lastMoves) continue;
+            lastMoves = played;
+            System.out.println(server.getConnections()+" connections, "+server.getGames()
+                +" games, latency (moves, average, p99, worst us): "+server.latencySummary());
+        }
+    }
+    
+    /**
+     * One event loop, a thread with its own Selector that reads, handles and writes for
+     * the connections it was given
+     */
+    private class Loop implements Runnable
+    {
+        private final int index;
+        private final Selector selector;
+        private Thread thread;
+        private volatile boolean running = true;
+        
+        // Connections accepted by another loop, and connections with output to write,
+        // both added to from any thread
+        private final ConcurrentLinkedQueue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        private final ConcurrentLinkedQueue<Connection> toFlush = new ConcurrentLinkedQueue<>();
+        
+        // Set once the selector has been woken, so a burst of updates only wakes it once
+        private final AtomicBoolean woken = new AtomicBoolean();
+        
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(4096);
+        
+        private Loop(int index) throws IOException {
+            this.index = index;
+            this.selector = Selector.open();
+        }
+        
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    try {
+                        runOnce();
+                    } catch (IOException e) {
+                        // The connections are still being served, so the loop carries on
+                        System.err.println("Event loop "+index+": "+e.getMessage());
+                    }
+                }
+            } finally {
+                for (SelectionKey key: selector.keys()) {
+                    if (key.attachment() instanceof Connection) close((Connection) key.attachment());
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    // Nothing left to do with it
+                }
+            }
+        }
+        
+        /**
+         * Waits for the sockets, then registers the connections handed to this loop,
+         * handles what was read and writes what was queued
+         */
+        private void runOnce() throws IOException {
+            long pause = 0;
+            if (acceptResumeNanos != 0 && this == loops[0]) {
+                long left = acceptResumeNanos-System.nanoTime();
+                if (left <= 0) {
+                    acceptResumeNanos = 0;
+                    acceptKey.interestOps(SelectionKey.OP_ACCEPT);
+                } else {
+                    pause = Math.max(1, left/1000000);
+                }
+            }
+            selector.select(pause);
+            woken.set(false);
+            
+            SocketChannel channel;
+            while ((channel = accepted.poll()) != null) {
+                register(channel);
+            }
+            
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) continue;
+                
+                if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+                Connection connection = (Connection) key.attachment();
+                if (key.isReadable()) read(connection);
+                if (key.isValid() && key.isWritable()) flush(connection);
+            }
+            
+            Connection connection;
+            while ((connection = toFlush.poll()) != null) {
+                flush(connection);
+            }
+        }
+        
+        /**
+         * Accepts every waiting connection, handing each to the next loop. If accepting
+         * fails it is paused for ACCEPTPAUSEMILLIS and the connections already accepted
+         * carry on
+         */
+        private void accept() {
+            while (true) {
+                SocketChannel channel;
+                try {
+                    channel = serverChannel.accept();
+                } catch (IOException e) {
+                    System.err.println("Accepting failed, pausing for "+ACCEPTPAUSEMILLIS
+                        +" ms: "+e.getMessage());
+                    acceptKey.interestOps(0);
+                    acceptResumeNanos = System.nanoTime()+ACCEPTPAUSEMILLIS*1000000;
+                    return;
+                }
+                if (channel == null) return;
+                
+                try {
+                    channel.configureBlocking(false);
+                    channel.socket().setTcpNoDelay(true);
+                } catch (IOException e) {
+                    closeQuietly(channel);
+                    continue;
+                }
+                
+                Loop loop = loops[nextLoop];
+                nextLoop = (nextLoop+1) % loops.length;
+                if (loop == this) {
+                    register(channel);
+                } else {
+                    loop.accepted.add(channel);
+                    loop.wake();
+                }
+            }
+        }
+        
+        /**
+         * Starts watching a connection, a connection that can't be registered is closed
+         */
+        private void register(SocketChannel channel) {
+            Connection connection = new Connection(channel, this);
+            try {
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+                System.err.println("Couldn't register a connection: "+e.getMessage());
+                closeQuietly(channel);
+                return;
+            }
+            connections.incrementAndGet();
+        }
+        
+        private void closeQuietly(SocketChannel channel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Closed either way
+            }
+        }
+        
+        /**
+         * Reads what a connection has sent and handles each whole line in it
+         */
+        private void read(Connection connection) {
+            long readNanos = System.nanoTime();
+            int read;
+            try {
+                readBuffer.clear();
+                read = connection.channel.read(readBuffer);
+            } catch (IOException e) {
+                read = -1;
+            }
+            if (read < 0) {
+                close(connection);
+                return;
+            }
+            
+            readBuffer.flip();
+            StringBuilder line = connection.line;
+            while (readBuffer.hasRemaining()) {
+                char c = (char) (readBuffer.get() & 0xFF);
+                if (c == '\n') {
+                    handle(connection, line.toString(), readNanos);
+                    line.setLength(0);
+                    if (!connection.key.isValid()) return;
+                } else if (c != '\r') {
+                    line.append(c);
+                    if (line.length() > MAXLINE) {
+                        connection.send("error line too long");
+                        flush(connection);
+                        close(connection);
+                        return;
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Writes as much of a connection's output as the socket takes, watching for the
+         * socket to be writable again if some is left
+         */
+        private void flush(Connection connection) {
+            if (!connection.key.isValid()) return;
+            
+            long stamp;
+            Game stampGame;
+            synchronized (connection) {
+                connection.queued = false;
+                if (connection.out.length() > 0) {
+                    byte[] bytes = connection.out.toString().getBytes(StandardCharsets.US_ASCII);
+                    connection.out.setLength(0);
+                    connection.appendPending(bytes);
+                }
+                stamp = connection.stampNanos;
+                stampGame = connection.stampGame;
+                connection.stampNanos = 0;
+                connection.stampGame = null;
+            }
+            
+            ByteBuffer pending = connection.pending;
+            try {
+                connection.channel.write(pending);
+            } catch (IOException e) {
+                close(connection);
+                return;
+            }
+            
+            if (pending.hasRemaining()) {
+                if (pending.remaining() > MAXPENDINGBYTES) {
+                    close(connection);
+                    return;
+                }
+                connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } else {
+                connection.key.interestOps(SelectionKey.OP_READ);
+            }
+            
+            // A move's latency ends once all of it has been written
+            if (stamp != 0 && pending.hasRemaining()) {
+                synchronized (connection) {
+                    if (connection.stampNanos == 0) {
+                        connection.stampNanos = stamp;
+                        connection.stampGame = stampGame;
+                    }
+                }
+            } else if (stamp != 0) {
+                long latency = System.nanoTime()-stamp;
+                recordLatency(latency);
+                synchronized (stampGame) {
+                    stampGame.recordLatency(latency);
+                }
+            }
+        }
+        
+        private void close(Connection connection) {
+            if (connection.closed) return;
+            connection.closed = true;
+            connection.key.cancel();
+            try {
+                connection.channel.close();
+            } catch (IOException e) {
+                // Closed either way
+            }
+            disconnected(connection);
+        }
+        
+        /**
+         * Queues a connection to have its output written, from any thread
+         */
+        private void schedule(Connection connection) {
+            toFlush.add(connection);
+            if (Thread.currentThread() != thread) wake();
+        }
+        
+        private void wake() {
+            if (woken.compareAndSet(false, true)) selector.wakeup();
+        }
+    }
+    
+    /**
+     * A player's connection, only read and written on its loop. Output is added to from
+     * the loops of both players of its game
+     */
+    private static class Connection
+    {
+        private final SocketChannel channel;
+        private final Loop loop;
+        private SelectionKey key;
+        private boolean closed = false;
+        
+        // The line being read
+        private final StringBuilder line = new StringBuilder();
+        
+        // Lines waiting for the loop to write them, guarded by the connection, and the
+        // bytes taken from them that the socket hasn't taken yet
+        private final StringBuilder out = new StringBuilder();
+        private boolean queued = false;
+        private ByteBuffer pending = ByteBuffer.allocate(0);
+        
+        // When the oldest move waiting to be written to this player was read, and its game
+        private long stampNanos = 0;
+        private Game stampGame;
+        
+        // The game being played or waited for, changed while holding the game
+        private volatile Game game;
+        private int color;
+        
+        private Connection(SocketChannel channel, Loop loop) {
+            this.channel = channel;
+            this.loop = loop;
+        }
+        
+        private void send(String text) {
+            send(text, 0, null);
+        }
+        
+        /**
+         * Adds a line to the output and queues the connection to be written
+         * 
+         * @param moveNanos     when the move the line is about was read, 0 if it isn't
+         * about a move
+         */
+        private synchronized void send(String text, long moveNanos, Game moveGame) {
+            out.append(text).append('\n');
+            if (moveNanos != 0 && stampNanos == 0) {
+                stampNanos = moveNanos;
+                stampGame = moveGame;
+            }
+            if (!queued) {
+                queued = true;
+                loop.schedule(this);
+            }
+        }
+        
+        /**
+         * Adds bytes to the end of what is still to be written, on the loop
+         */
+        private void appendPending(byte[] bytes) {
+            if (!pending.hasRemaining() && pending.capacity() >= bytes.length) {
+                pending.clear();
+                pending.put(bytes).flip();
+                return;
+            }
+            
+            ByteBuffer grown = pending;
+            if (pending.capacity()-pending.limit() < bytes.length) {
+                grown = ByteBuffer.allocate(Math.max(pending.remaining()+bytes.length,
+                    pending.capacity()*2));
+                grown.put(pending);
+            } else {
+                grown.compact();
+            }
+            grown.put(bytes).flip();
+            pending = grown;
+        }
+    }
+    
+    /**
+     * A game between two connections, guarded by itself
+     */
+    private static class Game
+    {
+        private final int id;
+        private final GameState state;
+        private final Connection black;
+        private Connection white;
+        private boolean over = false;
+        
+        private int moves = 0;
+        private long latencyNanos = 0;
+        private long maxLatencyNanos = 0;
+        private int latencies = 0;
+        
+        private Game(int id, int size, Connection black) {
+            this.id = id;
+            this.state = new GameState(size);
+            this.black = black;
+        }
+        
+        /**
+         * Sends a line to both players, timing its delivery to the mover's opponent from
+         * when the move was read if that is given
+         */
+        private void broadcast(String text, Connection mover, long moveNanos) {
+            Connection opponent = (mover == black) ? white : black;
+            mover.send(text, 0, null);
+            opponent.send(text, moveNanos, this);
+        }
+        
+        private void recordLatency(long nanos) {
+            latencyNanos += nanos;
+            maxLatencyNanos = Math.max(maxLatencyNanos, nanos);
+            latencies++;
+        }
+        
+        /**
+         * @return the moves played, average and worst latency in microseconds
+         */
+        private String latencySummary() {
+            return moves+" "+latencyNanos/Math.max(1, latencies)/1000+" "+maxLatencyNanos/1000;
+        }
+        
+        private String stateLine() {
+            int size = state.getSize();
+            StringBuilder board = new StringBuilder(size*size);
+            for (int square=0; square<size*size; square++) {
+                int color = state.get(square);
+                board.append((color == GameState.BLACK) ? 'x' : (color == GameState.WHITE) ? 'o' : '.');
+            }
+            String side = (white == null) ? "waiting"
+                : (over || state.isTerminal()) ? "none" : GameState.colorName(state.getSideToMove());
+            return "state "+id+" "+size+" "+side+" "+board;
+        }
+    }
+}
@@ -0,0 +1,587 @@
+// Other Imports
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The state of a game of Reversi without any user interface, so games can be played
+ * without a window. It stores which squares each player has a disc on, whose turn it is
+ * and how many turns in a row have been passed. The Board and Reversi objects render
+ * this state and ask it for legal moves
+ *
+ * Squares are numbered row*size+column. Each position also has a Zobrist hash key which
+ * is updated as discs are placed and flipped, so positions can be identified cheaply
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class GameState
+{
+    public static final int EMPTY = 0;
+    public static final int BLACK = 1;
+    public static final int WHITE = 2;
+    
+    private final int size;
+    private final Rules rules;
+    private final Zobrist zobrist;
+    private final long[] black;
+    private final long[] white;
+    
+    // Black starts first
+    private int sideToMove = BLACK;
+    
+    // 0 (able to play moves), 1 (one player had to pass), 2 (both players passed, game over)
+    private int passedTurns = 0;
+    
+    // The Zobrist key of the discs and side to move
+    private long hashKey = 0;
+    
+    // Reused by play so it doesn't allocate, holds the discs captured by the last move
+    private final long[] lastFlips;
+    private final long[] moves;
+    
+    // When set legal moves are kept up to date after each move instead of being found
+    // from scratch, stale means the board was changed directly and it has to be reset
+    private MoveTracker moveTracker;
+    private boolean trackerStale;
+    
+    /**
+     * Creates an empty board, startGame places the four starting discs
+     * 
+     * @param size      the width (and height) of the board, has to be even
+     */
+    public GameState(int size) {
+        if (size <= 0 || size % 2 != 0)
+            throw new IllegalArgumentException("The board size has to be even");
+        
+        this.size = size;
+        this.rules = new Rules(size);
+        this.zobrist = Zobrist.forSize(size);
+        int words = Rules.words(size);
+        black = new long[words];
+        white = new long[words];
+        lastFlips = new long[words];
+        moves = new long[words];
+    }
+    
+    /**
+     * Creates a copy of another game state
+     * 
+     * @param other     the state to copy
+     */
+    public GameState(GameState other) {
+        this(other.size);
+        copyFrom(other);
+    }
+    
+    /**
+     * Overwrites this state with another of the same size, used to reuse a state object
+     * instead of creating a new one
+     * 
+     * @param other     the state to copy
+     */
+    public void copyFrom(GameState other) {
+        System.arraycopy(other.black, 0, black, 0, black.length);
+        System.arraycopy(other.white, 0, white, 0, white.length);
+        sideToMove = other.sideToMove;
+        passedTurns = other.passedTurns;
+        hashKey = other.hashKey;
+        trackerStale = true;
+    }
+    
+    /**
+     * Switches to keeping legal moves up to date after each move (see MoveTracker), which
+     * is much faster than finding them from scratch on large boards
+     * 
+     * @param verify        whether every update is checked against a full rescan
+     */
+    public void enableIncrementalMoves(boolean verify) {
+        moveTracker = new MoveTracker(size, verify);
+        trackerStale = true;
+    }
+    
+    // Board Related Methods
+    
+    /**
+     * Empties the board and gives the turn back to black
+     */
+    public void clear() {
+        for (int i=0; i<black.length; i++) {
+            black[i] = 0;
+            white[i] = 0;
+            lastFlips[i] = 0;
+        }
+        sideToMove = BLACK;
+        passedTurns = 0;
+        hashKey = 0;
+        trackerStale = true;
+    }
+    
+    /**
+     * At the start of the game there are 4 discs of alternating colours in a 2x2 grid in
+     * the middle of the board
+     */
+    public void startGame() {
+        clear();
+        int pos = size/2-1;
+        
+        set(pos*size+pos, WHITE);
+        set(pos*size+pos+1, BLACK);
+        set((pos+1)*size+pos, BLACK);
+        set((pos+1)*size+pos+1, WHITE);
+    }
+    
+    /**
+     * Sets the color of a square directly, used when loading a saved game
+     * 
+     * @param square        the square to set
+     * @param color         EMPTY, BLACK or WHITE
+     */
+    public void set(int square, int color) {
+        long bit = 1L << square;
+        int word = square >>> 6;
+        
+        hashKey ^= zobrist.disc(get(square), square) ^ zobrist.disc(color, square);
+        black[word] &= ~bit;
+        white[word] &= ~bit;
+        if (color == BLACK) black[word] |= bit;
+        if (color == WHITE) white[word] |= bit;
+        trackerStale = true;
+    }
+    
+    /**
+     * @return the color on the square, EMPTY, BLACK or WHITE
+     */
+    public int get(int square) {
+        if (Rules.has(black, square)) return BLACK;
+        if (Rules.has(white, square)) return WHITE;
+        return EMPTY;
+    }
+    
+    /**
+     * @return the color on the square at the row and column
+     */
+    public int get(int row, int column) {
+        return get(row*size+column);
+    }
+    
+    /**
+     * @return the number of discs of a color on the board
+     */
+    public int count(int color) {
+        long[] discs = (color == BLACK) ? black : white;
+        int total = 0;
+        
+        for (long word: discs) {
+            total += Long.bitCount(word);
+        }
+        
+        return total;
+    }
+    
+    // Move Related Methods
+    
+    /**
+     * Writes a bitboard of the squares the side to move can play on into out
+     * 
+     * @param out       an array of at least Rules.words(size) longs
+     */
+    public void legalMoves(long[] out) {
+        if (moveTracker == null) {
+            rules.legalMoves(getPlayerDiscs(), getOpponentDiscs(), out);
+            return;
+        }
+        
+        syncTracker();
+        System.arraycopy(moveTracker.getLegalMoves(sideToMove), 0, out, 0, black.length);
+    }
+    
+    /**
+     * Resets the move tracker if the board has been changed without playing a move
+     */
+    private void syncTracker() {
+        if (trackerStale) {
+            moveTracker.reset(black, white);
+            trackerStale = false;
+        }
+    }
+    
+    /**
+     * @return a new bitboard of the squares the side to move can play on
+     */
+    public long[] legalMoves() {
+        long[] out = new long[black.length];
+        legalMoves(out);
+        return out;
+    }
+    
+    /**
+     * @return whether the side to move can place a disc anywhere
+     */
+    public boolean hasLegalMove() {
+        legalMoves(moves);
+        for (long word: moves) {
+            if (word != 0) return true;
+        }
+        return false;
+    }
+    
+    /**
+     * @return whether the side to move can place a disc on the square
+     */
+    public boolean isLegal(int square) {
+        if (moveTracker != null) {
+            syncTracker();
+            return Rules.has(moveTracker.getLegalMoves(sideToMove), square);
+        }
+        
+        return rules.flips(getPlayerDiscs(), getOpponentDiscs(), square, moves) > 0;
+    }
+    
+    /**
+     * Places a disc for the side to move, captures the flanked discs and gives the turn
+     * to the other player. The captured discs can be read afterwards with getLastFlips
+     * 
+     * @param square        the square to place the disc on
+     * 
+     * @return the number of discs captured
+     */
+    public int play(int square) {
+        return play(square, lastFlips);
+    }
+    
+    /**
+     * The same as play but writing the captured discs into the given bitboard, so a
+     * search can keep the captures of each ply to undo the moves afterwards
+     * 
+     * @param flips         an array of at least Rules.words(size) longs
+     */
+    public int play(int square, long[] flips) {
+        long[] player = getPlayerDiscs();
+        long[] opponent = getOpponentDiscs();
+        
+        int flipped = rules.flips(player, opponent, square, flips);
+        if (flipped == 0)
+            throw new IllegalArgumentException("Illegal move on square "+square);
+        
+        long key = hashKey ^ zobrist.disc(sideToMove, square) ^ zobrist.side();
+        for (int i=0; i<player.length; i++) {
+            long word = flips[i];
+            player[i] |= word;
+            opponent[i] &= ~word;
+            
+            while (word != 0) {
+                key ^= zobrist.flip(i*64+Long.numberOfTrailingZeros(word));
+                word &= word-1;
+            }
+        }
+        player[square >>> 6] |= 1L << square;
+        hashKey = key;
+        
+        if (moveTracker != null && !trackerStale) {
+            moveTracker.update(black, white, square, flips);
+        }
+        
+        sideToMove = opponent();
+        passedTurns = 0;
+        return flipped;
+    }
+    
+    /**
+     * Takes back the last move played, removing the placed disc, turning the captured
+     * discs back and giving the turn back to the player who played it. Nothing is looked
+     * up again so this takes time proportional to the number of captured discs
+     * 
+     * @param square                the square the move was played on
+     * @param flips                 the bitboard of discs the move captured
+     * @param previousPassedTurns   the number of passed turns before the move
+     */
+    public void undo(int square, long[] flips, int previousPassedTurns) {
+        int mover = opponent();
+        long[] player = getDiscs(mover);
+        long[] opponent = getDiscs(sideToMove);
+        
+        long key = hashKey ^ zobrist.disc(mover, square) ^ zobrist.side();
+        player[square >>> 6] &= ~(1L << square);
+        for (int i=0; i<player.length; i++) {
+            long word = flips[i];
+            if (word == 0) continue;
+            
+            player[i] &= ~word;
+            opponent[i] |= word;
+            while (word != 0) {
+                key ^= zobrist.flip(i*64+Long.numberOfTrailingZeros(word));
+                word &= word-1;
+            }
+        }
+        hashKey = key;
+        
+        if (moveTracker != null && !trackerStale) {
+            moveTracker.undo(black, white, square, flips);
+        }
+        
+        sideToMove = mover;
+        passedTurns = previousPassedTurns;
+    }
+    
+    /**
+     * Plays a random legal move for the side to move, or passes if there isn't one. Used
+     * to create test positions and to randomise the openings of computer games
+     * 
+     * @param random        the random number generator to pick the move with
+     * 
+     * @return the square played or Search.PASS
+     */
+    public int playRandomMove(Random random) {
+        legalMoves(moves);
+        int count = 0;
+        for (long word: moves) {
+            count += Long.bitCount(word);
+        }
+        
+        if (count == 0) {
+            pass();
+            return Search.PASS;
+        }
+        
+        int pick = random.nextInt(count);
+        for (int i=0; i<moves.length; i++) {
+            long word = moves[i];
+            int bits = Long.bitCount(word);
+            if (pick >= bits) {
+                pick -= bits;
+                continue;
+            }
+            
+            while (pick-- > 0) {
+                word &= word-1;
+            }
+            int square = i*64+Long.numberOfTrailingZeros(word);
+            play(square);
+            return square;
+        }
+        
+        return Search.PASS;
+    }
+    
+    /**
+     * Used when the side to move has no legal moves, the turn goes to the other player
+     */
+    public void pass() {
+        sideToMove = opponent();
+        hashKey ^= zobrist.side();
+        passedTurns++;
+    }
+    
+    /**
+     * Takes back a pass, giving the turn back to the player who passed
+     * 
+     * @param previousPassedTurns   the number of passed turns before the pass
+     */
+    public void undoPass(int previousPassedTurns) {
+        sideToMove = opponent();
+        hashKey ^= zobrist.side();
+        passedTurns = previousPassedTurns;
+    }
+    
+    /**
+     * @return whether the game is over, either both players passed in a row or
+     * neither player has a legal move
+     */
+    public boolean isTerminal() {
+        if (passedTurns >= 2) return true;
+        if (hasLegalMove()) return false;
+        
+        if (moveTracker != null) {
+            System.arraycopy(moveTracker.getLegalMoves(opponent()), 0, moves, 0, black.length);
+        } else {
+            rules.legalMoves(getOpponentDiscs(), getPlayerDiscs(), moves);
+        }
+        for (long word: moves) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+    
+    // Save Related Methods
+    
+    /**
+     * Sets the board from the rows of a saved game, each row is comma-delimited and each
+     * disc's properties (color and whether it's a legal move) are separated with spaces.
+     * Legal moves are not stored since they are worked out from the discs
+     * 
+     * @param rows      the rows of the board from the save file
+     */
+    public void setText(List<String> rows) {
+        for (int r=0; r<size; r++) {
+            String[] discPropRow = rows.get(r).split(",");
+            for (int c=0; c<size; c++) {
+                String[] discProps = discPropRow[c].split(" ");
+                
+                switch (discProps[0]){
+                    case "black":
+                        set(r*size+c, BLACK);
+                        break;
+                    case "white":
+                        set(r*size+c, WHITE);
+                        break;
+                    case "empty":
+                        set(r*size+c, EMPTY);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown disc type "+discProps[0]);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Writes the board in the save file format, the board size on the first line and
+     * then each row of discs with their color and whether the side to move can play there
+     * 
+     * @return the board state data to be saved
+     */
+    public String toText() {
+        legalMoves(moves);
+        StringBuilder data = new StringBuilder(size*size*12+16);
+        data.append(size).append('\n');
+        
+        for (int r=0; r<size; r++) {
+            for (int c=0; c<size; c++) {
+                int square = r*size+c;
+                data.append(colorName(get(square))).append(' ')
+                    .append(Rules.has(moves, square)).append(',');
+            }
+            data.append('\n');
+        }
+        
+        return data.toString();
+    }
+    
+    /**
+     * @return the name used for a color in save files (empty, black or white)
+     */
+    public static String colorName(int color) {
+        switch (color) {
+            case BLACK:
+                return "black";
+            case WHITE:
+                return "white";
+            default:
+                return "empty";
+        }
+    }
+    
+    /**
+     * Names a square the way players would, a column letter followed by the row number
+     * such as d3. Boards wider than 26 columns carry on with aa, ab and so on
+     * 
+     * @param square        the square to name
+     * 
+     * @return the name of the square, or pass for Search.PASS
+     */
+    public String squareName(int square) {
+        if (square < 0) return "pass";
+        
+        int column = square%size;
+        String letters = "";
+        do {
+            letters = (char) ('a'+column%26)+letters;
+            column = column/26-1;
+        } while (column >= 0);
+        
+        return letters+(square/size+1);
+    }
+    
+    /**
+     * Reads a square named the way squareName writes it, such as d3
+     * 
+     * @param name          the name of the square, or pass
+     * 
+     * @return the square, or Search.PASS for pass
+     * 
+     * @throws IllegalArgumentException if the name isn't a square on this board
+     */
+    public int parseSquare(String name) {
+        if (name.equals("pass")) return Search.PASS;
+        
+        int split = 0;
+        int column = 0;
+        while (split < name.length() && name.charAt(split) >= 'a' && name.charAt(split) <= 'z') {
+            column = column*26+(name.charAt(split)-'a'+1);
+            split++;
+        }
+        column--;
+        
+        int row;
+        try {
+            row = Integer.parseInt(name.substring(split))-1;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a square: "+name);
+        }
+        
+        if (split == 0 || column >= size || row < 0 || row >= size)
+            throw new IllegalArgumentException("Not a square: "+name);
+        return row*size+column;
+    }
+    
+    // Getters and Setters
+    
+    public int getSize() {
+        return size;
+    }
+    
+    public int getSideToMove() {
+        return sideToMove;
+    }
+    
+    public void setSideToMove(int color) {
+        if (color != sideToMove) hashKey ^= zobrist.side();
+        sideToMove = color;
+    }
+    
+    /**
+     * @return the Zobrist key of the position, the same positions (discs and side to
+     * move) always have the same key
+     */
+    public long getHashKey() {
+        return hashKey;
+    }
+    
+    public int getPassedTurns() {
+        return passedTurns;
+    }
+    
+    public void setPassedTurns(int passedTurns) {
+        this.passedTurns = passedTurns;
+    }
+    
+    /**
+     * @return the color of the player who isn't the side to move
+     */
+    public int opponent() {
+        return (sideToMove == BLACK) ? WHITE : BLACK;
+    }
+    
+    /**
+     * @return the bitboard of a color, this is the state's own array so it must not be
+     * changed by the caller
+     */
+    public long[] getDiscs(int color) {
+        return (color == BLACK) ? black : white;
+    }
+    
+    public long[] getPlayerDiscs() {
+        return getDiscs(sideToMove);
+    }
+    
+    public long[] getOpponentDiscs() {
+        return getDiscs(opponent());
+    }
+    
+    /**
+     * @return the bitboard of the discs captured by the last call to play
+     */
+    public long[] getLastFlips() {
+        return lastFlips;
+    }
+}
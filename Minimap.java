@@ -0,0 +1,207 @@
+// Swing Imports
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+
+// AWT Imports
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * A small picture of the whole board shown next to it when the board is too big to see
+ * all at once. Each pixel covers a block of squares and is colored by the discs in it:
+ * the more of the block is filled the further it is from the empty board color, and the
+ * more of those discs are white the lighter it is. The part of the board in view is
+ * outlined, and clicking or dragging on the minimap scrolls the board there
+ *
+ * The picture is worked out straight from the game state's bitboards, going through
+ * only the discs on the board, and only when discs have changed since it was last drawn
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class Minimap extends JComponent
+{
+    private static final long serialVersionUID = 1L;
+    
+    private final int MAPSIZE = 160;
+    
+    private Board board;
+    private JViewport viewport;
+    
+    // The picture of the board, redrawn when painted after the board has changed
+    private BufferedImage image;
+    private boolean stale = true;
+    
+    // The disc counts of each block, kept so drawing doesn't allocate
+    private int[] blackCounts = new int[0];
+    private int[] whiteCounts = new int[0];
+    
+    /**
+     * @param board         the board to show
+     * @param viewport      the viewport the board is scrolled in
+     */
+    public Minimap(Board board, JViewport viewport) {
+        this.board = board;
+        this.viewport = viewport;
+        
+        image = new BufferedImage(MAPSIZE, MAPSIZE, BufferedImage.TYPE_INT_RGB);
+        Dimension size = new Dimension(MAPSIZE, MAPSIZE);
+        this.setPreferredSize(size);
+        this.setMinimumSize(size);
+        this.setMaximumSize(size);
+        this.setVisible(false);
+        
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                centerOn(e.getX(), e.getY());
+            }
+            
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                centerOn(e.getX(), e.getY());
+            }
+        };
+        this.addMouseListener(mouse);
+        this.addMouseMotionListener(mouse);
+        
+        viewport.addChangeListener(e -> viewChanged());
+    }
+    
+    /**
+     * Called by the board when discs change, the picture is redrawn the next time the
+     * minimap is painted
+     */
+    public void boardChanged() {
+        stale = true;
+        this.repaint();
+    }
+    
+    /**
+     * The minimap is only shown while part of the board is out of view, and the outline
+     * follows the board as it scrolls
+     */
+    private void viewChanged() {
+        this.setVisible(!board.isWholeBoardVisible());
+        this.repaint();
+    }
+    
+    /**
+     * Scrolls the board so the square under a point on the minimap is in the middle
+     */
+    private void centerOn(int x, int y) {
+        int size = board.getGameState().getSize();
+        int column = Math.max(0, Math.min(size-1, x*size/MAPSIZE));
+        int row = Math.max(0, Math.min(size-1, y*size/MAPSIZE));
+        board.centerOn(row, column);
+    }
+    
+    /**
+     * Paints the picture of the board, redrawing it first if the board has changed, and
+     * outlines the part in view
+     * 
+     * @param g     the graphics object to be painted
+     */
+    @Override
+    public void paintComponent(Graphics g) {
+        if (stale) drawBoard();
+        g.drawImage(image, 0, 0, null);
+        
+        int size = board.getGameState().getSize();
+        Rectangle view = board.getVisibleSquares();
+        int x1 = view.x*MAPSIZE/size;
+        int y1 = view.y*MAPSIZE/size;
+        int x2 = (view.x+view.width)*MAPSIZE/size;
+        int y2 = (view.y+view.height)*MAPSIZE/size;
+        g.setColor(Board.LEGALCOLOR);
+        g.drawRect(x1, y1, Math.max(1, x2-x1-1), Math.max(1, y2-y1-1));
+    }
+    
+    /**
+     * Counts the discs of each color in every block and colors the picture's pixels by
+     * them. Boards smaller than the minimap have a block per square, bigger boards have
+     * a block per pixel
+     */
+    private void drawBoard() {
+        GameState state = board.getGameState();
+        int size = state.getSize();
+        int blocks = Math.min(size, MAPSIZE);
+        
+        if (blackCounts.length < blocks*blocks) {
+            blackCounts = new int[blocks*blocks];
+            whiteCounts = new int[blocks*blocks];
+        }
+        countDiscs(state.getDiscs(GameState.BLACK), size, blocks, blackCounts);
+        countDiscs(state.getDiscs(GameState.WHITE), size, blocks, whiteCounts);
+        
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int empty = Board.CELLCOLOR.getRGB();
+        
+        for (int y=0; y<MAPSIZE; y++) {
+            int blockRow = y*blocks/MAPSIZE;
+            int rows = firstSquare(blockRow+1, size, blocks)
+                -firstSquare(blockRow, size, blocks);
+            for (int x=0; x<MAPSIZE; x++) {
+                int blockColumn = x*blocks/MAPSIZE;
+                int columns = firstSquare(blockColumn+1, size, blocks)
+                    -firstSquare(blockColumn, size, blocks);
+                int block = blockRow*blocks+blockColumn;
+                pixels[y*MAPSIZE+x] = blockColor(blackCounts[block], whiteCounts[block],
+                    rows*columns, empty);
+            }
+        }
+        stale = false;
+    }
+    
+    /**
+     * @return the first row or column in a block, the same way countDiscs puts rows and
+     * columns in blocks
+     */
+    private static int firstSquare(int block, int size, int blocks) {
+        return (block*size+blocks-1)/blocks;
+    }
+    
+    /**
+     * Adds up the discs of a bitboard in each block, going through only the set bits
+     */
+    private void countDiscs(long[] discs, int size, int blocks, int[] counts) {
+        for (int i=0; i<blocks*blocks; i++) {
+            counts[i] = 0;
+        }
+        
+        for (int i=0; i<discs.length; i++) {
+            long word = discs[i];
+            while (word != 0) {
+                int square = i*64+Long.numberOfTrailingZeros(word);
+                int row = (square/size)*blocks/size;
+                int column = (square%size)*blocks/size;
+                counts[row*blocks+column]++;
+                word &= word-1;
+            }
+        }
+    }
+    
+    /**
+     * @return the color of a block, the empty color mixed with a gray from black to white
+     * (by the share of white discs) as much as the block is filled
+     */
+    private int blockColor(int black, int white, int squares, int empty) {
+        int discs = black+white;
+        if (discs == 0) return empty;
+        
+        int gray = 255*white/discs;
+        
+        // Even a single disc stands out from the empty color
+        int weight = Math.min(255, 96+159*discs/squares);
+        int r = ((empty >> 16 & 0xFF)*(255-weight)+gray*weight)/255;
+        int g = ((empty >> 8 & 0xFF)*(255-weight)+gray*weight)/255;
+        int b = ((empty & 0xFF)*(255-weight)+gray*weight)/255;
+        return r << 16 | g << 8 | b;
+    }
+}
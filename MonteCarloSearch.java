@@ -0,0 +1,602 @@
+// Other Imports
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A computer player that uses Monte Carlo tree search (UCT) instead of alpha-beta, meant
+ * for the large boards where the Evaluator's square weights are only a rough guess. Every
+ * playout walks down the tree picking the child with the best upper confidence bound,
+ * adds the children of the node it stops at and then plays random moves to the end of the
+ * game, the result is added to the statistics of every node on the way down. The move
+ * played is the root's most visited child
+ *
+ * All the threads share one tree. A thread adds a visit to each node as it walks down
+ * (a virtual loss, since the win isn't added until the playout is finished) so the other
+ * threads are steered to different parts of the tree. The visits and wins of a node are
+ * packed into one long that is only ever added to, so no locks are needed
+ *
+ * The nodes are kept in arrays allocated once (an arena) rather than as objects, and the
+ * random games are played on a game state each thread keeps, so a long search creates
+ * no garbage. Once the arena is full the tree stops growing and the playouts carry on from
+ * its leaves. Priors, if enabled, favour the children on squares the Evaluator weights
+ * highly (corners) until they have been visited a few times
+ *
+ * The helper threads are created once and reused for each search, shutdown stops them
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class MonteCarloSearch
+{
+    // The size of the node arena in megabytes when one isn't given
+    public static final int DEFAULTARENAMB = 64;
+    
+    // The memory each node takes up in the arena: its move, child count, prior, first
+    // child and statistics
+    public static final int NODEBYTES = 24;
+    
+    // Values of firstChild for nodes whose children aren't in the tree
+    private static final int UNEXPANDED = -1;
+    private static final int EXPANDING = -2;
+    private static final int TERMINAL = -3;
+    
+    // A node's statistics hold its visits in the high 32 bits and its wins counted in
+    // half points (a draw is 1, a win 2) in the low 32 bits
+    private static final long VISIT = 1L << 32;
+    private static final long WINS = 0xFFFFFFFFL;
+    
+    // How much the upper confidence bound favours rarely visited children and how much
+    // priors count for, the prior's part shrinks as the child is visited
+    private final double EXPLORATION = 0.8;
+    private final double PRIORWEIGHT = 1.0;
+    
+    // Nodes other than the root are expanded on their second visit so the tree doesn't
+    // fill with leaves that are only visited once
+    private final int EXPANDVISITS = 2;
+    
+    // After the soft deadline of a MoveTimer the search stops once the most visited move
+    // has this many times the visits of the next
+    private final double CLEARLEAD = 1.5;
+    
+    // Random games check the clock when the number of moves played is a multiple of this
+    // (minus 1)
+    private final int ROLLOUTCHECKMASK = 15;
+    
+    private final int size;
+    private final int threads;
+    private final int capacity;
+    private final ExecutorService helperPool;
+    
+    // The node arena, node 0 is the root. A node's children are next to each other, from
+    // firstChild up to firstChild plus childCount
+    private final int[] moves;
+    private final int[] childCounts;
+    private final float[] priors;
+    private final AtomicIntegerArray firstChild;
+    private final AtomicLongArray stats;
+    private final AtomicInteger nodeCount = new AtomicInteger();
+    
+    // The priors of the squares, from 0 for the worst square to 1 for the best
+    private final float[] squarePriors;
+    private boolean usePriors = true;
+    
+    private final AtomicLong playoutsStarted = new AtomicLong();
+    private long lastPlayouts = 0;
+    private long lastElapsedNanos = 0;
+    private volatile AtomicBoolean stopSignal = new AtomicBoolean();
+    
+    // Each thread's game state, random numbers and the path of its current playout
+    private final GameState[] states;
+    private final Random[] randoms;
+    private final long[][] legalMoves;
+    private final int[][] paths;
+    private final int[][] movers;
+    
+    /**
+     * @param size          the width (and height) of the boards this search will be given
+     * @param threads       the number of threads to search with, at least 1
+     */
+    public MonteCarloSearch(int size, int threads) {
+        this(size, threads, DEFAULTARENAMB);
+    }
+    
+    /**
+     * @param size          the width (and height) of the boards this search will be given
+     * @param threads       the number of threads to search with, at least 1
+     * @param arenaMegabytes    the memory the tree may use
+     */
+    public MonteCarloSearch(int size, int threads, int arenaMegabytes) {
+        this.size = size;
+        this.threads = Math.max(1, threads);
+        this.capacity = (int) Math.min(Integer.MAX_VALUE-1,
+            Math.max(1024L, ((long) arenaMegabytes << 20)/NODEBYTES));
+        
+        moves = new int[capacity];
+        childCounts = new int[capacity];
+        priors = new float[capacity];
+        firstChild = new AtomicIntegerArray(capacity);
+        stats = new AtomicLongArray(capacity);
+        
+        Evaluator evaluator = new Evaluator(size);
+        int best = Integer.MIN_VALUE;
+        int worst = Integer.MAX_VALUE;
+        for (int square=0; square<size*size; square++) {
+            best = Math.max(best, evaluator.getSquareWeight(square));
+            worst = Math.min(worst, evaluator.getSquareWeight(square));
+        }
+        squarePriors = new float[size*size];
+        for (int square=0; square<size*size; square++) {
+            squarePriors[square] = (best == worst) ? 0
+                : (float) (evaluator.getSquareWeight(square)-worst)/(best-worst);
+        }
+        
+        // The longest game is one move per square plus a pass for each
+        int longestGame = 2*size*size+2;
+        states = new GameState[this.threads];
+        randoms = new Random[this.threads];
+        legalMoves = new long[this.threads][Rules.words(size)];
+        paths = new int[this.threads][longestGame];
+        movers = new int[this.threads][longestGame];
+        for (int i=0; i<this.threads; i++) {
+            // No move tracker even on large boards, it costs more than it saves in games
+            // of random moves
+            states[i] = new GameState(size);
+            randoms[i] = new Random();
+        }
+        
+        helperPool = (this.threads > 1) ? Executors.newFixedThreadPool(this.threads-1, r -> {
+            Thread thread = new Thread(r, "monte carlo helper");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+    
+    /**
+     * Searches the position on every thread until the playouts or the time run out, or
+     * stop is called. With neither limit the search only ends when it is stopped. The
+     * tree is started afresh for each search
+     * 
+     * The result's score is how often the side to move won the playouts through the chosen
+     * move, in tenths of a percent, its depth is the deepest node the tree reached and its
+     * nodes are the number of playouts
+     * 
+     * @param root              the position to search, it isn't changed
+     * @param maxPlayouts       the number of playouts to play, 0 or less for no limit
+     * @param timeLimitMillis   the time allowed for the search, 0 or less for no limit
+     * 
+     * @return the most visited move, Search.PASS if there are no legal moves
+     */
+    public SearchResult search(GameState root, long maxPlayouts, long timeLimitMillis) {
+        return search(root, maxPlayouts, timeLimitMillis, new AtomicBoolean());
+    }
+    
+    /**
+     * The same as search but also finishing once the given stop signal is set, so a
+     * caller on another thread can stop a search before it has even started
+     * 
+     * @param signal            the search finishes once this is set to true
+     */
+    public SearchResult search(GameState root, long maxPlayouts, long timeLimitMillis,
+        AtomicBoolean signal) {
+        long end = (timeLimitMillis > 0)
+            ? System.nanoTime()+timeLimitMillis*1000000 : Long.MAX_VALUE;
+        return search(root, maxPlayouts, end, end, signal);
+    }
+    
+    /**
+     * The same as search but with a MoveTimer. Playouts stop at its hard deadline, or at
+     * its soft deadline if by then the most visited move is clearly ahead of the next
+     * 
+     * @param timer             the timer for this move, already started
+     */
+    public SearchResult search(GameState root, long maxPlayouts, MoveTimer timer,
+        AtomicBoolean signal) {
+        return search(root, maxPlayouts, timer.getSoftDeadline(), timer.getHardDeadline(),
+            signal);
+    }
+    
+    /**
+     * @param soft              the System.nanoTime to stop at once the best move is clear
+     * @param hard              the System.nanoTime to stop at
+     */
+    private SearchResult search(GameState root, long maxPlayouts, long soft, long hard,
+        AtomicBoolean signal) {
+        stopSignal = signal;
+        long start = System.nanoTime();
+        
+        if (!root.hasLegalMove()) {
+            return SearchResult.fromPlayouts(Search.PASS, 0, 0, 0, System.nanoTime()-start,
+                new int[] {Search.PASS});
+        }
+        
+        moves[0] = Search.PASS;
+        childCounts[0] = 0;
+        firstChild.set(0, UNEXPANDED);
+        stats.set(0, 0);
+        nodeCount.set(1);
+        playoutsStarted.set(0);
+        
+        List<Future<Integer>> helpers = new ArrayList<>();
+        for (int i=1; i<threads; i++) {
+            int thread = i;
+            helpers.add(helperPool.submit(() ->
+                runPlayouts(thread, root, maxPlayouts, soft, hard, signal)));
+        }
+        
+        int depth = runPlayouts(0, root, maxPlayouts, soft, hard, signal);
+        signal.set(true);
+        
+        for (Future<Integer> helper: helpers) {
+            try {
+                depth = Math.max(depth, helper.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A Monte Carlo helper failed", e.getCause());
+            }
+        }
+        
+        long elapsed = System.nanoTime()-start;
+        long played = (stats.get(0) >>> 32);
+        lastPlayouts = played;
+        lastElapsedNanos = elapsed;
+        
+        // Stopped before the first playout, any legal move will do
+        if (firstChild.get(0) < 0) {
+            int move = firstLegalMove(root);
+            return SearchResult.fromPlayouts(move, 0, 0, 0, elapsed, new int[] {move});
+        }
+        
+        int best = mostVisitedChild(0);
+        long bestStats = stats.get(best);
+        int winRate = (int) ((bestStats & WINS)*500/Math.max(1, bestStats >>> 32));
+        return SearchResult.fromPlayouts(moves[best], winRate, depth, played, elapsed,
+            principalVariation());
+    }
+    
+    /**
+     * Plays playouts on one thread until the search has to end. Only the first thread
+     * checks whether the best move is clear after the soft deadline, the others stop
+     * when it does
+     * 
+     * @return the deepest node the thread reached
+     */
+    private int runPlayouts(int thread, GameState root, long maxPlayouts, long soft,
+        long hard, AtomicBoolean signal) {
+        GameState state = states[thread];
+        int deepest = 0;
+        
+        while (!signal.get()) {
+            if (maxPlayouts > 0 && playoutsStarted.getAndIncrement() >= maxPlayouts) break;
+            long now = System.nanoTime();
+            if (now >= hard) break;
+            if (now >= soft && thread == 0 && isBestMoveClear()) break;
+            
+            state.copyFrom(root);
+            deepest = Math.max(deepest, playout(thread, state, hard));
+        }
+        
+        signal.set(true);
+        return deepest;
+    }
+    
+    /**
+     * Plays one playout from the root: down the tree, expanding the node it stops at, then
+     * random moves to the end of the game, and adds the result to the nodes on the path
+     * 
+     * @param state     a copy of the root position, played on
+     * @param hard      the System.nanoTime the random game is given up at
+     * 
+     * @return the depth of the node the playout left the tree from
+     */
+    private int playout(int thread, GameState state, long hard) {
+        int[] path = paths[thread];
+        int[] pathMovers = movers[thread];
+        int length = 0;
+        int node = 0;
+        stats.addAndGet(node, VISIT);
+        path[length++] = node;
+        
+        while (true) {
+            int first = firstChild.get(node);
+            if (first == UNEXPANDED
+                && (node == 0 || (stats.get(node) >>> 32) >= EXPANDVISITS)) {
+                first = expand(thread, node, state);
+            }
+            if (first < 0) break;
+            
+            node = selectChild(node, first);
+            stats.addAndGet(node, VISIT);
+            pathMovers[length] = state.getSideToMove();
+            path[length++] = node;
+            
+            if (moves[node] == Search.PASS) {
+                state.pass();
+            } else {
+                state.play(moves[node]);
+            }
+        }
+        
+        // A long random game on a big board is given up at the hard deadline, its visits
+        // are taken back off the path
+        Random random = randoms[thread];
+        for (int plies=1; state.getPassedTurns() < 2; plies++) {
+            state.playRandomMove(random);
+            if ((plies & ROLLOUTCHECKMASK) == 0 && System.nanoTime() >= hard) {
+                for (int i=0; i<length; i++) {
+                    stats.addAndGet(path[i], -VISIT);
+                }
+                return 0;
+            }
+        }
+        
+        int blackDiscs = state.count(GameState.BLACK);
+        int whiteDiscs = state.count(GameState.WHITE);
+        int winner = (blackDiscs > whiteDiscs) ? GameState.BLACK
+            : (whiteDiscs > blackDiscs) ? GameState.WHITE : GameState.EMPTY;
+        for (int i=1; i<length; i++) {
+            int halfPoints = (winner == GameState.EMPTY) ? 1 : (winner == pathMovers[i]) ? 2 : 0;
+            if (halfPoints > 0) stats.addAndGet(path[i], halfPoints);
+        }
+        
+        return length-1;
+    }
+    
+    /**
+     * Adds the children of a node to the tree, one for each legal move or a single pass.
+     * Only one thread expands a node, the others carry on with a random game from it
+     * 
+     * @return the node's first child, or a negative value if it has no children (yet)
+     */
+    private int expand(int thread, int node, GameState state) {
+        if (!firstChild.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+            return firstChild.get(node);
+        }
+        
+        long[] legal = legalMoves[thread];
+        state.legalMoves(legal);
+        int count = 0;
+        for (long word: legal) {
+            count += Long.bitCount(word);
+        }
+        
+        boolean pass = (count == 0);
+        if (pass) {
+            if (state.isTerminal()) {
+                firstChild.set(node, TERMINAL);
+                return TERMINAL;
+            }
+            count = 1;
+        }
+        
+        int first = allocate(count);
+        if (first < 0) {
+            firstChild.set(node, UNEXPANDED);
+            return UNEXPANDED;
+        }
+        
+        if (pass) {
+            initialiseNode(first, Search.PASS, 0);
+        } else {
+            int child = first;
+            for (int i=0; i<legal.length; i++) {
+                long word = legal[i];
+                while (word != 0) {
+                    int square = i*64+Long.numberOfTrailingZeros(word);
+                    initialiseNode(child++, square, usePriors ? squarePriors[square] : 0);
+                    word &= word-1;
+                }
+            }
+        }
+        
+        // Setting firstChild publishes the children to the other threads
+        childCounts[node] = count;
+        firstChild.set(node, first);
+        return first;
+    }
+    
+    /**
+     * Reserves space for a node's children in the arena
+     * 
+     * @return the first of the reserved nodes, or -1 if the arena is full
+     */
+    private int allocate(int count) {
+        while (true) {
+            int first = nodeCount.get();
+            if (first+count > capacity) return -1;
+            if (nodeCount.compareAndSet(first, first+count)) return first;
+        }
+    }
+    
+    private void initialiseNode(int node, int move, float prior) {
+        moves[node] = move;
+        childCounts[node] = 0;
+        priors[node] = prior;
+        firstChild.set(node, UNEXPANDED);
+        stats.set(node, 0);
+    }
+    
+    /**
+     * Picks the child with the best upper confidence bound, children that haven't been
+     * visited come first (the one with the best prior when priors are used)
+     */
+    private int selectChild(int node, int first) {
+        int end = first+childCounts[node];
+        double logVisits = Math.log(Math.max(1, stats.get(node) >>> 32));
+        
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child=first; child<end; child++) {
+            long childStats = stats.get(child);
+            long visits = childStats >>> 32;
+            double value;
+            if (visits == 0) {
+                value = 1000+priors[child];
+            } else {
+                value = (childStats & WINS)/(2.0*visits)
+                    + EXPLORATION*Math.sqrt(logVisits/visits)
+                    + PRIORWEIGHT*priors[child]/visits;
+            }
+            
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * @return whether the root's most visited child has been visited CLEARLEAD times as
+     * often as any other
+     */
+    private boolean isBestMoveClear() {
+        int first = firstChild.get(0);
+        if (first < 0) return false;
+        
+        long most = 0;
+        long second = 0;
+        for (int child=first; child<first+childCounts[0]; child++) {
+            long visits = stats.get(child) >>> 32;
+            if (visits > most) {
+                second = most;
+                most = visits;
+            } else if (visits > second) {
+                second = visits;
+            }
+        }
+        return most >= second*CLEARLEAD;
+    }
+    
+    /**
+     * @return the most visited child of a node, which must have children
+     */
+    private int mostVisitedChild(int node) {
+        int first = firstChild.get(node);
+        int best = first;
+        for (int child=first; child<first+childCounts[node]; child++) {
+            if ((stats.get(child) >>> 32) > (stats.get(best) >>> 32)) best = child;
+        }
+        return best;
+    }
+    
+    private int firstLegalMove(GameState root) {
+        long[] legal = root.legalMoves();
+        for (int i=0; i<legal.length; i++) {
+            if (legal[i] != 0) return i*64+Long.numberOfTrailingZeros(legal[i]);
+        }
+        return Search.PASS;
+    }
+    
+    /**
+     * @return the moves along the most visited path from the root
+     */
+    private int[] principalVariation() {
+        List<Integer> line = new ArrayList<>();
+        int node = 0;
+        while (firstChild.get(node) >= 0 && childCounts[node] > 0) {
+            node = mostVisitedChild(node);
+            if ((stats.get(node) >>> 32) == 0) break;
+            line.add(moves[node]);
+        }
+        
+        int[] pv = new int[line.size()];
+        for (int i=0; i<pv.length; i++) {
+            pv[i] = line.get(i);
+        }
+        return pv;
+    }
+    
+    /**
+     * Asks a running search to finish, it returns the best move so far. This is safe to
+     * call from another thread
+     */
+    public void stop() {
+        stopSignal.set(true);
+    }
+    
+    /**
+     * Stops the helper threads, the search can't be used afterwards
+     */
+    public void shutdown() {
+        if (helperPool != null) helperPool.shutdownNow();
+    }
+    
+    /**
+     * @param usePriors     whether unvisited and rarely visited children on good squares
+     * are tried first, on by default
+     */
+    public void setPriors(boolean usePriors) {
+        this.usePriors = usePriors;
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    public int getThreads() {
+        return threads;
+    }
+    
+    /**
+     * @return the number of playouts per second of the last search
+     */
+    public long getPlayoutsPerSecond() {
+        if (lastElapsedNanos <= 0) return 0;
+        return (long) (lastPlayouts*1e9/lastElapsedNanos);
+    }
+    
+    /**
+     * @return the memory taken up by the nodes of the last search's tree
+     */
+    public long getTreeBytes() {
+        return (long) nodeCount.get()*NODEBYTES;
+    }
+    
+    /**
+     * @return the memory of the whole arena, the most the tree can use
+     */
+    public long getArenaBytes() {
+        return (long) capacity*NODEBYTES;
+    }
+    
+    public int getNodeCount() {
+        return nodeCount.get();
+    }
+    
+    /**
+     * Searches the starting position of a board and prints the playouts per second and
+     * tree size, to see how fast the search is
+     * 
+     * @param args      the board size (default 8), threads (default one per processor)
+     * and seconds to search (default 5)
+     */
+    public static void main(String[] args) {
+        int size = (args.length > 0) ? Integer.parseInt(args[0]) : 8;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1])
+            : Runtime.getRuntime().availableProcessors();
+        long millis = (args.length > 2) ? Long.parseLong(args[2])*1000 : 5000;
+        
+        GameState state = new GameState(size);
+        state.startGame();
+        MonteCarloSearch search = new MonteCarloSearch(size, threads);
+        SearchResult result = search.search(state, 0, millis);
+        
+        System.out.println(size+"x"+size+", "+threads+" threads: "+
+            state.squareName(result.getMove())+", "+result);
+        System.out.printf("%d playouts/s, %d nodes, tree %.1f MB of %.1f MB%n",
+            search.getPlayoutsPerSecond(), search.getNodeCount(),
+            search.getTreeBytes()/1048576.0, search.getArenaBytes()/1048576.0);
+        search.shutdown();
+    }
+}
@@ -0,0 +1,211 @@
+// Swing Imports
+import javax.swing.SwingUtilities;
+
+// Other Imports
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scores every legal move of a position for the board's analysis mode. Each move is
+ * searched to depth 1, then every move to depth 2 and so on, spread over one thread per
+ * processor, and each score is handed to the event thread as soon as it is found so the
+ * scores on the board get better as the analysis goes deeper instead of appearing all at
+ * once at the end. All the threads share one transposition table, so the deeper searches
+ * are ordered by the shallower ones
+ *
+ * Starting a new analysis (or cancelling) stops the old one straight away and none of its
+ * scores are handed back afterwards. The analysis threads run at a low priority so the
+ * window stays responsive while they work
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class MoveAnalysis
+{
+    // The size of the shared table in megabytes when one isn't given
+    public static final int DEFAULTTABLEMB = 32;
+    
+    // The deepest the moves are searched, the analysis stops there (or once every move
+    // has been searched to the end of the game)
+    private final int MAXDEPTH = 24;
+    
+    private final int threads;
+    private final int tableMegabytes;
+    private final ExecutorService pool;
+    
+    // Each analysis thread's search, recreated when the table changes
+    private final ThreadLocal<Search> searches = new ThreadLocal<>();
+    
+    // The shared table and the stop signal of the running analysis, only changed on the
+    // event thread
+    private TranspositionTable table;
+    private int tableSize = 0;
+    private AtomicBoolean stopSignal = new AtomicBoolean();
+    
+    /**
+     * @param threads           the number of moves searched at once
+     * @param tableMegabytes    the memory the shared transposition table may use
+     */
+    public MoveAnalysis(int threads, int tableMegabytes) {
+        this.threads = Math.max(1, threads);
+        this.tableMegabytes = tableMegabytes;
+        
+        pool = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread thread = new Thread(r, "move analysis");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+    
+    /**
+     * Stops any analysis that is running and starts analysing a position. Must be called
+     * on the event thread
+     * 
+     * @param position      the position to analyse, it is copied
+     * @param listener      given each score on the event thread as it is found
+     */
+    public void analyse(GameState position, Listener listener) {
+        cancel();
+        AtomicBoolean signal = new AtomicBoolean();
+        stopSignal = signal;
+        
+        if (table == null || tableSize != position.getSize()) {
+            table = new TranspositionTable(tableMegabytes);
+            tableSize = position.getSize();
+        }
+        table.newSearch();
+        
+        long[] legal = position.legalMoves();
+        int count = 0;
+        for (long word: legal) {
+            count += Long.bitCount(word);
+        }
+        if (count == 0) return;
+        
+        int[] moves = new int[count];
+        int next = 0;
+        for (int i=0; i<legal.length; i++) {
+            long word = legal[i];
+            while (word != 0) {
+                moves[next++] = i*64+Long.numberOfTrailingZeros(word);
+                word &= word-1;
+            }
+        }
+        
+        GameState root = new GameState(position);
+        TranspositionTable sharedTable = table;
+        AtomicInteger nextItem = new AtomicInteger();
+        for (int i=0; i<threads; i++) {
+            pool.execute(() -> analyseMoves(root, moves, nextItem, sharedTable, signal,
+                listener));
+        }
+    }
+    
+    /**
+     * Stops the running analysis, none of its scores are handed back afterwards. Must be
+     * called on the event thread
+     */
+    public void cancel() {
+        stopSignal.set(true);
+    }
+    
+    /**
+     * Stops the analysis threads, the analysis can't be used afterwards
+     */
+    public void shutdown() {
+        cancel();
+        pool.shutdownNow();
+    }
+    
+    /**
+     * Run by every analysis thread. The items are taken in order, item i being the move
+     * i % moves.length at depth i / moves.length + 1, so every move is started at one
+     * depth before any move is started at the next
+     */
+    private void analyseMoves(GameState root, int[] moves, AtomicInteger nextItem,
+        TranspositionTable sharedTable, AtomicBoolean signal, Listener listener) {
+        Search search = searches.get();
+        if (search == null || search.getTable() != sharedTable) {
+            search = new Search(root.getSize(), sharedTable);
+            searches.set(search);
+        }
+        
+        GameState child = new GameState(root.getSize());
+        while (!signal.get()) {
+            int item = nextItem.getAndIncrement();
+            int depth = item/moves.length+1;
+            int move = moves[item%moves.length];
+            if (depth > MAXDEPTH) return;
+            
+            child.copyFrom(root);
+            child.play(move);
+            int empties = child.getSize()*child.getSize()
+                -child.count(GameState.BLACK)-child.count(GameState.WHITE);
+            
+            // The score is from the point of view of the player making the move, who
+            // moves again if the opponent has to pass
+            int sign = -1;
+            if (!child.hasLegalMove()) {
+                if (child.isTerminal()) {
+                    if (depth == 1) {
+                        post(signal, listener, move, depth,
+                            -new Evaluator(child.getSize()).finalScore(child), true);
+                    }
+                    continue;
+                }
+                child.pass();
+                sign = 1;
+            }
+            
+            // Moves already searched to the end of the game are skipped
+            if (depth > Math.max(1, empties)) continue;
+            
+            SearchResult result = search.search(child, depth, 0, signal);
+            if (signal.get() || result.getDepth() < depth) return;
+            post(signal, listener, move, depth, sign*result.getScore(), depth >= empties);
+        }
+    }
+    
+    /**
+     * Hands a score to the listener on the event thread, unless the analysis has been
+     * stopped by then
+     */
+    private void post(AtomicBoolean signal, Listener listener, int move, int depth, int score,
+        boolean exact) {
+        SwingUtilities.invokeLater(() -> {
+            if (!signal.get()) listener.moveScored(move, depth, score, exact);
+        });
+    }
+    
+    /**
+     * @return a short label for a score, W or L and the disc difference for a game that is
+     * decided, D for a draw and otherwise the score with its sign
+     */
+    public static String scoreLabel(int score, boolean exact) {
+        if (score > Evaluator.WINSCORE/2) return "W"+(score-Evaluator.WINSCORE);
+        if (score < -Evaluator.WINSCORE/2) return "L"+(-score-Evaluator.WINSCORE);
+        if (exact && score == 0) return "D";
+        return (score > 0) ? "+"+score : String.valueOf(score);
+    }
+    
+    /**
+     * Told about each move's score as the analysis finds it
+     */
+    public interface Listener
+    {
+        /**
+         * Called on the event thread. The moves are searched in order of depth, but with
+         * several threads a move's score at one depth can arrive just after its score at
+         * the next, when it should be ignored
+         * 
+         * @param move      the square of the move
+         * @param depth     how many moves past this one were searched
+         * @param score     the score for the player making the move
+         * @param exact     whether the move was searched to the end of the game
+         */
+        void moveScored(int move, int depth, int score, boolean exact);
+    }
+}
@@ -0,0 +1,225 @@
+// Other Imports
+import java.util.Arrays;
+
+/**
+ * The moves played in a game, kept so they can be taken back and played again. Each ply
+ * records the square played (or Search.PASS), the squares it captured and how many turns
+ * had been passed before it, which is everything GameState.undo needs to put the position
+ * back without looking at the rest of the board
+ *
+ * The captured squares of every ply are kept one after another in a single array, so
+ * playing, undoing and redoing a move only allocates when the arrays have to grow. Undoing
+ * a move keeps it to be redone until a different move is played
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class MoveHistory
+{
+    private final int size;
+    
+    // Per ply, the square played, the number of passed turns before it and where its
+    // captured squares start and end in flipSquares
+    private int[] moves;
+    private int[] passedTurns;
+    private int[] flipStarts;
+    private int[] flipEnds;
+    private int[] flipSquares;
+    
+    // The number of plies played, and the number that can be played again with redo
+    private int plies = 0;
+    private int redoPlies = 0;
+    
+    // The captured discs of the ply being undone as a bitboard, cleared again afterwards
+    private final long[] flips;
+    
+    /**
+     * @param size      the width (and height) of the board
+     */
+    public MoveHistory(int size) {
+        this.size = size;
+        int capacity = 2*size*size+2;
+        moves = new int[capacity];
+        passedTurns = new int[capacity];
+        flipStarts = new int[capacity];
+        flipEnds = new int[capacity];
+        flipSquares = new int[Math.max(64, 4*size*size)];
+        flips = new long[Rules.words(size)];
+    }
+    
+    /**
+     * Forgets every move, used when a new game is started or the board is replaced
+     */
+    public void clear() {
+        plies = 0;
+        redoPlies = 0;
+    }
+    
+    /**
+     * Plays a move on the game state and records it, anything that could be redone is
+     * forgotten
+     * 
+     * @param state         the game state, which has to be the one the history is for
+     * @param square        the square to play
+     * 
+     * @return the number of discs captured
+     */
+    public int play(GameState state, int square) {
+        redoPlies = 0;
+        return record(state, square);
+    }
+    
+    /**
+     * Passes on the game state and records the pass
+     */
+    public void pass(GameState state) {
+        redoPlies = 0;
+        record(state, Search.PASS);
+    }
+    
+    /**
+     * Plays a move or pass and stores it as the next ply
+     */
+    private int record(GameState state, int square) {
+        ensureCapacity(plies+1);
+        int ply = plies;
+        moves[ply] = square;
+        passedTurns[ply] = state.getPassedTurns();
+        int start = (ply == 0) ? 0 : flipEnds[ply-1];
+        flipStarts[ply] = start;
+        
+        int flipped = 0;
+        if (square == Search.PASS) {
+            state.pass();
+        } else {
+            flipped = state.play(square);
+            if (start+flipped > flipSquares.length) {
+                flipSquares = Arrays.copyOf(flipSquares, Math.max(2*flipSquares.length,
+                    start+flipped));
+            }
+            
+            long[] captured = state.getLastFlips();
+            int end = start;
+            for (int i=0; i<captured.length; i++) {
+                long word = captured[i];
+                while (word != 0) {
+                    flipSquares[end++] = i*64+Long.numberOfTrailingZeros(word);
+                    word &= word-1;
+                }
+            }
+        }
+        flipEnds[ply] = start+flipped;
+        
+        plies++;
+        return flipped;
+    }
+    
+    /**
+     * Takes back the last ply on the game state, it can be played again with redo
+     * 
+     * @return the square of the ply taken back, or Search.PASS if it was a pass
+     * 
+     * @throws IllegalStateException if there is nothing to undo
+     */
+    public int undo(GameState state) {
+        if (plies == 0) throw new IllegalStateException("There is no move to undo");
+        
+        int ply = --plies;
+        redoPlies++;
+        int square = moves[ply];
+        
+        if (square == Search.PASS) {
+            state.undoPass(passedTurns[ply]);
+            return square;
+        }
+        
+        for (int i=flipStarts[ply]; i<flipEnds[ply]; i++) {
+            flips[flipSquares[i] >>> 6] |= 1L << flipSquares[i];
+        }
+        state.undo(square, flips, passedTurns[ply]);
+        for (int i=flipStarts[ply]; i<flipEnds[ply]; i++) {
+            flips[flipSquares[i] >>> 6] = 0;
+        }
+        
+        return square;
+    }
+    
+    /**
+     * Plays the last ply taken back by undo again
+     * 
+     * @return the square played, or Search.PASS if it was a pass
+     * 
+     * @throws IllegalStateException if there is nothing to redo
+     */
+    public int redo(GameState state) {
+        if (redoPlies == 0) throw new IllegalStateException("There is no move to redo");
+        
+        redoPlies--;
+        int square = moves[plies];
+        record(state, square);
+        return square;
+    }
+    
+    /**
+     * Grows the per ply arrays so they hold at least the given number of plies
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= moves.length) return;
+        
+        int length = Math.max(capacity, 2*moves.length);
+        moves = Arrays.copyOf(moves, length);
+        passedTurns = Arrays.copyOf(passedTurns, length);
+        flipStarts = Arrays.copyOf(flipStarts, length);
+        flipEnds = Arrays.copyOf(flipEnds, length);
+    }
+    
+    public boolean canUndo() {
+        return plies > 0;
+    }
+    
+    public boolean canRedo() {
+        return redoPlies > 0;
+    }
+    
+    /**
+     * @return the number of plies played (and not undone)
+     */
+    public int getPlies() {
+        return plies;
+    }
+    
+    /**
+     * @return the square played on a ply, or Search.PASS
+     */
+    public int getMove(int ply) {
+        return moves[ply];
+    }
+    
+    /**
+     * @return the number of discs captured on a ply
+     */
+    public int getFlipCount(int ply) {
+        return flipEnds[ply]-flipStarts[ply];
+    }
+    
+    /**
+     * @param ply       the ply
+     * @param index     0 to getFlipCount(ply)-1
+     * 
+     * @return one of the squares captured on the ply
+     */
+    public int getFlip(int ply, int index) {
+        return flipSquares[flipStarts[ply]+index];
+    }
+    
+    /**
+     * @return the moves played so far in order, passes included as Search.PASS
+     */
+    public int[] getMoves() {
+        return Arrays.copyOf(moves, plies);
+    }
+    
+    public int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * Decides how long a search may think about a move. Every timer has a hard deadline, which
+ * the search is stopped at part way through an iteration, and a soft time, after which no
+ * new iteration of the search is started. The move must be handed back within the
+ * timer's budget, so the hard deadline is a little before it to leave time for stopping
+ * the search threads
+ *
+ * A timer can be:
+ * - fixed, searching until the hard deadline like a plain time limit
+ * - for a budget, answering early when the best move has stayed the same for a few
+ *   iterations and taking longer (up to the hard deadline) when it has just changed
+ * - for a game clock, sharing the time left on the clock out between the moves the
+ *   player still has to make (about half the empty squares) and then working like a
+ *   budget
+ *
+ * The timer starts when it is created
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class MoveTimer
+{
+    // The time kept back for stopping the search, a share of the budget but never more
+    // than SAFETYMILLIS
+    private static final double SAFETYSHARE = 0.1;
+    private static final long SAFETYMILLIS = 10;
+    
+    // The share of a budget a search aims to use, it can go past this until the hard
+    // deadline when the best move keeps changing
+    private static final double BUDGETSOFTSHARE = 0.5;
+    
+    // How the soft time changes with the best move: after this many iterations with the
+    // same best move it is cut down to STABLESHARE, when it has just changed it is
+    // stretched by UNSTABLESHARE
+    private static final int STABLEITERATIONS = 3;
+    private static final double STABLESHARE = 0.5;
+    private static final double UNSTABLESHARE = 2.0;
+    
+    // On a clock at least this many more moves are allowed for, and no move takes more
+    // than CLOCKHARDSHARE of the time left or MAXSTRETCH times its share
+    private static final int MINMOVESTOGO = 4;
+    private static final double CLOCKHARDSHARE = 0.25;
+    private static final double MAXSTRETCH = 4;
+    private static final double INCREMENTSHARE = 0.75;
+    
+    private final long startNanos;
+    private final long budgetNanos;
+    private final long softNanos;
+    private final long hardNanos;
+    private final boolean adjustable;
+    
+    /**
+     * @param budgetNanos   the time the move has to be handed back within
+     * @param softNanos     the time after which no new iteration is started
+     * @param adjustable    whether the soft time changes with the best move
+     */
+    private MoveTimer(long budgetNanos, long softNanos, boolean adjustable) {
+        this.startNanos = System.nanoTime();
+        this.budgetNanos = Math.max(0, budgetNanos);
+        this.hardNanos = this.budgetNanos-safetyNanos(this.budgetNanos);
+        this.softNanos = Math.min(softNanos, hardNanos);
+        this.adjustable = adjustable;
+    }
+    
+    /**
+     * @return a timer that searches until shortly before the time is up
+     */
+    public static MoveTimer fixed(long millis) {
+        long budget = millis*1000000;
+        return new MoveTimer(budget, budget, false);
+    }
+    
+    /**
+     * @return a timer that hands the move back within the budget, and often well before
+     */
+    public static MoveTimer forBudget(long millis) {
+        long budget = millis*1000000;
+        return new MoveTimer(budget, (long) ((budget-safetyNanos(budget))*BUDGETSOFTSHARE), true);
+    }
+    
+    /**
+     * @param position          the position to move in, its empty squares tell how many
+     * moves the player still has to make
+     * @param remainingMillis   the time left on the player's clock
+     * @param incrementMillis   the time added to the clock after each move
+     * 
+     * @return a timer for one move of a game played on a clock
+     */
+    public static MoveTimer forClock(GameState position, long remainingMillis,
+        long incrementMillis) {
+        int empties = position.getSize()*position.getSize()
+            -position.count(GameState.BLACK)-position.count(GameState.WHITE);
+        int movesToGo = Math.max(MINMOVESTOGO, (empties+1)/2);
+        
+        double share = (double) remainingMillis/movesToGo + incrementMillis*INCREMENTSHARE;
+        double hard = Math.min(share*MAXSTRETCH,
+            remainingMillis*CLOCKHARDSHARE + incrementMillis*INCREMENTSHARE);
+        return new MoveTimer((long) (Math.max(1, hard)*1000000), (long) (share*1000000), true);
+    }
+    
+    /**
+     * @return the time kept back from a budget for stopping the search
+     */
+    private static long safetyNanos(long budgetNanos) {
+        return Math.min(SAFETYMILLIS*1000000, (long) (budgetNanos*SAFETYSHARE));
+    }
+    
+    /**
+     * Asked by the search after each iteration it finishes
+     * 
+     * @param stableIterations      how many iterations in a row have had the same best move
+     * 
+     * @return whether there is time for another iteration
+     */
+    public boolean shouldStartIteration(int stableIterations) {
+        double soft = softNanos;
+        if (adjustable) {
+            if (stableIterations >= STABLEITERATIONS) soft *= STABLESHARE;
+            if (stableIterations == 0) soft *= UNSTABLESHARE;
+        }
+        long elapsed = System.nanoTime()-startNanos;
+        return elapsed < Math.min(soft, hardNanos);
+    }
+    
+    /**
+     * @return the System.nanoTime the search has to stop at
+     */
+    public long getHardDeadline() {
+        return startNanos+hardNanos;
+    }
+    
+    /**
+     * @return the System.nanoTime no new work should be started after
+     */
+    public long getSoftDeadline() {
+        return startNanos+softNanos;
+    }
+    
+    /**
+     * @return the time left until the hard deadline in milliseconds, at least 1
+     */
+    public long getRemainingMillis() {
+        return Math.max(1, (getHardDeadline()-System.nanoTime())/1000000);
+    }
+    
+    public long getBudgetMillis() {
+        return budgetNanos/1000000;
+    }
+    
+    /**
+     * @return how long since the timer started
+     */
+    public long getElapsedNanos() {
+        return System.nanoTime()-startNanos;
+    }
+    
+    /**
+     * @return how far past its budget the move was handed back, if it was handed back now,
+     * or 0 if it was in time
+     */
+    public long getOvershootNanos() {
+        return Math.max(0, getElapsedNanos()-budgetNanos);
+    }
+}
@@ -0,0 +1,307 @@
+/**
+ * Keeps the legal moves of both players up to date as moves are played, instead of
+ * finding them all again after every move. It also keeps the frontier, the empty squares
+ * next to at least one disc, since only those squares can ever be legal moves.
+ *
+ * Whether an empty square is a legal move only depends on the discs along its 8 rays, so
+ * after a move only the empty squares whose rays go through the placed disc or one of the
+ * captured discs are checked again. Walking from each changed disc over the discs next to
+ * it finds the first empty square in each direction, which is the only empty square in
+ * that direction whose ray reaches the changed disc. This makes each update proportional
+ * to the number of captured discs rather than to the size of the board
+ *
+ * With verification on every update is compared against finding all legal moves from
+ * scratch and an IllegalStateException is thrown if they ever differ
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class MoveTracker
+{
+    // Row and column increments for the 8 directions, clockwise starting from up
+    private static final int[] ROWINC = {-1, -1, 0, 1, 1, 1, 0, -1};
+    private static final int[] COLINC = {0, 1, 1, 1, 0, -1, -1, -1};
+    
+    private final int size;
+    private final boolean verify;
+    
+    private final long[] frontier;
+    private final long[] blackMoves;
+    private final long[] whiteMoves;
+    
+    // Used when verifying against a full rescan
+    private final Rules rules;
+    private final long[] expected;
+    
+    /**
+     * @param size      the width (and height) of the board
+     * @param verify    whether every update should be checked against a full rescan
+     */
+    public MoveTracker(int size, boolean verify) {
+        this.size = size;
+        this.verify = verify;
+        
+        int words = Rules.words(size);
+        frontier = new long[words];
+        blackMoves = new long[words];
+        whiteMoves = new long[words];
+        
+        rules = new Rules(size);
+        expected = new long[words];
+    }
+    
+    /**
+     * Works out the frontier and both players' legal moves from scratch, used when the
+     * whole board changes (new games and loading games)
+     * 
+     * @param black     the bitboard of black discs
+     * @param white     the bitboard of white discs
+     */
+    public void reset(long[] black, long[] white) {
+        for (int i=0; i<frontier.length; i++) {
+            frontier[i] = 0;
+            blackMoves[i] = 0;
+            whiteMoves[i] = 0;
+        }
+        
+        for (int square=0; square<size*size; square++) {
+            if (Rules.has(black, square) || Rules.has(white, square)) {
+                addNeighboursToFrontier(black, white, square);
+            }
+        }
+        
+        for (int square=0; square<size*size; square++) {
+            if (Rules.has(frontier, square)) {
+                checkSquare(black, white, square);
+            }
+        }
+    }
+    
+    /**
+     * Updates the frontier and legal moves after a disc has been placed and discs have been
+     * captured. The bitboards passed in are the ones after the move was played
+     * 
+     * @param black     the bitboard of black discs
+     * @param white     the bitboard of white discs
+     * @param square    the square the disc was placed on
+     * @param flips     the bitboard of captured discs
+     */
+    public void update(long[] black, long[] white, int square, long[] flips) {
+        long bit = 1L << square;
+        int word = square >>> 6;
+        frontier[word] &= ~bit;
+        blackMoves[word] &= ~bit;
+        whiteMoves[word] &= ~bit;
+        
+        addNeighboursToFrontier(black, white, square);
+        recheckRays(black, white, square);
+        
+        for (int i=0; i<flips.length; i++) {
+            long flipped = flips[i];
+            while (flipped != 0) {
+                recheckRays(black, white, i*64+Long.numberOfTrailingZeros(flipped));
+                flipped &= flipped-1;
+            }
+        }
+        
+        if (verify) verify(black, white);
+    }
+    
+    /**
+     * Updates the frontier and legal moves after a move has been taken back, the bitboards
+     * passed in are the ones after it was undone. The same squares as in update are checked
+     * again, along with the empty squares around the removed disc which may no longer be
+     * next to any disc
+     * 
+     * @param black     the bitboard of black discs
+     * @param white     the bitboard of white discs
+     * @param square    the square the disc was removed from
+     * @param flips     the bitboard of discs that were turned back
+     */
+    public void undo(long[] black, long[] white, int square, long[] flips) {
+        int row = square/size;
+        int column = square%size;
+        
+        for (int d=0; d<8; d++) {
+            int r = row+ROWINC[d];
+            int c = column+COLINC[d];
+            if (r<0 || r>=size || c<0 || c>=size) continue;
+            
+            int neighbour = r*size+c;
+            if (!Rules.has(black, neighbour) && !Rules.has(white, neighbour)
+                && !hasDiscNeighbour(black, white, neighbour)) {
+                long bit = 1L << neighbour;
+                frontier[neighbour >>> 6] &= ~bit;
+                blackMoves[neighbour >>> 6] &= ~bit;
+                whiteMoves[neighbour >>> 6] &= ~bit;
+            }
+        }
+        
+        if (hasDiscNeighbour(black, white, square)) {
+            frontier[square >>> 6] |= 1L << square;
+        }
+        checkSquare(black, white, square);
+        recheckRays(black, white, square);
+        
+        for (int i=0; i<flips.length; i++) {
+            long flipped = flips[i];
+            while (flipped != 0) {
+                recheckRays(black, white, i*64+Long.numberOfTrailingZeros(flipped));
+                flipped &= flipped-1;
+            }
+        }
+        
+        if (verify) verify(black, white);
+    }
+    
+    /**
+     * @param color     GameState.BLACK or GameState.WHITE
+     * 
+     * @return the bitboard of legal moves for that color, this is the tracker's own array
+     * so it must not be changed by the caller
+     */
+    public long[] getLegalMoves(int color) {
+        return (color == GameState.BLACK) ? blackMoves : whiteMoves;
+    }
+    
+    /**
+     * @return the bitboard of empty squares next to at least one disc
+     */
+    public long[] getFrontier() {
+        return frontier;
+    }
+    
+    /**
+     * Compares the tracked legal moves with both players' legal moves found from scratch
+     */
+    public void verify(long[] black, long[] white) {
+        rules.legalMoves(black, white, expected);
+        checkEqual(expected, blackMoves, "black");
+        rules.legalMoves(white, black, expected);
+        checkEqual(expected, whiteMoves, "white");
+    }
+    
+    /**
+     * Throws an IllegalStateException naming the first square the bitboards differ on
+     */
+    private void checkEqual(long[] expected, long[] actual, String color) {
+        for (int i=0; i<expected.length; i++) {
+            if (expected[i] != actual[i]) {
+                int square = i*64+Long.numberOfTrailingZeros(expected[i] ^ actual[i]);
+                throw new IllegalStateException("Incremental legal moves for "+color+
+                    " differ from a full rescan on square "+square);
+            }
+        }
+    }
+    
+    /**
+     * Walks from a changed disc in each direction over the discs next to it, the first empty
+     * square reached has a ray through the changed disc so its legality is checked again
+     */
+    private void recheckRays(long[] black, long[] white, int square) {
+        int row = square/size;
+        int column = square%size;
+        
+        for (int d=0; d<8; d++) {
+            int r = row+ROWINC[d];
+            int c = column+COLINC[d];
+            
+            while ( (r>=0 && r<size) && (c>=0 && c<size) ) {
+                int current = r*size+c;
+                if (!Rules.has(black, current) && !Rules.has(white, current)) {
+                    checkSquare(black, white, current);
+                    break;
+                }
+                r += ROWINC[d];
+                c += COLINC[d];
+            }
+        }
+    }
+    
+    /**
+     * Adds the empty squares around a disc to the frontier
+     */
+    private void addNeighboursToFrontier(long[] black, long[] white, int square) {
+        int row = square/size;
+        int column = square%size;
+        
+        for (int d=0; d<8; d++) {
+            int r = row+ROWINC[d];
+            int c = column+COLINC[d];
+            if (r<0 || r>=size || c<0 || c>=size) continue;
+            
+            int neighbour = r*size+c;
+            if (!Rules.has(black, neighbour) && !Rules.has(white, neighbour)) {
+                frontier[neighbour >>> 6] |= 1L << neighbour;
+            }
+        }
+    }
+    
+    /**
+     * @return whether any of the 8 squares around a square has a disc on it
+     */
+    private boolean hasDiscNeighbour(long[] black, long[] white, int square) {
+        int row = square/size;
+        int column = square%size;
+        
+        for (int d=0; d<8; d++) {
+            int r = row+ROWINC[d];
+            int c = column+COLINC[d];
+            if (r<0 || r>=size || c<0 || c>=size) continue;
+            
+            int neighbour = r*size+c;
+            if (Rules.has(black, neighbour) || Rules.has(white, neighbour)) return true;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Works out whether each player could place a disc on an empty square
+     */
+    private void checkSquare(long[] black, long[] white, int square) {
+        long bit = 1L << square;
+        int word = square >>> 6;
+        
+        if (canCapture(black, white, square)) {
+            blackMoves[word] |= bit;
+        } else {
+            blackMoves[word] &= ~bit;
+        }
+        
+        if (canCapture(white, black, square)) {
+            whiteMoves[word] |= bit;
+        } else {
+            whiteMoves[word] &= ~bit;
+        }
+    }
+    
+    /**
+     * @return whether placing a disc for the player on the square flanks any opponent discs
+     */
+    private boolean canCapture(long[] player, long[] opponent, int square) {
+        int row = square/size;
+        int column = square%size;
+        
+        for (int d=0; d<8; d++) {
+            int r = row+ROWINC[d];
+            int c = column+COLINC[d];
+            int run = 0;
+            
+            while ( (r>=0 && r<size) && (c>=0 && c<size) ) {
+                int current = r*size+c;
+                if (Rules.has(player, current)) {
+                    if (run > 0) return true;
+                    break;
+                }
+                if (!Rules.has(opponent, current)) break;
+                
+                run++;
+                r += ROWINC[d];
+                c += COLINC[d];
+            }
+        }
+        
+        return false;
+    }
+}
@@ -0,0 +1,293 @@
+// Other Imports
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An opening book for one board size, the moves played from positions early in the game
+ * and how well they did. The computer player looks positions up in it for the first
+ * MAXPLIES plies of a game and plays the move with the best average result instead of
+ * searching
+ *
+ * The book is a binary file that is memory-mapped rather than read, so opening it parses
+ * nothing and lookups read straight from the mapped file. After a 16 byte header (the magic
+ * number, the format version, the board size and the number of entries) come the entries,
+ * 32 bytes each and sorted by position key and then move:
+ * - the position's canonical key (8 bytes)
+ * - the move, as a square of the canonical position (4 bytes)
+ * - the number of games, wins and draws for the side that played the move (4 bytes each)
+ * - the sum of the final disc differences for the side that played the move (8 bytes)
+ *
+ * Positions that are rotations or reflections of each other are the same position, so each
+ * is stored once under its canonical key, the smallest Zobrist key of its 8 symmetries, with
+ * its moves turned the same way. Books are built by OpeningBookBuilder and each board size
+ * has its own book file, book-<size>.bin
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class OpeningBook
+{
+    // The book is only used for this many plies from the start of the game
+    public static final int MAXPLIES = 20;
+    
+    // Moves played in fewer games than this aren't trusted
+    public static final int MINGAMES = 2;
+    
+    public static final int MAGIC = 0x5256424b;
+    public static final int VERSION = 1;
+    public static final int HEADERBYTES = 16;
+    public static final int ENTRYBYTES = 32;
+    
+    // The books already opened for each size, null until a size is first asked for
+    private static final OpeningBook[] BOOKS = new OpeningBook[512];
+    private static final boolean[] LOOKEDFOR = new boolean[512];
+    
+    private final int size;
+    private final int entryCount;
+    private final MappedByteBuffer buffer;
+    
+    /**
+     * @param buffer        the mapped book file
+     */
+    private OpeningBook(MappedByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.capacity() < HEADERBYTES || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not an opening book");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException("Unsupported opening book version "+buffer.getInt(4));
+        
+        this.buffer = buffer;
+        this.size = buffer.getInt(8);
+        this.entryCount = buffer.getInt(12);
+        
+        if (HEADERBYTES+(long) entryCount*ENTRYBYTES > buffer.capacity())
+            throw new IOException("The opening book is cut short");
+    }
+    
+    /**
+     * Maps a book file into memory
+     * 
+     * @param file      the book file
+     * 
+     * @return the book
+     * 
+     * @throws IOException if the file can't be read or isn't an opening book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+    
+    /**
+     * The book for a board size, opened the first time it is asked for. Book files are
+     * looked for in the working directory unless -Dreversi.bookDir=<directory> is given
+     * 
+     * @param size      the width (and height) of the board
+     * 
+     * @return the book, or null if there is no readable book for the size
+     */
+    public static synchronized OpeningBook forSize(int size) {
+        if (size >= BOOKS.length) return null;
+        if (LOOKEDFOR[size]) return BOOKS[size];
+        
+        LOOKEDFOR[size] = true;
+        Path file = bookFile(size);
+        if (!Files.isReadable(file)) return null;
+        
+        try {
+            OpeningBook book = open(file);
+            if (book.getSize() == size) BOOKS[size] = book;
+        } catch (IOException e) {
+            System.err.println("Could not open the opening book "+file+": "+e.getMessage());
+        }
+        return BOOKS[size];
+    }
+    
+    /**
+     * @return the path of the book file for the board size
+     */
+    public static Path bookFile(int size) {
+        return Paths.get(System.getProperty("reversi.bookDir", "."), "book-"+size+".bin");
+    }
+    
+    /**
+     * Looks up the position and picks the move with the best average final disc difference
+     * out of the moves played in at least MINGAMES games
+     * 
+     * @param state     the position, past MAXPLIES plies nothing is looked up
+     * 
+     * @return the book move, or null if the position isn't in the book
+     */
+    public SearchResult lookup(GameState state) {
+        long start = System.nanoTime();
+        int plies = state.count(GameState.BLACK)+state.count(GameState.WHITE)-4;
+        if (state.getSize() != size || plies >= MAXPLIES) return null;
+        
+        int[] symmetry = new int[1];
+        long key = canonicalKey(state, symmetry);
+        
+        int bestMove = Search.PASS;
+        int bestGames = 0;
+        double bestAverage = 0;
+        
+        for (int i=findFirst(key); i<entryCount && getKey(i) == key; i++) {
+            int games = getGames(i);
+            if (games < MINGAMES) continue;
+            
+            double average = (double) getScoreSum(i)/games;
+            if (bestMove == Search.PASS || average > bestAverage
+                || (average == bestAverage && games > bestGames)) {
+                bestMove = getMove(i);
+                bestGames = games;
+                bestAverage = average;
+            }
+        }
+        if (bestMove == Search.PASS) return null;
+        
+        int move = transform(size, inverse(symmetry[0]), bestMove);
+        if (!state.isLegal(move)) return null;
+        
+        return SearchResult.fromBook(move, (int) Math.round(bestAverage), bestGames,
+            System.nanoTime()-start);
+    }
+    
+    /**
+     * @return the index of the first entry with the key, or where it would be
+     */
+    private int findFirst(long key) {
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            int middle = (low+high) >>> 1;
+            if (getKey(middle) < key) {
+                low = middle+1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    // Reading entries from the mapped file
+    
+    public long getKey(int entry) {
+        return buffer.getLong(HEADERBYTES+entry*ENTRYBYTES);
+    }
+    
+    public int getMove(int entry) {
+        return buffer.getInt(HEADERBYTES+entry*ENTRYBYTES+8);
+    }
+    
+    public int getGames(int entry) {
+        return buffer.getInt(HEADERBYTES+entry*ENTRYBYTES+12);
+    }
+    
+    public int getWins(int entry) {
+        return buffer.getInt(HEADERBYTES+entry*ENTRYBYTES+16);
+    }
+    
+    public int getDraws(int entry) {
+        return buffer.getInt(HEADERBYTES+entry*ENTRYBYTES+20);
+    }
+    
+    public long getScoreSum(int entry) {
+        return buffer.getLong(HEADERBYTES+entry*ENTRYBYTES+24);
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    public int getEntryCount() {
+        return entryCount;
+    }
+    
+    // Symmetries
+    
+    /**
+     * Works out the canonical key of a position, the smallest Zobrist key of its 8
+     * rotations and reflections
+     * 
+     * @param state         the position
+     * @param symmetry      given an array, its first element is set to the symmetry that
+     * gave the canonical key (see transform)
+     * 
+     * @return the canonical key
+     */
+    public static long canonicalKey(GameState state, int[] symmetry) {
+        int size = state.getSize();
+        Zobrist zobrist = Zobrist.forSize(size);
+        long best = 0;
+        int bestSymmetry = 0;
+        
+        for (int s=0; s<8; s++) {
+            long key = (state.getSideToMove() == GameState.WHITE) ? zobrist.side() : 0;
+            
+            for (int color=GameState.BLACK; color<=GameState.WHITE; color++) {
+                long[] discs = state.getDiscs(color);
+                for (int i=0; i<discs.length; i++) {
+                    long word = discs[i];
+                    while (word != 0) {
+                        int square = i*64+Long.numberOfTrailingZeros(word);
+                        key ^= zobrist.disc(color, transform(size, s, square));
+                        word &= word-1;
+                    }
+                }
+            }
+            
+            if (s == 0 || key < best) {
+                best = key;
+                bestSymmetry = s;
+            }
+        }
+        
+        if (symmetry != null) symmetry[0] = bestSymmetry;
+        return best;
+    }
+    
+    /**
+     * Moves a square by one of the board's 8 symmetries: 0 leaves it where it is, 1 to 3
+     * rotate the board by 90, 180 and 270 degrees, 4 and 5 mirror it left to right and top
+     * to bottom and 6 and 7 reflect it along its two diagonals
+     * 
+     * @param size          the width (and height) of the board
+     * @param symmetry      0 to 7
+     * @param square        the square, Search.PASS is left as it is
+     * 
+     * @return the square it is moved to
+     */
+    public static int transform(int size, int symmetry, int square) {
+        if (square < 0) return square;
+        
+        int row = square/size;
+        int column = square%size;
+        int last = size-1;
+        
+        switch (symmetry) {
+            case 1: return column*size+(last-row);
+            case 2: return (last-row)*size+(last-column);
+            case 3: return (last-column)*size+row;
+            case 4: return row*size+(last-column);
+            case 5: return (last-row)*size+column;
+            case 6: return column*size+row;
+            case 7: return (last-column)*size+(last-row);
+            default: return square;
+        }
+    }
+    
+    /**
+     * @return the symmetry that undoes the given one
+     */
+    public static int inverse(int symmetry) {
+        if (symmetry == 1) return 3;
+        if (symmetry == 3) return 1;
+        return symmetry;
+    }
+}
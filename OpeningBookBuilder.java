@@ -0,0 +1,341 @@
+// Other Imports
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Grows the opening book for a board size from games, either played by the computer
+ * against itself or imported from a file. The first OpeningBook.MAXPLIES positions of each
+ * game are recorded with the move played and the game's result, and when the games are
+ * written out they are merged into the existing book file so the book keeps growing each
+ * time the builder is run
+ *
+ * Imported games are text files with one finished game per line, written as the squares
+ * played such as f5d6c3d3c4 (spaces between moves are allowed). Passes don't need to be
+ * written, when the side to move has no legal move it passes. Lines starting with # are
+ * skipped
+ *
+ * Usage:
+ * java OpeningBookBuilder selfplay [board size] [games] [search depth] [random plies]
+ * java OpeningBookBuilder import [board size] [game files...]
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class OpeningBookBuilder
+{
+    private static final Pattern MOVE = Pattern.compile("pass|[a-z]+[0-9]+");
+    
+    private final int size;
+    private final HashMap<Entry, Entry> entries = new HashMap<>();
+    private int games = 0;
+    
+    /**
+     * @param size      the width (and height) of the board the book is for
+     */
+    public OpeningBookBuilder(int size) {
+        this.size = size;
+    }
+    
+    /**
+     * Replays a finished game from the start and records its first positions, the moves
+     * played from them and the result
+     * 
+     * @param moves     the squares played in order, passes can be left out
+     * 
+     * @throws IllegalArgumentException if a move is illegal or the game doesn't finish
+     */
+    public void addGame(List<Integer> moves) {
+        GameState state = new GameState(size);
+        state.startGame();
+        
+        List<Entry> played = new ArrayList<>();
+        List<Integer> players = new ArrayList<>();
+        int[] symmetry = new int[1];
+        
+        for (int move: moves) {
+            if (!state.hasLegalMove() && move != Search.PASS) state.pass();
+            
+            if (move == Search.PASS) {
+                state.pass();
+                continue;
+            }
+            if (!state.isLegal(move))
+                throw new IllegalArgumentException("Illegal move "+state.squareName(move));
+            
+            if (played.size() < OpeningBook.MAXPLIES) {
+                long key = OpeningBook.canonicalKey(state, symmetry);
+                played.add(new Entry(key, OpeningBook.transform(size, symmetry[0], move)));
+                players.add(state.getSideToMove());
+            }
+            state.play(move);
+        }
+        if (!state.hasLegalMove() && !state.isTerminal()) state.pass();
+        if (!state.isTerminal()) throw new IllegalArgumentException("The game isn't finished");
+        
+        int blackDifference = state.count(GameState.BLACK)-state.count(GameState.WHITE);
+        for (int i=0; i<played.size(); i++) {
+            int score = (players.get(i) == GameState.BLACK) ? blackDifference : -blackDifference;
+            
+            Entry entry = entries.computeIfAbsent(played.get(i), e -> e);
+            entry.games++;
+            if (score > 0) entry.wins++;
+            if (score == 0) entry.draws++;
+            entry.scoreSum += score;
+        }
+        games++;
+    }
+    
+    /**
+     * Plays a game with the computer on both sides, the first few moves are random so
+     * every game takes a different opening
+     * 
+     * @param search        the search to pick moves with
+     * @param random        picks the random moves
+     * @param depth         the depth each move is searched to
+     * @param randomPlies   how many moves at the start are random
+     * 
+     * @return the moves played, including passes
+     */
+    public static List<Integer> playSelfPlayGame(ParallelSearch search, Random random,
+        int depth, int randomPlies) {
+        GameState state = new GameState(search.getSize());
+        state.startGame();
+        List<Integer> moves = new ArrayList<>();
+        
+        while (!state.isTerminal()) {
+            int move;
+            if (moves.size() < randomPlies) {
+                move = state.playRandomMove(random);
+            } else {
+                move = search.search(state, depth, 0).getMove();
+                if (move == Search.PASS) {
+                    state.pass();
+                } else {
+                    state.play(move);
+                }
+            }
+            moves.add(move);
+        }
+        
+        return moves;
+    }
+    
+    /**
+     * Reads games from a text file, see the format above
+     * 
+     * @param file      the file of games
+     * 
+     * @return the number of games added
+     * 
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if a game has an illegal move or doesn't finish
+     */
+    public int importGames(Path file) throws IOException {
+        GameState names = new GameState(size);
+        int added = 0;
+        
+        for (String line: Files.readAllLines(file)) {
+            line = line.trim().toLowerCase();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            
+            List<Integer> moves = new ArrayList<>();
+            Matcher matcher = MOVE.matcher(line);
+            while (matcher.find()) {
+                moves.add(names.parseSquare(matcher.group()));
+            }
+            
+            addGame(moves);
+            added++;
+        }
+        
+        return added;
+    }
+    
+    /**
+     * Merges the recorded games into a book file, adding their results to the entries
+     * already in it. The merged book is written to a temporary file first and then moved
+     * over the old one, so a book that is being used is never half written
+     * 
+     * @param file      the book file, created if it doesn't exist
+     * 
+     * @return the number of entries in the merged book
+     * 
+     * @throws IOException if the book can't be read or written
+     */
+    public int merge(Path file) throws IOException {
+        List<Entry> added = new ArrayList<>(entries.values());
+        Collections.sort(added);
+        
+        List<Entry> merged = new ArrayList<>();
+        int next = 0;
+        
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+                int count = readHeader(in);
+                
+                for (int i=0; i<count; i++) {
+                    Entry old = new Entry(in.readLong(), in.readInt());
+                    old.games = in.readInt();
+                    old.wins = in.readInt();
+                    old.draws = in.readInt();
+                    old.scoreSum = in.readLong();
+                    
+                    while (next < added.size() && added.get(next).compareTo(old) < 0) {
+                        merged.add(added.get(next++));
+                    }
+                    if (next < added.size() && added.get(next).compareTo(old) == 0) {
+                        Entry entry = added.get(next++);
+                        old.games += entry.games;
+                        old.wins += entry.wins;
+                        old.draws += entry.draws;
+                        old.scoreSum += entry.scoreSum;
+                    }
+                    merged.add(old);
+                }
+            }
+        }
+        while (next < added.size()) {
+            merged.add(added.get(next++));
+        }
+        
+        Path temporary = file.resolveSibling(file.getFileName()+".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.ENTRYBYTES*4096);
+            buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION);
+            buffer.putInt(size).putInt(merged.size());
+            
+            for (Entry entry: merged) {
+                if (buffer.remaining() < OpeningBook.ENTRYBYTES) write(channel, buffer);
+                buffer.putLong(entry.key).putInt(entry.move).putInt(entry.games);
+                buffer.putInt(entry.wins).putInt(entry.draws).putLong(entry.scoreSum);
+            }
+            write(channel, buffer);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        
+        entries.clear();
+        return merged.size();
+    }
+    
+    /**
+     * @return the number of games added since the builder was created
+     */
+    public int getGames() {
+        return games;
+    }
+    
+    /**
+     * Checks a book's header matches this builder's board size
+     * 
+     * @return the number of entries in the book
+     */
+    private int readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != OpeningBook.MAGIC) throw new IOException("Not an opening book");
+        if (in.readInt() != OpeningBook.VERSION) throw new IOException("Unsupported book version");
+        if (in.readInt() != size) throw new IOException("The book is for a different board size");
+        return in.readInt();
+    }
+    
+    /**
+     * Writes out everything in the buffer and empties it
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    /**
+     * @param args      selfplay or import followed by its arguments, see above
+     */
+    public static void main(String[] args) throws IOException {
+        String mode = (args.length > 0) ? args[0] : "selfplay";
+        int size = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+        OpeningBookBuilder builder = new OpeningBookBuilder(size);
+        long start = System.nanoTime();
+        
+        if (mode.equals("import")) {
+            for (int i=2; i<args.length; i++) {
+                int added = builder.importGames(Path.of(args[i]));
+                System.out.println(args[i]+": "+added+" games");
+            }
+        } else if (mode.equals("selfplay")) {
+            int games = (args.length > 2) ? Integer.parseInt(args[2]) : 100;
+            int depth = (args.length > 3) ? Integer.parseInt(args[3]) : 6;
+            int randomPlies = (args.length > 4) ? Integer.parseInt(args[4]) : 4;
+            
+            ParallelSearch search = new ParallelSearch(size, 1);
+            Random random = new Random();
+            for (int g=1; g<=games; g++) {
+                builder.addGame(playSelfPlayGame(search, random, depth, randomPlies));
+                if (g%10 == 0 || g == games) {
+                    System.out.printf("%d games, %.2f games/s%n", g,
+                        g*1e9/(System.nanoTime()-start));
+                }
+            }
+            search.shutdown();
+        } else {
+            System.out.println("Usage: java OpeningBookBuilder selfplay|import [size] ...");
+            return;
+        }
+        
+        Path file = OpeningBook.bookFile(size);
+        int count = builder.merge(file);
+        System.out.println("merged "+builder.getGames()+" games into "+file+", "+count+
+            " entries");
+    }
+    
+    /**
+     * A move played from a position and the results of the games it was played in
+     */
+    private static class Entry implements Comparable<Entry>
+    {
+        final long key;
+        final int move;
+        int games;
+        int wins;
+        int draws;
+        long scoreSum;
+        
+        Entry(long key, int move) {
+            this.key = key;
+            this.move = move;
+        }
+        
+        @Override
+        public int compareTo(Entry other) {
+            if (key != other.key) return Long.compare(key, other.key);
+            return Integer.compare(move, other.move);
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Entry)) return false;
+            return key == ((Entry) other).key && move == ((Entry) other).move;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Long.hashCode(key)*31+move;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+// Other Imports
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Runs the computer player's search on several threads at once using Lazy SMP. Every
+ * thread runs its own iterative deepening search of the same position and they share one
+ * transposition table, so each thread's results cut off and order the moves of the others.
+ * The helper threads are spread out by starting on different depths. The main thread's
+ * result is the one that is played, once it finishes the helpers are stopped
+ *
+ * Early in the game the position is looked up in the opening book first, if one has been
+ * given. On 8x8 boards with few enough empty squares left the position is given to the
+ * EndgameSolver first, which plays perfectly if it finishes in time
+ *
+ * The helper threads are created once and reused for each search, shutdown stops them
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class ParallelSearch
+{
+    // The size of the shared table in megabytes when one isn't given
+    public static final int DEFAULTTABLEMB = 64;
+    
+    // Positions with this many empty squares or fewer are solved exactly, most of them
+    // are solved within a second. If the solver runs out of its share of the time the
+    // rest goes to the normal search
+    private final int SOLVEEMPTIES = 20;
+    private final double SOLVETIMESHARE = 0.75;
+    
+    private final int size;
+    private final int threads;
+    private final TranspositionTable table;
+    private final Search[] searches;
+    private final EndgameSolver solver;
+    private OpeningBook book;
+    private final ExecutorService helperPool;
+    
+    private volatile AtomicBoolean stopSignal = new AtomicBoolean();
+    
+    /**
+     * @param size          the width (and height) of the boards this search will be given
+     * @param threads       the number of threads to search with, at least 1
+     */
+    public ParallelSearch(int size, int threads) {
+        this(size, threads, DEFAULTTABLEMB);
+    }
+    
+    /**
+     * @param size          the width (and height) of the boards this search will be given
+     * @param threads       the number of threads to search with, at least 1
+     * @param tableMegabytes    the memory the shared transposition table may use
+     */
+    public ParallelSearch(int size, int threads, int tableMegabytes) {
+        this.size = size;
+        this.threads = Math.max(1, threads);
+        this.table = new TranspositionTable(tableMegabytes);
+        this.solver = (size == 8) ? new EndgameSolver() : null;
+        
+        searches = new Search[this.threads];
+        for (int i=0; i<this.threads; i++) {
+            searches[i] = new Search(size, table);
+            searches[i].setHelperId(i);
+        }
+        
+        helperPool = (this.threads > 1) ? Executors.newFixedThreadPool(this.threads-1, r -> {
+            Thread thread = new Thread(r, "search helper");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+    
+    /**
+     * Searches the position on every thread, see Search.search. The returned node count and
+     * nodes per second are the totals over all the threads. When the position is solved
+     * instead the result is the solver's, which is exact
+     * 
+     * @param root              the position to search, it isn't changed
+     * @param maxDepth          the deepest iteration to search, 0 or less for no limit
+     * @param timeLimitMillis   the time allowed for the search, 0 or less for no limit
+     * 
+     * @return the main thread's result
+     */
+    public SearchResult search(GameState root, int maxDepth, long timeLimitMillis) {
+        return search(root, maxDepth, timeLimitMillis, new AtomicBoolean());
+    }
+    
+    /**
+     * The same as search but also finishing once the given stop signal is set, so a
+     * caller on another thread can stop a search before it has even started
+     * 
+     * @param signal            the search finishes once this is set to true
+     */
+    public SearchResult search(GameState root, int maxDepth, long timeLimitMillis,
+        AtomicBoolean signal) {
+        return search(root, maxDepth, timeLimitMillis, null, signal);
+    }
+    
+    /**
+     * The same as search but with a MoveTimer, which stops the search at its hard deadline
+     * and decides after each of the main thread's iterations whether to start another one.
+     * The solver is given its share of the time left until the hard deadline
+     * 
+     * @param timer             the timer for this move, already started
+     */
+    public SearchResult search(GameState root, int maxDepth, MoveTimer timer,
+        AtomicBoolean signal) {
+        return search(root, maxDepth, 0, timer, signal);
+    }
+    
+    private SearchResult search(GameState root, int maxDepth, long timeLimitMillis,
+        MoveTimer timer, AtomicBoolean signal) {
+        stopSignal = signal;
+        table.newSearch();
+        
+        if (book != null) {
+            SearchResult booked = book.lookup(root);
+            if (booked != null) return booked;
+        }
+        
+        int empties = size*size-root.count(GameState.BLACK)-root.count(GameState.WHITE);
+        if (solver != null && empties <= SOLVEEMPTIES && (maxDepth <= 0 || maxDepth >= empties)) {
+            long solveLimit = (timer != null) ? timer.getRemainingMillis() : timeLimitMillis;
+            long solveTime = (solveLimit > 0)
+                ? Math.max(1, (long) (solveLimit*SOLVETIMESHARE)) : 0;
+            SearchResult solved = solver.solve(root, solveTime, signal);
+            if (solved != null) return solved;
+            
+            // At least 1 ms is left, since 0 would mean no limit
+            if (timeLimitMillis > 0) timeLimitMillis = Math.max(1, timeLimitMillis-solveTime);
+        }
+        
+        List<Future<SearchResult>> helpers = new ArrayList<>();
+        for (int i=1; i<threads; i++) {
+            Search helper = searches[i];
+            GameState position = new GameState(root);
+            helpers.add(helperPool.submit(() -> helper.search(position, maxDepth, 0, signal)));
+        }
+        
+        SearchResult result = (timer != null)
+            ? searches[0].search(root, maxDepth, timer, signal)
+            : searches[0].search(root, maxDepth, timeLimitMillis, signal);
+        signal.set(true);
+        
+        long nodes = result.getNodes();
+        for (Future<SearchResult> helper: helpers) {
+            try {
+                nodes += helper.get().getNodes();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A search helper failed", e.getCause());
+            }
+        }
+        
+        return new SearchResult(result.getMove(), result.getScore(), result.getDepth(), nodes,
+            result.getElapsedNanos(), result.getPrincipalVariation());
+    }
+    
+    /**
+     * Asks a running search to finish, it returns the main thread's last full iteration.
+     * This is safe to call from another thread
+     */
+    public void stop() {
+        stopSignal.set(true);
+    }
+    
+    /**
+     * Empties the transposition table, used when a new game is started and when timing
+     * searches so earlier searches don't help later ones
+     */
+    public void clearTable() {
+        table.clear();
+        if (solver != null) solver.clearTable();
+    }
+    
+    /**
+     * Stops the helper threads, the search can't be used afterwards
+     */
+    public void shutdown() {
+        if (helperPool != null) helperPool.shutdownNow();
+    }
+    
+    /**
+     * @param listener      given the main thread's result after each of its iterations,
+     * with the nodes of every thread so far, or null for none. Book moves and solved
+     * positions only have their final result
+     */
+    public void setProgressListener(Consumer<SearchResult> listener) {
+        if (listener == null) {
+            searches[0].setIterationListener(null);
+            return;
+        }
+        
+        searches[0].setIterationListener(result -> {
+            long nodes = 0;
+            for (Search search: searches) {
+                nodes += search.getNodes();
+            }
+            listener.accept(new SearchResult(result.getMove(), result.getScore(),
+                result.getDepth(), nodes, result.getElapsedNanos(),
+                result.getPrincipalVariation()));
+        });
+    }
+    
+    /**
+     * @param book      the opening book to play from, or null for none
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    public int getThreads() {
+        return threads;
+    }
+    
+    /**
+     * @return the shared transposition table, for its size and hit and collision counters
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * The pattern evaluation for 8x8 boards, used by the computer player in place of Evaluator
+ * when there is a weights file (see PatternWeights). A position's score is the sum of the
+ * weights of the arrangement of discs on every pattern instance for the game's stage,
+ * plus the stage's mobility weight times the difference in the number of legal moves
+ *
+ * Each instance's index is kept up to date as moves are played and taken back rather than
+ * worked out from the squares, so playing a move only changes the instances that the
+ * placed and captured discs are in. Indices are kept from black's point of view, when white
+ * is to move they are looked up in the swapped tables (see PatternWeights) instead of
+ * swapping every digit. Like a Search, it must only be used by one thread
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class PatternEvaluator
+{
+    private final PatternWeights weights;
+    private final Evaluator evaluator;
+    private final Rules rules;
+    private final long[] moves;
+    
+    // For every square, the instances it is in and the power of 3 of its digit in each,
+    // the updates of square s are from updateStarts[s] up to updateStarts[s+1]
+    private final int[] updateStarts;
+    private final int[] updateInstances;
+    private final int[] updatePowers;
+    
+    // Where each instance's pattern table starts
+    private final int[] tableStarts;
+    
+    // The index of every instance from black's point of view
+    private final int[] indices;
+    
+    /**
+     * @param weights       the weight tables, which may be shared with other evaluators
+     */
+    public PatternEvaluator(PatternWeights weights) {
+        this.weights = weights;
+        this.evaluator = new Evaluator(PatternWeights.SIZE);
+        this.rules = new Rules(PatternWeights.SIZE);
+        this.moves = new long[Rules.words(PatternWeights.SIZE)];
+        
+        int instances = PatternWeights.getInstanceCount();
+        int squareCount = PatternWeights.SIZE*PatternWeights.SIZE;
+        indices = new int[instances];
+        tableStarts = new int[instances];
+        
+        int[] counts = new int[squareCount];
+        int total = 0;
+        for (int instance=0; instance<instances; instance++) {
+            tableStarts[instance] = PatternWeights.getTableStart(
+                PatternWeights.getInstancePattern(instance));
+            for (int square: PatternWeights.getInstanceSquares(instance)) {
+                counts[square]++;
+                total++;
+            }
+        }
+        
+        updateStarts = new int[squareCount+1];
+        for (int square=0; square<squareCount; square++) {
+            updateStarts[square+1] = updateStarts[square]+counts[square];
+        }
+        
+        updateInstances = new int[total];
+        updatePowers = new int[total];
+        int[] next = updateStarts.clone();
+        for (int instance=0; instance<instances; instance++) {
+            int power = 1;
+            for (int square: PatternWeights.getInstanceSquares(instance)) {
+                updateInstances[next[square]] = instance;
+                updatePowers[next[square]] = power;
+                next[square]++;
+                power *= 3;
+            }
+        }
+    }
+    
+    /**
+     * Works out every instance's index from the squares of a position, needed before moves
+     * can be played on it with play
+     * 
+     * @param state     an 8x8 position
+     */
+    public void setPosition(GameState state) {
+        for (int instance=0; instance<indices.length; instance++) {
+            indices[instance] = 0;
+        }
+        
+        for (int square=0; square<PatternWeights.SIZE*PatternWeights.SIZE; square++) {
+            int disc = state.get(square);
+            if (disc != GameState.EMPTY) place(square, disc);
+        }
+    }
+    
+    /**
+     * Updates the indices for a move, after it has been played on the game state
+     * 
+     * @param color     the color of the player who moved
+     * @param square    the square played
+     * @param flips     the discs captured by the move
+     */
+    public void play(int color, int square, long[] flips) {
+        place(square, color);
+        
+        // A captured disc goes from 2 to 1 when black captures it and from 1 to 2 when white does
+        int sign = (color == GameState.BLACK) ? -1 : 1;
+        for (int i=0; i<flips.length; i++) {
+            long word = flips[i];
+            while (word != 0) {
+                flip(i*64+Long.numberOfTrailingZeros(word), sign);
+                word &= word-1;
+            }
+        }
+    }
+    
+    /**
+     * Puts the indices back to how they were before a move, when it is taken back
+     * 
+     * @param color     the color of the player who moved
+     * @param square    the square played
+     * @param flips     the discs captured by the move
+     */
+    public void undo(int color, int square, long[] flips) {
+        int sign = (color == GameState.BLACK) ? 1 : -1;
+        for (int i=0; i<flips.length; i++) {
+            long word = flips[i];
+            while (word != 0) {
+                flip(i*64+Long.numberOfTrailingZeros(word), sign);
+                word &= word-1;
+            }
+        }
+        
+        int digit = (color == GameState.BLACK) ? 1 : 2;
+        for (int u=updateStarts[square]; u<updateStarts[square+1]; u++) {
+            indices[updateInstances[u]] -= digit*updatePowers[u];
+        }
+    }
+    
+    /**
+     * Adds a disc to an empty square in every instance it is in
+     */
+    private void place(int square, int color) {
+        int digit = (color == GameState.BLACK) ? 1 : 2;
+        for (int u=updateStarts[square]; u<updateStarts[square+1]; u++) {
+            indices[updateInstances[u]] += digit*updatePowers[u];
+        }
+    }
+    
+    /**
+     * Changes the color of a disc in every instance it is in, sign is -1 when it becomes
+     * black and 1 when it becomes white
+     */
+    private void flip(int square, int sign) {
+        for (int u=updateStarts[square]; u<updateStarts[square+1]; u++) {
+            indices[updateInstances[u]] += sign*updatePowers[u];
+        }
+    }
+    
+    /**
+     * @param state     the position to evaluate, which the indices have to be up to date
+     * with
+     * 
+     * @return the score of the position for the side to move, finished games are scored by
+     * Evaluator.finalScore
+     */
+    public int evaluate(GameState state) {
+        long[] player = state.getPlayerDiscs();
+        long[] opponent = state.getOpponentDiscs();
+        
+        rules.legalMoves(player, opponent, moves);
+        int playerMobility = count(moves);
+        rules.legalMoves(opponent, player, moves);
+        int opponentMobility = count(moves);
+        
+        // Neither player can move so the game is over
+        if (playerMobility == 0 && opponentMobility == 0) return evaluator.finalScore(state);
+        
+        int stage = PatternWeights.stage(count(player)+count(opponent));
+        short[] tables = (state.getSideToMove() == GameState.BLACK) ?
+            weights.getTables(stage) : weights.getSwappedTables(stage);
+        
+        int score = 0;
+        for (int instance=0; instance<indices.length; instance++) {
+            score += tables[tableStarts[instance]+indices[instance]];
+        }
+        
+        return score + weights.getMobilityWeight(stage)*(playerMobility-opponentMobility);
+    }
+    
+    /**
+     * @return the index of an instance from black's point of view, used to check the
+     * indices kept up to date against ones worked out from the squares
+     */
+    public int getIndex(int instance) {
+        return indices[instance];
+    }
+    
+    /**
+     * @return the number of set bits in a bitboard
+     */
+    private static int count(long[] bits) {
+        int total = 0;
+        for (long word: bits) {
+            total += Long.bitCount(word);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,653 @@
+// Other Imports
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Trains the pattern weights (see PatternWeights) from positions labelled with the final
+ * disc difference of the game they were played in, by least squares regression of the
+ * evaluation against the final difference
+ *
+ * Positions are kept on disk in shards that training reads through a block at a time, so
+ * any number of positions can be trained on without holding them in memory. A shard is a
+ * 16 byte header (the magic number, the format version, the number of positions and 0)
+ * followed by 17 bytes per position: the discs of the side to move and of its opponent
+ * as 8x8 bitboards, and the final disc difference for the side to move. Every tenth game
+ * goes to validation shards (valid-*.bin) instead of training shards (train-*.bin), so
+ * the validation error is measured on games that weren't trained on
+ *
+ * Each block of positions is worked through in parallel twice: once split between the
+ * threads by position to find every position's pattern indices and how far its
+ * evaluation is from its label, and once split by stage, since each stage has its own
+ * tables, to add up the errors of every weight and move each weight RATE of the way
+ * towards the value that would best fit the block. Every epoch goes through all the
+ * training shards and then reports the positions trained per second and the error on
+ * the validation shards, and the weights are written at the end. Training starts from
+ * the start weights file when one is given, otherwise from the weights that score the
+ * same way as the square weights (see PatternWeights.fromSquareWeights)
+ *
+ * Usage:
+ * java PatternTrainer selfplay <shard directory> [games] [depth] [random plies] [threads]
+ * java PatternTrainer archive <shard directory> <archive directory>
+ * java PatternTrainer train <shard directory> [epochs] [weights file] [rate] [start weights]
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class PatternTrainer
+{
+    public static final int MAGIC = 0x52565450;
+    public static final int VERSION = 1;
+    public static final int HEADERBYTES = 16;
+    public static final int RECORDBYTES = 17;
+    
+    // Shards are started again after this many positions
+    private static final int SHARDPOSITIONS = 1 << 20;
+    
+    // The number of positions read and trained on at once
+    private static final int BLOCKPOSITIONS = 1 << 16;
+    
+    // Positions handed to each thread at a time when working out errors
+    private static final int CHUNKPOSITIONS = 1024;
+    
+    // One game in this many goes to the validation shards
+    private static final int VALIDATIONEVERY = 10;
+    
+    private static final double DEFAULTRATE = 0.02;
+    
+    // Added to the number of uses of every weight when averaging its error, so weights
+    // seen in only a few positions move less (they would fit those positions' noise)
+    private static final int SMOOTHING = 8;
+    
+    private final int instances = PatternWeights.getInstanceCount();
+    private final int[][] instanceSquares = new int[instances][];
+    private final int[] instanceStarts = new int[instances];
+    
+    // The weights being trained, kept as floats until they are written
+    private final float[][] tables;
+    private final float[] mobilityWeights;
+    private final double rate;
+    
+    // The block being trained on: each position's discs, label, stage, mobility
+    // difference, pattern indices (instances per position) and error
+    private final long[] players = new long[BLOCKPOSITIONS];
+    private final long[] opponents = new long[BLOCKPOSITIONS];
+    private final int[] labels = new int[BLOCKPOSITIONS];
+    private final int[] stages = new int[BLOCKPOSITIONS];
+    private final int[] mobilities = new int[BLOCKPOSITIONS];
+    private final int[] indices;
+    private final float[] errors = new float[BLOCKPOSITIONS];
+    
+    // The block's positions sorted by stage, those of stage s are from stageStarts[s]
+    private final int[] byStage = new int[BLOCKPOSITIONS];
+    private final int[] stageStarts = new int[PatternWeights.STAGES+1];
+    
+    // Each stage's sums of errors and of uses of each weight, reused for every block
+    private final float[][] errorSums;
+    private final int[][] uses;
+    
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BLOCKPOSITIONS*RECORDBYTES)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    
+    /**
+     * @param start     the weights to start from
+     * @param rate      how far each weight is moved towards its best fit for each block
+     */
+    public PatternTrainer(PatternWeights start, double rate) {
+        this.rate = rate;
+        for (int instance=0; instance<instances; instance++) {
+            instanceSquares[instance] = PatternWeights.getInstanceSquares(instance);
+            instanceStarts[instance] = PatternWeights.getTableStart(
+                PatternWeights.getInstancePattern(instance));
+        }
+        indices = new int[BLOCKPOSITIONS*instances];
+        
+        int length = PatternWeights.getTableLength();
+        tables = new float[PatternWeights.STAGES][length];
+        mobilityWeights = new float[PatternWeights.STAGES];
+        errorSums = new float[PatternWeights.STAGES][length];
+        uses = new int[PatternWeights.STAGES][length];
+        
+        for (int stage=0; stage<PatternWeights.STAGES; stage++) {
+            short[] startTables = start.getTables(stage);
+            for (int i=0; i<length; i++) {
+                tables[stage][i] = startTables[i];
+            }
+            mobilityWeights[stage] = start.getMobilityWeight(stage);
+        }
+    }
+    
+    // Training
+    
+    /**
+     * Trains on every training shard once
+     * 
+     * @return the number of positions trained on
+     */
+    public long trainEpoch(List<Path> shards) throws IOException {
+        long positions = 0;
+        for (Path shard: shards) {
+            try (FileChannel channel = FileChannel.open(shard, StandardOpenOption.READ)) {
+                long remaining = readHeader(channel, shard);
+                while (remaining > 0) {
+                    int count = readBlock(channel, (int) Math.min(remaining, BLOCKPOSITIONS));
+                    trainBlock(count);
+                    remaining -= count;
+                    positions += count;
+                }
+            }
+        }
+        return positions;
+    }
+    
+    /**
+     * Works out the error of every position in the block, then adds up the errors of each
+     * weight and moves the weights
+     */
+    private void trainBlock(int count) {
+        findErrors(count);
+        
+        // Counting sort of the positions by stage
+        for (int s=0; s<=PatternWeights.STAGES; s++) {
+            stageStarts[s] = 0;
+        }
+        for (int i=0; i<count; i++) {
+            stageStarts[stages[i]+1]++;
+        }
+        for (int s=0; s<PatternWeights.STAGES; s++) {
+            stageStarts[s+1] += stageStarts[s];
+        }
+        int[] next = stageStarts.clone();
+        for (int i=0; i<count; i++) {
+            byStage[next[stages[i]]++] = i;
+        }
+        
+        IntStream.range(0, PatternWeights.STAGES).parallel().forEach(this::updateStage);
+    }
+    
+    /**
+     * Works out every position's stage, mobility difference, pattern indices and error,
+     * with the threads taking a chunk of positions at a time
+     */
+    private void findErrors(int count) {
+        int chunks = (count+CHUNKPOSITIONS-1)/CHUNKPOSITIONS;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int end = Math.min(count, (chunk+1)*CHUNKPOSITIONS);
+            for (int i=chunk*CHUNKPOSITIONS; i<end; i++) {
+                errors[i] = prepare(i)-labels[i]*PatternWeights.DISCSCALE;
+            }
+        });
+    }
+    
+    /**
+     * Works out a position's stage, mobility difference and pattern indices from its
+     * bitboards
+     * 
+     * @return the position's evaluation with the current weights
+     */
+    private float prepare(int i) {
+        long player = players[i];
+        long opponent = opponents[i];
+        int stage = PatternWeights.stage(Long.bitCount(player|opponent));
+        int mobility = Long.bitCount(BitBoard.legalMoves(player, opponent))-
+            Long.bitCount(BitBoard.legalMoves(opponent, player));
+        stages[i] = stage;
+        mobilities[i] = mobility;
+        
+        float[] stageTables = tables[stage];
+        float evaluation = mobilityWeights[stage]*mobility;
+        int base = i*instances;
+        
+        for (int instance=0; instance<instances; instance++) {
+            int[] squares = instanceSquares[instance];
+            int index = 0;
+            for (int k=squares.length-1; k>=0; k--) {
+                long bit = 1L << squares[k];
+                index = 3*index+(((player & bit) != 0) ? 1 : ((opponent & bit) != 0) ? 2 : 0);
+            }
+            index += instanceStarts[instance];
+            indices[base+instance] = index;
+            evaluation += stageTables[index];
+        }
+        return evaluation;
+    }
+    
+    /**
+     * Adds up the errors of every weight of a stage over the block's positions in it and
+     * moves each weight RATE of the way towards the value that would cancel its average
+     * error. Only the stage's own arrays are touched so stages can be updated at once
+     */
+    private void updateStage(int stage) {
+        int from = stageStarts[stage];
+        int to = stageStarts[stage+1];
+        if (from == to) return;
+        
+        float[] sums = errorSums[stage];
+        int[] counts = uses[stage];
+        double mobilityError = 0;
+        double mobilitySquares = 0;
+        
+        for (int p=from; p<to; p++) {
+            int i = byStage[p];
+            float error = errors[i];
+            int base = i*instances;
+            for (int instance=0; instance<instances; instance++) {
+                int index = indices[base+instance];
+                sums[index] += error;
+                counts[index]++;
+            }
+            mobilityError += (double) error*mobilities[i];
+            mobilitySquares += (double) mobilities[i]*mobilities[i];
+        }
+        
+        // Going back through the positions finds every weight that was used, and clears
+        // the sums for the next block as it goes
+        float[] stageTables = tables[stage];
+        for (int p=from; p<to; p++) {
+            int base = byStage[p]*instances;
+            for (int instance=0; instance<instances; instance++) {
+                int index = indices[base+instance];
+                if (counts[index] == 0) continue;
+                
+                stageTables[index] -= (float) (rate*sums[index]/(counts[index]+SMOOTHING));
+                sums[index] = 0;
+                counts[index] = 0;
+            }
+        }
+        
+        if (mobilitySquares > 0) {
+            mobilityWeights[stage] -= (float) (rate*mobilityError/mobilitySquares);
+        }
+    }
+    
+    /**
+     * Measures how far the evaluations of the validation positions are from their labels
+     * 
+     * @return the root mean square error and the mean absolute error, in discs, and the
+     * number of positions
+     */
+    public double[] validate(List<Path> shards) throws IOException {
+        double squares = 0;
+        double absolute = 0;
+        long positions = 0;
+        
+        for (Path shard: shards) {
+            try (FileChannel channel = FileChannel.open(shard, StandardOpenOption.READ)) {
+                long remaining = readHeader(channel, shard);
+                while (remaining > 0) {
+                    int count = readBlock(channel, (int) Math.min(remaining, BLOCKPOSITIONS));
+                    findErrors(count);
+                    for (int i=0; i<count; i++) {
+                        double error = errors[i]/PatternWeights.DISCSCALE;
+                        squares += error*error;
+                        absolute += Math.abs(error);
+                    }
+                    remaining -= count;
+                    positions += count;
+                }
+            }
+        }
+        
+        if (positions == 0) return new double[] {0, 0, 0};
+        return new double[] {Math.sqrt(squares/positions), absolute/positions, positions};
+    }
+    
+    /**
+     * @return the trained weights, rounded to whole numbers
+     */
+    public PatternWeights toWeights() {
+        PatternWeights weights = new PatternWeights();
+        for (int stage=0; stage<PatternWeights.STAGES; stage++) {
+            short[] out = weights.getTables(stage);
+            for (int i=0; i<out.length; i++) {
+                out[i] = toShort(tables[stage][i]);
+            }
+            weights.setMobilityWeight(stage, toShort(mobilityWeights[stage]));
+        }
+        weights.tablesChanged();
+        return weights;
+    }
+    
+    private static short toShort(float weight) {
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(weight)));
+    }
+    
+    // Reading Shards
+    
+    /**
+     * Reads and checks a shard's header
+     * 
+     * @return the number of positions in the shard
+     */
+    private static long readHeader(FileChannel channel, Path shard) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADERBYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header) >= 0);
+        if (header.position() < HEADERBYTES || header.getInt(0) != MAGIC)
+            throw new IOException(shard+" is not a training shard");
+        if (header.getInt(4) != VERSION)
+            throw new IOException("Unsupported training shard version "+header.getInt(4));
+        
+        long positions = header.getInt(8) & 0xffffffffL;
+        if (HEADERBYTES+positions*RECORDBYTES > channel.size())
+            throw new IOException(shard+" is cut short");
+        return positions;
+    }
+    
+    /**
+     * Reads the next positions of a shard into the block
+     */
+    private int readBlock(FileChannel channel, int count) throws IOException {
+        readBuffer.clear();
+        readBuffer.limit(count*RECORDBYTES);
+        while (readBuffer.hasRemaining()) {
+            if (channel.read(readBuffer) < 0) throw new IOException("A training shard is cut short");
+        }
+        readBuffer.flip();
+        
+        for (int i=0; i<count; i++) {
+            players[i] = readBuffer.getLong();
+            opponents[i] = readBuffer.getLong();
+            labels[i] = readBuffer.get();
+        }
+        return count;
+    }
+    
+    /**
+     * @return the shards in a directory whose names start with the prefix, in order
+     */
+    private static List<Path> listShards(Path directory, String prefix) throws IOException {
+        List<Path> shards = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().startsWith(prefix))
+                .sorted()
+                .forEach(shards::add);
+        }
+        return shards;
+    }
+    
+    // Writing Shards
+    
+    /**
+     * Writes labelled positions to numbered shards, starting a new shard every
+     * SHARDPOSITIONS positions. Games can be added from several threads, each game's
+     * positions are written together
+     */
+    private static class ShardWriter implements AutoCloseable
+    {
+        private final Path directory;
+        private final String prefix;
+        private FileChannel channel;
+        private int shardNumber = 0;
+        private int shardPositions = 0;
+        private long positions = 0;
+        
+        ShardWriter(Path directory, String prefix) {
+            this.directory = directory;
+            this.prefix = prefix;
+        }
+        
+        /**
+         * Adds the positions of one game, labelled with its final disc difference
+         * 
+         * @param players       the discs of the side to move in each position
+         * @param opponents     the discs of the other side
+         * @param sides         the side to move in each position
+         * @param count         the number of positions
+         * @param difference    the final number of black discs minus white discs
+         */
+        synchronized void addGame(long[] players, long[] opponents, int[] sides, int count,
+            int difference) throws IOException {
+            ByteBuffer records = ByteBuffer.allocate(count*RECORDBYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            for (int i=0; i<count; i++) {
+                records.putLong(players[i]);
+                records.putLong(opponents[i]);
+                records.put((byte) ((sides[i] == GameState.BLACK) ? difference : -difference));
+            }
+            records.flip();
+            
+            if (channel == null) startShard();
+            while (records.hasRemaining()) {
+                channel.write(records);
+            }
+            shardPositions += count;
+            positions += count;
+            if (shardPositions >= SHARDPOSITIONS) finishShard();
+        }
+        
+        private void startShard() throws IOException {
+            Path file = directory.resolve(String.format("%s-%05d.bin", prefix, shardNumber++));
+            channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            channel.write(ByteBuffer.allocate(HEADERBYTES));
+            shardPositions = 0;
+        }
+        
+        /**
+         * Writes the header, with the number of positions, once the shard is complete
+         */
+        private void finishShard() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADERBYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(shardPositions).putInt(0);
+            header.flip();
+            channel.write(header, 0);
+            channel.close();
+            channel = null;
+        }
+        
+        long getPositions() {
+            return positions;
+        }
+        
+        @Override
+        public synchronized void close() throws IOException {
+            if (channel != null) finishShard();
+        }
+    }
+    
+    /**
+     * Plays a game through and adds every position where the side to move has a move to
+     * the training or validation shards
+     * 
+     * @param moves     the moves from the start of the game, passes as Search.PASS
+     */
+    private static void addGame(int[] moves, int moveCount, long game, ShardWriter train,
+        ShardWriter valid) throws IOException {
+        GameState state = new GameState(PatternWeights.SIZE);
+        state.startGame();
+        long[] players = new long[moveCount];
+        long[] opponents = new long[moveCount];
+        int[] sides = new int[moveCount];
+        int count = 0;
+        
+        for (int ply=0; ply<moveCount; ply++) {
+            if (moves[ply] == Search.PASS) {
+                state.pass();
+                continue;
+            }
+            players[count] = state.getPlayerDiscs()[0];
+            opponents[count] = state.getOpponentDiscs()[0];
+            sides[count] = state.getSideToMove();
+            count++;
+            state.play(moves[ply]);
+        }
+        
+        int difference = state.count(GameState.BLACK)-state.count(GameState.WHITE);
+        ShardWriter writer = (game%VALIDATIONEVERY == VALIDATIONEVERY-1) ? valid : train;
+        writer.addGame(players, opponents, sides, count, difference);
+    }
+    
+    /**
+     * Plays games between searches of the given depth, from openings of random moves with
+     * one move in ten after that random too so the games cover more positions, and writes
+     * their positions to shards
+     */
+    private static void selfPlay(Path directory, int games, int depth, int randomPlies,
+        int threads) throws IOException {
+        long start = System.nanoTime();
+        AtomicLong played = new AtomicLong();
+        int reportEvery = Math.max(1, games/10);
+        
+        try (ShardWriter train = new ShardWriter(directory, "train");
+            ShardWriter valid = new ShardWriter(directory, "valid")) {
+            ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+            ThreadLocal<Search> searches = ThreadLocal.withInitial(
+                () -> new Search(PatternWeights.SIZE, new TranspositionTable(16)));
+            List<Future<?>> results = new ArrayList<>();
+            
+            for (int g=0; g<games; g++) {
+                long game = g;
+                results.add(pool.submit(() -> {
+                    Random random = new Random(game*0x9E3779B97F4A7C15L+start);
+                    Search search = searches.get();
+                    GameState state = new GameState(PatternWeights.SIZE);
+                    state.startGame();
+                    int[] moves = new int[2*PatternWeights.SIZE*PatternWeights.SIZE+2];
+                    int moveCount = 0;
+                    
+                    while (!state.isTerminal()) {
+                        int move;
+                        if (!state.hasLegalMove()) {
+                            move = Search.PASS;
+                            state.pass();
+                        } else if (moveCount < randomPlies || random.nextInt(10) == 0) {
+                            move = state.playRandomMove(random);
+                        } else {
+                            move = search.search(state, depth, 0).getMove();
+                            state.play(move);
+                        }
+                        moves[moveCount++] = move;
+                    }
+                    
+                    addGame(moves, moveCount, game, train, valid);
+                    long done = played.incrementAndGet();
+                    if (done % reportEvery == 0) {
+                        System.out.printf("%d games, %d positions, %.1f games/s%n", done,
+                            train.getPositions()+valid.getPositions(),
+                            done/((System.nanoTime()-start)/1e9));
+                    }
+                    return null;
+                }));
+            }
+            
+            try {
+                for (Future<?> result: results) {
+                    result.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IOException("A self-play game failed", e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+    
+    /**
+     * Writes the positions of every finished 8x8 game in a game archive to shards
+     */
+    private static void fromArchive(Path directory, Path archive) throws IOException {
+        long games = 0;
+        try (GameDatabase database = GameDatabase.open(archive);
+            ShardWriter train = new ShardWriter(directory, "train");
+            ShardWriter valid = new ShardWriter(directory, "valid")) {
+            for (long id=database.firstGame(); id >= 0; id=database.nextGame(id)) {
+                if (database.getSize(id) != PatternWeights.SIZE || !database.isFinished(id)) continue;
+                
+                int[] moves = database.getMoves(id);
+                addGame(moves, moves.length, games++, train, valid);
+            }
+            System.out.println(games+" games, "+train.getPositions()+" training and "+
+                valid.getPositions()+" validation positions");
+        }
+    }
+    
+    /**
+     * Trains weights on the shards in a directory for a number of epochs, reporting the
+     * throughput and validation error after each, and writes them
+     */
+    private static void train(Path directory, int epochs, Path output, double rate,
+        PatternWeights start) throws IOException {
+        List<Path> trainShards = listShards(directory, "train-");
+        List<Path> validShards = listShards(directory, "valid-");
+        if (trainShards.isEmpty()) throw new IOException("There are no training shards in "+directory);
+        
+        PatternTrainer trainer = new PatternTrainer(start, rate);
+        double[] error = trainer.validate(validShards);
+        System.out.printf("start: validation rmse %.3f discs, mae %.3f discs (%d positions)%n",
+            error[0], error[1], (long) error[2]);
+        
+        for (int epoch=1; epoch<=epochs; epoch++) {
+            long begin = System.nanoTime();
+            long positions = trainer.trainEpoch(trainShards);
+            double seconds = (System.nanoTime()-begin)/1e9;
+            
+            error = trainer.validate(validShards);
+            System.out.printf("epoch %d: %d positions in %.2f s, %.0f positions/s, "+
+                "validation rmse %.3f discs, mae %.3f discs%n", epoch, positions, seconds,
+                positions/Math.max(seconds, 1e-9), error[0], error[1]);
+        }
+        
+        trainer.toWeights().write(output);
+        System.out.println("Wrote "+output);
+    }
+    
+    /**
+     * @param args      see the usage above
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage:");
+            System.out.println("java PatternTrainer selfplay <shard directory> [games] [depth] "+
+                "[random plies] [threads]");
+            System.out.println("java PatternTrainer archive <shard directory> <archive directory>");
+            System.out.println("java PatternTrainer train <shard directory> [epochs] "+
+                "[weights file] [rate] [start weights]");
+            return;
+        }
+        
+        Path directory = Paths.get(args[1]);
+        switch (args[0]) {
+            case "selfplay":
+                Files.createDirectories(directory);
+                selfPlay(directory,
+                    (args.length > 2) ? Integer.parseInt(args[2]) : 10000,
+                    (args.length > 3) ? Integer.parseInt(args[3]) : 4,
+                    (args.length > 4) ? Integer.parseInt(args[4]) : 8,
+                    (args.length > 5) ? Integer.parseInt(args[5])
+                        : Runtime.getRuntime().availableProcessors());
+                break;
+            case "archive":
+                if (args.length < 3) throw new IllegalArgumentException("No archive directory given");
+                Files.createDirectories(directory);
+                fromArchive(directory, Paths.get(args[2]));
+                break;
+            case "train":
+                train(directory,
+                    (args.length > 2) ? Integer.parseInt(args[2]) : 10,
+                    (args.length > 3) ? Paths.get(args[3]) : PatternWeights.weightsFile(),
+                    (args.length > 4) ? Double.parseDouble(args[4]) : DEFAULTRATE,
+                    (args.length > 5) ? PatternWeights.read(Paths.get(args[5]))
+                        : PatternWeights.fromSquareWeights());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command "+args[0]);
+        }
+    }
+}
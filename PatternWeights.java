@@ -0,0 +1,431 @@
+// Other Imports
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The weight tables of the pattern evaluation for 8x8 boards (see PatternEvaluator).
+ * A pattern is a group of squares, such as an edge or a corner block, and every way the
+ * discs on those squares can be arranged has its own weight. Each square is 0 (empty),
+ * 1 (a disc of the side to move) or 2 (an opponent's disc), so reading the squares as a
+ * base 3 number gives the arrangement's index into the pattern's table
+ *
+ * The patterns are the edges with the two X squares next to them, the 3x3 and 2x5 corner
+ * blocks, the second, third and fourth rows and the diagonals 4 to 8 squares long. Every
+ * rotation and reflection of a pattern on the board (an instance) shares its table. The
+ * game is split into STAGES stages by the number of discs on the board and each stage
+ * has its own tables, and its own weight for the difference in mobility
+ *
+ * Weights are in the same units as Evaluator's scores, DISCSCALE to a disc. They are kept
+ * in a binary file: after the magic number, the format version, the number of stages and
+ * the number of patterns (4 bytes each) come the length of each pattern (a byte each),
+ * and then the mobility weights and the tables stage by stage as 2 byte little-endian
+ * numbers, gzipped. The file is weights-8.bin in the working directory unless
+ * -Dreversi.weights=<file> is given, and is read once the first time it is needed
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class PatternWeights
+{
+    public static final int MAGIC = 0x52565057;
+    public static final int VERSION = 1;
+    
+    // The board size the patterns are laid out on
+    public static final int SIZE = 8;
+    
+    // Scores are in 1/DISCSCALE of a disc
+    public static final int DISCSCALE = 16;
+    
+    // The game is split into stages of STAGEDISCS discs
+    public static final int STAGES = 12;
+    private static final int STAGEDISCS = 5;
+    
+    // The squares (as row, column) of each pattern in one of its orientations, the first
+    // square is the lowest digit of the index
+    private static final int[][][] SHAPES = {
+        // The edge and its two X squares
+        {{0,0}, {0,1}, {0,2}, {0,3}, {0,4}, {0,5}, {0,6}, {0,7}, {1,1}, {1,6}},
+        // The 3x3 corner block
+        {{0,0}, {0,1}, {0,2}, {1,0}, {1,1}, {1,2}, {2,0}, {2,1}, {2,2}},
+        // The 2x5 corner block
+        {{0,0}, {0,1}, {0,2}, {0,3}, {0,4}, {1,0}, {1,1}, {1,2}, {1,3}, {1,4}},
+        // The second, third and fourth rows
+        {{1,0}, {1,1}, {1,2}, {1,3}, {1,4}, {1,5}, {1,6}, {1,7}},
+        {{2,0}, {2,1}, {2,2}, {2,3}, {2,4}, {2,5}, {2,6}, {2,7}},
+        {{3,0}, {3,1}, {3,2}, {3,3}, {3,4}, {3,5}, {3,6}, {3,7}},
+        // The diagonals from 8 squares down to 4
+        {{0,0}, {1,1}, {2,2}, {3,3}, {4,4}, {5,5}, {6,6}, {7,7}},
+        {{0,1}, {1,2}, {2,3}, {3,4}, {4,5}, {5,6}, {6,7}},
+        {{0,2}, {1,3}, {2,4}, {3,5}, {4,6}, {5,7}},
+        {{0,3}, {1,4}, {2,5}, {3,6}, {4,7}},
+        {{0,4}, {1,5}, {2,6}, {3,7}}
+    };
+    
+    public static final int PATTERNS = SHAPES.length;
+    
+    // For every instance, the pattern it is an instance of and its squares. For every
+    // pattern, the power of 3 of each of its squares and where its table starts
+    private static final int[] INSTANCEPATTERNS;
+    private static final int[][] INSTANCESQUARES;
+    private static final int[] TABLESIZES = new int[PATTERNS];
+    private static final int[] TABLESTARTS = new int[PATTERNS];
+    private static final int TABLELENGTH;
+    
+    // For every entry of every table, the entry with the players swapped (1s and 2s)
+    private static final int[] SWAPS;
+    
+    static {
+        List<int[]> instances = new ArrayList<>();
+        List<Integer> patterns = new ArrayList<>();
+        List<String> seen = new ArrayList<>();
+        int start = 0;
+        
+        for (int p=0; p<PATTERNS; p++) {
+            // Each of the 8 symmetries, keeping only instances with squares not seen before
+            for (int symmetry=0; symmetry<8; symmetry++) {
+                int[] squares = new int[SHAPES[p].length];
+                for (int i=0; i<squares.length; i++) {
+                    squares[i] = transform(SHAPES[p][i][0], SHAPES[p][i][1], symmetry);
+                }
+                
+                int[] sorted = squares.clone();
+                Arrays.sort(sorted);
+                String key = p+":"+Arrays.toString(sorted);
+                if (seen.contains(key)) continue;
+                
+                seen.add(key);
+                instances.add(squares);
+                patterns.add(p);
+            }
+            
+            TABLESIZES[p] = power3(SHAPES[p].length);
+            TABLESTARTS[p] = start;
+            start += TABLESIZES[p];
+        }
+        
+        TABLELENGTH = start;
+        SWAPS = new int[TABLELENGTH];
+        for (int p=0; p<PATTERNS; p++) {
+            for (int index=0; index<TABLESIZES[p]; index++) {
+                int swapped = 0;
+                int power = 1;
+                for (int digits=index; power<TABLESIZES[p]; digits /= 3, power *= 3) {
+                    swapped += ((3-digits%3)%3)*power;
+                }
+                SWAPS[TABLESTARTS[p]+index] = TABLESTARTS[p]+swapped;
+            }
+        }
+        INSTANCESQUARES = instances.toArray(new int[0][]);
+        INSTANCEPATTERNS = new int[patterns.size()];
+        for (int i=0; i<INSTANCEPATTERNS.length; i++) {
+            INSTANCEPATTERNS[i] = patterns.get(i);
+        }
+    }
+    
+    // The weights read from the weights file, null until first asked for
+    private static PatternWeights loaded;
+    private static boolean lookedFor = false;
+    
+    // The tables of every pattern one after another for each stage, and the mobility
+    // weight of each stage
+    private final short[][] tables;
+    private final short[] mobilityWeights;
+    
+    // The same tables with every index's players swapped, so an index from black's point
+    // of view gives the weight from white's
+    private final short[][] swappedTables;
+    
+    /**
+     * Creates weights that are all 0, to be trained or filled in
+     */
+    public PatternWeights() {
+        tables = new short[STAGES][TABLELENGTH];
+        swappedTables = new short[STAGES][TABLELENGTH];
+        mobilityWeights = new short[STAGES];
+    }
+    
+    /**
+     * @return the square row, column is moved to by one of the 8 rotations and reflections
+     */
+    private static int transform(int row, int column, int symmetry) {
+        int last = SIZE-1;
+        if ((symmetry & 1) != 0) column = last-column;
+        if ((symmetry & 2) != 0) row = last-row;
+        if ((symmetry & 4) != 0) {
+            int swap = row;
+            row = column;
+            column = swap;
+        }
+        return row*SIZE+column;
+    }
+    
+    private static int power3(int exponent) {
+        int result = 1;
+        for (int i=0; i<exponent; i++) {
+            result *= 3;
+        }
+        return result;
+    }
+    
+    /**
+     * @param discs     the number of discs on the board
+     * 
+     * @return the stage of the game
+     */
+    public static int stage(int discs) {
+        return Math.max(0, Math.min(STAGES-1, (discs-4)/STAGEDISCS));
+    }
+    
+    /**
+     * @return the number of instances of all the patterns on the board
+     */
+    public static int getInstanceCount() {
+        return INSTANCESQUARES.length;
+    }
+    
+    /**
+     * @return the pattern an instance is of
+     */
+    public static int getInstancePattern(int instance) {
+        return INSTANCEPATTERNS[instance];
+    }
+    
+    /**
+     * @return the squares of an instance, the first is the lowest digit of its index
+     */
+    public static int[] getInstanceSquares(int instance) {
+        return INSTANCESQUARES[instance].clone();
+    }
+    
+    /**
+     * @return where a pattern's table starts in a stage's tables
+     */
+    public static int getTableStart(int pattern) {
+        return TABLESTARTS[pattern];
+    }
+    
+    /**
+     * @return the length of a pattern's table, 3 to the power of its number of squares
+     */
+    public static int getTableSize(int pattern) {
+        return TABLESIZES[pattern];
+    }
+    
+    /**
+     * @return the length of all the tables of one stage
+     */
+    public static int getTableLength() {
+        return TABLELENGTH;
+    }
+    
+    /**
+     * @return the tables of a stage, every pattern one after another. The array is the
+     * one used for evaluating so it must not be changed while a search is running, and
+     * tablesChanged has to be called after changing it
+     */
+    public short[] getTables(int stage) {
+        return tables[stage];
+    }
+    
+    /**
+     * @return the tables of a stage to look up indices from black's point of view when
+     * white is to move
+     */
+    public short[] getSwappedTables(int stage) {
+        return swappedTables[stage];
+    }
+    
+    /**
+     * Brings the swapped tables up to date after the tables have been changed
+     */
+    public void tablesChanged() {
+        for (int stage=0; stage<STAGES; stage++) {
+            for (int i=0; i<TABLELENGTH; i++) {
+                swappedTables[stage][i] = tables[stage][SWAPS[i]];
+            }
+        }
+    }
+    
+    public int getMobilityWeight(int stage) {
+        return mobilityWeights[stage];
+    }
+    
+    public void setMobilityWeight(int stage, int weight) {
+        mobilityWeights[stage] = (short) weight;
+    }
+    
+    // Loading and Saving
+    
+    /**
+     * The weights from the weights file, read the first time they are asked for
+     * 
+     * @return the weights, or null if there is no readable weights file
+     */
+    public static synchronized PatternWeights getLoaded() {
+        if (lookedFor) return loaded;
+        
+        lookedFor = true;
+        Path file = weightsFile();
+        if (!Files.isReadable(file)) return null;
+        
+        try {
+            loaded = read(file);
+        } catch (IOException e) {
+            System.err.println("Could not read the pattern weights "+file+": "+e.getMessage());
+        }
+        return loaded;
+    }
+    
+    /**
+     * @return the path of the weights file
+     */
+    public static Path weightsFile() {
+        return Paths.get(System.getProperty("reversi.weights", "weights-"+SIZE+".bin"));
+    }
+    
+    /**
+     * Reads weights written by write
+     * 
+     * @throws IOException if the file can't be read, isn't a weights file or has different
+     * patterns
+     */
+    public static PatternWeights read(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            DataInputStream data = new DataInputStream(in);
+            if (data.readInt() != MAGIC) throw new IOException("Not a pattern weights file");
+            
+            int version = data.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported pattern weights version "+version);
+            if (data.readInt() != STAGES || data.readInt() != PATTERNS)
+                throw new IOException("The weights are for different patterns");
+            for (int p=0; p<PATTERNS; p++) {
+                if (data.readUnsignedByte() != SHAPES[p].length)
+                    throw new IOException("The weights are for different patterns");
+            }
+            
+            PatternWeights weights = new PatternWeights();
+            DataInputStream body = new DataInputStream(new GZIPInputStream(data));
+            byte[] bytes = new byte[2*(STAGES+STAGES*TABLELENGTH)];
+            body.readFully(bytes);
+            
+            ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.asShortBuffer().get(weights.mobilityWeights);
+            buffer.position(2*STAGES);
+            for (int stage=0; stage<STAGES; stage++) {
+                buffer.asShortBuffer().get(weights.tables[stage]);
+                buffer.position(buffer.position()+2*TABLELENGTH);
+            }
+            weights.tablesChanged();
+            return weights;
+        } catch (EOFException e) {
+            throw new IOException("The pattern weights file is cut short");
+        }
+    }
+    
+    /**
+     * Writes the weights to a file, replacing it
+     */
+    public void write(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(2*(STAGES+STAGES*TABLELENGTH))
+            .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asShortBuffer().put(mobilityWeights);
+        buffer.position(2*STAGES);
+        for (int stage=0; stage<STAGES; stage++) {
+            buffer.asShortBuffer().put(tables[stage]);
+            buffer.position(buffer.position()+2*TABLELENGTH);
+        }
+        
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeInt(STAGES);
+            data.writeInt(PATTERNS);
+            for (int p=0; p<PATTERNS; p++) {
+                data.writeByte(SHAPES[p].length);
+            }
+            data.flush();
+            
+            GZIPOutputStream body = new GZIPOutputStream(out);
+            body.write(buffer.array());
+            body.finish();
+        }
+    }
+    
+    /**
+     * Weights that score positions the same way as Evaluator's square weights, with each
+     * square's weight shared between the instances it is in. These are where training
+     * starts from, and can be used before any training has been done
+     */
+    public static PatternWeights fromSquareWeights() {
+        Evaluator evaluator = new Evaluator(SIZE);
+        int[] covering = new int[SIZE*SIZE];
+        for (int[] squares: INSTANCESQUARES) {
+            for (int square: squares) {
+                covering[square]++;
+            }
+        }
+        
+        PatternWeights weights = new PatternWeights();
+        for (int instance=0; instance<INSTANCESQUARES.length; instance++) {
+            // Instances of the same pattern are rotations of each other so any one of them
+            // gives the pattern's table
+            int p = INSTANCEPATTERNS[instance];
+            if (instance > 0 && INSTANCEPATTERNS[instance-1] == p) continue;
+            
+            int[] squares = INSTANCESQUARES[instance];
+            for (int index=0; index<TABLESIZES[p]; index++) {
+                double score = 0;
+                int digits = index;
+                for (int square: squares) {
+                    int disc = digits%3;
+                    digits /= 3;
+                    double share = evaluator.getSquareWeight(square)/(double) covering[square];
+                    if (disc == 1) score += share;
+                    if (disc == 2) score -= share;
+                }
+                
+                short rounded = (short) Math.round(score);
+                for (int stage=0; stage<STAGES; stage++) {
+                    weights.tables[stage][TABLESTARTS[p]+index] = rounded;
+                }
+            }
+        }
+        
+        for (int stage=0; stage<STAGES; stage++) {
+            weights.mobilityWeights[stage] = (short) Evaluator.MOBILITYWEIGHT;
+        }
+        weights.tablesChanged();
+        return weights;
+    }
+    
+    /**
+     * Writes the starting weights (see fromSquareWeights) to the weights file, or the file
+     * given, so the pattern evaluation can be used before the weights have been trained
+     * 
+     * @param args      optionally the file to write
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = (args.length > 0) ? Paths.get(args[0]) : weightsFile();
+        fromSquareWeights().write(file);
+        System.out.println("Wrote "+PATTERNS+" patterns ("+INSTANCESQUARES.length+
+            " instances) for "+STAGES+" stages to "+file+", "+Files.size(file)+" bytes");
+    }
+}
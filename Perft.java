@@ -0,0 +1,377 @@
+// Other Imports
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the positions reached after every sequence of N moves (perft), which checks the
+ * move generation finds exactly the right moves. Any change to the rules can be checked by
+ * comparing its counts with the known counts for the 8x8 board or with an earlier version
+ *
+ * As usual for Othello a pass is counted as a move, so a side with no legal move passes
+ * and that uses up a ply. A game that ends before the depth is reached (both sides have
+ * passed) counts as one position
+ *
+ * The counts use GameState, so they go through the same rules code as Board. The tree is
+ * walked on a single GameState, playing each move and taking it back with undo, so on
+ * boards wider than 8 the legal moves are kept up to date incrementally by its
+ * MoveTracker as Board does. There are three modes:
+ * - reference, a plain single threaded count
+ * - hash, the same count but storing the counts of positions already reached so the same
+ * position reached by a different order of moves isn't counted again
+ * - parallel, the moves near the root are split across a fork-join pool with one thread
+ * per processor
+ *
+ * Usage: java Perft [depth] [reference|hash|parallel|all] [-size n] [save file]
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class Perft
+{
+    // The known counts for the 8x8 starting position, from depth 1
+    private static final long[] KNOWNCOUNTS = {
+        4L, 12L, 56L, 244L, 1396L, 8200L, 55092L, 390216L, 3005288L, 24571284L, 212258800L
+    };
+    
+    // The board sizes checkOccupiedSquares plays its random games on
+    private static final int[] CHECKSIZES = {4, 6, 8, 10, 14, 20, 32};
+    
+    // The hash table has 2^22 entries (64MB)
+    private static final int TABLESIZE = 22;
+    
+    // The parallel count splits moves into separate tasks while at least this much depth
+    // is left and counts anything shallower in one task
+    private static final int SPLITDEPTH = 5;
+    
+    private final int size;
+    
+    // The position the tree is walked on, and the move and capture bitboards of each ply
+    private final GameState state;
+    private long[][] moveMasks = new long[0][];
+    private long[][] flipMasks = new long[0][];
+    
+    // The hash table, each entry a key (mixed with the depth and pass) and a count
+    private long[] tableKeys;
+    private long[] tableCounts;
+    private long[] depthKeys;
+    
+    /**
+     * @param size      the width (and height) of the boards to count on
+     */
+    public Perft(int size) {
+        this.size = size;
+        state = new GameState(size);
+        if (size > 8) state.enableIncrementalMoves(false);
+    }
+    
+    /**
+     * Counts the positions after depth plies without any hashing
+     * 
+     * @param root      the position to count from, it isn't changed
+     * @param depth     the number of plies
+     * 
+     * @return the number of positions
+     */
+    public long reference(GameState root, int depth) {
+        ensurePly(depth+1);
+        state.copyFrom(root);
+        return count(0, depth, root.getPassedTurns() > 0, false);
+    }
+    
+    /**
+     * Counts the positions after depth plies, storing the count of each position reached
+     * with at least 2 plies left in a hash table
+     */
+    public long hashed(GameState root, int depth) {
+        ensurePly(depth+1);
+        if (tableKeys == null) {
+            tableKeys = new long[1 << TABLESIZE];
+            tableCounts = new long[1 << TABLESIZE];
+            depthKeys = new long[64];
+            long state = 0x5065726674L;
+            for (int i=0; i<depthKeys.length; i++) {
+                state += 0x9e3779b97f4a7c15L;
+                depthKeys[i] = mix(state);
+            }
+        }
+        
+        state.copyFrom(root);
+        return count(0, depth, root.getPassedTurns() > 0, true);
+    }
+    
+    /**
+     * Counts the positions after depth plies with the moves down to SPLITDEPTH counted as
+     * separate fork-join tasks
+     * 
+     * @param pool      the pool to run the tasks on
+     */
+    public static long parallel(GameState root, int depth, ForkJoinPool pool) {
+        ThreadLocal<Perft> counters = ThreadLocal.withInitial(() -> new Perft(root.getSize()));
+        return pool.invoke(new PerftTask(new GameState(root), depth,
+            root.getPassedTurns() > 0, counters));
+    }
+    
+    /**
+     * Counts the positions below the current position, which is at the ply. Every move
+     * is played on the position and taken back before the next
+     * 
+     * @param passed    whether the last ply was a pass
+     * @param useTable  whether to look positions up in the hash table
+     */
+    private long count(int ply, int depth, boolean passed, boolean useTable) {
+        if (depth == 0) return 1;
+        
+        long key = 0;
+        int index = 0;
+        if (useTable && depth >= 2) {
+            key = state.getHashKey() ^ depthKeys[depth & 63] ^ ((passed) ? depthKeys[0] : 0);
+            index = (int) key & ((1 << TABLESIZE)-1);
+            if (tableKeys[index] == key && tableCounts[index] != 0) return tableCounts[index];
+        }
+        
+        long[] moves = moveMasks[ply];
+        long[] flips = flipMasks[ply];
+        state.legalMoves(moves);
+        long nodes = 0;
+        boolean moved = false;
+        
+        for (int i=0; i<moves.length; i++) {
+            long word = moves[i];
+            while (word != 0) {
+                int square = i*64+Long.numberOfTrailingZeros(word);
+                word &= word-1;
+                moved = true;
+                
+                // One ply left, only the number of moves matters
+                if (depth == 1) {
+                    nodes++;
+                    continue;
+                }
+                
+                int passedTurns = state.getPassedTurns();
+                state.play(square, flips);
+                nodes += count(ply+1, depth-1, false, useTable);
+                state.undo(square, flips, passedTurns);
+            }
+        }
+        
+        if (!moved) {
+            // The game is over, otherwise the pass counts as a ply
+            if (passed) return 1;
+            
+            int passedTurns = state.getPassedTurns();
+            state.pass();
+            nodes = count(ply+1, depth-1, true, useTable);
+            state.undoPass(passedTurns);
+        }
+        
+        if (useTable && depth >= 2) {
+            tableKeys[index] = key;
+            tableCounts[index] = nodes;
+        }
+        return nodes;
+    }
+    
+    /**
+     * Makes sure there is a move and capture bitboard for each ply up to plies
+     */
+    private void ensurePly(int plies) {
+        if (moveMasks.length > plies) return;
+        
+        int start = moveMasks.length;
+        moveMasks = Arrays.copyOf(moveMasks, plies+1);
+        flipMasks = Arrays.copyOf(flipMasks, plies+1);
+        for (int i=start; i<=plies; i++) {
+            moveMasks[i] = new long[Rules.words(size)];
+            flipMasks[i] = new long[Rules.words(size)];
+        }
+    }
+    
+    /**
+     * The finishing step of the SplitMix64 generator, which spreads every input bit
+     * over the whole output
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+    
+    /**
+     * Counts the positions below one position, splitting its moves into separate tasks
+     * while at least SPLITDEPTH plies are left
+     */
+    private static class PerftTask extends RecursiveTask<Long>
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private final GameState state;
+        private final int depth;
+        private final boolean passed;
+        private final ThreadLocal<Perft> counters;
+        
+        PerftTask(GameState state, int depth, boolean passed, ThreadLocal<Perft> counters) {
+            this.state = state;
+            this.depth = depth;
+            this.passed = passed;
+            this.counters = counters;
+        }
+        
+        @Override
+        protected Long compute() {
+            if (depth < SPLITDEPTH) {
+                Perft counter = counters.get();
+                counter.ensurePly(depth+1);
+                counter.state.copyFrom(state);
+                return counter.count(0, depth, passed, false);
+            }
+            
+            long[] moves = state.legalMoves();
+            List<PerftTask> tasks = new ArrayList<>();
+            for (int square=0; square<state.getSize()*state.getSize(); square++) {
+                if (!Rules.has(moves, square)) continue;
+                
+                GameState child = new GameState(state);
+                child.play(square);
+                tasks.add(new PerftTask(child, depth-1, false, counters));
+            }
+            
+            if (tasks.isEmpty()) {
+                if (passed) return 1L;
+                
+                GameState child = new GameState(state);
+                child.pass();
+                return new PerftTask(child, depth-1, true, counters).compute();
+            }
+            
+            long nodes = 0;
+            for (PerftTask task: invokeAll(tasks)) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+    
+    /**
+     * Plays random games on every size in CHECKSIZES and checks that no square with a
+     * disc on it is ever a legal move, neither through isLegal nor through play
+     * 
+     * @return the number of occupied squares that were let through, 0 if none were
+     */
+    public static int checkOccupiedSquares(Random random, int games) {
+        int wrong = 0;
+        for (int size: CHECKSIZES) {
+            for (int game=0; game<games; game++) {
+                GameState state = new GameState(size);
+                state.startGame();
+                while (!state.isTerminal()) {
+                    wrong += countOccupiedLegal(state);
+                    state.playRandomMove(random);
+                }
+            }
+        }
+        return wrong;
+    }
+    
+    private static int countOccupiedLegal(GameState state) {
+        int wrong = 0;
+        for (int square=0; square<state.getSize()*state.getSize(); square++) {
+            if (state.get(square) == GameState.EMPTY) continue;
+            
+            if (state.isLegal(square)) wrong++;
+            try {
+                new GameState(state).play(square);
+                wrong++;
+            } catch (IllegalArgumentException e) {
+                // Rejected as it should be
+            }
+        }
+        return wrong;
+    }
+    
+    /**
+     * Counts from depth 1 up to the depth in the chosen modes, printing each count with its
+     * time and positions per second, and on the 8x8 starting position checks each count
+     * against the known one. First checks that occupied squares are never legal moves on
+     * any board size
+     * 
+     * @param args      the depth (default 9), the mode (default all), -size n for the
+     * starting position of another board size and a save file to count from instead
+     */
+    public static void main(String[] args) throws IOException {
+        int depth = 9;
+        String mode = "all";
+        int size = 8;
+        String saveFile = null;
+        
+        for (int i=0; i<args.length; i++) {
+            if (args[i].equals("-size")) {
+                size = Integer.parseInt(args[++i]);
+            } else if (args[i].matches("\\d+")) {
+                depth = Integer.parseInt(args[i]);
+            } else if (args[i].matches("reference|hash|parallel|all")) {
+                mode = args[i];
+            } else {
+                saveFile = args[i];
+            }
+        }
+        
+        GameState root;
+        if (saveFile != null) {
+            try {
+                root = SaveFile.read(new File(saveFile)).getGameState();
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                return;
+            }
+        } else {
+            root = new GameState(size);
+            root.startGame();
+        }
+        boolean known = saveFile == null && root.getSize() == 8;
+        
+        String[] modes = (mode.equals("all"))
+            ? new String[] {"reference", "hash", "parallel"} : new String[] {mode};
+        Perft perft = new Perft(root.getSize());
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        boolean correct = true;
+        
+        int occupied = checkOccupiedSquares(new Random(20210326L), 4);
+        System.out.println("occupied squares: "+((occupied == 0) ? "ok"
+            : "WRONG, "+occupied+" were legal moves"));
+        correct &= occupied == 0;
+        
+        for (String m: modes) {
+            System.out.println(m+":");
+            for (int d=1; d<=depth; d++) {
+                long start = System.nanoTime();
+                long nodes;
+                if (m.equals("reference")) {
+                    nodes = perft.reference(root, d);
+                } else if (m.equals("hash")) {
+                    nodes = perft.hashed(root, d);
+                } else {
+                    nodes = parallel(root, d, pool);
+                }
+                long elapsed = System.nanoTime()-start;
+                
+                String check = "";
+                if (known && d <= KNOWNCOUNTS.length) {
+                    boolean matches = nodes == KNOWNCOUNTS[d-1];
+                    check = (matches) ? "  ok" : "  WRONG, expected "+KNOWNCOUNTS[d-1];
+                    correct &= matches;
+                }
+                System.out.printf("depth %2d: %14d positions, %8d ms, %12d positions/s%s%n", d,
+                    nodes, elapsed/1000000, (long) (nodes*1e9/Math.max(1, elapsed)), check);
+            }
+        }
+        
+        if (!correct) System.exit(1);
+    }
+}
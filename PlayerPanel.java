@@ -2,6 +2,7 @@
 import javax.swing.JPanel;
 import javax.swing.JTextField;
 import javax.swing.JLabel;
+import javax.swing.JCheckBox;
 import javax.swing.BoxLayout;
 import javax.swing.Box;
 import javax.swing.border.EmptyBorder;
@@ -24,6 +25,7 @@ public class PlayerPanel extends JPanel
     
     private BoxLayout layout;
     private JTextField playerNameField;
+    private JCheckBox computerToggle;
     private JLabel
         playerTitle,
         playerName,
@@ -47,6 +49,7 @@ public class PlayerPanel extends JPanel
         playerTitle = new JLabel("The "+playerColor+" Player");
         playerTitle.setFont(playerTitle.getFont().deriveFont(18f));  
         playerNameField = new JTextField("Enter Player Name");
+        computerToggle = new JCheckBox("Computer Player");
         playerName = new JLabel();
         playerName.setFont(playerName.getFont().deriveFont(16f));
         playerScore = new JLabel("Score: 0");
@@ -56,6 +59,8 @@ public class PlayerPanel extends JPanel
         this.add(Box.createVerticalStrut(10));
         this.add(playerNameField);
         this.add(Box.createVerticalStrut(10));
+        this.add(computerToggle);
+        this.add(Box.createVerticalStrut(10));
         this.add(playerName);
         this.add(Box.createVerticalStrut(10));
         this.add(playerScore);
@@ -136,6 +141,14 @@ public class PlayerPanel extends JPanel
         return playerNameField.getText();
     }
     
+    /**
+     * @return whether this player's moves are played by the computer, this can be changed
+     * at any point so the computer can take over a seat mid game
+     */
+    public boolean isComputer() {
+        return computerToggle.isSelected();
+    }
+    
     /**
      * @return the appropriate player object's name
      */
@@ -12,6 +12,9 @@ import javax.swing.border.EmptyBorder;
 import javax.swing.BoxLayout;
 import javax.swing.Box;
 import javax.swing.JFileChooser;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 // AWT imports
@@ -20,17 +23,15 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 
 // Other Imports
-import java.util.Scanner;
-import java.util.ArrayList;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.FileNotFoundException;
+import java.util.concurrent.ExecutionException;
 
 /**
- * Responsible for managing the Board and both playerPanel objects as well as which player's
- * turn it is currently, whether legal moves should be shown and the menu item behaviour
- * which is setting the board size, new sessions, saving and loading games
+ * Responsible for managing the Board and both playerPanel objects, showing which player's
+ * turn it is currently (kept by the board's GameState), whether legal moves should be shown
+ * and the menu item behaviour which is setting the board size, new sessions, saving and
+ * loading games
  *
  * @author Milovan Gveric
  * @version 26/03/2021
@@ -38,15 +39,40 @@ import java.io.FileNotFoundException;
 public class Reversi
 {
     
-    // true is player 1 (Black), false is for player 2 (White). Black starts first
-    private boolean turn = true;
-    
     // Whether legal moves should be shown to both players, this value is communicated
     // to the individual discs to hide or show their colored border
     private boolean showLegalMoves = true;
     
-    // 0 (able to playmoves), 1 (one player had to pass), 2 (both players passed, end game)
-    private int passedTurns = 0;
+    // The most time the computer player takes for each move in milliseconds, it answers
+    // sooner when its best move is clear
+    private final long COMPUTERTIME = 1000;
+    
+    // The memory for the computer player's transposition table (or the Monte Carlo search's
+    // tree) in megabytes, it can be changed when starting the game with
+    // -Dreversi.hashMB=<megabytes>
+    private final int COMPUTERHASHMB = Integer.getInteger("reversi.hashMB",
+        ParallelSearch.DEFAULTTABLEMB);
+    
+    // Boards at least this wide are played with a MonteCarloSearch instead, since the
+    // Evaluator is only a rough guess on them. It can be changed when starting the game
+    // with -Dreversi.monteCarloSize=<size>
+    private final int MONTECARLOSIZE = Integer.getInteger("reversi.monteCarloSize", 16);
+    
+    // The computer player, which searches on its own threads so the window keeps
+    // responding while it thinks and ponders while a person is thinking
+    private int computerThreads = Runtime.getRuntime().availableProcessors();
+    private final ComputerPlayer computer = new ComputerPlayer(COMPUTERTIME, COMPUTERHASHMB,
+        MONTECARLOSIZE, computerThreads);
+    
+    // Solves the position on the board when asked from the menu, positions with more
+    // empty squares than this would take too long
+    private EndgameSolver endgameSolver;
+    private boolean solving = false;
+    private final int MAXSOLVEEMPTIES = 24;
+    
+    // Counts the turns where a move was awaited, so a computer move scheduled for an
+    // earlier turn (or an earlier game) is never played
+    private int awaitedTurns = 0;
     
     // Main Layout Components
     private JFrame mainFrame;
@@ -58,18 +84,28 @@ public class Reversi
     private PlayerPanel player1, player2;
     private BoxLayout rightSideLayout;
     private Board gameBoard; 
+    private JScrollPane boardScrollPane;
+    private Minimap minimap;
     
     private JButton playGameButton, legalMovesToggle;
     private JLabel statusBar;
     
     // Menus and Items
     private JMenuBar menuBar;
-    private JMenu gameMenu;
+    private JMenu gameMenu, viewMenu;
     private JMenuItem 
         newSessionItem, 
         setBoardSizeItem, 
+        setThreadsItem, 
         saveGameItem, 
-        loadGameItem;
+        loadGameItem,
+        undoMoveItem,
+        redoMoveItem,
+        solvePositionItem,
+        zoomInItem,
+        zoomOutItem,
+        fitBoardItem,
+        analysisItem;
     
     /**
      * The frame for the game is created first followed by methods which create the menus and
@@ -85,7 +121,6 @@ public class Reversi
         
         createMenuComponents();
         createComponents();
-        gameBoard.setBoardSize();
         createActionListeners();
         
         mainFrame.pack();
@@ -93,26 +128,50 @@ public class Reversi
     }
     
     /**
-     * The menubar only has one Game menu and then four menu items which:
+     * The menubar has a Game menu with eight menu items which:
      * 1) start a new session, overwriting the current game session
      * 2) set a new board size
-     * 3) save the current game
-     * 4) load another game
+     * 3) set the number of threads the computer player searches with
+     * 4) save the current game
+     * 5) load another game
+     * 6) undo the last move
+     * 7) redo a move that was undone
+     * 8) solve the position on the board exactly
+     * 
+     * and a View menu to zoom the board in and out or fit it back to the window
      */
     private void createMenuComponents() {
         menuBar = new JMenuBar();
         gameMenu = new JMenu("Game");
         newSessionItem = new JMenuItem("new session");
         setBoardSizeItem = new JMenuItem("set board size");
+        setThreadsItem = new JMenuItem("set computer threads");
         saveGameItem = new JMenuItem("save game");
         loadGameItem = new JMenuItem("load game");
+        undoMoveItem = new JMenuItem("undo move");
+        redoMoveItem = new JMenuItem("redo move");
+        solvePositionItem = new JMenuItem("solve position");
+        viewMenu = new JMenu("View");
+        zoomInItem = new JMenuItem("zoom in");
+        zoomOutItem = new JMenuItem("zoom out");
+        fitBoardItem = new JMenuItem("fit board to window");
+        analysisItem = new JMenuItem("show move analysis");
         
         mainFrame.setJMenuBar(menuBar);
         menuBar.add(gameMenu);
         gameMenu.add(newSessionItem);
         gameMenu.add(setBoardSizeItem);
+        gameMenu.add(setThreadsItem);
         gameMenu.add(saveGameItem);
         gameMenu.add(loadGameItem);
+        gameMenu.add(undoMoveItem);
+        gameMenu.add(redoMoveItem);
+        gameMenu.add(solvePositionItem);
+        menuBar.add(viewMenu);
+        viewMenu.add(zoomInItem);
+        viewMenu.add(zoomOutItem);
+        viewMenu.add(fitBoardItem);
+        viewMenu.add(analysisItem);
     }
     
     /**
@@ -121,6 +180,10 @@ public class Reversi
      */
     private void createComponents() {
         gameBoard = new Board(this);
+        boardScrollPane = new JScrollPane(gameBoard);
+        boardScrollPane.setBorder(null);
+        minimap = new Minimap(gameBoard, boardScrollPane.getViewport());
+        gameBoard.setMinimap(minimap);
 
         rightSidePanel = new JPanel();
         rightSidePanel.setBorder(new EmptyBorder(10,10,10,10));
@@ -136,6 +199,8 @@ public class Reversi
         rightSidePanel.add(player1);
         rightSidePanel.add(Box.createVerticalStrut(10));
         rightSidePanel.add(player2);
+        rightSidePanel.add(Box.createVerticalStrut(10));
+        rightSidePanel.add(minimap);
         rightSidePanel.add(Box.createVerticalGlue());
         rightSidePanel.add(legalMovesToggle);
         rightSidePanel.add(Box.createVerticalStrut(10));
@@ -144,7 +209,7 @@ public class Reversi
         statusBar = new JLabel("Welcome to Reversi!");
         statusBar.setBorder(new EmptyBorder(10,10,10,10));
         
-        mainContainer.add(gameBoard, BorderLayout.CENTER);
+        mainContainer.add(boardScrollPane, BorderLayout.CENTER);
         mainContainer.add(rightSidePanel, BorderLayout.EAST);
         mainContainer.add(statusBar, BorderLayout.SOUTH);
     }
@@ -157,8 +222,16 @@ public class Reversi
         legalMovesToggle.addActionListener(e -> setShowLegalMoves());
         newSessionItem.addActionListener(e -> startNewSession());
         setBoardSizeItem.addActionListener(e -> setBoardSize());
+        setThreadsItem.addActionListener(e -> setComputerThreads());
         saveGameItem.addActionListener(e -> saveGame());
         loadGameItem.addActionListener(e -> loadGame());
+        undoMoveItem.addActionListener(e -> undoMove());
+        redoMoveItem.addActionListener(e -> redoMove());
+        solvePositionItem.addActionListener(e -> solvePosition());
+        zoomInItem.addActionListener(e -> gameBoard.zoom(1, null));
+        zoomOutItem.addActionListener(e -> gameBoard.zoom(-1, null));
+        fitBoardItem.addActionListener(e -> gameBoard.fitBoard());
+        analysisItem.addActionListener(e -> toggleAnalysis());
     }
     
     // Session Related Methods
@@ -221,6 +294,42 @@ public class Reversi
         setStatusBar("Changed Board Size", Color.BLACK);
     }
     
+    /**
+     * A prompt is created asking the user how many threads the computer player should
+     * search with, by default one per processor. The search is recreated with the new
+     * number of threads the next time the computer moves
+     */
+    private void setComputerThreads() {
+        String result = (String) JOptionPane.showInputDialog(
+            mainFrame,
+            "How many threads should the computer player search with?",
+            "Computer Threads",
+            JOptionPane.PLAIN_MESSAGE,
+            null,
+            null,
+            String.valueOf(computerThreads));
+        
+        if (result == null) return;
+        if (!result.matches("\\d+") || Integer.parseInt(result) <= 0) {
+            showErrorDialog("You have to enter a positive number");
+            return;
+        }
+        
+        computerThreads = Integer.parseInt(result);
+        computer.setThreads(computerThreads);
+        setStatusBar("The computer player will use "+computerThreads+" threads", Color.BLACK);
+    }
+    
+    /**
+     * Switches the board's analysis mode on or off, which shows a score on every legal
+     * move during a person's turn
+     */
+    private void toggleAnalysis() {
+        boolean show = !gameBoard.isShowingAnalysis();
+        gameBoard.setShowAnalysis(show);
+        analysisItem.setText((show) ? "hide move analysis" : "show move analysis");
+    }
+    
     /**
      * The game will not save if either user's name is blank because it indicates that there
      * is no game in progress. For a game in progress it will save:
@@ -230,14 +339,15 @@ public class Reversi
      * 4) player names
      * 5) player scores
      * 6) player disc totals
-     * 7) and the game board's state
+     * 7) the game board's state
+     * 8) and the moves played so far, so they can still be undone after loading
      * 
-     * When this data is combined into a single string separated by new lines, a hashcode is
-     * taken from the string and put at the start in order to read it when loading the game
-     * to make sure none of the data has changed
+     * The data is written by SaveFile in its binary format, which packs the board 4 squares
+     * to a byte and ends with a checksum that is checked when loading the game to make sure
+     * none of the data has changed
      * 
      * The user is then asked where to save the file, it can be named anything and has a
-     * txt extension and finally the status bar is updated to show it has been saved
+     * rev extension and finally the status bar is updated to show it has been saved
      * successfully
      */
     private void saveGame() {
@@ -247,18 +357,10 @@ public class Reversi
             return;
         }
         
-        String data = turn+"\n"+
-            passedTurns+"\n"+
-            showLegalMoves+"\n"+
-            player1.getName()+"\n"+
-            player1.getScore()+"\n"+
-            player1.getDiscTotal()+"\n"+
-            player2.getName()+"\n"+
-            player2.getScore()+"\n"+
-            player2.getDiscTotal()+"\n"+
-            gameBoard.getData();
-        
-        data = data.hashCode()+"\n"+data;
+        SaveFile save = new SaveFile(gameBoard.getGameState(), showLegalMoves);
+        save.setPlayer(1, player1.getName(), player1.getScore(), player1.getDiscTotal());
+        save.setPlayer(2, player2.getName(), player2.getScore(), player2.getDiscTotal());
+        save.setMoves(gameBoard.getMoves());
         
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Choose the Session Save File Name");
@@ -266,95 +368,195 @@ public class Reversi
         
         if (result == JFileChooser.APPROVE_OPTION) {
             File saveFile = fileChooser.getSelectedFile();
+            if (!saveFile.getName().endsWith("."+SaveFile.EXTENSION)) {
+                saveFile = new File(saveFile.getAbsolutePath()+"."+SaveFile.EXTENSION);
+            }
             try {
-                FileWriter fileWriter = new FileWriter(saveFile.getAbsolutePath()+".txt");
-                fileWriter.write(data);
+                save.write(saveFile);
                 setStatusBar("Session Successfully Saved!", Color.GREEN);
-                fileWriter.close();              
             } catch (IOException e) {
                 showErrorDialog("An error occurred when saving the game!");
+            } catch (IllegalArgumentException e) {
+                showErrorDialog(e.getMessage());
             }
             
         }
     }
     
     /**
-     * When loading the game the user chooses which save with a file chooser. The first line
-     * is the hashcode of the data when it was saved, an arraylist keeps track of all the
-     * lines after this one. When the file has been read, the hashcode is checked against
-     * a new hashcode of the same data and if they differ then something has changed and an
-     * error dialog is shown and the loading cancels.
+     * When loading the game the user chooses which save with a file chooser. The file is
+     * read by SaveFile, which checks the checksum at the end of the file (or the hashcode at
+     * the start of an older text save) against the data and if they differ then something
+     * has changed and an error dialog is shown and the loading cancels.
      * 
-     * If the file has not changed then the lines are removed one by one from the arraylist to
-     * set things like whose turn it is, player names, scores, etc. By removing them it returns
-     * the value returned and eventually the arraylist has nothing but the board state data left
-     * (each disc), which is passed into the gameBoard's setData method which sets the new
-     * board state
+     * If the file has not changed then whose turn it is, player names, scores, etc. are set
+     * from the save and the saved position is passed into the gameBoard's setData method
+     * which sets the new board state
      */
     private void loadGame() {
         JFileChooser fileChooser = new JFileChooser();
-        FileNameExtensionFilter filter = new FileNameExtensionFilter("Save Files", "txt");
+        FileNameExtensionFilter filter = new FileNameExtensionFilter("Save Files",
+            SaveFile.EXTENSION, "txt");
         fileChooser.setFileFilter(filter);
         
         int result = fileChooser.showOpenDialog(mainFrame);
         if (result != JFileChooser.APPROVE_OPTION) return;
         
         
+        cancelComputerMove();
+        
         try {
-            File saveFile = fileChooser.getSelectedFile();
-            Scanner fileReader = new Scanner(saveFile);
-            
-            ArrayList<String> lines = new ArrayList<>();
-            int fileHashCode = Integer.parseInt(fileReader.nextLine());
-            
-            while (fileReader.hasNextLine()) {
-                lines.add(fileReader.nextLine());
-            }
-            fileReader.close();
-            
-            String fileData = String.join("\n",lines)+"\n";
-            if (fileHashCode != fileData.hashCode())
-                throw new RuntimeException();
+            SaveFile save = SaveFile.read(fileChooser.getSelectedFile());
             
             // Setting game state
             
-            turn = Boolean.parseBoolean(lines.remove(0));
-            passedTurns = Integer.parseInt(lines.remove(0));
-            showLegalMoves = !Boolean.parseBoolean(lines.remove(0));
+            boolean turn = save.isBlackTurn();
+            showLegalMoves = !save.getShowLegalMoves();
             playGameButton.setVisible(false);
             legalMovesToggle.setVisible(false);
             
             // Setting player 1
             
-            player1.finalisePlayerName(lines.remove(0));
-            player1.setScore(Integer.parseInt(lines.remove(0)));
-            player1.setDiscTotal(Integer.parseInt(lines.remove(0)));
+            player1.finalisePlayerName(save.getName(1));
+            player1.setScore(save.getScore(1));
+            player1.setDiscTotal(save.getDiscTotal(1));
             
             // Setting player 2
             
-            player2.finalisePlayerName(lines.remove(0));
-            player2.setScore(Integer.parseInt(lines.remove(0)));
-            player2.setDiscTotal(Integer.parseInt(lines.remove(0)));
+            player2.finalisePlayerName(save.getName(2));
+            player2.setScore(save.getScore(2));
+            player2.setDiscTotal(save.getDiscTotal(2));
             
             // Setting board state
             
-            int boardSize = Integer.parseInt(lines.remove(0));
-            gameBoard.setBoardSize(boardSize);
-            gameBoard.setData(lines);
+            gameBoard.setBoardSize(save.getGameState().getSize());
+            gameBoard.setData(save.getGameState(), save.getMoves());
             setShowLegalMoves();
             gameBoard.checkAllLegalMoves();
             
             setStatusBar("It's "+((turn) ? "Black" : "White")+"'s Turn", Color.BLACK);
             
-        } catch (FileNotFoundException e) {
+        } catch (IOException e) {
             showErrorDialog("File not found!");
         } catch (RuntimeException e) {
             showErrorDialog("Malformed save file, cannot be loaded");
         }
     }
     
+    /**
+     * Solves the position on the board (a game in progress or one just loaded) with the
+     * endgame solver in the background, and shows the best move, the final disc difference
+     * with perfect play and how long it took in the status bar. Only 8x8 boards with up to
+     * MAXSOLVEEMPTIES empty squares can be solved
+     */
+    private void solvePosition() {
+        GameState position = new GameState(gameBoard.getGameState());
+        int empties = position.getSize()*position.getSize()
+            -position.count(GameState.BLACK)-position.count(GameState.WHITE);
+        
+        if (solving) {
+            showErrorDialog("The position is already being solved");
+            return;
+        }
+        if (position.getSize() != 8) {
+            showErrorDialog("Only positions on an 8x8 board can be solved");
+            return;
+        }
+        if (empties > MAXSOLVEEMPTIES) {
+            showErrorDialog("Only positions with up to "+MAXSOLVEEMPTIES+
+                " empty squares can be solved");
+            return;
+        }
+        
+        if (endgameSolver == null) endgameSolver = new EndgameSolver();
+        EndgameSolver solver = endgameSolver;
+        solving = true;
+        setStatusBar("Solving the position...", Color.BLACK);
+        
+        new SwingWorker<SearchResult, Void>() {
+            @Override
+            protected SearchResult doInBackground() {
+                return solver.solve(position);
+            }
+            
+            @Override
+            protected void done() {
+                solving = false;
+                try {
+                    SearchResult result = get();
+                    String side = (position.getSideToMove() == GameState.BLACK) ? "Black" : "White";
+                    setStatusBar(side+" plays "+
+                        position.squareName(result.getMove())+", "+result, Color.BLACK);
+                } catch (InterruptedException | ExecutionException e) {
+                    showErrorDialog("The position could not be solved");
+                }
+            }
+        }.execute();
+    }
+    
     // Game Related Methods
     
+    /**
+     * Takes back the last move of the game in progress. A pass is taken back together with
+     * the move before it, and when a person plays against the computer the computer's moves
+     * are taken back too so it is the person's turn again. The moves taken back can be
+     * played again with redo until a different move is played
+     */
+    private void undoMove() {
+        if (playGameButton.isVisible()) {
+            showErrorDialog("There is currently no game in progress");
+            return;
+        }
+        if (!gameBoard.canUndo()) {
+            showErrorDialog("There is no move to undo");
+            return;
+        }
+        
+        cancelComputerMove();
+        while (gameBoard.undoMove()) {
+            if (!gameBoard.getGameState().hasLegalMove()) continue;
+            if (!isPlayingComputer()) break;
+        }
+        
+        setStatusBar("Move undone, it's "+((getTurn()) ? "Black" : "White")+"'s Turn",
+            Color.BLACK);
+        nextTurn();
+    }
+    
+    /**
+     * Plays the moves taken back by undo again, the same number of moves that one undo
+     * takes back
+     */
+    private void redoMove() {
+        if (playGameButton.isVisible()) {
+            showErrorDialog("There is currently no game in progress");
+            return;
+        }
+        if (!gameBoard.canRedo()) {
+            showErrorDialog("There is no move to redo");
+            return;
+        }
+        
+        cancelComputerMove();
+        while (gameBoard.redoMove() && gameBoard.canRedo()) {
+            if (!gameBoard.getGameState().hasLegalMove()) continue;
+            if (!isPlayingComputer()) break;
+        }
+        
+        setStatusBar("Move redone, it's "+((getTurn()) ? "Black" : "White")+"'s Turn",
+            Color.BLACK);
+        nextTurn();
+    }
+    
+    /**
+     * @return whether it's the computer's turn in a game against a person, undo and redo
+     * carry on past these turns
+     */
+    private boolean isPlayingComputer() {
+        PlayerPanel waiting = (getTurn()) ? player1 : player2;
+        return getCurrentPlayer().isComputer() && !waiting.isComputer();
+    }
+    
     /**
      * When the play game button is pressed if the players names are valid then the game is
      * started (with black starting first), from calling the board's startGame and
@@ -364,14 +566,14 @@ public class Reversi
     private void playGame() {
         // Adds simple checks to make sure neither player's name isn't the default
         // string or blank
-        String playerName1 = player1.getEnteredName();
+        String playerName1 = getEnteredName(player1);
         
         if (playerName1.isBlank() || playerName1.equals("Enter Player Name")) {
             showErrorDialog("Player 1's name can't be left blank");
             return;
         }
         
-        String playerName2 = player2.getEnteredName();
+        String playerName2 = getEnteredName(player2);
         
         if (playerName2.isBlank() || playerName2.equals("Enter Player Name")) {
             showErrorDialog("Player 2's name can't be left blank");
@@ -384,11 +586,28 @@ public class Reversi
         player2.setDiscTotal(2);
         playGameButton.setVisible(false);
         legalMovesToggle.setVisible(false);
-        setStatusBar("It's "+((turn) ? "Black" : "White")+"'s Turn", Color.BLACK);
+        setStatusBar("It's "+((getTurn()) ? "Black" : "White")+"'s Turn", Color.BLACK);
         gameBoard.startGame();
         gameBoard.checkAllLegalMoves();
     }
     
+    /**
+     * Computer players don't need a name entered, they are called Computer unless one
+     * was typed in
+     * 
+     * @param player        the player panel to get the name from
+     * 
+     * @return the name entered for the player
+     */
+    private String getEnteredName(PlayerPanel player) {
+        String name = player.getEnteredName();
+        
+        if (player.isComputer() && (name.isBlank() || name.equals("Enter Player Name")))
+            return "Computer";
+        
+        return name;
+    }
+    
     /**
      * The disc totals are checked to see which player wins the game and if both players
      * have the same number of discs then they are both awarded a point and after the dialog
@@ -419,15 +638,14 @@ public class Reversi
     }
     
     /**
-     * In order to start a new game the turn is set back to the default of black first, the
-     * number of passed turns is set back to 0 as well as each player's disc totals (which 
-     * will get set to 2 upon calling the board's newGame method, which subsequently populate
-     * the board). and the the play game button and the button to toggle showing legal moves
-     * are shown to let the players decide how/when to play the next game
+     * In order to start a new game each player's disc totals are set back to 0 (which 
+     * will get set to 2 upon starting the game) and the board's newGame method clears the
+     * game state, which sets the turn back to the default of black first and the number of
+     * passed turns back to 0. Then the play game button and the button to toggle showing
+     * legal moves are shown to let the players decide how/when to play the next game
      */
     private void newGame() {
-        turn = true;
-        passedTurns = 0;
+        cancelComputerMove();
         player1.setDiscTotal(0);
         player2.setDiscTotal(0);
         gameBoard.newGame();
@@ -436,42 +654,144 @@ public class Reversi
     }
     
     /**
-     * When the next turn occurs the number of passed turns is set to 0 because if it was 1
-     * (from one player passing a turn) then if the other player were to pass a turn (while the
-     * other could make a turn) the game may prematurely end because it gets incremented to 2.
+     * When the next turn occurs the game state has already given the turn to the next player
+     * and set the number of passed turns to 0 because if it was 1 (from one player passing a
+     * turn) then if the other player were to pass a turn (while the other could make a turn)
+     * the game may prematurely end because it gets incremented to 2.
      * 
-     * Both player's disc totals are tallied and set to show the users what they are and the
-     * turn is given to the next player, which is why legal moves are now checked for that
-     * player
+     * Both player's disc totals are tallied and set to show the users what they are and
+     * legal moves are now checked for the next player
      */
     public void nextTurn() {
-        passedTurns = 0;
         player1.setDiscTotal(gameBoard.getWhiteTotal());
         player2.setDiscTotal(gameBoard.getBlackTotal());
-        turn = !turn;
         gameBoard.checkAllLegalMoves();
     }
     
     /**
      * If a player could not make a move then it notifies them and passes the turn to the
      * other player, if the number of passed turns is at 2 it means neither player could
-     * move and so the game is ended. Otherwise the turn is switched and the game keeps going
+     * move and so the game is ended. Otherwise the turn is switched and the game keeps going.
+     * When the computer passes only the status bar says so, rather than a dialog holding
+     * up the game until it is closed
      */
     public void passTurn() {
-        String currentPlayer = (turn) ? "Black" : "White";
+        String currentPlayer = (getTurn()) ? "Black" : "White";
         setStatusBar(currentPlayer+" passed", Color.RED);
-        JOptionPane.showMessageDialog(mainFrame, "There are no moves for "+currentPlayer+
-            ", so you have to pass");
+        if (!getCurrentPlayer().isComputer()) {
+            JOptionPane.showMessageDialog(mainFrame, "There are no moves for "+currentPlayer+
+                ", so you have to pass");
+        }
         
-        passedTurns++;
-        if (passedTurns == 2) {
+        gameBoard.passTurn();
+        if (gameBoard.getGameState().getPassedTurns() == 2) {
             endGame();
         } else {
-            turn = !turn;
             gameBoard.checkAllLegalMoves();
         }
     }
 
+    /**
+     * Called by the board once the legal moves for a turn are marked. If the player whose
+     * turn it is is the computer then its move is scheduled on the event queue, so the board
+     * is repainted before the computer starts thinking and any dialogs already showing are
+     * handled first
+     */
+    public void awaitMove() {
+        awaitedTurns++;
+        
+        if (getCurrentPlayer().isComputer()) {
+            int turnNumber = awaitedTurns;
+            SwingUtilities.invokeLater(() -> playComputerMove(turnNumber));
+        }
+    }
+    
+    /**
+     * Asks the computer player for its move, which it searches for on its own thread (or
+     * has already found while pondering), then plays it on the event thread the same way
+     * as a player clicking on a square. Nothing is played if the turn has moved on since
+     * the move was scheduled (such as a new game being started). The status bar shows the
+     * move, how long the computer took to answer and how fast the search was
+     * 
+     * @param turnNumber        the awaited turn this move was scheduled for
+     */
+    private void playComputerMove(int turnNumber) {
+        if (turnNumber != awaitedTurns || !getCurrentPlayer().isComputer()) return;
+        if (computer.isThinking()) return;
+        
+        GameState position = new GameState(gameBoard.getGameState());
+        setStatusBar("The computer is thinking...", Color.BLACK);
+        
+        computer.requestMove(position, result -> {
+            if (turnNumber != awaitedTurns) {
+                // The game moved on while thinking, the turn may need a new search
+                checkComputerTurn();
+                return;
+            }
+            
+            String moveName = position.squareName(result.getMove());
+            gameBoard.playSquare(result.getMove());
+            
+            if (!playGameButton.isVisible()) {
+                setStatusBar(statusBar.getText()+" (Computer played "+moveName+" in "+
+                    computer.getLastResponseMillis()+" ms"+
+                    (computer.wasLastPonderHit() ? " after pondering" : "")+
+                    (computer.getLastOvershootMillis() > 0
+                        ? ", "+computer.getLastOvershootMillis()+" ms late" : "")+", "+result+
+                    ", ponder hits "+computer.getPonderHits()+"/"+computer.getPonders()+")",
+                    Color.BLACK);
+                startPondering(result);
+            }
+        }, failure -> {
+            setStatusBar("The computer couldn't find a move", Color.RED);
+            showErrorDialog("The computer player failed: "+failure.getMessage());
+        });
+    }
+    
+    /**
+     * Lets the computer ponder on the person's time if it's now a person's turn, after
+     * the computer played the move of the given search result
+     */
+    private void startPondering(SearchResult result) {
+        if (getCurrentPlayer().isComputer() || computer.isThinking()) return;
+        GameState gameState = gameBoard.getGameState();
+        if (gameState.hasLegalMove()) computer.ponder(gameState, result);
+    }
+    
+    /**
+     * Starts the computer's move if it is the computer's turn in a game that is in
+     * progress, used after a search for an old turn finishes
+     */
+    private void checkComputerTurn() {
+        if (!playGameButton.isVisible() && gameBoard.getGameState().hasLegalMove()) {
+            playComputerMove(awaitedTurns);
+        }
+    }
+    
+    /**
+     * Stops any search the computer is running and makes sure a move it has been asked
+     * for is never played, used when the game is replaced (new games and loading games)
+     */
+    private void cancelComputerMove() {
+        awaitedTurns++;
+        computer.cancel();
+    }
+    
+    /**
+     * @return whether it's the computer player's turn, the board ignores clicks on discs
+     * while it is
+     */
+    public boolean isComputerTurn() {
+        return computer.isThinking() || getCurrentPlayer().isComputer();
+    }
+    
+    /**
+     * @return the player panel of the player whose turn it is
+     */
+    private PlayerPanel getCurrentPlayer() {
+        return (getTurn()) ? player2 : player1;
+    }
+    
     // Other Methods
     
     /**
@@ -514,7 +834,7 @@ public class Reversi
      * execute certain methods
      */
     public boolean getTurn() {
-        return turn;
+        return gameBoard.getGameState().getSideToMove() == GameState.BLACK;
     }    
     
 }
@@ -0,0 +1,88 @@
+/**
+ * The rules of Reversi without any user interface. Boards of any size are stored as
+ * one bitboard per player, an array of longs where bit row*size+column (counted across
+ * the longs) is set if the player has a disc on that square. The standard 8x8 board fits
+ * into a single long so it is handed to the BitBoard class, other sizes use a WideBitBoard
+ * which shifts whole arrays of longs at once
+ *
+ * A Rules object is created for each board size and must only be used by one thread at
+ * a time, since WideBitBoard keeps scratch space between calls
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class Rules
+{
+    private final int size;
+    
+    // Only used for boards other than 8x8
+    private final WideBitBoard wideBoard;
+    
+    /**
+     * @param size      the width (and height) of the board
+     */
+    public Rules(int size) {
+        this.size = size;
+        this.wideBoard = (size == 8) ? null : new WideBitBoard(size);
+    }
+    
+    /**
+     * @param size      the width (and height) of the board
+     * 
+     * @return how many longs are needed to store one bit per square
+     */
+    public static int words(int size) {
+        return (size*size+63) >>> 6;
+    }
+    
+    /**
+     * @return whether the bit for the square is set in the bitboard
+     */
+    public static boolean has(long[] discs, int square) {
+        return (discs[square >>> 6] & (1L << square)) != 0;
+    }
+    
+    /**
+     * Finds every square the player could place a disc on
+     * 
+     * @param player        the bitboard of the player whose turn it is
+     * @param opponent      the bitboard of the other player
+     * @param out           the bitboard the legal moves are written to
+     */
+    public void legalMoves(long[] player, long[] opponent, long[] out) {
+        if (wideBoard == null) {
+            out[0] = BitBoard.legalMoves(player[0], opponent[0]);
+        } else {
+            wideBoard.legalMoves(player, opponent, out);
+        }
+    }
+    
+    /**
+     * Finds the discs that would be captured by the player placing a disc on the square
+     * 
+     * @param player        the bitboard of the player whose turn it is
+     * @param opponent      the bitboard of the other player
+     * @param square        the square the disc is placed on (row*size+column)
+     * @param out           the bitboard the captured discs are written to
+     * 
+     * @return the number of captured discs, 0 if the move is not legal (including when
+     * the square isn't empty)
+     */
+    public int flips(long[] player, long[] opponent, int square, long[] out) {
+        if (wideBoard == null) {
+            // BitBoard.flips expects an empty square, the solver only gives it those
+            if (((player[0] | opponent[0]) >>> square & 1) != 0) {
+                out[0] = 0;
+                return 0;
+            }
+            out[0] = BitBoard.flips(player[0], opponent[0], square);
+            return Long.bitCount(out[0]);
+        }
+        
+        return wideBoard.flips(player, opponent, square, out);
+    }
+    
+    public int getSize() {
+        return size;
+    }
+}
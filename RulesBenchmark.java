@@ -0,0 +1,294 @@
+// Other Imports
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures the throughput and allocation rate of the game rules on boards of 8, 14 and 32
+ * squares wide, so a change to Board or GameState can be checked against the numbers from
+ * before it. The benchmarks are:
+ * - moves, finding every legal move of a position (what Board.checkAllLegalMoves does)
+ * - flips, finding the discs one move captures
+ * - counts, counting both players' discs (Board.getBlackTotal and getWhiteTotal)
+ * - playout, playing a whole game of random moves from the start
+ * - save, writing a position as text and reading it back (Board.getData and setData)
+ *
+ * Boards wider than 8 keep their legal moves up to date as moves are played, the same as
+ * Board does (see GameState.enableIncrementalMoves), which the playouts go through. The
+ * moves benchmark calls Rules itself, so it always times finding the moves.
+ *
+ * Every benchmark runs on positions made from a fixed seed, is warmed up so the JIT has
+ * compiled it and is then measured over several timed iterations, printing the operations
+ * per second with their spread and the bytes allocated per operation. Results can be saved
+ * and compared with an earlier run, which prints the change in throughput of each
+ * benchmark and fails if any got slower by more than the allowed amount
+ *
+ * Usage: java RulesBenchmark [benchmark names...] [--save file] [--compare file]
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class RulesBenchmark
+{
+    private static final int[] SIZES = {8, 14, 32};
+    private static final String[] BENCHMARKS = {"moves", "flips", "counts", "playout", "save"};
+    
+    private static final long SEED = 20210326L;
+    private static final int POSITIONS = 256;
+    
+    private static final int WARMUPITERATIONS = 3;
+    private static final int ITERATIONS = 5;
+    private static final long ITERATIONNANOS = 500000000L;
+    
+    // A benchmark compared with an earlier run fails if it is this much slower
+    private static final double ALLOWEDSLOWDOWN = 0.10;
+    
+    // Every result is added in here so the JIT can't remove the work being measured
+    private static volatile long sink;
+    
+    /**
+     * One benchmark operation, run with a different index each time so it can go
+     * through a set of prepared positions
+     */
+    private interface Operation
+    {
+        long run(int index);
+    }
+    
+    /**
+     * @param args      the benchmarks to run (all of them by default), --save file to
+     * write the results and --compare file to compare them with saved results
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> selected = new ArrayList<>();
+        Path saveFile = null;
+        Path compareFile = null;
+        
+        for (int i=0; i<args.length; i++) {
+            if (args[i].equals("--save")) {
+                saveFile = Path.of(args[++i]);
+            } else if (args[i].equals("--compare")) {
+                compareFile = Path.of(args[++i]);
+            } else {
+                selected.add(args[i]);
+            }
+        }
+        if (selected.isEmpty()) selected.addAll(Arrays.asList(BENCHMARKS));
+        
+        System.out.println("java "+System.getProperty("java.version")+", "+
+            Runtime.getRuntime().availableProcessors()+" processors");
+        System.out.printf("%-10s %5s %16s %10s %12s%n", "benchmark", "size", "ops/s", "+-", "bytes/op");
+        
+        Map<String, Double> results = new HashMap<>();
+        for (String name: selected) {
+            for (int size: SIZES) {
+                double opsPerSecond = run(name, size);
+                results.put(name+" "+size, opsPerSecond);
+            }
+        }
+        
+        if (saveFile != null) {
+            List<String> lines = new ArrayList<>();
+            for (Map.Entry<String, Double> result: results.entrySet()) {
+                lines.add(result.getKey()+" "+result.getValue());
+            }
+            Files.write(saveFile, lines);
+        }
+        
+        if (compareFile != null && !compare(results, compareFile)) System.exit(1);
+    }
+    
+    /**
+     * Warms up and measures one benchmark on one board size, printing the result
+     * 
+     * @return the average operations per second
+     */
+    private static double run(String name, int size) {
+        Operation operation = createOperation(name, size);
+        
+        // Playouts are long enough to check the clock after every one
+        int batch = (name.equals("playout")) ? 1 : POSITIONS;
+        
+        for (int i=0; i<WARMUPITERATIONS; i++) {
+            measure(operation, batch);
+        }
+        
+        double[] rates = new double[ITERATIONS];
+        long allocated = 0;
+        long operations = 0;
+        for (int i=0; i<ITERATIONS; i++) {
+            long before = allocatedBytes();
+            long[] measured = measure(operation, batch);
+            allocated += allocatedBytes()-before;
+            operations += measured[0];
+            rates[i] = measured[0]*1e9/measured[1];
+        }
+        
+        double mean = 0;
+        for (double rate: rates) {
+            mean += rate/ITERATIONS;
+        }
+        double variance = 0;
+        for (double rate: rates) {
+            variance += (rate-mean)*(rate-mean)/(ITERATIONS-1);
+        }
+        
+        String bytesPerOperation = (allocatedBytes() < 0) ? "n/a"
+            : String.format("%.1f", (double) allocated/operations);
+        System.out.printf("%-10s %5d %16.0f %10.0f %12s%n", name, size, mean,
+            Math.sqrt(variance), bytesPerOperation);
+        return mean;
+    }
+    
+    /**
+     * Runs the operation over and over for one iteration
+     * 
+     * @param batch     how many operations are run between checks of the clock
+     * 
+     * @return the number of operations run and the nanoseconds they took
+     */
+    private static long[] measure(Operation operation, int batch) {
+        long result = 0;
+        long count = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        
+        do {
+            for (int i=0; i<batch; i++) {
+                result += operation.run((int) ((count+i) % POSITIONS));
+            }
+            count += batch;
+            elapsed = System.nanoTime()-start;
+        } while (elapsed < ITERATIONNANOS);
+        
+        sink += result;
+        return new long[] {count, elapsed};
+    }
+    
+    /**
+     * @return the bytes allocated by this thread so far, or a negative number if the JVM
+     * can't tell
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) return -1;
+        
+        return ((com.sun.management.ThreadMXBean) threads)
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    
+    /**
+     * Sets up the positions a benchmark runs on and returns its operation
+     */
+    private static Operation createOperation(String name, int size) {
+        GameState[] states = createPositions(size);
+        Rules rules = new Rules(size);
+        long[] out = new long[Rules.words(size)];
+        
+        switch (name) {
+            case "moves":
+                // Straight from the rules, the tracker would only hand back its saved moves
+                return i -> {
+                    rules.legalMoves(states[i].getPlayerDiscs(), states[i].getOpponentDiscs(),
+                        out);
+                    return out[0];
+                };
+            case "flips":
+                // The first legal move of each position
+                int[] squares = new int[POSITIONS];
+                for (int i=0; i<POSITIONS; i++) {
+                    long[] moves = states[i].legalMoves();
+                    while (squares[i] < size*size && !Rules.has(moves, squares[i])) squares[i]++;
+                }
+                return i -> rules.flips(states[i].getPlayerDiscs(), states[i].getOpponentDiscs(),
+                    squares[i], out);
+            case "counts":
+                return i -> states[i].count(GameState.BLACK)+states[i].count(GameState.WHITE);
+            case "playout":
+                GameState playout = newState(size);
+                Random random = new Random(SEED);
+                return i -> {
+                    playout.startGame();
+                    while (!playout.isTerminal()) {
+                        playout.playRandomMove(random);
+                    }
+                    return playout.count(GameState.BLACK);
+                };
+            case "save":
+                GameState loaded = new GameState(size);
+                return i -> {
+                    List<String> lines = Arrays.asList(states[i].toText().split("\n"));
+                    loaded.setText(lines.subList(1, lines.size()));
+                    return loaded.count(GameState.WHITE);
+                };
+            default:
+                throw new IllegalArgumentException("Unknown benchmark "+name+
+                    ", use one of "+String.join(", ", BENCHMARKS));
+        }
+    }
+    
+    /**
+     * Creates positions by random play from the start, a different number of moves into
+     * the game for each, which all have a legal move for the side to move
+     */
+    private static GameState[] createPositions(int size) {
+        Random random = new Random(SEED+size);
+        GameState[] states = new GameState[POSITIONS];
+        
+        for (int i=0; i<POSITIONS; i++) {
+            GameState state;
+            do {
+                state = newState(size);
+                state.startGame();
+                int plies = random.nextInt(size*size-4);
+                for (int p=0; p<plies && !state.isTerminal(); p++) {
+                    state.playRandomMove(random);
+                }
+            } while (!state.hasLegalMove());
+            states[i] = state;
+        }
+        
+        return states;
+    }
+    
+    /**
+     * @return an empty board set up the way Board sets up its game state
+     */
+    private static GameState newState(int size) {
+        GameState state = new GameState(size);
+        if (size > 8) state.enableIncrementalMoves(false);
+        return state;
+    }
+    
+    /**
+     * Prints how each result compares with the same benchmark in a saved run
+     * 
+     * @return false if any benchmark got slower by more than ALLOWEDSLOWDOWN
+     */
+    private static boolean compare(Map<String, Double> results, Path file) throws IOException {
+        boolean passed = true;
+        System.out.println("compared with "+file+":");
+        
+        for (String line: Files.readAllLines(file)) {
+            int split = line.lastIndexOf(' ');
+            String key = line.substring(0, split);
+            double baseline = Double.parseDouble(line.substring(split+1));
+            Double current = results.get(key);
+            if (current == null) continue;
+            
+            double change = current/baseline-1;
+            boolean slower = change < -ALLOWEDSLOWDOWN;
+            if (slower) passed = false;
+            System.out.printf("%-16s %+7.1f%%%s%n", key, 100*change, (slower) ? "  SLOWER" : "");
+        }
+        
+        return passed;
+    }
+}
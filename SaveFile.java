@@ -0,0 +1,357 @@
+// Other Imports
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * A saved game, read and written without any of the game's window so the position in it
+ * can be loaded by the game or used by tools such as the endgame solver
+ *
+ * Games are saved in a binary format. After the magic number and the format version come
+ * the board size, the side to move, the number of passed turns, whether legal moves were
+ * shown, the name (UTF-8 with its length first), score and disc total of player 1 and then
+ * player 2, and then the board packed 4 squares to a byte with 2 bits per square (0 for
+ * empty, 1 for black and 2 for white). From version 2 the board is followed by the number
+ * of moves played from the start of the game and the moves (-1 for a pass), so they can be
+ * undone after loading. The file ends with a CRC32C checksum of everything before it,
+ * which is checked so a file that has been changed or damaged is not loaded
+ *
+ * Older saves were text files, which can still be read. Their first line is the hashcode
+ * of the rest of the file, followed by whose turn it is (true for black), the number of
+ * passed turns, whether legal moves were shown, the name, score and disc total of player 1
+ * and then player 2, and the board state written by GameState.toText
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class SaveFile
+{
+    // The file extension of saves in the binary format
+    public static final String EXTENSION = "rev";
+    
+    public static final int MAGIC = 0x52565356;
+    public static final int VERSION = 2;
+    
+    // The widest board a save can hold, checked before anything is made from the size so
+    // a damaged file can't ask for a huge board
+    public static final int MAXSIZE = 1024;
+    
+    // The longest a name can be in UTF-8, its length is written in 2 bytes
+    private static final int MAXNAMEBYTES = 0xFFFF;
+    
+    private boolean blackTurn;
+    private int passedTurns;
+    private boolean showLegalMoves;
+    private String[] names = new String[2];
+    private int[] scores = new int[2];
+    private int[] discTotals = new int[2];
+    private GameState gameState;
+    private int[] moves = new int[0];
+    
+    private SaveFile() {
+    }
+    
+    /**
+     * Creates a save of a game in progress, the players are set with setPlayer
+     * 
+     * @param gameState         the position, which is copied
+     * @param showLegalMoves    whether legal moves are being shown
+     */
+    public SaveFile(GameState gameState, boolean showLegalMoves) {
+        this.gameState = new GameState(gameState);
+        this.blackTurn = gameState.getSideToMove() == GameState.BLACK;
+        this.passedTurns = gameState.getPassedTurns();
+        this.showLegalMoves = showLegalMoves;
+    }
+    
+    /**
+     * @param player        1 or 2
+     */
+    public void setPlayer(int player, String name, int score, int discTotal) {
+        names[player-1] = name;
+        scores[player-1] = score;
+        discTotals[player-1] = discTotal;
+    }
+    
+    /**
+     * @param moves         the moves played from the start of the game, passes as
+     * Search.PASS, or an empty array if they aren't known
+     */
+    public void setMoves(int[] moves) {
+        this.moves = moves;
+    }
+    
+    /**
+     * Reads a save file in either the binary or the older text format
+     * 
+     * @param file      the save file
+     * 
+     * @return the saved game
+     * 
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if the file has been changed or isn't a save file
+     */
+    public static SaveFile read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic) >= 0);
+            
+            if (magic.hasRemaining() || magic.getInt(0) != MAGIC) {
+                return parse(Files.readAllLines(file.toPath()));
+            }
+            
+            channel.position(0);
+            return readBinary(Channels.newInputStream(channel));
+        }
+    }
+    
+    /**
+     * Reads a save in the binary format, checking its checksum as it goes
+     */
+    private static SaveFile readBinary(InputStream stream) throws IOException {
+        CRC32C crc = new CRC32C();
+        DataInputStream in = new DataInputStream(
+            new CheckedInputStream(new BufferedInputStream(stream), crc));
+        
+        try {
+            if (in.readInt() != MAGIC) throw new IllegalArgumentException("Not a save file");
+            int version = in.readInt();
+            if (version < 1 || version > VERSION)
+                throw new IllegalArgumentException("Unsupported save version "+version);
+            
+            SaveFile save = new SaveFile();
+            int boardSize = checkSize(in.readInt());
+            int sideToMove = in.readUnsignedByte();
+            save.passedTurns = in.readInt();
+            save.showLegalMoves = in.readBoolean();
+            save.blackTurn = sideToMove == GameState.BLACK;
+            
+            for (int p=0; p<2; p++) {
+                byte[] name = new byte[in.readUnsignedShort()];
+                in.readFully(name);
+                save.names[p] = new String(name, StandardCharsets.UTF_8);
+                save.scores[p] = in.readInt();
+                save.discTotals[p] = in.readInt();
+            }
+            
+            // The board, 4 squares to a byte
+            save.gameState = new GameState(boardSize);
+            int squares = boardSize*boardSize;
+            for (int square=0; square<squares; square+=4) {
+                int packed = in.readUnsignedByte();
+                for (int i=0; i<4 && square+i<squares; i++) {
+                    int color = (packed >>> (2*i)) & 3;
+                    if (color == 3) throw new IllegalArgumentException("Malformed save file");
+                    if (color != GameState.EMPTY) save.gameState.set(square+i, color);
+                }
+            }
+            save.gameState.setSideToMove((save.blackTurn) ? GameState.BLACK : GameState.WHITE);
+            save.gameState.setPassedTurns(save.passedTurns);
+            
+            if (version >= 2) {
+                int moveCount = in.readInt();
+                if (moveCount < 0 || moveCount > 2*squares+2)
+                    throw new IllegalArgumentException("Malformed save file");
+                save.moves = new int[moveCount];
+                for (int i=0; i<moveCount; i++) {
+                    save.moves[i] = in.readInt();
+                }
+            }
+            
+            // The checksum covers everything read so far
+            int expected = (int) crc.getValue();
+            if (in.readInt() != expected)
+                throw new IllegalArgumentException("The save file has been changed");
+            
+            return save;
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("The save file is cut short", e);
+        }
+    }
+    
+    /**
+     * @return the board size, if it is one a save can hold
+     * 
+     * @throws IllegalArgumentException if it is odd, less than 2 or more than MAXSIZE
+     */
+    private static int checkSize(int boardSize) {
+        if (boardSize < 2 || boardSize > MAXSIZE || boardSize % 2 != 0)
+            throw new IllegalArgumentException("Malformed save file, board size "+boardSize);
+        return boardSize;
+    }
+    
+    /**
+     * Writes the game in the binary format. The whole file is put together in one buffer
+     * and written through a file channel
+     * 
+     * @param file      the file to write, replaced if it exists
+     * 
+     * @throws IOException if the file can't be written
+     * @throws IllegalArgumentException if the board is wider than MAXSIZE or a name is
+     * longer than 65535 bytes in UTF-8
+     */
+    public void write(File file) throws IOException {
+        int boardSize = gameState.getSize();
+        if (boardSize > MAXSIZE)
+            throw new IllegalArgumentException("Boards wider than "+MAXSIZE+" can't be saved");
+        
+        int squares = boardSize*boardSize;
+        byte[][] nameBytes = new byte[2][];
+        int length = 4+4+4+1+4+1+(squares+3)/4+4+4*moves.length+4;
+        for (int p=0; p<2; p++) {
+            nameBytes[p] = names[p].getBytes(StandardCharsets.UTF_8);
+            if (nameBytes[p].length > MAXNAMEBYTES)
+                throw new IllegalArgumentException("The name of player "+(p+1)+" is too long");
+            length += 2+nameBytes[p].length+4+4;
+        }
+        
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(boardSize);
+        buffer.put((byte) ((blackTurn) ? GameState.BLACK : GameState.WHITE));
+        buffer.putInt(passedTurns);
+        buffer.put((byte) ((showLegalMoves) ? 1 : 0));
+        
+        for (int p=0; p<2; p++) {
+            buffer.putShort((short) nameBytes[p].length).put(nameBytes[p]);
+            buffer.putInt(scores[p]).putInt(discTotals[p]);
+        }
+        
+        for (int square=0; square<squares; square+=4) {
+            int packed = 0;
+            for (int i=0; i<4 && square+i<squares; i++) {
+                packed |= gameState.get(square+i) << (2*i);
+            }
+            buffer.put((byte) packed);
+        }
+        
+        buffer.putInt(moves.length);
+        for (int move: moves) {
+            buffer.putInt(move);
+        }
+        
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+    
+    /**
+     * Reads the lines of a save file in the older text format
+     * 
+     * @param lines     every line of the file, including the hashcode
+     * 
+     * @return the saved game
+     * 
+     * @throws IllegalArgumentException if the file has been changed or isn't a save file
+     */
+    public static SaveFile parse(List<String> lines) {
+        try {
+            int fileHashCode = Integer.parseInt(lines.get(0));
+            String fileData = String.join("\n", lines.subList(1, lines.size()))+"\n";
+            if (fileHashCode != fileData.hashCode())
+                throw new IllegalArgumentException("The save file has been changed");
+            
+            SaveFile save = new SaveFile();
+            int line = 1;
+            
+            // Setting game state
+            
+            save.blackTurn = Boolean.parseBoolean(lines.get(line++));
+            save.passedTurns = Integer.parseInt(lines.get(line++));
+            save.showLegalMoves = Boolean.parseBoolean(lines.get(line++));
+            
+            // Setting players 1 and 2
+            
+            for (int p=0; p<2; p++) {
+                save.names[p] = lines.get(line++);
+                save.scores[p] = Integer.parseInt(lines.get(line++));
+                save.discTotals[p] = Integer.parseInt(lines.get(line++));
+            }
+            
+            // Setting board state
+            
+            int boardSize = checkSize(Integer.parseInt(lines.get(line++)));
+            save.gameState = new GameState(boardSize);
+            save.gameState.setText(lines.subList(line, line+boardSize));
+            save.gameState.setSideToMove((save.blackTurn) ? GameState.BLACK : GameState.WHITE);
+            save.gameState.setPassedTurns(save.passedTurns);
+            
+            return save;
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed save file", e);
+        }
+    }
+    
+    /**
+     * @return whether it is black's turn
+     */
+    public boolean isBlackTurn() {
+        return blackTurn;
+    }
+    
+    public int getPassedTurns() {
+        return passedTurns;
+    }
+    
+    /**
+     * @return whether legal moves were being shown when the game was saved
+     */
+    public boolean getShowLegalMoves() {
+        return showLegalMoves;
+    }
+    
+    /**
+     * @param player        1 or 2
+     */
+    public String getName(int player) {
+        return names[player-1];
+    }
+    
+    /**
+     * @param player        1 or 2
+     */
+    public int getScore(int player) {
+        return scores[player-1];
+    }
+    
+    /**
+     * @param player        1 or 2
+     */
+    public int getDiscTotal(int player) {
+        return discTotals[player-1];
+    }
+    
+    /**
+     * @return the moves played from the start of the game, passes as Search.PASS, or an
+     * empty array if the save doesn't have them
+     */
+    public int[] getMoves() {
+        return moves;
+    }
+    
+    /**
+     * @return the saved position, with the side to move and passed turns set
+     */
+    public GameState getGameState() {
+        return gameState;
+    }
+}
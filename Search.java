@@ -0,0 +1,542 @@
+// Other Imports
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * The computer player's search. It is a negamax alpha-beta search (each player maximises
+ * the negated score of the other) using iterative deepening, searching to depth 1, then 2
+ * and so on until the depth or time limit is reached. Each iteration tries the root moves
+ * in the order of their scores from the previous iteration and follows the previous
+ * principal variation first, which makes alpha-beta cut off far more of the tree. From
+ * depth 3 the root is searched with an aspiration window around the previous score and
+ * only searched again with a full window if the score falls outside of it
+ *
+ * Positions that have been searched are stored in a TranspositionTable under their
+ * Zobrist hash key, which GameState keeps up to date as moves are played. The table can be
+ * shared by several Search objects running on different threads (see ParallelSearch)
+ *
+ * The search works on its own copy of the position, playing each move on it and taking
+ * the move back with GameState.undo once it has been searched (make/unmake), so it never
+ * changes the game state it is given. It must only be used by one thread at a time
+ *
+ * Positions are evaluated by Evaluator, or on an 8x8 board by a PatternEvaluator when
+ * there is a pattern weights file, which is kept up to date as moves are played and
+ * taken back
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class Search
+{
+    // Used as the move when the side to move has to pass
+    public static final int PASS = -1;
+    
+    private final int INFINITY = Evaluator.WINSCORE*2;
+    private final int ASPIRATIONWINDOW = 40;
+    
+    // The clock is checked when the node count is a multiple of this (minus 1)
+    private final int TIMECHECKMASK = 255;
+    
+    // The size of the table in megabytes when one isn't given
+    private static final int DEFAULTTABLEMB = 16;
+    
+    private final int size;
+    private final Evaluator evaluator;
+    private final PatternEvaluator patterns;
+    private final TranspositionTable table;
+    
+    // 0 for the main search thread, helper threads start on different depths so they
+    // don't all search the same positions at the same time
+    private int helperId = 0;
+    
+    // The position being searched, with the discs captured, move list and principal
+    // variation of each ply, grown as needed
+    private GameState position;
+    private long[][] flips;
+    private long[][] moveMasks;
+    private int[][] moveLists;
+    private int[][] moveKeys;
+    private int[][] pv;
+    private int[] pvLength;
+    
+    // The root moves and their scores from the last iteration, used to order the next
+    private int[] rootMoves;
+    private int[] rootScores;
+    private int rootCount;
+    
+    // The principal variation of the last finished iteration, searched first
+    private int[] previousPv = new int[0];
+    private boolean followPv;
+    
+    private long nodes;
+    private long deadline;
+    private boolean aborted;
+    private volatile AtomicBoolean stopSignal = new AtomicBoolean();
+    
+    // Given the result of every finished iteration, if set
+    private Consumer<SearchResult> iterationListener;
+    
+    /**
+     * Creates a search with its own transposition table
+     * 
+     * @param size      the width (and height) of the boards this search will be given
+     */
+    public Search(int size) {
+        this(size, new TranspositionTable(DEFAULTTABLEMB));
+    }
+    
+    /**
+     * @param size      the width (and height) of the boards this search will be given
+     * @param table     the transposition table, which may be shared with other searches
+     */
+    public Search(int size, TranspositionTable table) {
+        this.size = size;
+        this.evaluator = new Evaluator(size);
+        this.table = table;
+        
+        PatternWeights weights = (size == PatternWeights.SIZE) ? PatternWeights.getLoaded() : null;
+        this.patterns = (weights != null) ? new PatternEvaluator(weights) : null;
+        
+        position = new GameState(size);
+        flips = new long[0][];
+        moveMasks = new long[0][];
+        moveLists = new int[0][];
+        moveKeys = new int[0][];
+        pv = new int[0][];
+        pvLength = new int[0];
+        rootMoves = new int[size*size];
+        rootScores = new int[size*size];
+    }
+    
+    /**
+     * Searches the position with iterative deepening. If the time runs out (or stop is
+     * called) part way through an iteration the result of the last finished iteration is
+     * returned
+     * 
+     * @param root              the position to search, it isn't changed
+     * @param maxDepth          the deepest iteration to search, 0 or less for no limit
+     * @param timeLimitMillis   the time allowed for the search, 0 or less for no limit
+     * 
+     * @return the best move found with its score and search statistics
+     */
+    public SearchResult search(GameState root, int maxDepth, long timeLimitMillis) {
+        table.newSearch();
+        return search(root, maxDepth, timeLimitMillis, new AtomicBoolean());
+    }
+    
+    /**
+     * The same as search but stopping as soon as the stop signal is set, which lets
+     * several searches running on different threads be stopped together. The caller is
+     * left to start a new search in the shared table
+     * 
+     * @param stopSignal        the search finishes once this is set to true
+     */
+    public SearchResult search(GameState root, int maxDepth, long timeLimitMillis,
+        AtomicBoolean stopSignal) {
+        long start = System.nanoTime();
+        long end = (timeLimitMillis > 0) ? start+timeLimitMillis*1000000 : Long.MAX_VALUE;
+        return search(root, maxDepth, end, null, stopSignal);
+    }
+    
+    /**
+     * The same as search but with a MoveTimer, which stops the search at its hard deadline
+     * and decides after each iteration whether to start another one
+     * 
+     * @param timer             the timer for this move, already started
+     */
+    public SearchResult search(GameState root, int maxDepth, MoveTimer timer,
+        AtomicBoolean stopSignal) {
+        return search(root, maxDepth, timer.getHardDeadline(), timer, stopSignal);
+    }
+    
+    /**
+     * @param end               the System.nanoTime the search stops at
+     * @param timer             decides whether to start each iteration, or null to keep
+     * going until the end
+     */
+    private SearchResult search(GameState root, int maxDepth, long end, MoveTimer timer,
+        AtomicBoolean stopSignal) {
+        long start = System.nanoTime();
+        deadline = end;
+        nodes = 0;
+        aborted = false;
+        this.stopSignal = stopSignal;
+        
+        int empties = size*size-root.count(GameState.BLACK)-root.count(GameState.WHITE);
+        if (maxDepth <= 0 || maxDepth > empties) maxDepth = Math.max(empties, 1);
+        
+        ensurePly(2*maxDepth+2);
+        position.copyFrom(root);
+        if (patterns != null) patterns.setPosition(position);
+        
+        rootCount = generateMoves(0, position, PASS);
+        if (rootCount == 0) {
+            return new SearchResult(PASS, 0, 0, 0, System.nanoTime()-start, new int[] {PASS});
+        }
+        for (int i=0; i<rootCount; i++) {
+            rootMoves[i] = moveLists[0][i];
+            rootScores[i] = moveKeys[0][i];
+        }
+        
+        previousPv = new int[0];
+        SearchResult best = null;
+        int previousScore = 0;
+        int stableIterations = 0;
+        
+        // Odd numbered helpers skip the first iteration so the threads spread out
+        int firstDepth = Math.min(1+helperId%2, maxDepth);
+        
+        for (int depth=firstDepth; depth<=maxDepth; depth++) {
+            sortRootMoves();
+            
+            int alpha = -INFINITY;
+            int beta = INFINITY;
+            if (depth >= 3) {
+                alpha = previousScore-ASPIRATIONWINDOW;
+                beta = previousScore+ASPIRATIONWINDOW;
+            }
+            
+            int score;
+            while (true) {
+                score = searchRoot(depth, alpha, beta);
+                if (aborted) break;
+                
+                if (score <= alpha) {
+                    alpha = -INFINITY;
+                } else if (score >= beta) {
+                    beta = INFINITY;
+                } else {
+                    break;
+                }
+            }
+            if (aborted) break;
+            
+            if (best != null && best.getMove() == pv[0][0]) {
+                stableIterations++;
+            } else {
+                stableIterations = 0;
+            }
+            
+            previousScore = score;
+            previousPv = new int[pvLength[0]];
+            System.arraycopy(pv[0], 0, previousPv, 0, pvLength[0]);
+            best = new SearchResult(previousPv[0], score, depth, nodes,
+                System.nanoTime()-start, previousPv);
+            if (iterationListener != null) iterationListener.accept(best);
+            
+            if (timer != null && !timer.shouldStartIteration(stableIterations)) break;
+        }
+        
+        long elapsed = System.nanoTime()-start;
+        if (best == null) {
+            return new SearchResult(rootMoves[0], 0, 0, nodes, elapsed, new int[] {rootMoves[0]});
+        }
+        
+        return new SearchResult(best.getMove(), best.getScore(), best.getDepth(), nodes,
+            elapsed, best.getPrincipalVariation());
+    }
+    
+    /**
+     * Asks a running search to finish, it returns the result of its last full iteration.
+     * This is safe to call from another thread
+     */
+    public void stop() {
+        stopSignal.set(true);
+    }
+    
+    /**
+     * Makes this search a helper thread of a parallel search, see helperId
+     * 
+     * @param helperId      the number of the helper, 0 for the main thread
+     */
+    public void setHelperId(int helperId) {
+        this.helperId = helperId;
+    }
+    
+    /**
+     * @param listener      given the result of each iteration as soon as it finishes, on
+     * the searching thread, or null for none
+     */
+    public void setIterationListener(Consumer<SearchResult> listener) {
+        this.iterationListener = listener;
+    }
+    
+    /**
+     * Searches each root move, the first with the full window and the rest with a null
+     * window that is only widened if the move turns out to be better (principal
+     * variation search). Each move's score is kept to order the next iteration
+     * 
+     * @return the score of the best root move
+     */
+    private int searchRoot(int depth, int alpha, int beta) {
+        int bestScore = -INFINITY;
+        int passedTurns = position.getPassedTurns();
+        followPv = true;
+        
+        for (int i=0; i<rootCount; i++) {
+            int move = rootMoves[i];
+            makeMove(0, move);
+            
+            int score;
+            if (i == 0) {
+                score = -negamax(1, depth-1, -beta, -alpha, false);
+            } else {
+                score = -negamax(1, depth-1, -alpha-1, -alpha, false);
+                if (score > alpha && score < beta && !aborted) {
+                    score = -negamax(1, depth-1, -beta, -alpha, false);
+                }
+            }
+            unmakeMove(0, move, passedTurns);
+            if (aborted) return 0;
+            
+            rootScores[i] = score;
+            if (score > bestScore) {
+                bestScore = score;
+                updatePv(0, move);
+            }
+            if (score > alpha) alpha = score;
+            if (alpha >= beta) break;
+            
+            followPv = false;
+        }
+        
+        return bestScore;
+    }
+    
+    /**
+     * The negamax alpha-beta search below the root
+     * 
+     * @param ply       how many moves (or passes) from the root this position is
+     * @param depth     how many more moves to search before evaluating
+     * @param passed    whether the previous move was a pass, if this player also has to
+     *                  pass then the game is over
+     * 
+     * @return the score of the position for its side to move
+     */
+    private int negamax(int ply, int depth, int alpha, int beta, boolean passed) {
+        pvLength[ply] = ply;
+        if ((++nodes & TIMECHECKMASK) == 0) checkTime();
+        if (aborted) return 0;
+        
+        GameState state = position;
+        if (depth == 0) {
+            followPv = false;
+            return (patterns != null) ? patterns.evaluate(state) : evaluator.evaluate(state);
+        }
+        
+        // A stored score can only end the search in null window searches, so the
+        // principal variation is always searched in full
+        long key = state.getHashKey();
+        long entry = table.probe(key);
+        int tableMove = PASS;
+        if (entry != 0) {
+            tableMove = TranspositionTable.move(entry);
+            
+            if (TranspositionTable.depth(entry) >= depth && beta-alpha == 1) {
+                int stored = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                
+                if (bound == TranspositionTable.EXACT) return stored;
+                if (bound == TranspositionTable.LOWER && stored >= beta) return stored;
+                if (bound == TranspositionTable.UPPER && stored <= alpha) return stored;
+            }
+        }
+        
+        int count = generateMoves(ply, state, tableMove);
+        int passedTurns = state.getPassedTurns();
+        
+        if (count == 0) {
+            if (passed) return evaluator.finalScore(state);
+            
+            state.pass();
+            int score = -negamax(ply+1, depth, -beta, -alpha, true);
+            state.undoPass(passedTurns);
+            updatePv(ply, PASS);
+            return score;
+        }
+        
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = moveLists[ply][0];
+        int[] moves = moveLists[ply];
+        
+        for (int i=0; i<count; i++) {
+            makeMove(ply, moves[i]);
+            
+            int score;
+            if (i == 0) {
+                score = -negamax(ply+1, depth-1, -beta, -alpha, false);
+            } else {
+                score = -negamax(ply+1, depth-1, -alpha-1, -alpha, false);
+                if (score > alpha && score < beta && !aborted) {
+                    score = -negamax(ply+1, depth-1, -beta, -alpha, false);
+                }
+            }
+            unmakeMove(ply, moves[i], passedTurns);
+            if (aborted) return 0;
+            
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = moves[i];
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, moves[i]);
+                }
+            }
+            if (alpha >= beta) break;
+        }
+        
+        int bound = TranspositionTable.EXACT;
+        if (bestScore <= originalAlpha) bound = TranspositionTable.UPPER;
+        if (bestScore >= beta) bound = TranspositionTable.LOWER;
+        table.store(key, depth, bestScore, bound, bestMove);
+        
+        return bestScore;
+    }
+    
+    /**
+     * Plays a move on the position, keeping the captured discs of the ply to take it back
+     * and the pattern indices up to date
+     */
+    private void makeMove(int ply, int move) {
+        int color = position.getSideToMove();
+        position.play(move, flips[ply]);
+        if (patterns != null) patterns.play(color, move, flips[ply]);
+    }
+    
+    /**
+     * Takes back the move played by makeMove on the same ply
+     */
+    private void unmakeMove(int ply, int move, int passedTurns) {
+        position.undo(move, flips[ply], passedTurns);
+        if (patterns != null) patterns.undo(position.getSideToMove(), move, flips[ply]);
+    }
+    
+    /**
+     * Finds the legal moves of a position and sorts them so the most promising are searched
+     * first, the best move stored in the transposition table, the move from the previous
+     * principal variation and then by square weight
+     * 
+     * @param tableMove     the stored best move, or PASS if there isn't one
+     * 
+     * @return the number of legal moves
+     */
+    private int generateMoves(int ply, GameState state, int tableMove) {
+        long[] mask = moveMasks[ply];
+        int[] moves = moveLists[ply];
+        int[] keys = moveKeys[ply];
+        state.legalMoves(mask);
+        
+        int pvMove = (followPv && ply < previousPv.length) ? previousPv[ply] : PASS;
+        int count = 0;
+        
+        for (int i=0; i<mask.length; i++) {
+            long word = mask[i];
+            while (word != 0) {
+                int move = i*64+Long.numberOfTrailingZeros(word);
+                int key = evaluator.getSquareWeight(move);
+                if (move == pvMove) key = INFINITY;
+                if (move == tableMove) key = INFINITY+1;
+                
+                // Insertion sort, move lists are short
+                int j = count++;
+                while (j > 0 && keys[j-1] < key) {
+                    moves[j] = moves[j-1];
+                    keys[j] = keys[j-1];
+                    j--;
+                }
+                moves[j] = move;
+                keys[j] = key;
+                
+                word &= word-1;
+            }
+        }
+        
+        if (pvMove == PASS || count == 0 || moves[0] != pvMove) followPv = false;
+        return count;
+    }
+    
+    /**
+     * Sorts the root moves by their scores from the last iteration, best first. The sort is
+     * stable so moves with equal scores keep their order
+     */
+    private void sortRootMoves() {
+        for (int i=1; i<rootCount; i++) {
+            int move = rootMoves[i];
+            int score = rootScores[i];
+            int j = i;
+            while (j > 0 && rootScores[j-1] < score) {
+                rootMoves[j] = rootMoves[j-1];
+                rootScores[j] = rootScores[j-1];
+                j--;
+            }
+            rootMoves[j] = move;
+            rootScores[j] = score;
+        }
+    }
+    
+    /**
+     * Makes the move followed by the child's principal variation this ply's principal
+     * variation
+     */
+    private void updatePv(int ply, int move) {
+        pv[ply][ply] = move;
+        int childLength = pvLength[ply+1];
+        for (int i=ply+1; i<childLength; i++) {
+            pv[ply][i] = pv[ply+1][i];
+        }
+        pvLength[ply] = Math.max(childLength, ply+1);
+    }
+    
+    /**
+     * Stops the search once it has been asked to or the time is up
+     */
+    private void checkTime() {
+        if (stopSignal.get() || System.nanoTime() > deadline) aborted = true;
+    }
+    
+    /**
+     * Makes sure there are capture bitboards and move lists for every ply up to the
+     * given one
+     */
+    private void ensurePly(int plies) {
+        int old = flips.length;
+        if (plies+1 <= old) return;
+        
+        int length = plies+1;
+        flips = Arrays.copyOf(flips, length);
+        moveMasks = Arrays.copyOf(moveMasks, length);
+        moveLists = Arrays.copyOf(moveLists, length);
+        moveKeys = Arrays.copyOf(moveKeys, length);
+        pv = Arrays.copyOf(pv, length);
+        pvLength = Arrays.copyOf(pvLength, length);
+        
+        for (int i=old; i<length; i++) {
+            flips[i] = new long[Rules.words(size)];
+            moveMasks[i] = new long[Rules.words(size)];
+            moveLists[i] = new int[size*size];
+            moveKeys[i] = new int[size*size];
+            pv[i] = new int[length];
+        }
+        // The principal variations of earlier plies have to fit every ply
+        for (int i=0; i<old; i++) {
+            pv[i] = Arrays.copyOf(pv[i], length);
+        }
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    /**
+     * @return the number of positions searched by the current or last search
+     */
+    public long getNodes() {
+        return nodes;
+    }
+    
+    public TranspositionTable getTable() {
+        return table;
+    }
+}
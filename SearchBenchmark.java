@@ -0,0 +1,113 @@
+// Other Imports
+import java.util.Random;
+
+/**
+ * Runs the computer player's search to a fixed depth on the same set of positions every
+ * time and prints the nodes searched, the time taken and the nodes per second. Since the
+ * positions and depth never change the node counts should only change when the search
+ * itself does, so the speed of different versions of the engine can be compared
+ *
+ * Given more than one thread the positions are searched with 1 thread and then with that
+ * many threads, and the time-to-depth speedup and the search overhead (the extra nodes
+ * searched by the parallel search) are printed
+ *
+ * Usage: java SearchBenchmark [depth] [board size] [positions] [threads]
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class SearchBenchmark
+{
+    // The positions are made by random play from this seed so they are always the same
+    private static final long SEED = 20210326L;
+    
+    /**
+     * @param args      the search depth (default 10), board size (default 8), number
+     * of positions (default 10) and threads (default 1)
+     */
+    public static void main(String[] args) {
+        int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 10;
+        int size = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+        int positions = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+        int threads = (args.length > 3) ? Integer.parseInt(args[3]) : 1;
+        
+        GameState[] states = createPositions(size, positions);
+        
+        System.out.println("1 thread:");
+        long[] single = run(states, depth, 1);
+        if (threads <= 1) return;
+        
+        System.out.println(threads+" threads:");
+        long[] parallel = run(states, depth, threads);
+        
+        System.out.printf("speedup %.2fx, search overhead %.1f%%%n",
+            (double) single[1]/Math.max(1, parallel[1]),
+            100.0*(parallel[0]-single[0])/Math.max(1, single[0]));
+    }
+    
+    /**
+     * Searches every position to the depth and prints each result and the totals
+     * 
+     * @param states        the positions to search
+     * @param depth         the depth to search to
+     * @param threads       the number of threads to search with
+     * 
+     * @return the total nodes and total nanoseconds
+     */
+    private static long[] run(GameState[] states, int depth, int threads) {
+        ParallelSearch search = new ParallelSearch(states[0].getSize(), threads);
+        
+        // One untimed pass so the JIT compiler has warmed up before measuring
+        for (GameState state: states) {
+            search.search(state, Math.max(1, depth-2), 0);
+        }
+        
+        long totalNodes = 0;
+        long totalNanos = 0;
+        
+        for (int i=0; i<states.length; i++) {
+            search.clearTable();
+            SearchResult result = search.search(states[i], depth, 0);
+            totalNodes += result.getNodes();
+            totalNanos += result.getElapsedNanos();
+            
+            System.out.println("position "+(i+1)+": "+
+                states[i].squareName(result.getMove())+" "+result+", "+search.getTable());
+        }
+        search.shutdown();
+        
+        System.out.println("total: "+totalNodes+" nodes, "+(totalNanos/1000000)+" ms, "+
+            (long) (totalNodes*1e9/Math.max(1, totalNanos))+" nps");
+        return new long[] {totalNodes, totalNanos};
+    }
+    
+    /**
+     * Creates positions by playing random moves from the start of the game, each position
+     * is 4 plies further into the game than the one before it
+     * 
+     * @param size          the width of the board
+     * @param positions     how many positions to create
+     * 
+     * @return the positions, all of which have a legal move for the side to move
+     */
+    public static GameState[] createPositions(int size, int positions) {
+        Random random = new Random(SEED);
+        GameState[] states = new GameState[positions];
+        
+        for (int i=0; i<positions; i++) {
+            GameState state = new GameState(size);
+            state.startGame();
+            int plies = 4*(i+1) % (size*size-8);
+            
+            for (int p=0; p<plies && !state.isTerminal(); p++) {
+                state.playRandomMove(random);
+            }
+            if (!state.hasLegalMove() && !state.isTerminal()) state.pass();
+            if (state.isTerminal()) state.startGame();
+            
+            states[i] = state;
+        }
+        
+        return states;
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * The outcome of a search by the computer player: the move it chose, the score it thinks
+ * the position is worth for the side to move, how deep it searched and how fast
+ *
+ * Results from the EndgameSolver are exact, their score is the final disc difference with
+ * perfect play and their depth is the number of empty squares that were solved. Results
+ * from the OpeningBook have the average final disc difference of the book move as their
+ * score and no depth
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class SearchResult
+{
+    private final int move;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+    private final int[] principalVariation;
+    private final boolean exact;
+    
+    // The number of games the move was played in, for moves from the opening book
+    private int bookGames = 0;
+    
+    // Whether the result is from a MonteCarloSearch, whose nodes are playouts
+    private boolean playouts = false;
+    
+    /**
+     * @param move                  the chosen square or Search.PASS
+     * @param score                 the score of the move for the side to move
+     * @param depth                 the depth of the last finished iteration
+     * @param nodes                 the number of positions searched
+     * @param elapsedNanos          how long the search took
+     * @param principalVariation    the moves both players are expected to play
+     */
+    public SearchResult(int move, int score, int depth, long nodes, long elapsedNanos,
+        int[] principalVariation) {
+        this(move, score, depth, nodes, elapsedNanos, principalVariation, false);
+    }
+    
+    /**
+     * @param exact                 whether the position was solved to the end of the game
+     */
+    public SearchResult(int move, int score, int depth, long nodes, long elapsedNanos,
+        int[] principalVariation, boolean exact) {
+        this.move = move;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+        this.principalVariation = principalVariation;
+        this.exact = exact;
+    }
+    
+    /**
+     * Creates the result of looking a position up in the opening book
+     * 
+     * @param move              the book move
+     * @param averageScore      the average final disc difference after the move
+     * @param games             the number of games the move was played in
+     * @param elapsedNanos      how long the lookup took
+     */
+    public static SearchResult fromBook(int move, int averageScore, int games,
+        long elapsedNanos) {
+        SearchResult result = new SearchResult(move, averageScore, 0, 0, elapsedNanos,
+            new int[] {move});
+        result.bookGames = games;
+        return result;
+    }
+    
+    /**
+     * Creates the result of a MonteCarloSearch
+     * 
+     * @param move              the most visited move
+     * @param winRate           how often the move won its playouts, in tenths of a percent
+     * @param depth             the deepest node of the tree
+     * @param playouts          the number of random games played
+     * @param elapsedNanos      how long the search took
+     * @param principalVariation    the most visited moves from the root
+     */
+    public static SearchResult fromPlayouts(int move, int winRate, int depth, long playouts,
+        long elapsedNanos, int[] principalVariation) {
+        SearchResult result = new SearchResult(move, winRate, depth, playouts, elapsedNanos,
+            principalVariation);
+        result.playouts = true;
+        return result;
+    }
+    
+    public int getMove() {
+        return move;
+    }
+    
+    public int getScore() {
+        return score;
+    }
+    
+    public int getDepth() {
+        return depth;
+    }
+    
+    public long getNodes() {
+        return nodes;
+    }
+    
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    
+    public int[] getPrincipalVariation() {
+        return principalVariation;
+    }
+    
+    public boolean isExact() {
+        return exact;
+    }
+    
+    /**
+     * @return whether the move came from the opening book
+     */
+    public boolean isBookMove() {
+        return bookGames > 0;
+    }
+    
+    public int getBookGames() {
+        return bookGames;
+    }
+    
+    /**
+     * @return whether the result is from a MonteCarloSearch, its score is then a win rate
+     * in tenths of a percent and its nodes are playouts
+     */
+    public boolean isFromPlayouts() {
+        return playouts;
+    }
+    
+    /**
+     * @return the number of positions searched per second
+     */
+    public long getNodesPerSecond() {
+        if (elapsedNanos <= 0) return 0;
+        return (long) (nodes*1e9/elapsedNanos);
+    }
+    
+    /**
+     * @return a one line summary such as "depth 9, score 14, 1203344 nodes, 5012000 nps",
+     * "solved 18 empties, final score 6, ..." for exact results, "opening book, ..." for
+     * book moves or "win rate 54.2%, ..." for Monte Carlo searches
+     */
+    @Override
+    public String toString() {
+        if (isBookMove()) {
+            return "opening book, "+bookGames+" games, average score "+score;
+        }
+        if (playouts) {
+            return "win rate "+(score/10)+"."+(score%10)+"%, "+nodes+" playouts, "+
+                getNodesPerSecond()+" playouts/s, tree depth "+depth+", "+
+                (elapsedNanos/1000000)+" ms";
+        }
+        if (exact) {
+            return "solved "+depth+" empties, final score "+score+", "+nodes+" nodes, "+
+                getNodesPerSecond()+" nps, "+(elapsedNanos/1000000)+" ms";
+        }
+        return "depth "+depth+", score "+score+", "+nodes+" nodes, "+
+            getNodesPerSecond()+" nps, "+(elapsedNanos/1000000)+" ms";
+    }
+}
@@ -0,0 +1,308 @@
+// Other Imports
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Loads a GameServer with thousands of simulated players over loopback, to check how
+ * many games it can host and how quickly it hands the moves on. All the players run on
+ * one thread with a Selector. They are paired off, the first of each pair creating a game
+ * and the second joining it, and each plays a random legal move as soon as it is its turn
+ * and starts a new game when one is over, until the time is up
+ *
+ * A move's round trip is timed from the player sending it until the server's update for
+ * it comes back. At the end the games and moves per second, the round trip percentiles and
+ * the server's own latency figures (see GameServer) are printed. With no host given a
+ * server is started in this program on any free port
+ *
+ * Usage: java ServerLoadClient [players] [seconds] [board size] [host] [port]
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class ServerLoadClient
+{
+    // The round trips kept for the percentiles, at most this many
+    private static final int MAXSAMPLES = 1 << 22;
+    
+    // The connections opened before waiting for the server to accept them
+    private static final int CONNECTBATCH = 500;
+    
+    private final Player[] players;
+    private final int size;
+    private final Selector selector;
+    private final Random random = new Random();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(16384);
+    
+    // The players with lines waiting to be sent, written once per pass of the selector
+    private final ArrayDeque<Player> toFlush = new ArrayDeque<>();
+    
+    private long[] roundTrips = new long[1024];
+    private int samples = 0;
+    private long moves = 0;
+    private long games = 0;
+    private long errors = 0;
+    private String serverStats;
+    
+    /**
+     * Connects the players, they start playing when run is called
+     * 
+     * @param count     the number of players, rounded up to an even number
+     * @param size      the size of the boards the games are played on
+     */
+    public ServerLoadClient(String host, int port, int count, int size) throws IOException {
+        this.size = size;
+        selector = Selector.open();
+        players = new Player[(count+1)/2*2];
+        
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        for (int i=0; i<players.length; i++) {
+            SocketChannel channel = SocketChannel.open(address);
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            players[i] = new Player(i, channel);
+            players[i].key = channel.register(selector, SelectionKey.OP_READ, players[i]);
+            
+            if (i % CONNECTBATCH == CONNECTBATCH-1) selector.selectNow();
+        }
+    }
+    
+    /**
+     * Plays games until the time is up, then asks the server for its statistics
+     */
+    public void run(long millis) throws IOException {
+        for (int i=0; i<players.length; i+=2) {
+            players[i].send("create "+size);
+        }
+        flushAll();
+        
+        long end = System.currentTimeMillis()+millis;
+        boolean stopping = false;
+        while (true) {
+            long left = end-System.currentTimeMillis();
+            if (left <= 0 && !stopping) {
+                stopping = true;
+                players[0].send("stats");
+                flushAll();
+            }
+            if (stopping && serverStats != null) break;
+            
+            selector.select(Math.max(1, Math.min(left, 1000)));
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Player player = (Player) key.attachment();
+                if (key.isValid() && key.isReadable()) read(player, stopping);
+                if (key.isValid() && key.isWritable()) player.flush();
+            }
+            flushAll();
+        }
+        
+        for (Player player: players) {
+            player.channel.close();
+        }
+        selector.close();
+    }
+    
+    private void flushAll() throws IOException {
+        Player player;
+        while ((player = toFlush.poll()) != null) {
+            player.flush();
+        }
+    }
+    
+    private void read(Player player, boolean stopping) throws IOException {
+        readBuffer.clear();
+        int read = player.channel.read(readBuffer);
+        if (read < 0) {
+            player.key.cancel();
+            return;
+        }
+        
+        readBuffer.flip();
+        while (readBuffer.hasRemaining()) {
+            char c = (char) (readBuffer.get() & 0xFF);
+            if (c == '\n') {
+                handle(player, player.line.toString().split(" "), stopping);
+                player.line.setLength(0);
+            } else {
+                player.line.append(c);
+            }
+        }
+    }
+    
+    /**
+     * Handles a line from the server to a player
+     */
+    private void handle(Player player, String[] parts, boolean stopping) {
+        switch (parts[0]) {
+            case "created":
+                players[player.index+1].send("join "+parts[1]);
+                break;
+            case "started":
+                player.color = (parts[3].equals("black")) ? GameState.BLACK : GameState.WHITE;
+                player.state = new GameState(Integer.parseInt(parts[2]));
+                player.state.startGame();
+                if (player.color == GameState.BLACK) playMove(player);
+                break;
+            case "moved":
+                moved(player, parts, stopping);
+                break;
+            case "over":
+                if (player.color == GameState.BLACK) {
+                    games++;
+                    if (!stopping) player.send("create "+size);
+                }
+                break;
+            case "stats":
+                serverStats = String.join(" ", parts);
+                break;
+            default:
+                errors++;
+                if (errors <= 10) System.err.println("Player "+player.index+": "
+                    +String.join(" ", parts));
+        }
+    }
+    
+    /**
+     * Follows a move in the player's own copy of the game, and plays if it is its turn
+     */
+    private void moved(Player player, String[] parts, boolean stopping) {
+        GameState state = player.state;
+        state.play(state.parseSquare(parts[3]));
+        while (!state.isTerminal() && !state.hasLegalMove()) {
+            state.pass();
+        }
+        
+        if (parts[2].equals(GameState.colorName(player.color))) {
+            addRoundTrip(System.nanoTime()-player.sentNanos);
+            moves++;
+        }
+        if (parts[4].equals(GameState.colorName(player.color)) && !stopping) playMove(player);
+    }
+    
+    /**
+     * Sends a random legal move for the player
+     */
+    private void playMove(Player player) {
+        long[] legal = player.state.legalMoves();
+        int count = 0;
+        for (long word: legal) {
+            count += Long.bitCount(word);
+        }
+        
+        int pick = random.nextInt(count);
+        for (int square=0; ; square++) {
+            if (Rules.has(legal, square) && pick-- == 0) {
+                player.sentNanos = System.nanoTime();
+                player.send("move "+player.state.squareName(square));
+                return;
+            }
+        }
+    }
+    
+    private void addRoundTrip(long nanos) {
+        if (samples == MAXSAMPLES) return;
+        if (samples == roundTrips.length) roundTrips = Arrays.copyOf(roundTrips, samples*2);
+        roundTrips[samples++] = nanos;
+    }
+    
+    /**
+     * Prints the games and moves per second and the round trip and server latencies
+     */
+    public void printResults(double seconds) {
+        long[] sorted = Arrays.copyOf(roundTrips, samples);
+        Arrays.sort(sorted);
+        System.out.printf("%d players: %d games (%.1f/s), %d moves (%.0f/s), %d errors%n",
+            players.length, games, games/seconds, moves, moves/seconds, errors);
+        System.out.printf("round trip p50 %.2f ms, p99 %.2f ms, worst %.2f ms%n",
+            Engine.percentile(sorted, 0.5)/1e6, Engine.percentile(sorted, 0.99)/1e6,
+            Engine.percentile(sorted, 1.0)/1e6);
+        System.out.println("server (connections, games, moves, average, p99, worst us): "
+            +serverStats.substring("stats ".length()));
+    }
+    
+    /**
+     * @param args      the number of players (default 2000), how long to play for in
+     * seconds (default 10), the board size (default 8) and the server's host and port
+     * (default a server started here)
+     */
+    public static void main(String[] args) throws IOException {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+        int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+        int size = (args.length > 2) ? Integer.parseInt(args[2]) : 8;
+        
+        GameServer server = null;
+        String host = "localhost";
+        int port;
+        if (args.length > 3) {
+            host = args[3];
+            port = (args.length > 4) ? Integer.parseInt(args[4]) : GameServer.DEFAULTPORT;
+        } else {
+            server = new GameServer(0, Runtime.getRuntime().availableProcessors());
+            server.start();
+            port = server.getPort();
+        }
+        
+        ServerLoadClient client = new ServerLoadClient(host, port, count, size);
+        System.out.println("Connected "+client.players.length+" players to "+host+":"+port);
+        client.run(seconds*1000L);
+        client.printResults(seconds);
+        if (server != null) server.close();
+    }
+    
+    /**
+     * One simulated player and its copy of the game it is playing
+     */
+    private class Player
+    {
+        private final int index;
+        private final SocketChannel channel;
+        private SelectionKey key;
+        
+        private final StringBuilder line = new StringBuilder();
+        private final StringBuilder out = new StringBuilder();
+        private ByteBuffer pending = ByteBuffer.allocate(0);
+        
+        private GameState state;
+        private int color;
+        private long sentNanos;
+        
+        private Player(int index, SocketChannel channel) {
+            this.index = index;
+            this.channel = channel;
+        }
+        
+        private void send(String text) {
+            if (out.length() == 0) toFlush.add(this);
+            out.append(text).append('\n');
+        }
+        
+        /**
+         * Writes what is waiting to go to the server, watching for the socket to be
+         * writable again if it doesn't all go
+         */
+        private void flush() throws IOException {
+            if (out.length() > 0) {
+                byte[] bytes = out.toString().getBytes(StandardCharsets.US_ASCII);
+                out.setLength(0);
+                ByteBuffer joined = ByteBuffer.allocate(pending.remaining()+bytes.length);
+                joined.put(pending).put(bytes).flip();
+                pending = joined;
+            }
+            
+            channel.write(pending);
+            key.interestOps((pending.hasRemaining())
+                ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+    }
+}
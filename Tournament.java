@@ -0,0 +1,362 @@
+// Other Imports
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays games between two computer players without the game's window and reports how the
+ * first did against the second, used to check whether a change to the engine makes it
+ * stronger. A player is one of:
+ * - random, which plays a random legal move
+ * - depth<n>, which searches each move to depth n (depth6)
+ * - time<ms>, which searches each move for that many milliseconds (time100)
+ * - clock<ms>, which has that many milliseconds on its clock for the whole game and
+ *   shares them out between its moves with a MoveTimer (clock5000)
+ * - mcts<ms>, which plays each move after that many milliseconds of MonteCarloSearch
+ * - playouts<n>, which plays each move after n Monte Carlo playouts (playouts5000)
+ *
+ * Games are played in pairs from the same opening, a number of random moves from the start,
+ * with each player taking black in one game of the pair so neither is helped by a lucky
+ * opening. The games are run on a fixed pool of threads, each of which keeps its own
+ * players, and the wins, draws, losses and average disc difference of the first player
+ * are printed along with the games played per second. For the timed players (time and
+ * clock) how far past its time each move was handed back is printed too, as the 99th
+ * percentile and the worst overshoot, and for clock players how many games they ran out
+ * of time in
+ *
+ * Usage: java Tournament [games] [board size] [player 1] [player 2] [threads] [random plies]
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class Tournament
+{
+    // Each search player's transposition table, kept small since every thread has two
+    private static final int TABLEMB = 16;
+    
+    // Each Monte Carlo player's node arena
+    private static final int ARENAMB = 32;
+    
+    private final int size;
+    private final String firstPlayer;
+    private final String secondPlayer;
+    private final int randomPlies;
+    private final long seed;
+    
+    private final LongAdder wins = new LongAdder();
+    private final LongAdder draws = new LongAdder();
+    private final LongAdder losses = new LongAdder();
+    private final LongAdder discDifference = new LongAdder();
+    private final AtomicLong gamesPlayed = new AtomicLong();
+    private final AtomicLong pairsPlayed = new AtomicLong();
+    
+    // The engines of every thread's players, for their overshoots, and the games each
+    // clock player ran out of time in
+    private final List<List<Engine>> engines = new ArrayList<>();
+    private final LongAdder[] timeLosses = {new LongAdder(), new LongAdder()};
+    
+    // The players of the thread running the game, created the first time each thread
+    // plays a game
+    private final ThreadLocal<Contestant[]> players;
+    
+    /**
+     * @param size              the width (and height) of the board
+     * @param firstPlayer       the player being tested, see above
+     * @param secondPlayer      the player it is tested against
+     * @param randomPlies       how many random moves each opening has
+     * @param seed              the seed the openings are made from
+     */
+    public Tournament(int size, String firstPlayer, String secondPlayer, int randomPlies,
+        long seed) {
+        this.size = size;
+        this.firstPlayer = firstPlayer;
+        this.secondPlayer = secondPlayer;
+        this.randomPlies = randomPlies;
+        this.seed = seed;
+        
+        // Checked here so a mistyped player fails before any game is played
+        for (String player: new String[] {firstPlayer, secondPlayer}) {
+            if (!player.matches("random|depth\\d+|time\\d+|clock\\d+|mcts\\d+|playouts\\d+"))
+                throw new IllegalArgumentException("Unknown player "+player+
+                    ", use random, depth<n>, time<ms>, clock<ms>, mcts<ms> or playouts<n>");
+        }
+        
+        engines.add(Collections.synchronizedList(new ArrayList<>()));
+        engines.add(Collections.synchronizedList(new ArrayList<>()));
+        players = ThreadLocal.withInitial(() -> new Contestant[] {
+            createPlayer(0, new Random()),
+            createPlayer(1, new Random())
+        });
+    }
+    
+    /**
+     * Plays the games on a pool of threads and prints progress as they finish
+     * 
+     * @param games         the number of games, rounded up to an even number
+     * @param threads       the number of games played at once
+     */
+    public void run(int games, int threads) {
+        int pairs = (games+1)/2;
+        long start = System.nanoTime();
+        int reportEvery = Math.max(1, pairs/10);
+        
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<?>> results = new ArrayList<>();
+        for (int p=0; p<pairs; p++) {
+            int pair = p;
+            results.add(pool.submit(() -> {
+                playPair(pair);
+                long played = pairsPlayed.incrementAndGet();
+                if (played % reportEvery == 0 && played < pairs) printResults(start);
+            }));
+        }
+        
+        try {
+            for (Future<?> result: results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A tournament game failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        
+        printResults(start);
+    }
+    
+    /**
+     * Plays both games from one opening, the first player taking black and then white
+     * 
+     * @param pair      the number of the pair, which picks its opening
+     */
+    private void playPair(int pair) {
+        GameState opening = new GameState(size);
+        opening.startGame();
+        Random random = new Random(seed+pair);
+        for (int i=0; i<randomPlies && !opening.isTerminal(); i++) {
+            opening.playRandomMove(random);
+        }
+        
+        Contestant[] threadPlayers = players.get();
+        for (int firstColor=GameState.BLACK; firstColor<=GameState.WHITE; firstColor++) {
+            GameState state = new GameState(opening);
+            threadPlayers[0].newGame();
+            threadPlayers[1].newGame();
+            
+            while (!state.isTerminal()) {
+                Contestant mover = (state.getSideToMove() == firstColor)
+                    ? threadPlayers[0] : threadPlayers[1];
+                int move = mover.chooseMove(state);
+                if (move == Search.PASS) {
+                    state.pass();
+                } else {
+                    state.play(move);
+                }
+            }
+            
+            int difference = state.count(firstColor)-state.count(3-firstColor);
+            if (difference > 0) wins.increment();
+            if (difference == 0) draws.increment();
+            if (difference < 0) losses.increment();
+            discDifference.add(difference);
+            gamesPlayed.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Prints the first player's results so far and the games played per second
+     */
+    private synchronized void printResults(long start) {
+        long played = gamesPlayed.get();
+        double seconds = (System.nanoTime()-start)/1e9;
+        
+        System.out.printf("%s vs %s: %d games, +%d =%d -%d, average disc difference %+.2f, "+
+            "score %.1f%%, %.1f games/s%n",
+            firstPlayer, secondPlayer, played, wins.sum(), draws.sum(), losses.sum(),
+            (double) discDifference.sum()/Math.max(1, played),
+            100*(wins.sum()+draws.sum()/2.0)/Math.max(1, played),
+            played/Math.max(seconds, 1e-9));
+        
+        for (int player=0; player<2; player++) {
+            String description = (player == 0) ? firstPlayer : secondPlayer;
+            if (!description.startsWith("time") && !description.startsWith("clock")) continue;
+            
+            long[] overshoots = getOvershoots(player);
+            System.out.printf("  %s: %d timed moves, overshoot p99 %.2f ms, worst %.2f ms, "+
+                "%d games out of time%n",
+                description, overshoots.length, Engine.percentile(overshoots, 0.99)/1e6,
+                Engine.percentile(overshoots, 1.0)/1e6, timeLosses[player].sum());
+        }
+    }
+    
+    /**
+     * @param player        0 for the first player, 1 for the second
+     * 
+     * @return the overshoot of every timed move the player made, in nanoseconds
+     */
+    public long[] getOvershoots(int player) {
+        List<Engine> playerEngines = engines.get(player);
+        synchronized (playerEngines) {
+            long[] all = new long[0];
+            for (Engine engine: playerEngines) {
+                long[] overshoots = engine.getOvershoots();
+                int start = all.length;
+                all = Arrays.copyOf(all, start+overshoots.length);
+                System.arraycopy(overshoots, 0, all, start, overshoots.length);
+            }
+            return all;
+        }
+    }
+    
+    public long getWins() {
+        return wins.sum();
+    }
+    
+    public long getDraws() {
+        return draws.sum();
+    }
+    
+    public long getLosses() {
+        return losses.sum();
+    }
+    
+    /**
+     * @return the first player's average disc difference over the games played
+     */
+    public double getAverageDifference() {
+        return (double) discDifference.sum()/Math.max(1, gamesPlayed.get());
+    }
+    
+    /**
+     * Creates one of the players from its description, which has already been checked
+     * 
+     * @param player        0 for the first player, 1 for the second
+     */
+    private Contestant createPlayer(int player, Random random) {
+        String description = (player == 0) ? firstPlayer : secondPlayer;
+        if (description.equals("random")) {
+            return state -> {
+                long[] moves = state.legalMoves();
+                int count = 0;
+                for (long word: moves) {
+                    count += Long.bitCount(word);
+                }
+                if (count == 0) return Search.PASS;
+                
+                int pick = random.nextInt(count);
+                for (int square=0; ; square++) {
+                    if (Rules.has(moves, square) && pick-- == 0) return square;
+                }
+            };
+        }
+        
+        if (description.startsWith("mcts") || description.startsWith("playouts")) {
+            MonteCarloSearch monteCarlo = new MonteCarloSearch(size, 1, ARENAMB);
+            if (description.startsWith("mcts")) {
+                long millis = Long.parseLong(description.substring(4));
+                return state -> monteCarlo.search(state, 0, millis).getMove();
+            }
+            long playouts = Long.parseLong(description.substring(8));
+            return state -> monteCarlo.search(state, playouts, 0).getMove();
+        }
+        
+        Engine engine = new Engine(size, 1, TABLEMB, false);
+        engines.get(player).add(engine);
+        if (description.startsWith("depth")) {
+            int depth = Integer.parseInt(description.substring(5));
+            return state -> engine.search(state, depth, null, new AtomicBoolean()).getMove();
+        }
+        if (description.startsWith("time")) {
+            long millis = Long.parseLong(description.substring(4));
+            return state -> engine.search(state, MoveTimer.fixed(millis)).getMove();
+        }
+        
+        return new ClockPlayer(engine, Long.parseLong(description.substring(5)),
+            timeLosses[player]);
+    }
+    
+    /**
+     * @param args      the number of games (default 100), board size (default 8), the two
+     * players (default depth4 and random), threads (default one per processor) and random
+     * plies in each opening (default 4)
+     */
+    public static void main(String[] args) {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+        int size = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+        String first = (args.length > 2) ? args[2] : "depth4";
+        String second = (args.length > 3) ? args[3] : "random";
+        int threads = (args.length > 4) ? Integer.parseInt(args[4])
+            : Runtime.getRuntime().availableProcessors();
+        int randomPlies = (args.length > 5) ? Integer.parseInt(args[5]) : 4;
+        
+        new Tournament(size, first, second, randomPlies, System.nanoTime()).run(games, threads);
+    }
+    
+    /**
+     * Picks a move for the side to move in a position
+     */
+    private interface Contestant
+    {
+        /**
+         * @return the square to play, or Search.PASS if there is no legal move
+         */
+        int chooseMove(GameState state);
+        
+        /**
+         * Called before each game the player plays
+         */
+        default void newGame() {
+        }
+    }
+    
+    /**
+     * A player with a clock for the whole game, each move's time is taken off it and the
+     * MoveTimer decides how much of what is left each move gets. A player that runs out
+     * carries on with no time rather than losing, but the game is counted
+     */
+    private static class ClockPlayer implements Contestant
+    {
+        private final Engine engine;
+        private final long gameMillis;
+        private final LongAdder timeLosses;
+        private long remainingNanos;
+        private boolean outOfTime;
+        
+        private ClockPlayer(Engine engine, long gameMillis, LongAdder timeLosses) {
+            this.engine = engine;
+            this.gameMillis = gameMillis;
+            this.timeLosses = timeLosses;
+        }
+        
+        @Override
+        public void newGame() {
+            remainingNanos = gameMillis*1000000;
+            outOfTime = false;
+        }
+        
+        @Override
+        public int chooseMove(GameState state) {
+            long start = System.nanoTime();
+            MoveTimer timer = MoveTimer.forClock(state, Math.max(0, remainingNanos/1000000), 0);
+            int move = engine.search(state, timer).getMove();
+            
+            remainingNanos -= System.nanoTime()-start;
+            if (remainingNanos < 0 && !outOfTime) {
+                outOfTime = true;
+                timeLosses.increment();
+            }
+            return move;
+        }
+    }
+}
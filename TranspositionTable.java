@@ -0,0 +1,241 @@
+// Other Imports
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A hash table of positions the search has already scored, shared by every search thread.
+ * When a position is reached again (through a different order of moves, by another thread
+ * or in the next iteration) its stored score can cut the search short and its stored best
+ * move is tried first
+ *
+ * The table is allocated once, with the largest power of two number of entries that fits
+ * its memory budget. Entries are grouped into buckets of 4 and a position can be stored in
+ * any entry of its bucket. When the bucket is full the entry with the lowest depth is
+ * replaced, where entries from earlier searches count as shallower the older they are
+ *
+ * Each entry is two longs, the position's key XORed with its data and the data itself.
+ * Threads read and write entries without locking, so an entry can be half overwritten by
+ * another thread while it is being read. Such an entry fails the check that its first long
+ * XORed with its data gives back the key and is treated as a miss
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class TranspositionTable
+{
+    // Whether the stored score is exact, a lower bound (the search failed high) or an
+    // upper bound (the search failed low)
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+    
+    private static final int BUCKETSIZE = 4;
+    private static final int ENTRYBYTES = 16;
+    
+    // Java arrays can't hold more than 2^31 longs
+    private static final long MAXENTRIES = 1L << 29;
+    
+    // Set in every stored entry so valid data is never 0
+    private static final long VALIDBIT = 1L << 58;
+    
+    // The search the entry was stored in is kept in the top 5 bits, each search it is
+    // behind the current one counts as this much less depth when choosing what to replace
+    private static final int AGESHIFT = 59;
+    private static final int AGEMASK = 31;
+    private static final int AGEWEIGHT = 8;
+    
+    private final long[] table;
+    private final int bucketMask;
+    private final int megabytes;
+    private volatile int age = 0;
+    
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+    
+    /**
+     * @param megabytes     the memory the table may use
+     */
+    public TranspositionTable(int megabytes) {
+        long budget = Math.max(1, megabytes)*1024L*1024L/ENTRYBYTES;
+        long entries = Math.min(Long.highestOneBit(budget), MAXENTRIES);
+        
+        this.megabytes = (int) (entries*ENTRYBYTES >> 20);
+        table = new long[(int) (entries*2)];
+        bucketMask = (int) (entries/BUCKETSIZE)-1;
+    }
+    
+    /**
+     * Looks up a position
+     * 
+     * @param key       the position's hash key
+     * 
+     * @return the entry's data, or 0 if the position isn't stored
+     */
+    public long probe(long key) {
+        probes.increment();
+        int base = ((int) key & bucketMask)*BUCKETSIZE*2;
+        
+        for (int i=base; i<base+BUCKETSIZE*2; i+=2) {
+            long data = table[i+1];
+            if (data != 0 && (table[i] ^ data) == key) {
+                hits.increment();
+                return data;
+            }
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Stores a position's score in its bucket. An entry already holding the position is
+     * overwritten unless it was searched deeper during this search, otherwise an empty
+     * entry or the entry with the lowest depth is replaced
+     * 
+     * @param key       the position's hash key
+     * @param depth     the depth the position was searched to
+     * @param score     the score found
+     * @param bound     EXACT, LOWER or UPPER
+     * @param move      the best move found or Search.PASS
+     */
+    public void store(long key, int depth, int score, int bound, int move) {
+        int currentAge = age;
+        
+        // Moves past what 16 bits can hold (boards over 255 wide) are stored as no move
+        long storedMove = (move+1 > 0xffff) ? 0 : move+1;
+        long data = (score & 0xffffffffL)
+            | (storedMove << 32)
+            | ((long) Math.min(depth, 255) << 48)
+            | ((long) bound << 56)
+            | VALIDBIT
+            | ((long) currentAge << AGESHIFT);
+        
+        int base = ((int) key & bucketMask)*BUCKETSIZE*2;
+        int victim = base;
+        int lowestValue = Integer.MAX_VALUE;
+        boolean evicting = true;
+        
+        for (int i=base; i<base+BUCKETSIZE*2; i+=2) {
+            long old = table[i+1];
+            
+            if (old == 0) {
+                victim = i;
+                evicting = false;
+                break;
+            }
+            
+            if ((table[i] ^ old) == key) {
+                if (bound != EXACT && depth < depth(old) && age(old) == currentAge) return;
+                victim = i;
+                evicting = false;
+                break;
+            }
+            
+            int value = depth(old)-AGEWEIGHT*((currentAge-age(old)) & AGEMASK);
+            if (value < lowestValue) {
+                lowestValue = value;
+                victim = i;
+            }
+        }
+        
+        // Only losing a position stored during this search counts as a collision
+        if (evicting && age(table[victim+1]) == currentAge) collisions.increment();
+        
+        stores.increment();
+        table[victim] = key ^ data;
+        table[victim+1] = data;
+    }
+    
+    /**
+     * Moves the table on to the next search so the entries from earlier searches are
+     * replaced before the entries of this one
+     */
+    public void newSearch() {
+        age = (age+1) & AGEMASK;
+    }
+    
+    /**
+     * Empties the table and resets its counters, used when a new game is started
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        resetCounters();
+    }
+    
+    /**
+     * Sets the probe, hit, store and collision counters back to 0
+     */
+    public void resetCounters() {
+        probes.reset();
+        hits.reset();
+        stores.reset();
+        collisions.reset();
+    }
+    
+    public long getProbes() {
+        return probes.sum();
+    }
+    
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    public long getStores() {
+        return stores.sum();
+    }
+    
+    /**
+     * @return the number of stores that replaced a different position stored during the
+     * same search, many of these mean the table is too small for the search
+     */
+    public long getCollisions() {
+        return collisions.sum();
+    }
+    
+    /**
+     * @return the fraction of probes that found their position
+     */
+    public double getHitRate() {
+        long probeCount = getProbes();
+        return (probeCount == 0) ? 0 : (double) getHits()/probeCount;
+    }
+    
+    /**
+     * @return the memory the table uses in megabytes
+     */
+    public int getMegabytes() {
+        return megabytes;
+    }
+    
+    /**
+     * @return the size of the table and its counters on one line
+     */
+    @Override
+    public String toString() {
+        return String.format("hash %d MB, %d probes, %.1f%% hits, %d stores, %d collisions",
+            megabytes, getProbes(), 100*getHitRate(), getStores(), getCollisions());
+    }
+    
+    // Unpacking the entry data returned by probe
+    
+    public static int score(long data) {
+        return (int) data;
+    }
+    
+    public static int move(long data) {
+        return (int) ((data >>> 32) & 0xffff)-1;
+    }
+    
+    public static int depth(long data) {
+        return (int) ((data >>> 48) & 0xff);
+    }
+    
+    public static int bound(long data) {
+        return (int) ((data >>> 56) & 0x3);
+    }
+    
+    private static int age(long data) {
+        return (int) (data >>> AGESHIFT) & AGEMASK;
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ * Move generation for boards other than 8x8 using bitboards made of several longs. Bit
+ * row*size+column is counted across the longs (bit i is in word i/64), so moving one square
+ * in a direction is a shift of the whole bitboard by 1, size, size+1 or size-1 bits where
+ * each word takes the bits that overflow from its neighbour. Edge masks are worked out
+ * once per board size and stop runs of discs wrapping around to the next row
+ *
+ * An instance keeps its own scratch words so move generation doesn't allocate, which also
+ * means one instance must only be used by one thread at a time
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class WideBitBoard
+{
+    // Masks for each board size, shared between instances since they never change
+    private static final long[][][] MASKCACHE = new long[512][][];
+    
+    private final int size;
+    private final int words;
+    
+    // Every square on the board and the squares not in the first or last column
+    private final long[] valid;
+    private final long[] innerColumns;
+    
+    // Bit shifts for the 8 directions (positive shifts move towards higher squares) and
+    // whether the direction moves horizontally and so needs the inner column mask
+    private final int[] shifts;
+    private final boolean[] horizontal = {true, true, false, false, true, true, true, true};
+    
+    private final long[] run;
+    private final long[] frontier;
+    private final long[] empty;
+    private final long[] innerOpponent;
+    
+    /**
+     * @param size      the width (and height) of the board
+     */
+    public WideBitBoard(int size) {
+        this.size = size;
+        this.words = Rules.words(size);
+        this.shifts = new int[] {1, -1, size, -size, size+1, -(size+1), size-1, -(size-1)};
+        
+        long[][] masks = getMasks(size);
+        valid = masks[0];
+        innerColumns = masks[1];
+        
+        run = new long[words];
+        frontier = new long[words];
+        empty = new long[words];
+        innerOpponent = new long[words];
+    }
+    
+    /**
+     * Gets the edge masks for a board size from the cache, creating them the first time
+     * a size is used
+     * 
+     * @return the valid squares mask followed by the inner columns mask
+     */
+    private static long[][] getMasks(int size) {
+        long[][] masks = (size < MASKCACHE.length) ? MASKCACHE[size] : null;
+        if (masks != null) return masks;
+        
+        int words = Rules.words(size);
+        masks = new long[2][words];
+        for (int r=0; r<size; r++) {
+            for (int c=0; c<size; c++) {
+                int square = r*size+c;
+                masks[0][square >>> 6] |= 1L << square;
+                if (c > 0 && c < size-1)
+                    masks[1][square >>> 6] |= 1L << square;
+            }
+        }
+        
+        if (size < MASKCACHE.length) MASKCACHE[size] = masks;
+        return masks;
+    }
+    
+    /**
+     * Finds every square the player could place a disc on. For each direction the player's
+     * discs are shifted over runs of opponent discs one square at a time until the runs stop
+     * growing, any empty square right after a run is a legal move
+     * 
+     * @param player        the bitboard of the player whose turn it is
+     * @param opponent      the bitboard of the other player
+     * @param out           the bitboard the legal moves are written to
+     */
+    public void legalMoves(long[] player, long[] opponent, long[] out) {
+        for (int i=0; i<words; i++) {
+            empty[i] = ~(player[i] | opponent[i]) & valid[i];
+            innerOpponent[i] = opponent[i] & innerColumns[i];
+            out[i] = 0;
+        }
+        
+        for (int d=0; d<8; d++) {
+            long[] mask = (horizontal[d]) ? innerOpponent : opponent;
+            int shift = shifts[d];
+            
+            boolean growing = shiftAnd(player, shift, mask, frontier);
+            System.arraycopy(frontier, 0, run, 0, words);
+            
+            while (growing) {
+                growing = shiftAnd(frontier, shift, mask, frontier);
+                for (int i=0; i<words; i++) {
+                    run[i] |= frontier[i];
+                }
+            }
+            
+            shiftAnd(run, shift, empty, frontier);
+            for (int i=0; i<words; i++) {
+                out[i] |= frontier[i];
+            }
+        }
+    }
+    
+    /**
+     * Finds the discs captured by placing a disc on the square. Only the 8 rays through one
+     * square can change so these are walked bit by bit rather than shifting whole boards
+     * 
+     * @param player        the bitboard of the player whose turn it is
+     * @param opponent      the bitboard of the other player
+     * @param square        the square the disc is placed on
+     * @param out           the bitboard the captured discs are written to
+     * 
+     * @return the number of captured discs, 0 if the move is not legal
+     */
+    public int flips(long[] player, long[] opponent, int square, long[] out) {
+        for (int i=0; i<words; i++) {
+            out[i] = 0;
+        }
+        
+        if (Rules.has(player, square) || Rules.has(opponent, square)) return 0;
+        
+        int total = 0;
+        int row = square/size;
+        int column = square%size;
+        
+        for (int d=0; d<8; d++) {
+            int rInc = rowStep(d);
+            int cInc = columnStep(d);
+            int r = row+rInc;
+            int c = column+cInc;
+            int captured = 0;
+            
+            while ( (r>=0 && r<size) && (c>=0 && c<size) && Rules.has(opponent, r*size+c) ) {
+                captured++;
+                r += rInc;
+                c += cInc;
+            }
+            
+            boolean flanked = (r>=0 && r<size) && (c>=0 && c<size) && Rules.has(player, r*size+c);
+            if (!flanked || captured == 0) continue;
+            
+            for (int i=1; i<=captured; i++) {
+                int flipped = (row+rInc*i)*size+column+cInc*i;
+                out[flipped >>> 6] |= 1L << flipped;
+            }
+            total += captured;
+        }
+        
+        return total;
+    }
+    
+    /**
+     * Shifts a bitboard by a number of squares and keeps only the bits in the mask. The
+     * input and output can be the same array since words are written in the order they
+     * stop being read
+     * 
+     * @param in        the bitboard to shift
+     * @param shift     the number of bits to shift by, positive towards higher squares
+     * @param mask      the squares to keep after shifting
+     * @param out       the bitboard the result is written to
+     * 
+     * @return whether any bits are left
+     */
+    private boolean shiftAnd(long[] in, int shift, long[] mask, long[] out) {
+        long any = 0;
+        
+        if (shift > 0) {
+            int wordShift = shift >>> 6;
+            int bitShift = shift & 63;
+            
+            for (int i=words-1; i>=0; i--) {
+                int src = i-wordShift;
+                long value = 0;
+                if (src >= 0) {
+                    value = in[src] << bitShift;
+                    if (bitShift != 0 && src > 0) value |= in[src-1] >>> (64-bitShift);
+                }
+                out[i] = value & mask[i];
+                any |= out[i];
+            }
+        } else {
+            int wordShift = (-shift) >>> 6;
+            int bitShift = (-shift) & 63;
+            
+            for (int i=0; i<words; i++) {
+                int src = i+wordShift;
+                long value = 0;
+                if (src < words) {
+                    value = in[src] >>> bitShift;
+                    if (bitShift != 0 && src < words-1) value |= in[src+1] << (64-bitShift);
+                }
+                out[i] = value & mask[i];
+                any |= out[i];
+            }
+        }
+        
+        return any != 0;
+    }
+    
+    /**
+     * @return the row increment of a direction, in the same order as the shifts
+     */
+    private static int rowStep(int d) {
+        switch (d) {
+            case 2: case 4: case 6:
+                return 1;
+            case 3: case 5: case 7:
+                return -1;
+            default:
+                return 0;
+        }
+    }
+    
+    /**
+     * @return the column increment of a direction, in the same order as the shifts
+     */
+    private static int columnStep(int d) {
+        switch (d) {
+            case 0: case 4: case 7:
+                return 1;
+            case 1: case 5: case 6:
+                return -1;
+            default:
+                return 0;
+        }
+    }
+    
+    public int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Random numbers used to give each position a 64 bit hash key (Zobrist hashing). Every
+ * square has one number for a black disc and one for a white disc, and there is one more
+ * for white being the side to move. A position's key is all the numbers for its discs
+ * XORed together, so placing, flipping or removing a disc only needs one or two XORs to
+ * update the key instead of going over the whole board
+ *
+ * The numbers come from a fixed seed so keys are the same every time the game runs,
+ * which lets keys be saved to files such as the opening book
+ *
+ * @author Milovan Gveric
+ * @version 18/10/2026
+ */
+public class Zobrist
+{
+    private static final long SEED = 0x5265766572736921L;
+    
+    // The keys for each board size, created the first time a size is used
+    private static final Zobrist[] CACHE = new Zobrist[512];
+    
+    private final long[] blackKeys;
+    private final long[] whiteKeys;
+    
+    // The black key XOR the white key for each square, what flipping a disc changes
+    private final long[] flipKeys;
+    private final long sideKey;
+    
+    /**
+     * @param size      the width (and height) of the board
+     */
+    private Zobrist(int size) {
+        long state = SEED ^ ((long) size << 32);
+        blackKeys = new long[size*size];
+        whiteKeys = new long[size*size];
+        flipKeys = new long[size*size];
+        
+        for (int square=0; square<size*size; square++) {
+            state += 0x9e3779b97f4a7c15L;
+            blackKeys[square] = mix(state);
+            state += 0x9e3779b97f4a7c15L;
+            whiteKeys[square] = mix(state);
+            flipKeys[square] = blackKeys[square] ^ whiteKeys[square];
+        }
+        
+        state += 0x9e3779b97f4a7c15L;
+        sideKey = mix(state);
+    }
+    
+    /**
+     * @param size      the width (and height) of the board
+     * 
+     * @return the keys for boards of that size
+     */
+    public static Zobrist forSize(int size) {
+        if (size >= CACHE.length) return new Zobrist(size);
+        
+        Zobrist keys = CACHE[size];
+        if (keys == null) {
+            keys = new Zobrist(size);
+            CACHE[size] = keys;
+        }
+        return keys;
+    }
+    
+    /**
+     * @return the key of a disc of the color on the square, 0 for empty squares
+     */
+    public long disc(int color, int square) {
+        if (color == GameState.BLACK) return blackKeys[square];
+        if (color == GameState.WHITE) return whiteKeys[square];
+        return 0;
+    }
+    
+    /**
+     * @return what changes in the key when the disc on the square is flipped
+     */
+    public long flip(int square) {
+        return flipKeys[square];
+    }
+    
+    /**
+     * @return what changes in the key when the side to move changes
+     */
+    public long side() {
+        return sideKey;
+    }
+    
+    /**
+     * Works out a position's key from scratch, used to check the keys kept by GameState
+     * 
+     * @param black     the bitboard of black discs
+     * @param white     the bitboard of white discs
+     * @param sideToMove    GameState.BLACK or GameState.WHITE
+     * 
+     * @return the position's hash key
+     */
+    public long compute(long[] black, long[] white, int sideToMove) {
+        long key = (sideToMove == GameState.WHITE) ? sideKey : 0;
+        
+        for (int i=0; i<black.length; i++) {
+            long word = black[i];
+            while (word != 0) {
+                key ^= blackKeys[i*64+Long.numberOfTrailingZeros(word)];
+                word &= word-1;
+            }
+            word = white[i];
+            while (word != 0) {
+                key ^= whiteKeys[i*64+Long.numberOfTrailingZeros(word)];
+                word &= word-1;
+            }
+        }
+        
+        return key;
+    }
+    
+    /**
+     * The finishing step of the SplitMix64 generator, which spreads every input bit
+     * over the whole output
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}